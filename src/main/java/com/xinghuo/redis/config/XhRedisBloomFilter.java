@@ -0,0 +1,536 @@
+package com.xinghuo.redis.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisBloomFilter.java
+ *
+ *  Description     : 基于redis位图的布隆过滤器，T是泛型，不依赖RedisBloom模块。
+ *                    写入在一次Lua脚本中原子完成版本号加1、记录被修改的分段和SETBIT，GETBIT使用pipeline一次网络往返完成；
+ *                    开启本地快照后，判断元素是否存在直接读取本地位图副本。位图按64KB分段，
+ *                    快照定期比较版本号，只用GETRANGE获取本地版本之后被修改的分段，首次加载或位图被删除重建时才读取整个位图，
+ *                    用于拦截不存在的key，避免缓存穿透访问redis和数据库
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisBloomFilter<T> implements DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisBloomFilter.class);
+
+	/**
+	 * redis位图的最大位数（512MB）
+	 */
+	private static final long MAX_BITS = 1L << 32;
+
+	/**
+	 * 本地快照按分段刷新，每个分段的字节数
+	 */
+	static final int SEGMENT_BYTES = 64 * 1024;
+
+	/**
+	 * 刷新快照时一次pipeline获取的分段数
+	 */
+	private static final int SEGMENTS_PER_PIPELINE = 16;
+
+	/**
+	 * 一次脚本调用设置的最大位数，超过时分多次调用，每次调用各自记录被修改的分段
+	 */
+	private static final int OFFSETS_PER_SCRIPT = 10000;
+
+	private static final RedisScript<Long> ADD_SCRIPT = XhRedisScripts.get("bloom_add", Long.class);
+
+	private final ConcurrentMap<String, Filter> filters = new ConcurrentHashMap<String, Filter>();
+
+	private volatile ScheduledExecutorService refresher;
+
+	@Autowired
+	private RedisTemplate<String,T> redisTemplate;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	/**
+	 * <p>
+	 * 注意：所有节点必须使用相同的参数创建同名过滤器
+	 * </p>
+	 * 创建布隆过滤器，根据预计元素数量和误判率计算位图大小和哈希函数个数
+	 * @param name 过滤器名称，位图存储在{name}:bloom中
+	 * @param expectedInsertions 预计元素数量
+	 * @param fpp 误判率，如0.01
+	 */
+	public void create(String name, long expectedInsertions, double fpp){
+		if(expectedInsertions <= 0 || fpp <= 0 || fpp >= 1){
+			throw new IllegalArgumentException("expectedInsertions必须大于0，fpp必须在0和1之间");
+		}
+		long numBits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		if(numBits > MAX_BITS){
+			throw new IllegalArgumentException("布隆过滤器位图超过redis上限: " + numBits);
+		}
+		int numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+		Filter filter = new Filter(name, numBits, numHashes);
+		if(filters.putIfAbsent(name, filter) == null && properties.getBloom().isLocalSnapshot()){
+			refresh(filter);
+			startRefresher();
+		}
+	}
+
+	/**
+	 * 添加元素
+	 * @param name 过滤器名称
+	 * @param value 元素T
+	 */
+	public void put(String name, T value){
+		putAll(name, Collections.singletonList(value));
+	}
+
+	/**
+	 * 批量添加元素，版本号加1、记录被修改的分段和SETBIT在一次脚本中原子完成，
+	 * 不会出现位已设置但其他节点的快照刷新获取不到被修改分段的情况
+	 * @param name 过滤器名称
+	 * @param values 元素T集合
+	 */
+	public void putAll(String name, Collection<T> values){
+		final Filter filter = filter(name);
+		final long[] offsets = new long[values.size() * filter.numHashes];
+		int index = 0;
+		for(T value : values){
+			index = filter.offsets(serialize(value), offsets, index);
+		}
+		if(offsets.length == 0){
+			return;
+		}
+		List<String> keys = Arrays.asList(filter.bitmapKey, filter.bitmapKey + ":version", filter.bitmapKey + ":dirty");
+		for(int from = 0; from < offsets.length; from += OFFSETS_PER_SCRIPT){
+			long[] chunk = Arrays.copyOfRange(offsets, from, Math.min(from + OFFSETS_PER_SCRIPT, offsets.length));
+			Set<Long> segments = dirtySegments(chunk);
+			List<Object> args = new ArrayList<Object>(1 + segments.size() + chunk.length);
+			args.add(bytes(segments.size()));
+			for(long segment : segments){
+				args.add(bytes(segment));
+			}
+			for(long offset : chunk){
+				args.add(bytes(offset));
+			}
+			this.redisTemplate.execute(ADD_SCRIPT, null, null, keys, args.toArray());
+		}
+		filter.setLocal(offsets);
+	}
+
+	/**
+	 * 判断元素是否可能存在。开启本地快照时不访问redis，其他节点新增的元素在快照刷新前可能被判断为不存在
+	 * @param name 过滤器名称
+	 * @param value 元素T
+	 * @return false-元素一定不存在 true-元素可能存在
+	 */
+	public boolean mightContain(String name, T value){
+		Filter filter = filter(name);
+		long[] offsets = new long[filter.numHashes];
+		filter.offsets(serialize(value), offsets, 0);
+		byte[] snapshot = filter.snapshot;
+		if(snapshot != null){
+			for(long offset : offsets){
+				if(!isSet(snapshot, offset)){
+					return false;
+				}
+			}
+			return true;
+		}
+		return mightContainRemote(filter, offsets);
+	}
+
+	/**
+	 * 访问redis判断元素是否可能存在，所有GETBIT使用一次pipeline提交
+	 * @param name 过滤器名称
+	 * @param value 元素T
+	 * @return false-元素一定不存在 true-元素可能存在
+	 */
+	public boolean mightContainRemote(String name, T value){
+		Filter filter = filter(name);
+		long[] offsets = new long[filter.numHashes];
+		filter.offsets(serialize(value), offsets, 0);
+		return mightContainRemote(filter, offsets);
+	}
+
+	/**
+	 * 立即刷新本地快照
+	 * @param name 过滤器名称
+	 */
+	public void refresh(String name){
+		refresh(filter(name));
+	}
+
+	/**
+	 * 删除过滤器的位图，同时清空本地快照
+	 * @param name 过滤器名称
+	 */
+	public void delete(String name){
+		Filter filter = filter(name);
+		this.redisTemplate.execute((RedisCallback<Object>) connection -> connection.del(filter.rawBitmapKey, filter.rawVersionKey, filter.rawDirtyKey));
+		synchronized (filter) {
+			if(filter.snapshot != null){
+				filter.snapshot = new byte[filter.snapshot.length];
+			}
+			filter.version = NO_VERSION;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		ScheduledExecutorService executor = refresher;
+		if(executor != null){
+			executor.shutdownNow();
+		}
+	}
+
+	private boolean mightContainRemote(final Filter filter, final long[] offsets){
+		List<Object> bits = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(long offset : offsets){
+				connection.getBit(filter.rawBitmapKey, offset);
+			}
+			return null;
+		});
+		for(Object bit : bits){
+			if(!Boolean.TRUE.equals(bit)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 版本号变化时获取本地版本之后被修改的分段，与本地快照按位或合并，避免丢失刷新期间本节点新增的位；
+	 * 首次加载、redis中的版本号小于本地版本（位图被删除重建）时获取所有分段。
+	 * 先读取版本号再读取分段：写入脚本原子执行，版本号不大于该值的写入，其SETBIT在读取分段时一定可见
+	 */
+	private void refresh(final Filter filter){
+		byte[] version = this.redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(filter.rawVersionKey));
+		long current = version == null ? NO_VERSION : Long.parseLong(new String(version, StandardCharsets.UTF_8));
+		long local = filter.version;
+		if(filter.snapshot != null && current == local){
+			return;
+		}
+		int bitmapBytes = (int) ((filter.numBits + 7) / 8);
+		int segmentCount = (bitmapBytes + SEGMENT_BYTES - 1) / SEGMENT_BYTES;
+		boolean full = filter.snapshot == null || local == NO_VERSION || current < local;
+		List<Integer> segments = new ArrayList<Integer>();
+		if(current == NO_VERSION){
+			segments = Collections.emptyList();
+		} else if(full){
+			for(int segment = 0; segment < segmentCount; segment++){
+				segments.add(segment);
+			}
+		} else {
+			// 分段的分数是最后修改时的版本号，都是整数，只获取大于本地版本的分段
+			Set<byte[]> dirty = this.redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+					connection.zRangeByScore(filter.rawDirtyKey, local + 0.5, Double.POSITIVE_INFINITY));
+			if(dirty != null){
+				for(byte[] segment : dirty){
+					segments.add(Integer.valueOf(new String(segment, StandardCharsets.UTF_8)));
+				}
+			}
+		}
+		byte[] merged = full ? new byte[bitmapBytes] : null;
+		for(int from = 0; from < segments.size(); from += SEGMENTS_PER_PIPELINE){
+			final List<Integer> batch = segments.subList(from, Math.min(from + SEGMENTS_PER_PIPELINE, segments.size()));
+			List<Object> ranges = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+				for(int segment : batch){
+					long start = (long) segment * SEGMENT_BYTES;
+					connection.getRange(filter.rawBitmapKey, start, Math.min(start + SEGMENT_BYTES, bitmapBytes) - 1);
+				}
+				return null;
+			}, null);
+			if(merged != null){
+				for(int i = 0; i < batch.size(); i++){
+					byte[] range = (byte[]) ranges.get(i);
+					if(range != null){
+						System.arraycopy(range, 0, merged, batch.get(i) * SEGMENT_BYTES, Math.min(range.length, bitmapBytes - batch.get(i) * SEGMENT_BYTES));
+					}
+				}
+			} else {
+				filter.orSegments(batch, ranges);
+			}
+		}
+		synchronized (filter) {
+			if(merged != null){
+				byte[] snapshot = filter.snapshot;
+				if(snapshot != null){
+					for(int i = 0; i < snapshot.length; i++){
+						merged[i] |= snapshot[i];
+					}
+				}
+				filter.snapshot = merged;
+			}
+			filter.version = current;
+		}
+	}
+
+	private static byte[] bytes(long value){
+		return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * offsets所在的分段序号
+	 */
+	static Set<Long> dirtySegments(long[] offsets){
+		Set<Long> segments = new TreeSet<Long>();
+		for(long offset : offsets){
+			segments.add((offset >>> 3) / SEGMENT_BYTES);
+		}
+		return segments;
+	}
+
+	private void startRefresher(){
+		if(refresher != null){
+			return;
+		}
+		synchronized (this) {
+			if(refresher == null){
+				long interval = Math.max(100, properties.getBloom().getRefreshInterval());
+				ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+						XhRedisExecutors.daemonThreadFactory("xh-redis-bloom"));
+				executor.scheduleWithFixedDelay(() -> {
+					for(Filter filter : filters.values()){
+						try {
+							refresh(filter);
+						} catch (Exception e) {
+							logger.error("【redis布隆过滤器】刷新本地快照异常, name={}", filter.name, e);
+						}
+					}
+				}, interval, interval, TimeUnit.MILLISECONDS);
+				refresher = executor;
+			}
+		}
+	}
+
+	private Filter filter(String name){
+		Filter filter = filters.get(name);
+		if(filter == null){
+			throw new IllegalStateException("布隆过滤器未创建: " + name);
+		}
+		return filter;
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] serialize(T value){
+		return ((RedisSerializer<T>) this.redisTemplate.getValueSerializer()).serialize(value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] rawKey(String key){
+		return ((RedisSerializer<String>) this.redisTemplate.getKeySerializer()).serialize(key);
+	}
+
+	/**
+	 * redis位图中offset 0是第一个字节的最高位
+	 */
+	private static boolean isSet(byte[] bitmap, long offset){
+		int index = (int) (offset >>> 3);
+		return index < bitmap.length && (bitmap[index] & (0x80 >>> (offset & 7))) != 0;
+	}
+
+	/**
+	 * 本地快照还没有对应的版本号，或redis中没有版本号
+	 */
+	private static final long NO_VERSION = -1;
+
+	/**
+	 * 布隆过滤器定义及本地快照
+	 */
+	private class Filter {
+
+		private final String name;
+
+		private final String bitmapKey;
+
+		private final byte[] rawBitmapKey;
+
+		private final byte[] rawVersionKey;
+
+		private final byte[] rawDirtyKey;
+
+		private final long numBits;
+
+		private final int numHashes;
+
+		/**
+		 * 本地位图快照，未开启本地快照时为null
+		 */
+		private volatile byte[] snapshot;
+
+		/**
+		 * 生成快照时的版本号，刷新线程写入，其他线程读取
+		 */
+		private volatile long version = NO_VERSION;
+
+		Filter(String name, long numBits, int numHashes) {
+			this.name = name;
+			this.bitmapKey = "{" + name + "}:bloom";
+			this.rawBitmapKey = rawKey(bitmapKey);
+			this.rawVersionKey = rawKey(bitmapKey + ":version");
+			this.rawDirtyKey = rawKey(bitmapKey + ":dirty");
+			this.numBits = numBits;
+			this.numHashes = numHashes;
+		}
+
+		/**
+		 * 双重哈希计算元素的numHashes个位置，写入offsets[from]开始的位置
+		 * @return 下一个写入位置
+		 */
+		int offsets(byte[] data, long[] offsets, int from){
+			long[] hash = murmur3(data);
+			long combined = hash[0];
+			for(int i = 0; i < numHashes; i++){
+				offsets[from++] = (combined & Long.MAX_VALUE) % numBits;
+				combined += hash[1];
+			}
+			return from;
+		}
+
+		synchronized void setLocal(long[] offsets){
+			byte[] bitmap = snapshot;
+			if(bitmap == null){
+				return;
+			}
+			for(long offset : offsets){
+				bitmap[(int) (offset >>> 3)] |= (byte) (0x80 >>> (offset & 7));
+			}
+		}
+
+		/**
+		 * 把从redis获取的分段按位或合并到本地快照
+		 */
+		synchronized void orSegments(List<Integer> segments, List<Object> ranges){
+			byte[] bitmap = snapshot;
+			if(bitmap == null){
+				return;
+			}
+			for(int i = 0; i < segments.size(); i++){
+				byte[] range = (byte[]) ranges.get(i);
+				if(range == null){
+					continue;
+				}
+				int start = segments.get(i) * SEGMENT_BYTES;
+				for(int j = 0; j < range.length && start + j < bitmap.length; j++){
+					bitmap[start + j] |= range[j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * MurmurHash3 x64 128位哈希，返回两个64位结果
+	 */
+	static long[] murmur3(byte[] data){
+		final long c1 = 0x87c37b91114253d5L;
+		final long c2 = 0x4cf5ad432745937fL;
+		int length = data.length;
+		int blocks = length >>> 4;
+		long h1 = 0;
+		long h2 = 0;
+		for(int i = 0; i < blocks; i++){
+			long k1 = littleEndianLong(data, i << 4);
+			long k2 = littleEndianLong(data, (i << 4) + 8);
+			k1 *= c1;
+			k1 = Long.rotateLeft(k1, 31);
+			k1 *= c2;
+			h1 ^= k1;
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+			k2 *= c2;
+			k2 = Long.rotateLeft(k2, 33);
+			k2 *= c1;
+			h2 ^= k2;
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+		int tail = blocks << 4;
+		long k1 = 0;
+		long k2 = 0;
+		switch(length & 15){
+			case 15: k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+			case 14: k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+			case 13: k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+			case 12: k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+			case 11: k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+			case 10: k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+			case 9:
+				k2 ^= (long) (data[tail + 8] & 0xff);
+				k2 *= c2;
+				k2 = Long.rotateLeft(k2, 33);
+				k2 *= c1;
+				h2 ^= k2;
+			case 8: k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+			case 7: k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+			case 6: k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+			case 5: k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+			case 4: k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+			case 3: k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+			case 2: k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+			case 1:
+				k1 ^= (long) (data[tail] & 0xff);
+				k1 *= c1;
+				k1 = Long.rotateLeft(k1, 31);
+				k1 *= c2;
+				h1 ^= k1;
+			default:
+				break;
+		}
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix64(h1);
+		h2 = fmix64(h2);
+		h1 += h2;
+		h2 += h1;
+		return new long[] { h1, h2 };
+	}
+
+	private static long littleEndianLong(byte[] data, int offset){
+		long value = 0;
+		for(int i = 7; i >= 0; i--){
+			value = (value << 8) | (data[offset + i] & 0xffL);
+		}
+		return value;
+	}
+
+	private static long fmix64(long k){
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
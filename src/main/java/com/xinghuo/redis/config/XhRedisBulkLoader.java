@@ -0,0 +1,235 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisBulkLoader.java
+ *
+ *  Description     : 大集合批量写入工具类，T是泛型。
+ *                    按元素数量和字节数把输入拆分为多条RPUSH/LPUSH/SADD/ZADD命令，
+ *                    每次pipeline最多发送max-in-flight条命令，输入可以是Iterator或Stream，不会整体加载到内存
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisBulkLoader<T> {
+
+	/**
+	 * 将一批元素写入key的命令
+	 */
+	private interface ChunkCommand<R> {
+		void write(RedisConnection connection, byte[] rawKey, List<R> chunk);
+	}
+
+	@Autowired
+	private RedisTemplate<String,T> redisTemplate;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	/**
+	 * 创建使用指定RedisTemplate写入的副本，用于XhRedisUtils的视图
+	 * @param template RedisTemplate
+	 * @return XhRedisBulkLoader
+	 */
+	<E> XhRedisBulkLoader<E> withTemplate(RedisTemplate<String,E> template){
+		XhRedisBulkLoader<E> loader = new XhRedisBulkLoader<E>();
+		loader.redisTemplate = template;
+		loader.properties = properties;
+		return loader;
+	}
+
+	/**
+	 * <p>
+	 * 注意：分多条命令写入，写入过程不是原子的
+	 * </p>
+	 * 批量存储在list尾部
+	 * @param key  list缓存的key
+	 * @param values 需要加入的元素T迭代器
+	 * @return 写入完成后list的长度
+	 */
+	public long lRightPushAll(String key, Iterator<? extends T> values){
+		return load(key, values, this::serialize, raw -> raw.length, false,
+				(connection, rawKey, chunk) -> connection.rPush(rawKey, toArray(chunk)));
+	}
+
+	/**
+	 * 批量存储在list尾部
+	 * @param key  list缓存的key
+	 * @param values 需要加入的元素T的Stream
+	 * @return 写入完成后list的长度
+	 */
+	public long lRightPushAll(String key, Stream<? extends T> values){
+		return lRightPushAll(key, values.iterator());
+	}
+
+	/**
+	 * <p>
+	 * 注意：分多条命令写入，写入过程不是原子的
+	 * </p>
+	 * 批量存储在list头部，写入完成后list中元素顺序与逐个LPUSH相同
+	 * @param key  list缓存的key
+	 * @param values 需要加入的元素T迭代器
+	 * @return 写入完成后list的长度
+	 */
+	public long lLeftPushAll(String key, Iterator<? extends T> values){
+		return load(key, values, this::serialize, raw -> raw.length, false,
+				(connection, rawKey, chunk) -> connection.lPush(rawKey, toArray(chunk)));
+	}
+
+	/**
+	 * 批量存储在list头部
+	 * @param key  list缓存的key
+	 * @param values 需要加入的元素T的Stream
+	 * @return 写入完成后list的长度
+	 */
+	public long lLeftPushAll(String key, Stream<? extends T> values){
+		return lLeftPushAll(key, values.iterator());
+	}
+
+	/**
+	 * <p>
+	 * 注意：分多条命令写入，写入过程不是原子的
+	 * </p>
+	 * set批量添加元素
+	 * @param key  set缓存的key
+	 * @param values 需要添加的元素T迭代器
+	 * @return 新添加到set中的元素数量
+	 */
+	public long sAddAll(String key, Iterator<? extends T> values){
+		return load(key, values, this::serialize, raw -> raw.length, true,
+				(connection, rawKey, chunk) -> connection.sAdd(rawKey, toArray(chunk)));
+	}
+
+	/**
+	 * set批量添加元素
+	 * @param key  set缓存的key
+	 * @param values 需要添加的元素T的Stream
+	 * @return 新添加到set中的元素数量
+	 */
+	public long sAddAll(String key, Stream<? extends T> values){
+		return sAddAll(key, values.iterator());
+	}
+
+	/**
+	 * <p>
+	 * 注意：分多条命令写入，写入过程不是原子的
+	 * </p>
+	 * zset批量添加元素
+	 * @param key  zset缓存的key
+	 * @param values 需要添加的元素及score迭代器
+	 * @return 新添加到zset中的元素数量
+	 */
+	public long zAddAll(String key, Iterator<? extends TypedTuple<T>> values){
+		return load(key, values, tuple -> (Tuple) new DefaultTuple(serialize(tuple.getValue()), tuple.getScore()),
+				tuple -> tuple.getValue().length + 8, true,
+				(connection, rawKey, chunk) -> connection.zAdd(rawKey, new LinkedHashSet<Tuple>(chunk)));
+	}
+
+	/**
+	 * zset批量添加元素
+	 * @param key  zset缓存的key
+	 * @param values 需要添加的元素及score的Stream
+	 * @return 新添加到zset中的元素数量
+	 */
+	public long zAddAll(String key, Stream<? extends TypedTuple<T>> values){
+		return zAddAll(key, values.iterator());
+	}
+
+	/**
+	 * 批量写入的单条命令最大元素数量
+	 */
+	int chunkSize(){
+		return Math.max(1, properties.getBulk().getChunkSize());
+	}
+
+	/**
+	 * 边遍历边序列化，元素数量或字节数达到上限时切分为一条命令，
+	 * 命令数量达到max-in-flight时提交一次pipeline并等待全部返回
+	 * @param cumulative true返回所有命令返回值之和，false返回最后一条命令的返回值
+	 */
+	private <E, R> long load(String key, Iterator<? extends E> values, Function<E, R> encoder, ToIntFunction<R> sizer,
+			boolean cumulative, ChunkCommand<R> command){
+		int chunkSize = chunkSize();
+		int chunkBytes = Math.max(1, properties.getBulk().getChunkBytes());
+		int maxInFlight = Math.max(1, properties.getBulk().getMaxInFlight());
+		byte[] rawKey = rawKey(key);
+		long result = 0;
+		List<List<R>> pending = new ArrayList<List<R>>(maxInFlight);
+		List<R> chunk = new ArrayList<R>(chunkSize);
+		long bytes = 0;
+		while(values.hasNext()){
+			R encoded = encoder.apply(values.next());
+			chunk.add(encoded);
+			bytes += sizer.applyAsInt(encoded);
+			if(chunk.size() >= chunkSize || bytes >= chunkBytes){
+				pending.add(chunk);
+				chunk = new ArrayList<R>(chunkSize);
+				bytes = 0;
+				if(pending.size() >= maxInFlight){
+					result = flush(rawKey, pending, command, cumulative, result);
+					pending.clear();
+				}
+			}
+		}
+		if(!chunk.isEmpty()){
+			pending.add(chunk);
+		}
+		if(!pending.isEmpty()){
+			result = flush(rawKey, pending, command, cumulative, result);
+		}
+		return result;
+	}
+
+	private <R> long flush(final byte[] rawKey, final List<List<R>> chunks, final ChunkCommand<R> command,
+			boolean cumulative, long previous){
+		List<Object> replies = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(List<R> chunk : chunks){
+				command.write(connection, rawKey, chunk);
+			}
+			return null;
+		});
+		long result = previous;
+		for(Object reply : replies){
+			long value = reply instanceof Number ? ((Number) reply).longValue() : 0;
+			result = cumulative ? result + value : value;
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] serialize(T value){
+		return ((RedisSerializer<T>) this.redisTemplate.getValueSerializer()).serialize(value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] rawKey(String key){
+		return ((RedisSerializer<String>) this.redisTemplate.getKeySerializer()).serialize(key);
+	}
+
+	private static byte[][] toArray(List<byte[]> chunk){
+		return chunk.toArray(new byte[chunk.size()][]);
+	}
+}
@@ -0,0 +1,137 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisCappedList.java
+ *
+ *  Description     : 定长list，保存最新的maxLength个元素，新元素在头部。
+ *                    单个添加和不超过SCRIPT_BATCH_SIZE个元素的批量添加通过lua脚本原子地推入并裁剪；
+ *                    更大的批量添加以pipeline分批LPUSH，最后一次LTRIM，期间list长度可能短暂超过maxLength；
+ *                    设置了ttl时每次添加都刷新过期时间
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisCappedList<T> {
+
+	/**
+	 * 单次lua脚本推入的最大元素数量，lua脚本中unpack的参数个数有上限
+	 */
+	static final int SCRIPT_BATCH_SIZE = 1000;
+
+	private final XhRedisUtils<T> redisUtils;
+
+	private final String key;
+
+	private final long maxLength;
+
+	private final long ttl;
+
+	XhRedisCappedList(XhRedisUtils<T> redisUtils, String key, long maxLength, long ttl) {
+		if(maxLength <= 0){
+			throw new IllegalArgumentException("list最大长度必须大于0: " + maxLength);
+		}
+		this.redisUtils = redisUtils;
+		this.key = key;
+		this.maxLength = maxLength;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * 添加元素，推入和裁剪在一次调用中原子完成
+	 * @param value 元素
+	 * @return 裁剪后的list长度
+	 */
+	public Long add(T value){
+		return redisUtils.cappedPush(key, "LEFT", maxLength, ttl, Collections.singletonList(value));
+	}
+
+	/**
+	 * 按顺序批量添加元素，添加完成后最后一个元素在头部；只有最后maxLength个元素会被写入
+	 * @param values 元素
+	 * @return 裁剪后的list长度
+	 */
+	public Long addAll(Collection<? extends T> values){
+		if(values.isEmpty()){
+			return redisUtils.lSize(key);
+		}
+		List<T> latest = new ArrayList<T>(values);
+		if(latest.size() > maxLength){
+			latest = latest.subList((int) (latest.size() - maxLength), latest.size());
+		}
+		if(latest.size() <= SCRIPT_BATCH_SIZE){
+			return redisUtils.cappedPush(key, "LEFT", maxLength, ttl, latest);
+		}
+		return pipelinedAddAll(latest);
+	}
+
+	/**
+	 * 获取最新的count个元素，最新的在前
+	 * @param count 元素数量
+	 * @return 元素
+	 */
+	public List<T> latest(long count){
+		return count <= 0 ? Collections.<T>emptyList() : redisUtils.lRange(key, 0, Math.min(count, maxLength) - 1);
+	}
+
+	/**
+	 * 获取所有元素，最新的在前
+	 * @return 元素
+	 */
+	public List<T> getAll(){
+		return redisUtils.lRange(key, 0, -1);
+	}
+
+	/**
+	 * 当前元素数量
+	 * @return 元素数量
+	 */
+	public long size(){
+		return redisUtils.lSize(key);
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public long getMaxLength() {
+		return maxLength;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Long pipelinedAddAll(final List<T> values){
+		List<Object> results = redisUtils.execute(XhRedisGuard.Operation.BULK, XhRedisPools.Workload.BULK, key, template -> {
+			final byte[] rawKey = ((RedisSerializer<String>) template.getKeySerializer()).serialize(key);
+			final RedisSerializer<T> valueSerializer = (RedisSerializer<T>) template.getValueSerializer();
+			return template.executePipelined((RedisCallback<Object>) connection -> {
+				for(int from = 0; from < values.size(); from += SCRIPT_BATCH_SIZE){
+					List<T> chunk = values.subList(from, Math.min(values.size(), from + SCRIPT_BATCH_SIZE));
+					byte[][] rawValues = new byte[chunk.size()][];
+					for(int i = 0; i < rawValues.length; i++){
+						rawValues[i] = valueSerializer.serialize(chunk.get(i));
+					}
+					connection.lPush(rawKey, rawValues);
+				}
+				connection.lTrim(rawKey, 0, maxLength - 1);
+				if(ttl > 0){
+					connection.pExpire(rawKey, ttl);
+				}
+				connection.lLen(rawKey);
+				return null;
+			});
+		});
+		return (Long) results.get(results.size() - 1);
+	}
+}
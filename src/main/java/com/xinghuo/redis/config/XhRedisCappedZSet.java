@@ -0,0 +1,160 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisZSetCommands.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisCappedZSet.java
+ *
+ *  Description     : 定长zset，只保留score最高（或最低）的maxSize个元素，如排行榜前N名、最近N条记录（score为时间戳）。
+ *                    单个添加和不超过SCRIPT_BATCH_SIZE个元素的批量添加通过lua脚本原子地添加并裁剪；
+ *                    更大的批量添加以pipeline分批ZADD，最后一次ZREMRANGEBYRANK，期间元素数量可能短暂超过maxSize；
+ *                    设置了ttl时每次添加都刷新过期时间
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisCappedZSet<T> {
+
+	private final XhRedisUtils<T> redisUtils;
+
+	private final String key;
+
+	private final long maxSize;
+
+	private final boolean keepHighest;
+
+	private final long ttl;
+
+	XhRedisCappedZSet(XhRedisUtils<T> redisUtils, String key, long maxSize, boolean keepHighest, long ttl) {
+		if(maxSize <= 0){
+			throw new IllegalArgumentException("zset最大元素数量必须大于0: " + maxSize);
+		}
+		this.redisUtils = redisUtils;
+		this.key = key;
+		this.maxSize = maxSize;
+		this.keepHighest = keepHighest;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * 添加元素，添加和裁剪在一次调用中原子完成
+	 * @param value 元素
+	 * @param score 分数
+	 * @return 元素是新添加的返回true，已存在只更新score的返回false
+	 */
+	public boolean add(T value, double score){
+		Long added = redisUtils.cappedZAdd(key, keepHighest, maxSize, ttl, Collections.singletonMap(value, score));
+		return added != null && added > 0;
+	}
+
+	/**
+	 * 批量添加元素
+	 * @param values 元素和分数
+	 * @return 新添加的元素数量（不含已存在只更新score的元素）
+	 */
+	public long addAll(Map<? extends T, Double> values){
+		if(values.isEmpty()){
+			return 0;
+		}
+		if(values.size() <= XhRedisCappedList.SCRIPT_BATCH_SIZE){
+			Long added = redisUtils.cappedZAdd(key, keepHighest, maxSize, ttl, values);
+			return added == null ? 0 : added;
+		}
+		return pipelinedAddAll(values);
+	}
+
+	/**
+	 * 按保留顺序获取前count个元素：保留最高分时按score由大到小，保留最低分时按score由小到大
+	 * @param count 元素数量
+	 * @return 元素
+	 */
+	public Set<T> top(long count){
+		if(count <= 0){
+			return Collections.emptySet();
+		}
+		long end = Math.min(count, maxSize) - 1;
+		return keepHighest ? redisUtils.zReverseRange(key, 0, end) : redisUtils.zRange(key, 0, end);
+	}
+
+	/**
+	 * 按保留顺序获取前count个元素及分数
+	 * @param count 元素数量
+	 * @return 元素和分数
+	 */
+	public Set<TypedTuple<T>> topWithScores(long count){
+		if(count <= 0){
+			return Collections.emptySet();
+		}
+		long end = Math.min(count, maxSize) - 1;
+		return keepHighest ? redisUtils.zReverseRangeWithScores(key, 0, end) : redisUtils.zRangeWithScores(key, 0, end);
+	}
+
+	/**
+	 * 当前元素数量
+	 * @return 元素数量
+	 */
+	public long size(){
+		Long size = redisUtils.zCard(key);
+		return size == null ? 0 : size;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	@SuppressWarnings("unchecked")
+	private long pipelinedAddAll(Map<? extends T, Double> values){
+		final List<Map.Entry<T, Double>> entries = new ArrayList<Map.Entry<T, Double>>(new LinkedHashMap<T, Double>(values).entrySet());
+		final int batches = (entries.size() + XhRedisCappedList.SCRIPT_BATCH_SIZE - 1) / XhRedisCappedList.SCRIPT_BATCH_SIZE;
+		List<Object> results = redisUtils.execute(XhRedisGuard.Operation.BULK, XhRedisPools.Workload.BULK, key, template -> {
+			final byte[] rawKey = ((RedisSerializer<String>) template.getKeySerializer()).serialize(key);
+			final RedisSerializer<T> valueSerializer = (RedisSerializer<T>) template.getValueSerializer();
+			return template.executePipelined((RedisCallback<Object>) connection -> {
+				for(int from = 0; from < entries.size(); from += XhRedisCappedList.SCRIPT_BATCH_SIZE){
+					int to = Math.min(entries.size(), from + XhRedisCappedList.SCRIPT_BATCH_SIZE);
+					Set<Tuple> tuples = new HashSet<Tuple>((to - from) * 4 / 3 + 1);
+					for(Map.Entry<T, Double> entry : entries.subList(from, to)){
+						tuples.add(new DefaultTuple(valueSerializer.serialize(entry.getKey()), entry.getValue()));
+					}
+					connection.zAdd(rawKey, tuples);
+				}
+				if(keepHighest){
+					connection.zRemRange(rawKey, 0, -maxSize - 1);
+				} else {
+					connection.zRemRange(rawKey, maxSize, -1);
+				}
+				if(ttl > 0){
+					connection.pExpire(rawKey, ttl);
+				}
+				return null;
+			});
+		});
+		long added = 0;
+		for(int i = 0; i < batches; i++){
+			Object result = results.get(i);
+			added += result == null ? 0 : ((Number) result).longValue();
+		}
+		return added;
+	}
+}
@@ -0,0 +1,95 @@
+package com.xinghuo.redis.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisCodecs.java
+ *
+ *  Description     : 按类型注册value序列化方式。
+ *                    每个类型使用独立的RedisTemplate，value和hash value使用注册的序列化（默认为按类型的json序列化，
+ *                    也可以注册二进制序列化），不再经过RedisTemplate<String,Object>的default typing；
+ *                    utils(Class)返回该类型的XhRedisUtils视图，与默认XhRedisUtils共用熔断、读写分离和独立连接池
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisCodecs {
+
+	/**
+	 * 所有按类型的json序列化共用一个ObjectMapper，ObjectMapper内部缓存类型的序列化器
+	 */
+	private final ObjectMapper objectMapper = XhRedisTypedJsonSerializer.defaultObjectMapper();
+
+	private final ConcurrentMap<Class<?>, RedisSerializer<?>> codecs = new ConcurrentHashMap<Class<?>, RedisSerializer<?>>();
+
+	private final ConcurrentMap<Class<?>, XhRedisUtils<?>> views = new ConcurrentHashMap<Class<?>, XhRedisUtils<?>>();
+
+	@Autowired
+	private XhRedisUtils<Object> redisUtils;
+
+	/**
+	 * 注册类型的序列化方式，需要在第一次调用utils(type)之前注册
+	 * @param type 类型
+	 * @param codec 序列化方式，如二进制序列化
+	 */
+	public <T> void register(Class<T> type, RedisSerializer<T> codec){
+		if(views.containsKey(type)){
+			throw new IllegalStateException(type.getName() + "的XhRedisUtils视图已创建，不能再修改序列化方式");
+		}
+		codecs.put(type, codec);
+	}
+
+	/**
+	 * 获取类型的序列化方式，没有注册时使用按类型的json序列化
+	 * @param type 类型
+	 * @return 序列化方式
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> RedisSerializer<T> codec(Class<T> type){
+		RedisSerializer<?> codec = codecs.get(type);
+		return (RedisSerializer<T>) (codec != null ? codec : codecs.computeIfAbsent(type, t -> new XhRedisTypedJsonSerializer<T>(type, objectMapper)));
+	}
+
+	/**
+	 * 获取类型的XhRedisUtils视图，value使用该类型注册的序列化方式
+	 * @param type 类型
+	 * @return XhRedisUtils视图
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> XhRedisUtils<T> utils(Class<T> type){
+		XhRedisUtils<?> view = views.get(type);
+		return (XhRedisUtils<T>) (view != null ? view : views.computeIfAbsent(type, t -> redisUtils.view("", template(type), null)));
+	}
+
+	/**
+	 * 创建类型的RedisTemplate，key和hash key使用默认RedisTemplate的序列化方式
+	 * @param type 类型
+	 * @return RedisTemplate
+	 */
+	public <T> RedisTemplate<String, T> template(Class<T> type){
+		RedisTemplate<String, Object> base = redisUtils.getTemplate();
+		RedisSerializer<T> codec = codec(type);
+		RedisTemplate<String, T> template = new RedisTemplate<String, T>();
+		template.setConnectionFactory(base.getConnectionFactory());
+		template.setKeySerializer(base.getKeySerializer());
+		template.setHashKeySerializer(base.getHashKeySerializer());
+		template.setValueSerializer(codec);
+		template.setHashValueSerializer(codec);
+		template.afterPropertiesSet();
+		return template;
+	}
+}
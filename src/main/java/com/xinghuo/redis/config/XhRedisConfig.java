@@ -2,15 +2,22 @@ package com.xinghuo.redis.config;
 
 import java.time.Duration;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
@@ -21,6 +28,11 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+
 
 /***************************************************************************
  * <PRE>
@@ -36,6 +48,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * </PRE>
  ***************************************************************************/
 @Configuration
+@EnableConfigurationProperties(XhRedisProperties.class)
 public class XhRedisConfig extends CachingConfigurerSupport {
 
 	/**
@@ -45,6 +58,15 @@ public class XhRedisConfig extends CachingConfigurerSupport {
 	 */
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
+        return createRedisTemplate(factory);
+    }
+    
+    /**
+     * 创建使用json序列化value的RedisTemplate，独立连接池的RedisTemplate也使用该方法创建
+     * @param factory redis连接工厂
+     * @return RedisTemplate
+     */
+    static RedisTemplate<String, Object> createRedisTemplate(RedisConnectionFactory factory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         RedisSerializer<String> redisSerializer = new StringRedisSerializer();
         Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer<Object>(Object.class);
@@ -62,6 +84,95 @@ public class XhRedisConfig extends CachingConfigurerSupport {
         return template;
     }
     
+    /**
+     * 发布订阅监听容器，整个JVM共用一个订阅连接。
+     * 消息在订阅线程上同步交给XhRedisPubSub的有界分发器，不使用默认的无界线程池
+     * @param factory redis连接工厂
+     * @return RedisMessageListenerContainer
+     */
+    @Bean
+    public RedisMessageListenerContainer xhRedisMessageListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.setTaskExecutor(new SyncTaskExecutor());
+        return container;
+    }
+    
+    /**
+     * Lettuce的I/O线程和计算线程，所有Lettuce客户端共用
+     * @param properties xinghuo.redis配置
+     * @return ClientResources
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ClientResources lettuceClientResources(XhRedisProperties properties) {
+        XhRedisProperties.Lettuce lettuce = properties.getLettuce();
+        DefaultClientResources.Builder builder = DefaultClientResources.builder();
+        if (lettuce.getIoThreadPoolSize() > 0) {
+            builder.ioThreadPoolSize(lettuce.getIoThreadPoolSize());
+        }
+        if (lettuce.getComputationThreadPoolSize() > 0) {
+            builder.computationThreadPoolSize(lettuce.getComputationThreadPoolSize());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * 集群拓扑定时刷新和自适应刷新，主从切换后尽快发现新的主节点。哨兵模式由Lettuce订阅哨兵的切换通知
+     * @param properties xinghuo.redis配置
+     * @return LettuceClientConfigurationBuilderCustomizer
+     */
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer xhRedisLettuceCustomizer(XhRedisProperties properties) {
+        return builder -> builder.clientOptions(clusterClientOptions(properties.getLettuce()));
+    }
+    
+    /**
+     * 设置共用原生连接或连接池，启动时建立连接
+     * @param properties xinghuo.redis配置
+     * @return XhRedisConnectionInitializer
+     */
+    @Bean
+    public static XhRedisConnectionInitializer xhRedisConnectionInitializer(ObjectProvider<XhRedisProperties> properties) {
+        return new XhRedisConnectionInitializer(properties);
+    }
+    
+    /**
+     * 读写分离路由，按xinghuo.redis.replica.read-from使用Lettuce ReadFrom读从节点，支持集群和哨兵模式
+     * @param redisProperties spring.redis配置
+     * @param properties xinghuo.redis配置
+     * @param clientResources Lettuce线程资源
+     * @return XhRedisReadRouter
+     */
+    @Bean
+    public XhRedisReadRouter xhRedisReadRouter(RedisProperties redisProperties, XhRedisProperties properties, ClientResources clientResources) {
+        return new XhRedisReadRouter(redisProperties, properties, clientResources);
+    }
+    
+    /**
+     * 按操作类型或key前缀划分的独立连接池
+     * @param redisProperties spring.redis配置
+     * @param properties xinghuo.redis配置
+     * @param clientResources Lettuce线程资源
+     * @return XhRedisPools
+     */
+    @Bean
+    public XhRedisPools xhRedisPools(RedisProperties redisProperties, XhRedisProperties properties, ClientResources clientResources) {
+        return new XhRedisPools(redisProperties, properties, clientResources);
+    }
+    
+    /**
+     * 启动预热健康检查，只在引入spring-boot-actuator时注册
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+    static class XhRedisWarmupHealthConfig {
+
+        @Bean
+        public XhRedisWarmupHealthIndicator xhRedisWarmupHealthIndicator(XhRedisWarmup warmup) {
+            return new XhRedisWarmupHealthIndicator(warmup);
+        }
+    }
+
     /**
      * 缓存管理器
      */
@@ -80,4 +191,21 @@ public class XhRedisConfig extends CachingConfigurerSupport {
         //初始化RedisCacheManager
         return new RedisCacheManager(redisCacheWriter, defaultCacheConfig);
     }
+    
+    /**
+     * 集群拓扑刷新配置，非集群模式下拓扑刷新配置不生效
+     * @param lettuce Lettuce连接配置
+     * @return ClusterClientOptions
+     */
+    static ClusterClientOptions clusterClientOptions(XhRedisProperties.Lettuce lettuce) {
+        ClusterTopologyRefreshOptions.Builder refresh = ClusterTopologyRefreshOptions.builder();
+        if (lettuce.getTopologyRefreshPeriod() > 0) {
+            refresh.enablePeriodicRefresh(Duration.ofMillis(lettuce.getTopologyRefreshPeriod()));
+        }
+        if (lettuce.isAdaptiveTopologyRefresh()) {
+            refresh.enableAllAdaptiveRefreshTriggers()
+                    .adaptiveRefreshTriggersTimeout(Duration.ofMillis(lettuce.getAdaptiveRefreshTimeout()));
+        }
+        return ClusterClientOptions.builder().topologyRefreshOptions(refresh.build()).build();
+    }
 }
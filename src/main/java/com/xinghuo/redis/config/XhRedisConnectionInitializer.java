@@ -0,0 +1,79 @@
+package com.xinghuo.redis.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisConnectionInitializer.java
+ *
+ *  Description     : Lettuce连接工厂初始化。
+ *                    按xinghuo.redis.lettuce.share-native-connection设置共用原生连接或使用连接池，
+ *                    不共用原生连接时必须配置spring.redis.lettuce.pool，否则每次操作都会新建连接，启动时直接报错；
+ *                    应用启动完成前建立连接并读取集群拓扑，连接失败只记录日志，不影响应用启动
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisConnectionInitializer implements BeanPostProcessor, SmartInitializingSingleton {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisConnectionInitializer.class);
+
+	/**
+	 * BeanPostProcessor创建较早，延迟获取配置，避免提前初始化配置类
+	 */
+	private final ObjectProvider<XhRedisProperties> properties;
+
+	private LettuceConnectionFactory connectionFactory;
+
+	public XhRedisConnectionInitializer(ObjectProvider<XhRedisProperties> properties) {
+		this.properties = properties;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		if(bean instanceof LettuceConnectionFactory){
+			LettuceConnectionFactory factory = (LettuceConnectionFactory) bean;
+			boolean share = properties.getObject().getLettuce().isShareNativeConnection();
+			if(!share && !(factory.getClientConfiguration() instanceof LettucePoolingClientConfiguration)){
+				//没有连接池时，独占连接每次操作新建、用完关闭
+				throw new IllegalStateException("xinghuo.redis.lettuce.share-native-connection=false时必须配置spring.redis.lettuce.pool, bean=" + beanName);
+			}
+			factory.setShareNativeConnection(share);
+			if(connectionFactory == null){
+				connectionFactory = factory;
+			}
+		}
+		return bean;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if(connectionFactory == null || !properties.getObject().getLettuce().isEagerInitialization()){
+			return;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			RedisConnection connection = connectionFactory.getConnection();
+			try {
+				connection.ping();
+			} finally {
+				connection.close();
+			}
+			logger.info("【redis连接】启动时建立连接完成，耗时{}ms", System.currentTimeMillis() - start);
+		} catch (Exception e) {
+			logger.error("【redis连接】启动时建立连接异常，将在第一次请求时重试, {}", e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,331 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisCounter.java
+ *
+ *  Description     : 本地聚合的redis计数器。
+ *                    累加值先记录在本地LongAdder中，定时或达到阈值时以INCRBY/HINCRBY增量批量pipeline提交，
+ *                    按每条命令的结果确认提交，失败的增量保留在本地重试；连续多次提交期间没有累加的计数单元被回收；
+ *                    应用关闭时保证提交，读取时可选择合并本地尚未提交的增量
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisCounter implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisCounter.class);
+
+	/**
+	 * 每次累加时以1/64的概率检查未提交次数是否达到阈值，避免每次累加都汇总LongAdder
+	 */
+	private static final int THRESHOLD_CHECK_MASK = 63;
+
+	/**
+	 * 计数单元连续该次数的提交期间没有累加且没有待提交增量时回收
+	 */
+	static final int EVICT_IDLE_FLUSHES = 3;
+
+	private final ConcurrentMap<CounterKey, Cell> cells = new ConcurrentHashMap<CounterKey, Cell>();
+
+	/**
+	 * 已从cells中移除、但可能还有并发累加未撤销的计数单元，只在flush中访问
+	 */
+	private final List<Cell> retiredCells = new ArrayList<Cell>();
+
+	private final LongAdder pendingOps = new LongAdder();
+
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private ScheduledExecutorService flusher;
+
+	@Autowired
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	@Override
+	public void afterPropertiesSet() {
+		long interval = Math.max(10, properties.getCounter().getFlushInterval());
+		flusher = Executors.newSingleThreadScheduledExecutor(XhRedisExecutors.daemonThreadFactory("xh-redis-counter"));
+		flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 计数器加1
+	 * @param key 计数器的key
+	 */
+	public void increment(String key){
+		add(new CounterKey(key, null), 1);
+	}
+
+	/**
+	 * 计数器增加delta，delta可以为负数
+	 * @param key 计数器的key
+	 * @param delta 增加值
+	 */
+	public void increment(String key, long delta){
+		add(new CounterKey(key, null), delta);
+	}
+
+	/**
+	 * hash中field对应的计数器增加delta
+	 * @param key hash缓存的key
+	 * @param field hash中的field
+	 * @param delta 增加值
+	 */
+	public void hIncrement(String key, String field, long delta){
+		add(new CounterKey(key, field), delta);
+	}
+
+	/**
+	 * 获取计数器的值
+	 * @param key 计数器的key
+	 * @param includePending true-合并本地尚未提交的增量（读己之写） false-只返回redis中的值
+	 * @return 计数器的值
+	 */
+	public long get(String key, boolean includePending){
+		String value = stringRedisTemplate.opsForValue().get(key);
+		long result = value == null ? 0 : Long.parseLong(value);
+		return includePending ? result + pending(new CounterKey(key, null)) : result;
+	}
+
+	/**
+	 * 获取hash中field对应计数器的值
+	 * @param key hash缓存的key
+	 * @param field hash中的field
+	 * @param includePending true-合并本地尚未提交的增量（读己之写） false-只返回redis中的值
+	 * @return 计数器的值
+	 */
+	public long hGet(String key, String field, boolean includePending){
+		Object value = stringRedisTemplate.opsForHash().get(key, field);
+		long result = value == null ? 0 : Long.parseLong(value.toString());
+		return includePending ? result + pending(new CounterKey(key, field)) : result;
+	}
+
+	/**
+	 * 立即提交所有本地增量，所有INCRBY/HINCRBY使用一次pipeline提交。
+	 * 按每条命令的结果确认提交，失败的增量保留在本地，下次提交时重试；部分命令失败时成功的增量不会重复提交
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void flush(){
+		final List<Cell> dirty = new ArrayList<Cell>();
+		final List<long[]> pendings = new ArrayList<long[]>();
+		for(Cell cell : cells.values()){
+			if(collect(cell, dirty, pendings)){
+				if(++cell.idleFlushes >= EVICT_IDLE_FLUSHES){
+					cell.retired = true;
+					cells.remove(cell.key, cell);
+					retiredCells.add(cell);
+				}
+			} else {
+				cell.idleFlushes = 0;
+			}
+		}
+		for(Iterator<Cell> it = retiredCells.iterator(); it.hasNext();){
+			Cell cell = it.next();
+			if(collect(cell, dirty, pendings) && cell.inflight.sum() == 0){
+				it.remove();
+			}
+		}
+		if(dirty.isEmpty()){
+			return;
+		}
+		final RedisSerializer<String> keySerializer = (RedisSerializer<String>) this.stringRedisTemplate.getKeySerializer();
+		final RedisSerializer<String> hashKeySerializer = (RedisSerializer<String>) this.stringRedisTemplate.getHashKeySerializer();
+		List<Object> results;
+		try {
+			results = this.stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+				for(int i = 0; i < dirty.size(); i++){
+					CounterKey key = dirty.get(i).key;
+					byte[] rawKey = keySerializer.serialize(key.key);
+					if(key.field == null){
+						connection.incrBy(rawKey, pendings.get(i)[0]);
+					} else {
+						connection.hIncrBy(rawKey, hashKeySerializer.serialize(key.field), pendings.get(i)[0]);
+					}
+				}
+				return null;
+			});
+		} catch (RedisPipelineException e) {
+			results = e.getPipelineResult();
+		}
+		int failures = 0;
+		for(int i = 0; i < dirty.size(); i++){
+			Object result = i < results.size() ? results.get(i) : null;
+			if(result == null || result instanceof Throwable){
+				failures++;
+				continue;
+			}
+			Cell cell = dirty.get(i);
+			cell.flushed += pendings.get(i)[0];
+			cell.ops.add(-pendings.get(i)[1]);
+			pendingOps.add(-pendings.get(i)[1]);
+		}
+		if(failures > 0){
+			logger.warn("【redis计数器】{}个计数器提交失败，增量保留在本地，下次提交时重试", failures);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		flusher.shutdown();
+		flushQuietly();
+	}
+
+	private void add(CounterKey key, long delta){
+		for(;;){
+			Cell cell = cells.get(key);
+			if(cell == null){
+				cell = cells.computeIfAbsent(key, Cell::new);
+			}
+			cell.inflight.increment();
+			cell.adder.add(delta);
+			if(!cell.retired){
+				cell.ops.increment();
+				cell.inflight.decrement();
+				break;
+			}
+			// 计数单元已被回收：撤销后累加到新的计数单元，已回收的单元提交时只看到一正一负两次累加
+			cell.adder.add(-delta);
+			cell.inflight.decrement();
+		}
+		pendingOps.increment();
+		if((ThreadLocalRandom.current().nextInt() & THRESHOLD_CHECK_MASK) == 0
+				&& pendingOps.sum() >= properties.getCounter().getFlushThreshold()
+				&& flushScheduled.compareAndSet(false, true)){
+			flusher.execute(() -> {
+				flushScheduled.set(false);
+				flushQuietly();
+			});
+		}
+	}
+
+	/**
+	 * 计算计数单元的待提交增量和累加次数，有待提交增量时加入dirty
+	 * @return 没有待提交增量且没有累加
+	 */
+	private boolean collect(Cell cell, List<Cell> dirty, List<long[]> pendings){
+		long delta = cell.adder.sum() - cell.flushed;
+		long ops = cell.ops.sum();
+		if(delta != 0){
+			dirty.add(cell);
+			pendings.add(new long[] { delta, ops });
+			return false;
+		}
+		cell.ops.add(-ops);
+		pendingOps.add(-ops);
+		return ops == 0;
+	}
+
+	private long pending(CounterKey key){
+		Cell cell = cells.get(key);
+		return cell == null ? 0 : cell.adder.sum() - cell.flushed;
+	}
+
+	private void flushQuietly(){
+		try {
+			flush();
+		} catch (Exception e) {
+			logger.error("【redis计数器】提交本地增量异常", e);
+		}
+	}
+
+	/**
+	 * 计数器标识，field为null时表示string类型计数器
+	 */
+	private static final class CounterKey {
+
+		private final String key;
+
+		private final String field;
+
+		CounterKey(String key, String field) {
+			this.key = key;
+			this.field = field;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof CounterKey)){
+				return false;
+			}
+			CounterKey other = (CounterKey) o;
+			return key.equals(other.key) && Objects.equals(field, other.field);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * key.hashCode() + (field == null ? 0 : field.hashCode());
+		}
+	}
+
+	/**
+	 * 计数单元。adder只增不清零，已提交部分记录在flushed中，两者之差即为待提交增量，
+	 * 避免清零与并发累加之间丢失增量。
+	 * 回收时先设置retired再从cells中移除：累加线程在累加后看到retired则撤销并改用新单元，
+	 * 没看到retired的累加对回收后的提交一定可见，inflight为0且没有待提交增量后才丢弃
+	 */
+	private static final class Cell {
+
+		private final CounterKey key;
+
+		private final LongAdder adder = new LongAdder();
+
+		private final LongAdder ops = new LongAdder();
+
+		/**
+		 * 正在累加的线程数
+		 */
+		private final LongAdder inflight = new LongAdder();
+
+		/**
+		 * 已提交到redis的累计值，只在flush中修改
+		 */
+		private volatile long flushed;
+
+		/**
+		 * 连续没有累加的提交次数，只在flush中访问
+		 */
+		private int idleFlushes;
+
+		private volatile boolean retired;
+
+		Cell(CounterKey key) {
+			this.key = key;
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package com.xinghuo.redis.config;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisDelayQueue.java
+ *
+ *  Description     : 基于zset的redis延时队列，T是泛型。
+ *                    元素按到期时间存入zset，由lua脚本原子地批量转移到就绪list，消费者从就绪list获取元素；
+ *                    监听线程按最近一个元素的到期时间休眠，不再忙轮询redis；
+ *                    一个队列可拆分为多个zset分片（xinghuo.redis.delay-queue.shards），集群环境下分布到不同节点
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisDelayQueue<T> implements DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisDelayQueue.class);
+
+	/**
+	 * 将到期元素从zset转移到就绪list，返回zset中下一个元素的到期时间
+	 */
+	private static final RedisScript<Long> TRANSFER = XhRedisScripts.get("delay_queue_transfer", Long.class);
+
+	/**
+	 * 从就绪list头部一次取出多个元素
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> POP = XhRedisScripts.get("delay_queue_pop", List.class);
+
+	/**
+	 * lua脚本中unpack的参数个数有上限，单批转移数量不超过该值
+	 */
+	private static final int MAX_BATCH_SIZE = 1000;
+
+	private final RedisSerializer<String> argsSerializer = new StringRedisSerializer();
+
+	private final RedisSerializer<Long> longSerializer = new GenericToStringSerializer<Long>(Long.class);
+
+	private final ConcurrentMap<String, Worker> workers = new ConcurrentHashMap<String, Worker>();
+
+	private final AtomicInteger pollCounter = new AtomicInteger();
+
+	@Autowired
+	private RedisTemplate<String,T> redisTemplate;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	/**
+	 * 投递延时元素
+	 * @param queueKey 延时队列的key
+	 * @param value 延时元素T
+	 * @param delay 延时时长
+	 * @param unit 时间单位，如：TimeUnit.SECONDS
+	 */
+	public void offer(String queueKey, T value, long delay, TimeUnit unit){
+		this.offerAt(queueKey, value, System.currentTimeMillis() + unit.toMillis(delay));
+	}
+
+	/**
+	 * 投递在指定时间到期的元素，元素已存在时更新到期时间
+	 * @param queueKey 延时队列的key
+	 * @param value 延时元素T
+	 * @param dueTime 到期时间(时间戳格式)
+	 */
+	public void offerAt(String queueKey, T value, long dueTime){
+		this.redisTemplate.opsForZSet().add(delayedKey(queueKey, shardOf(value)), value, dueTime);
+		wakeUp(queueKey, dueTime);
+	}
+
+	/**
+	 * 批量投递延时元素，使用pipeline一次网络往返提交
+	 * @param queueKey 延时队列的key
+	 * @param values 延时元素T集合
+	 * @param delay 延时时长
+	 * @param unit 时间单位，如：TimeUnit.SECONDS
+	 */
+	public void offer(final String queueKey, final Collection<T> values, long delay, TimeUnit unit){
+		if(values == null || values.isEmpty()){
+			return;
+		}
+		final long dueTime = System.currentTimeMillis() + unit.toMillis(delay);
+		this.redisTemplate.executePipelined(new SessionCallback<Object>() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+				RedisOperations<String, T> ops = (RedisOperations<String, T>) operations;
+				for(T value : values){
+					ops.opsForZSet().add(delayedKey(queueKey, shardOf(value)), value, dueTime);
+				}
+				return null;
+			}
+		});
+		wakeUp(queueKey, dueTime);
+	}
+
+	/**
+	 * 取消尚未到期的元素
+	 * @param queueKey 延时队列的key
+	 * @param value 延时元素T
+	 * @return 元素存在并被取消返回true
+	 */
+	public boolean cancel(String queueKey, T value){
+		Long removed = this.redisTemplate.opsForZSet().remove(delayedKey(queueKey, shardOf(value)), value);
+		return removed != null && removed > 0;
+	}
+
+	/**
+	 * 获取尚未到期的元素数量
+	 * @param queueKey 延时队列的key
+	 * @return 所有分片中未到期元素的数量
+	 */
+	public long pendingSize(String queueKey){
+		long size = 0;
+		for(int shard = 0; shard < shards(); shard++){
+			Long shardSize = this.redisTemplate.opsForZSet().zCard(delayedKey(queueKey, shard));
+			size += shardSize == null ? 0 : shardSize;
+		}
+		return size;
+	}
+
+	/**
+	 * 获取已到期等待消费的元素数量
+	 * @param queueKey 延时队列的key
+	 * @return 所有分片中就绪元素的数量
+	 */
+	public long readySize(String queueKey){
+		long size = 0;
+		for(int shard = 0; shard < shards(); shard++){
+			Long shardSize = this.redisTemplate.opsForList().size(readyKey(queueKey, shard));
+			size += shardSize == null ? 0 : shardSize;
+		}
+		return size;
+	}
+
+	/**
+	 * 将所有分片中已到期的元素转移到就绪list，未使用listen时可由调用方自行定时调用
+	 * @param queueKey 延时队列的key
+	 * @return 下一个元素的到期时间(时间戳格式)，队列为空时返回-1
+	 */
+	public long transferDue(String queueKey){
+		long next = -1;
+		for(int shard = 0; shard < shards(); shard++){
+			long shardNext;
+			do {
+				shardNext = transferShard(queueKey, shard);
+			} while(shardNext >= 0 && shardNext <= System.currentTimeMillis());
+			if(shardNext >= 0 && (next < 0 || shardNext < next)){
+				next = shardNext;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * 从就绪list中取出一个已到期的元素，多个分片之间轮流获取
+	 * @param queueKey 延时队列的key
+	 * @return 已到期的元素T，没有就绪元素时返回null
+	 */
+	public T poll(String queueKey){
+		int shards = shards();
+		int start = (pollCounter.getAndIncrement() & Integer.MAX_VALUE) % shards;
+		for(int i = 0; i < shards; i++){
+			T value = this.redisTemplate.opsForList().leftPop(readyKey(queueKey, (start + i) % shards));
+			if(value != null){
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * <p>
+	 * 注意：handler抛出异常时该元素不会重新投递
+	 * </p>
+	 * 启动后台线程监听延时队列，到期元素被转移后交给handler处理。
+	 * 线程按最近一个元素的到期时间休眠，本节点投递更早到期的元素时会被提前唤醒
+	 * @param queueKey 延时队列的key
+	 * @param handler 到期元素的处理方法
+	 */
+	public void listen(String queueKey, Consumer<T> handler){
+		Worker worker = new Worker(queueKey, handler);
+		if(workers.putIfAbsent(queueKey, worker) != null){
+			throw new IllegalStateException("延时队列已经在监听中: " + queueKey);
+		}
+		Thread thread = new Thread(worker, "xh-redis-delay-" + queueKey);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 停止监听延时队列
+	 * @param queueKey 延时队列的key
+	 */
+	public void stopListen(String queueKey){
+		Worker worker = workers.remove(queueKey);
+		if(worker != null){
+			worker.stop();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		for(String queueKey : workers.keySet()){
+			stopListen(queueKey);
+		}
+	}
+
+	private long transferShard(String queueKey, int shard){
+		List<String> keys = Arrays.asList(delayedKey(queueKey, shard), readyKey(queueKey, shard));
+		Long next = this.redisTemplate.execute(TRANSFER, argsSerializer, longSerializer, keys,
+				String.valueOf(System.currentTimeMillis()), String.valueOf(batchSize()));
+		return next == null ? -1 : next;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<T> popReady(String readyKey, int count){
+		List<T> items = (List<T>) this.redisTemplate.execute(POP, argsSerializer, (RedisSerializer) this.redisTemplate.getValueSerializer(),
+				Collections.singletonList(readyKey), String.valueOf(count));
+		return items == null ? Collections.<T>emptyList() : items;
+	}
+
+	/**
+	 * 按元素序列化后的crc32值选择分片，保证不同节点对同一元素选择相同的分片
+	 */
+	@SuppressWarnings("unchecked")
+	private int shardOf(T value){
+		int shards = shards();
+		if(shards <= 1){
+			return 0;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(((RedisSerializer<T>) this.redisTemplate.getValueSerializer()).serialize(value));
+		return (int) (crc.getValue() % shards);
+	}
+
+	private void wakeUp(String queueKey, long dueTime){
+		Worker worker = workers.get(queueKey);
+		if(worker != null){
+			worker.wakeUpBefore(dueTime);
+		}
+	}
+
+	private int shards(){
+		return Math.max(1, properties.getDelayQueue().getShards());
+	}
+
+	private int batchSize(){
+		return Math.min(MAX_BATCH_SIZE, Math.max(1, properties.getDelayQueue().getBatchSize()));
+	}
+
+	/**
+	 * 分片zset和就绪list使用相同的hash tag，保证lua脚本操作的两个key在同一个slot上
+	 */
+	private static String delayedKey(String queueKey, int shard){
+		return "{" + queueKey + "#" + shard + "}:delayed";
+	}
+
+	private static String readyKey(String queueKey, int shard){
+		return "{" + queueKey + "#" + shard + "}:ready";
+	}
+
+	/**
+	 * 延时队列监听线程：转移到期元素、消费就绪元素、休眠到下一个元素到期
+	 */
+	private class Worker implements Runnable {
+
+		private final String queueKey;
+
+		private final Consumer<T> handler;
+
+		private volatile boolean running = true;
+
+		/**
+		 * 当前休眠计划被唤醒的时间，由this保护
+		 */
+		private long wakeAt = Long.MAX_VALUE;
+
+		Worker(String queueKey, Consumer<T> handler) {
+			this.queueKey = queueKey;
+			this.handler = handler;
+		}
+
+		@Override
+		public void run() {
+			while(running){
+				long sleep;
+				try {
+					long next = transferDue(queueKey);
+					if(drain() > 0){
+						sleep = 0;
+					} else if(next < 0){
+						sleep = properties.getDelayQueue().getMaxPollInterval();
+					} else {
+						sleep = Math.min(next - System.currentTimeMillis(), properties.getDelayQueue().getMaxPollInterval());
+					}
+				} catch (Exception e) {
+					logger.error("【redis延时队列】转移到期元素异常, queue={}", queueKey, e);
+					sleep = properties.getDelayQueue().getMaxPollInterval();
+				}
+				await(sleep);
+			}
+		}
+
+		private int drain(){
+			int total = 0;
+			int batchSize = batchSize();
+			for(int shard = 0; shard < shards() && running; shard++){
+				List<T> items;
+				do {
+					items = popReady(readyKey(queueKey, shard), batchSize);
+					for(T item : items){
+						try {
+							handler.accept(item);
+						} catch (Exception e) {
+							logger.error("【redis延时队列】处理到期元素异常, queue={}", queueKey, e);
+						}
+					}
+					total += items.size();
+				} while(items.size() == batchSize && running);
+			}
+			return total;
+		}
+
+		private synchronized void await(long millis){
+			if(millis <= 0 || !running){
+				return;
+			}
+			wakeAt = System.currentTimeMillis() + millis;
+			try {
+				wait(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				running = false;
+			} finally {
+				wakeAt = Long.MAX_VALUE;
+			}
+		}
+
+		synchronized void wakeUpBefore(long dueTime){
+			if(dueTime < wakeAt){
+				notifyAll();
+			}
+		}
+
+		synchronized void stop(){
+			running = false;
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisExecutors.java
+ *
+ *  Description     : redis组件内部使用的线程池，线程均为守护线程
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+final class XhRedisExecutors {
+
+	private static volatile ExecutorService io;
+
+	private static volatile ExecutorService shards;
+
+	/**
+	 * 分片集合并行访问分片的线程数，也是单次并行操作最多同时执行的任务数
+	 */
+	static final int SHARD_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	private XhRedisExecutors() {
+	}
+
+	/**
+	 * 并行访问多个redis节点使用的共享线程池
+	 */
+	static ExecutorService io(){
+		ExecutorService executor = io;
+		if(executor == null){
+			synchronized (XhRedisExecutors.class) {
+				executor = io;
+				if(executor == null){
+					int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+					executor = Executors.newFixedThreadPool(threads, daemonThreadFactory("xh-redis-io"));
+					io = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * 分片集合并行访问分片使用的线程池，与共享线程池隔离，遍历大集合长时间占用线程时不影响其他组件
+	 */
+	static ExecutorService shards(){
+		ExecutorService executor = shards;
+		if(executor == null){
+			synchronized (XhRedisExecutors.class) {
+				executor = shards;
+				if(executor == null){
+					executor = Executors.newFixedThreadPool(SHARD_THREADS, daemonThreadFactory("xh-redis-shard"));
+					shards = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * 创建守护线程工厂，线程名为prefix-序号
+	 */
+	static ThreadFactory daemonThreadFactory(final String prefix){
+		final AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * 等待所有任务完成并按顺序返回结果，任务异常时抛出原始的运行时异常
+	 */
+	static <R> List<R> joinAll(List<CompletableFuture<R>> futures){
+		List<R> results = new ArrayList<R>(futures.size());
+		try {
+			for(CompletableFuture<R> future : futures){
+				results.add(future.join());
+			}
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		return results;
+	}
+}
@@ -0,0 +1,65 @@
+package com.xinghuo.redis.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceExceptionConverter;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisFutures.java
+ *
+ *  Description     : 等待Lettuce异步命令的结果。
+ *                    Lettuce 5.0的异步命令本身没有超时，响应丢失时无限期等待；这里按连接的命令超时时长等待，
+ *                    超时后取消命令，异常转换为spring的DataAccessException
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+final class XhRedisFutures {
+
+	/**
+	 * 无法从连接工厂获取命令超时时长时使用的默认值，与Lettuce的默认值相同
+	 */
+	static final long DEFAULT_TIMEOUT = 60000;
+
+	private static final LettuceExceptionConverter EXCEPTION_CONVERTER = new LettuceExceptionConverter();
+
+	private XhRedisFutures() {
+	}
+
+	/**
+	 * 连接的命令超时时长（spring.redis.timeout），单位毫秒
+	 */
+	static long commandTimeout(RedisConnectionFactory connectionFactory){
+		if(connectionFactory instanceof LettuceConnectionFactory){
+			long timeout = ((LettuceConnectionFactory) connectionFactory).getClientConfiguration().getCommandTimeout().toMillis();
+			if(timeout > 0){
+				return timeout;
+			}
+		}
+		return DEFAULT_TIMEOUT;
+	}
+
+	/**
+	 * 最多等待timeout毫秒，超时后取消命令并抛出QueryTimeoutException
+	 */
+	static <R> R await(RedisFuture<R> future, long timeout){
+		try {
+			return LettuceFutures.awaitOrCancel(future, timeout, TimeUnit.MILLISECONDS);
+		} catch (RuntimeException e) {
+			DataAccessException translated = EXCEPTION_CONVERTER.convert(e);
+			throw translated != null ? translated : new RedisSystemException("redis异步命令异常", e);
+		}
+	}
+}
@@ -0,0 +1,433 @@
+package com.xinghuo.redis.config;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisGuard.java
+ *
+ *  Description     : redis操作的熔断器。
+ *                    操作在调用线程中执行，超时由Lettuce的命令超时控制（spring.redis.timeout或xinghuo.redis.pools.<名称>.timeout），
+ *                    超时的命令由Lettuce取消并抛出QueryTimeoutException；统计窗口内失败率超过阈值时熔断器打开，操作直接失败，
+ *                    读操作降级返回本地缓存或null；连接池等待可用连接超时只计入拒绝次数，不计入redis失败率；
+ *                    本地降级缓存在XhRedisUtils写入、删除key的前后失效；熔断状态和计数通过JMX暴露（xinghuo.redis:name=XhRedisGuard）
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+@ManagedResource(objectName = "xinghuo.redis:name=XhRedisGuard", description = "redis超时与熔断状态")
+public class XhRedisGuard implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisGuard.class);
+
+	/**
+	 * 操作类型：单key读、写、多key及大集合读，与XhRedisPools.Workload对应，超时由路由到的连接池的命令超时控制
+	 */
+	public enum Operation {
+		/** 单key读 */
+		READ,
+		/** 写 */
+		WRITE,
+		/** 多key及大集合读 */
+		BULK
+	}
+
+	/**
+	 * 熔断器状态
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * 失败率统计窗口划分的桶数量
+	 */
+	private static final int BUCKETS = 10;
+
+	private final AtomicLongArray bucketEpochs = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLongArray bucketCalls = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLongArray bucketFailures = new AtomicLongArray(BUCKETS);
+
+	private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+
+	private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+	private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong timeoutCount = new AtomicLong();
+
+	private final AtomicLong fallbackCount = new AtomicLong();
+
+	private volatile long openedAt;
+
+	/**
+	 * 本地降级缓存，超过容量时按遍历顺序淘汰，近似随机淘汰，不需要全局锁。
+	 * key失效时写入失效标记，读操作开始时的版本号早于失效标记的读取结果不写入缓存
+	 */
+	private ConcurrentHashMap<String, Fallback> fallbackCache;
+
+	/**
+	 * 失效版本号，每次key失效时递增
+	 */
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/**
+	 * 被淘汰的失效标记中最大的版本号，key没有缓存项时，早于该版本号开始的读操作不写入缓存
+	 */
+	private final AtomicLong evictedInvalidation = new AtomicLong();
+
+	private int fallbackCacheSize;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	@Override
+	public void afterPropertiesSet() {
+		fallbackCacheSize = properties.getGuard().getFallbackCacheSize();
+		if(fallbackCacheSize > 0){
+			fallbackCache = new ConcurrentHashMap<String, Fallback>(fallbackCacheSize * 4 / 3 + 1);
+		}
+	}
+
+	/**
+	 * 执行操作，熔断器打开、连接池无可用连接或命令超时时抛出异常
+	 * @param operation 操作类型
+	 * @param call redis操作
+	 * @return 操作结果
+	 */
+	public <R> R execute(Operation operation, Supplier<R> call){
+		XhRedisProperties.Guard guard = properties.getGuard();
+		if(!guard.isEnabled()){
+			return call.get();
+		}
+		Permit permit = tryAcquire();
+		if(permit == Permit.REJECTED){
+			rejectedCount.incrementAndGet();
+			throw new RedisConnectionFailureException("redis熔断器已打开，操作直接失败");
+		}
+		boolean settled = false;
+		try {
+			R result = call.get();
+			onSuccess();
+			settled = true;
+			return result;
+		} catch (PoolRejectedException e) {
+			rejectedCount.incrementAndGet();
+			throw e;
+		} catch (DataAccessException e) {
+			if(e instanceof QueryTimeoutException){
+				timeoutCount.incrementAndGet();
+			}
+			onFailure();
+			settled = true;
+			throw e;
+		} finally {
+			if(!settled && permit == Permit.TRIAL){
+				// 连接池无可用连接或序列化等非redis异常，不能说明redis是否恢复，归还试探名额，避免名额耗尽后一直停留在半开状态
+				halfOpenPermits.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 执行读操作，熔断器打开、连接池无可用连接或超时时返回fallback的结果，其他异常照常抛出
+	 * @param operation 操作类型
+	 * @param call redis操作
+	 * @param fallback 降级结果
+	 * @return 操作结果或降级结果
+	 */
+	public <R> R executeOrFallback(Operation operation, Supplier<R> call, Supplier<R> fallback){
+		try {
+			return execute(operation, call);
+		} catch (RedisConnectionFailureException | QueryTimeoutException e) {
+			fallbackCount.incrementAndGet();
+			return fallback.get();
+		}
+	}
+
+	/**
+	 * 读取单个key，成功时保存到本地降级缓存，降级时返回本地缓存中的值，没有时返回null
+	 * @param key 缓存的key
+	 * @param call redis操作
+	 * @return 操作结果或降级结果
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R readKey(final String key, Supplier<R> call){
+		final ConcurrentHashMap<String, Fallback> cache = fallbackCache;
+		long version = invalidations.get();
+		R result = executeOrFallback(Operation.READ, call, () -> {
+			Fallback fallback = cache == null ? null : cache.get(key);
+			return fallback == null ? null : (R) fallback.value;
+		});
+		if(cache != null && result != null && state.get() == State.CLOSED){
+			Fallback current = cache.get(key);
+			if(current == null || !result.equals(current.value)){
+				putFallback(cache, key, result, version);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 使本地降级缓存中的key失效，key被写入、删除、修改过期时间的前后调用，避免熔断期间返回已删除或已覆盖的值
+	 * @param key 缓存的key
+	 */
+	void invalidate(String key){
+		ConcurrentHashMap<String, Fallback> cache = fallbackCache;
+		if(cache != null){
+			evictIfFull(cache);
+			cache.put(key, new Fallback(null, invalidations.incrementAndGet()));
+		}
+	}
+
+	/**
+	 * 使本地降级缓存中的多个key失效
+	 * @param keys 缓存的多个key
+	 */
+	void invalidate(Collection<String> keys){
+		for(String key : keys){
+			invalidate(key);
+		}
+	}
+
+	/**
+	 * 写入本地降级缓存，用于启动预热，没有开启本地降级缓存时忽略
+	 * @param key 缓存的key
+	 * @param value 缓存的值
+	 * @return 是否已写入
+	 */
+	boolean seed(String key, Object value){
+		ConcurrentHashMap<String, Fallback> cache = fallbackCache;
+		if(cache == null || value == null){
+			return false;
+		}
+		putFallback(cache, key, value, invalidations.get());
+		return true;
+	}
+
+	@ManagedAttribute(description = "熔断器状态")
+	public String getState(){
+		return currentState().name();
+	}
+
+	@ManagedAttribute(description = "统计窗口内的调用次数")
+	public long getWindowCalls(){
+		return windowSum(bucketCalls);
+	}
+
+	@ManagedAttribute(description = "统计窗口内的失败率(%)")
+	public double getFailureRate(){
+		long calls = windowSum(bucketCalls);
+		return calls == 0 ? 0 : windowSum(bucketFailures) * 100D / calls;
+	}
+
+	@ManagedAttribute(description = "熔断器打开或连接池无可用连接时直接失败的次数")
+	public long getRejectedCount(){
+		return rejectedCount.get();
+	}
+
+	@ManagedAttribute(description = "超时次数")
+	public long getTimeoutCount(){
+		return timeoutCount.get();
+	}
+
+	@ManagedAttribute(description = "读操作降级次数")
+	public long getFallbackCount(){
+		return fallbackCount.get();
+	}
+
+	@Override
+	public void destroy() {
+		if(fallbackCache != null){
+			fallbackCache.clear();
+		}
+	}
+
+	/**
+	 * 写入读取结果，version为读操作开始时的失效版本号；key在读操作开始后失效过时不写入，避免旧值覆盖失效标记
+	 */
+	private void putFallback(ConcurrentHashMap<String, Fallback> cache, String key, Object value, long version){
+		evictIfFull(cache);
+		cache.compute(key, (k, current) -> {
+			long invalidated = current == null ? evictedInvalidation.get() : current.version;
+			return invalidated > version ? current : new Fallback(value, version);
+		});
+	}
+
+	/**
+	 * 超过容量时先淘汰部分key，记录被淘汰的失效标记的最大版本号
+	 */
+	private void evictIfFull(ConcurrentHashMap<String, Fallback> cache){
+		if(cache.size() >= fallbackCacheSize){
+			int evict = Math.max(1, fallbackCacheSize / 16);
+			Iterator<Fallback> values = cache.values().iterator();
+			while(evict-- > 0 && values.hasNext()){
+				Fallback evicted = values.next();
+				if(evicted.value == null){
+					evictedInvalidation.accumulateAndGet(evicted.version, Math::max);
+				}
+				values.remove();
+			}
+		}
+	}
+
+	/**
+	 * 打开状态持续openDuration后转为半开，半开状态只放行halfOpenCalls次试探调用
+	 */
+	private Permit tryAcquire(){
+		State current = currentState();
+		if(current == State.CLOSED){
+			return Permit.NORMAL;
+		}
+		if(current == State.OPEN){
+			return Permit.REJECTED;
+		}
+		if(halfOpenPermits.getAndDecrement() > 0){
+			return Permit.TRIAL;
+		}
+		halfOpenPermits.incrementAndGet();
+		return Permit.REJECTED;
+	}
+
+	private State currentState(){
+		State current = state.get();
+		if(current == State.OPEN && System.currentTimeMillis() - openedAt >= properties.getGuard().getOpenDuration()
+				&& state.compareAndSet(State.OPEN, State.HALF_OPEN)){
+			halfOpenSuccesses.set(0);
+			halfOpenPermits.set(Math.max(1, properties.getGuard().getHalfOpenCalls()));
+			logger.info("【redis熔断器】进入半开状态，开始试探");
+			return State.HALF_OPEN;
+		}
+		return current;
+	}
+
+	private void onSuccess(){
+		record(false);
+		if(state.get() == State.HALF_OPEN
+				&& halfOpenSuccesses.incrementAndGet() >= Math.max(1, properties.getGuard().getHalfOpenCalls())
+				&& state.compareAndSet(State.HALF_OPEN, State.CLOSED)){
+			resetWindow();
+			logger.info("【redis熔断器】试探成功，熔断器关闭");
+		}
+	}
+
+	private void onFailure(){
+		record(true);
+		XhRedisProperties.Guard guard = properties.getGuard();
+		State current = state.get();
+		if(current == State.HALF_OPEN){
+			open(State.HALF_OPEN);
+			return;
+		}
+		if(current == State.CLOSED){
+			long calls = windowSum(bucketCalls);
+			if(calls >= guard.getMinimumCalls()
+					&& windowSum(bucketFailures) * 100 >= calls * guard.getFailureRateThreshold()){
+				open(State.CLOSED);
+			}
+		}
+	}
+
+	private void open(State expected){
+		if(state.compareAndSet(expected, State.OPEN)){
+			openedAt = System.currentTimeMillis();
+			logger.warn("【redis熔断器】失败率过高，熔断器打开{}ms", properties.getGuard().getOpenDuration());
+		}
+	}
+
+	private void record(boolean failure){
+		long bucketMillis = Math.max(1, properties.getGuard().getWindow() / BUCKETS);
+		long epoch = System.currentTimeMillis() / bucketMillis;
+		int index = (int) (epoch % BUCKETS);
+		long bucketEpoch = bucketEpochs.get(index);
+		if(bucketEpoch != epoch && bucketEpochs.compareAndSet(index, bucketEpoch, epoch)){
+			bucketCalls.set(index, 0);
+			bucketFailures.set(index, 0);
+		}
+		bucketCalls.incrementAndGet(index);
+		if(failure){
+			bucketFailures.incrementAndGet(index);
+		}
+	}
+
+	private long windowSum(AtomicLongArray counters){
+		long bucketMillis = Math.max(1, properties.getGuard().getWindow() / BUCKETS);
+		long epoch = System.currentTimeMillis() / bucketMillis;
+		long sum = 0;
+		for(int i = 0; i < BUCKETS; i++){
+			if(epoch - bucketEpochs.get(i) < BUCKETS){
+				sum += counters.get(i);
+			}
+		}
+		return sum;
+	}
+
+	private void resetWindow(){
+		for(int i = 0; i < BUCKETS; i++){
+			bucketCalls.set(i, 0);
+			bucketFailures.set(i, 0);
+		}
+	}
+
+	/**
+	 * 调用许可：直接拒绝、正常调用、半开状态的试探调用
+	 */
+	private enum Permit {
+		REJECTED, NORMAL, TRIAL
+	}
+
+	/**
+	 * 本地降级缓存项，value为null时是失效标记；version为写入时的失效版本号
+	 */
+	private static final class Fallback {
+
+		private final Object value;
+
+		private final long version;
+
+		Fallback(Object value, long version) {
+			this.value = value;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * 连接池等待可用连接超时，属于本地过载，不计入redis失败率；继承RedisConnectionFailureException使读操作照常降级
+	 */
+	static final class PoolRejectedException extends RedisConnectionFailureException {
+
+		private static final long serialVersionUID = 1L;
+
+		PoolRejectedException(String message) {
+			super(message);
+		}
+	}
+}
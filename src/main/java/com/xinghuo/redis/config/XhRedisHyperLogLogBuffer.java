@@ -0,0 +1,244 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisHyperLogLogBuffer.java
+ *
+ *  Description     : HyperLogLog客户端批量PFADD缓冲，T是泛型。
+ *                    元素先在本地按key去重缓冲，达到数量上限或定时批量pipeline提交，
+ *                    用于UV等高频基数统计，替代每个事件一次PFADD或使用set存储所有id
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisHyperLogLogBuffer<T> implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisHyperLogLogBuffer.class);
+
+	/**
+	 * 单条PFADD命令的最大元素数量
+	 */
+	private static final int PFADD_CHUNK_SIZE = 1000;
+
+	private final ConcurrentMap<String, Set<T>> buffers = new ConcurrentHashMap<String, Set<T>>();
+
+	private final AtomicInteger buffered = new AtomicInteger();
+
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private ScheduledExecutorService flusher;
+
+	@Autowired
+	private RedisTemplate<String,T> redisTemplate;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	@Override
+	public void afterPropertiesSet() {
+		long interval = Math.max(10, properties.getHyperLogLog().getFlushInterval());
+		flusher = Executors.newSingleThreadScheduledExecutor(XhRedisExecutors.daemonThreadFactory("xh-redis-hll"));
+		flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 添加元素到本地缓冲，重复元素在本地去重
+	 * @param key  hyperloglog缓存的key
+	 * @param value 需要添加的元素T
+	 */
+	public void add(String key, T value){
+		boolean[] added = new boolean[1];
+		buffers.compute(key, (k, set) -> {
+			Set<T> values = set == null ? new HashSet<T>() : set;
+			added[0] = values.add(value);
+			return values;
+		});
+		if(added[0] && buffered.incrementAndGet() >= properties.getHyperLogLog().getBufferSize()
+				&& flushScheduled.compareAndSet(false, true)){
+			flusher.execute(() -> {
+				flushScheduled.set(false);
+				flushQuietly();
+			});
+		}
+	}
+
+	/**
+	 * 提交key的本地缓冲后获取基数估算值
+	 * @param key  hyperloglog缓存的key
+	 * @return 基数估算值
+	 */
+	public Long count(String key){
+		flush(key);
+		return this.redisTemplate.opsForHyperLogLog().size(key);
+	}
+
+	/**
+	 * 提交所有key的本地缓冲，所有PFADD使用一次pipeline提交
+	 */
+	public void flush(){
+		Map<String, Set<T>> drained = new ConcurrentHashMap<String, Set<T>>();
+		for(String key : buffers.keySet()){
+			Set<T> values = buffers.remove(key);
+			if(values != null){
+				drained.put(key, values);
+			}
+		}
+		write(drained);
+	}
+
+	/**
+	 * 提交指定key的本地缓冲
+	 * @param key  hyperloglog缓存的key
+	 */
+	public void flush(String key){
+		Set<T> values = buffers.remove(key);
+		if(values != null){
+			Map<String, Set<T>> drained = new ConcurrentHashMap<String, Set<T>>();
+			drained.put(key, values);
+			write(drained);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		flusher.shutdown();
+		flushQuietly();
+	}
+
+	private void flushQuietly(){
+		try {
+			flush();
+		} catch (Exception e) {
+			logger.error("【redis HyperLogLog】批量提交异常", e);
+		}
+	}
+
+	/**
+	 * 以一次pipeline提交取出的元素，按每条PFADD的结果确认提交，因连接异常或超时失败的元素合并回本地缓冲，下次提交时重试。
+	 * PFADD是幂等的，连接异常时无法确认哪些命令已执行，全部合并回缓冲重复提交也不影响结果；
+	 * 其他错误（如key类型不是HyperLogLog的WRONGTYPE）重试也不会成功，丢弃这些元素并记录日志，避免每次提交都重复失败
+	 */
+	@SuppressWarnings("unchecked")
+	private void write(final Map<String, Set<T>> drained){
+		if(drained.isEmpty()){
+			return;
+		}
+		final List<String> keys = new ArrayList<String>();
+		final List<List<T>> chunks = new ArrayList<List<T>>();
+		int count = 0;
+		for(Map.Entry<String, Set<T>> entry : drained.entrySet()){
+			List<T> chunk = new ArrayList<T>(Math.min(entry.getValue().size(), PFADD_CHUNK_SIZE));
+			for(T value : entry.getValue()){
+				chunk.add(value);
+				if(chunk.size() == PFADD_CHUNK_SIZE){
+					keys.add(entry.getKey());
+					chunks.add(chunk);
+					chunk = new ArrayList<T>(PFADD_CHUNK_SIZE);
+				}
+			}
+			if(!chunk.isEmpty()){
+				keys.add(entry.getKey());
+				chunks.add(chunk);
+			}
+			count += entry.getValue().size();
+		}
+		buffered.addAndGet(-count);
+		final RedisSerializer<String> keySerializer = (RedisSerializer<String>) this.redisTemplate.getKeySerializer();
+		final RedisSerializer<T> valueSerializer = (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+		List<Object> results;
+		try {
+			results = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+				for(int i = 0; i < chunks.size(); i++){
+					List<T> chunk = chunks.get(i);
+					byte[][] rawValues = new byte[chunk.size()][];
+					for(int j = 0; j < rawValues.length; j++){
+						rawValues[j] = valueSerializer.serialize(chunk.get(j));
+					}
+					connection.pfAdd(keySerializer.serialize(keys.get(i)), rawValues);
+				}
+				return null;
+			});
+		} catch (RedisPipelineException e) {
+			results = e.getPipelineResult();
+		} catch (RuntimeException e) {
+			if(retryable(e)){
+				for(int i = 0; i < chunks.size(); i++){
+					requeue(keys.get(i), chunks.get(i));
+				}
+			} else {
+				logger.error("【redis HyperLogLog】批量PFADD提交失败且不可重试，丢弃元素数量={}, {}", count, e.getMessage());
+			}
+			throw e;
+		}
+		int failures = 0;
+		for(int i = 0; i < chunks.size(); i++){
+			Object result = i < results.size() ? results.get(i) : null;
+			if(result == null || retryable(result)){
+				//没有结果表示连接在返回前断开，无法确认是否已执行
+				failures++;
+				requeue(keys.get(i), chunks.get(i));
+			} else if(result instanceof Throwable){
+				logger.error("【redis HyperLogLog】PFADD提交失败且不可重试，丢弃元素, key={}, 数量={}, {}",
+						keys.get(i), chunks.get(i).size(), ((Throwable) result).getMessage());
+			}
+		}
+		if(failures > 0){
+			logger.warn("【redis HyperLogLog】{}条PFADD因连接异常或超时提交失败，元素已合并回本地缓冲，下次提交时重试", failures);
+		}
+	}
+
+	/**
+	 * 连接异常和超时可以重试，其他错误重试也不会成功
+	 */
+	private static boolean retryable(Object failure){
+		return failure instanceof RedisConnectionFailureException || failure instanceof QueryTimeoutException;
+	}
+	
+	/**
+	 * 把提交失败的元素合并回key的本地缓冲
+	 */
+	private void requeue(String key, List<T> values){
+		int[] added = new int[1];
+		buffers.compute(key, (k, set) -> {
+			Set<T> merged = set == null ? new HashSet<T>() : set;
+			for(T value : values){
+				if(merged.add(value)){
+					added[0]++;
+				}
+			}
+			return merged;
+		});
+		buffered.addAndGet(added[0]);
+	}
+}
@@ -0,0 +1,145 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisKeyUtils.java
+ *
+ *  Description     : redis key工具类，构造带hash tag的key、计算集群slot。
+ *                    集群环境下多key命令要求所有key在同一个slot上，使用相同hash tag的key一定落在同一个slot
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public final class XhRedisKeyUtils {
+
+	/**
+	 * 集群slot总数
+	 */
+	public static final int SLOT_COUNT = ClusterSlotHashUtil.SLOT_COUNT;
+
+	private XhRedisKeyUtils() {
+	}
+
+	/**
+	 * 构造带hash tag的key，如hashTag("user:1001", "orders", "2018") 返回 {user:1001}:orders:2018，
+	 * 相同tag的key在集群环境下落在同一个slot上
+	 * @param tag hash tag内容，不能包含花括号
+	 * @param parts key的其余部分，使用冒号连接
+	 * @return 带hash tag的key
+	 */
+	public static String hashTag(String tag, String... parts){
+		if(tag == null || tag.isEmpty() || tag.indexOf('{') >= 0 || tag.indexOf('}') >= 0){
+			throw new IllegalArgumentException("hash tag不能为空且不能包含花括号: " + tag);
+		}
+		StringBuilder key = new StringBuilder(tag.length() + 2 + parts.length * 16);
+		key.append('{').append(tag).append('}');
+		for(String part : parts){
+			key.append(':').append(part);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * 计算key所在的slot，key中包含hash tag时只使用tag内容计算
+	 * @param key 缓存的key
+	 * @return slot，取值范围0~16383
+	 */
+	public static int slot(String key){
+		return ClusterSlotHashUtil.calculateSlot(key);
+	}
+
+	/**
+	 * 计算序列化后的key所在的slot，用于key序列化时会拼接前缀的场景（如命名空间视图）
+	 * @param rawKey 序列化后的key
+	 * @return slot，取值范围0~16383
+	 */
+	public static int slot(byte[] rawKey){
+		return ClusterSlotHashUtil.calculateSlot(rawKey);
+	}
+
+	/**
+	 * 按slot对key分组，slot按key第一次出现的顺序排列，同一个slot内保持key的原有顺序
+	 * @param keys 缓存的多个key
+	 * @return slot与该slot上的key
+	 */
+	public static Map<Integer, List<String>> groupBySlot(Collection<String> keys){
+		Map<Integer, List<String>> groups = new LinkedHashMap<Integer, List<String>>();
+		for(String key : keys){
+			groups.computeIfAbsent(slot(key), slot -> new ArrayList<String>()).add(key);
+		}
+		return groups;
+	}
+
+	/**
+	 * 按slot对序列化后的key分组，返回slot与key在rawKeys中的下标
+	 */
+	static Map<Integer, List<Integer>> slotIndexes(List<byte[]> rawKeys){
+		Map<Integer, List<Integer>> groups = new LinkedHashMap<Integer, List<Integer>>();
+		for(int i = 0; i < rawKeys.size(); i++){
+			groups.computeIfAbsent(slot(rawKeys.get(i)), slot -> new ArrayList<Integer>()).add(i);
+		}
+		return groups;
+	}
+
+	/**
+	 * 判断所有key是否在同一个slot上
+	 * @param keys 缓存的多个key
+	 * @return 在同一个slot上返回true
+	 */
+	public static boolean isSameSlot(String... keys){
+		if(keys.length <= 1){
+			return true;
+		}
+		int slot = slot(keys[0]);
+		for(int i = 1; i < keys.length; i++){
+			if(slot(keys[i]) != slot){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 判断key与otherKeys是否都在同一个slot上
+	 * @param key 缓存的key
+	 * @param otherKeys 缓存的多个key
+	 * @return 在同一个slot上返回true
+	 */
+	public static boolean isSameSlot(String key, Collection<String> otherKeys){
+		int slot = slot(key);
+		for(String otherKey : otherKeys){
+			if(slot(otherKey) != slot){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 转义SCAN MATCH中的通配符，用于按前缀遍历key
+	 * @param prefix key前缀
+	 * @return 转义后的前缀
+	 */
+	public static String globEscape(String prefix){
+		StringBuilder builder = new StringBuilder(prefix.length() + 8);
+		for(char c : prefix.toCharArray()){
+			if(c == '*' || c == '?' || c == '[' || c == ']' || c == '\\'){
+				builder.append('\\');
+			}
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+}
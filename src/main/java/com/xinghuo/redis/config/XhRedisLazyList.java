@@ -0,0 +1,57 @@
+package com.xinghuo.redis.config;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisLazyList.java
+ *
+ *  Description     : 延迟反序列化的只读list，元素在第一次访问时反序列化并缓存，未访问的元素只保存原始字节。
+ *                    非线程安全，并发访问同一个元素时可能重复反序列化
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+final class XhRedisLazyList<T> extends AbstractList<T> implements RandomAccess {
+
+	private static final Object UNDECODED = new Object();
+
+	private final List<byte[]> raw;
+
+	private final RedisSerializer<T> serializer;
+
+	private final Object[] decoded;
+
+	XhRedisLazyList(List<byte[]> raw, RedisSerializer<T> serializer) {
+		this.raw = raw;
+		this.serializer = serializer;
+		this.decoded = new Object[raw.size()];
+		Arrays.fill(decoded, UNDECODED);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		Object value = decoded[index];
+		if(value == UNDECODED){
+			byte[] bytes = raw.get(index);
+			value = bytes == null ? null : serializer.deserialize(bytes);
+			decoded[index] = value;
+		}
+		return (T) value;
+	}
+
+	@Override
+	public int size() {
+		return decoded.length;
+	}
+}
@@ -0,0 +1,238 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisZSetCommands.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisLeaderboard.java
+ *
+ *  Description     : 基于zset的排行榜，T是泛型。
+ *                    批量更新分数、批量查询排名均使用pipeline一次网络往返完成；
+ *                    前N名分页结果在本地短时缓存，本节点更新分数时按版本号立即失效；
+ *                    结果以元素列表和double数组返回，不再构造Set<TypedTuple<T>>
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisLeaderboard<T> {
+
+	private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final ConcurrentMap<String, Page<T>> pageCache = new ConcurrentHashMap<String, Page<T>>();
+
+	@Autowired
+	private RedisTemplate<String,T> redisTemplate;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	/**
+	 * 批量增加元素的分数，所有ZINCRBY使用一次pipeline提交
+	 * @param key 排行榜zset的key
+	 * @param deltas 元素及分数增加值
+	 */
+	public void incrementScores(String key, final Map<T, Double> deltas){
+		final byte[] rawKey = rawKey(key);
+		final RedisSerializer<T> valueSerializer = valueSerializer();
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(Map.Entry<T, Double> entry : deltas.entrySet()){
+				connection.zIncrBy(rawKey, entry.getValue(), valueSerializer.serialize(entry.getKey()));
+			}
+			return null;
+		});
+		invalidate(key);
+	}
+
+	/**
+	 * 批量设置元素的分数，所有ZADD使用一次pipeline提交
+	 * @param key 排行榜zset的key
+	 * @param scores 元素及分数
+	 */
+	public void setScores(String key, final Map<T, Double> scores){
+		final byte[] rawKey = rawKey(key);
+		final RedisSerializer<T> valueSerializer = valueSerializer();
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(Map.Entry<T, Double> entry : scores.entrySet()){
+				connection.zAdd(rawKey, entry.getValue(), valueSerializer.serialize(entry.getKey()));
+			}
+			return null;
+		});
+		invalidate(key);
+	}
+
+	/**
+	 * 批量查询元素的排名（按分数由大到小，第一名为0），所有ZREVRANK使用一次pipeline提交
+	 * @param key 排行榜zset的key
+	 * @param members 需要查询排名的元素
+	 * @return 与members顺序一致的排名，元素不存在时为-1
+	 */
+	public long[] reverseRanks(String key, final List<T> members){
+		final byte[] rawKey = rawKey(key);
+		final RedisSerializer<T> valueSerializer = valueSerializer();
+		List<Object> replies = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(T member : members){
+				connection.zRevRank(rawKey, valueSerializer.serialize(member));
+			}
+			return null;
+		});
+		long[] ranks = new long[members.size()];
+		for(int i = 0; i < ranks.length; i++){
+			Object rank = replies.get(i);
+			ranks[i] = rank == null ? -1 : ((Number) rank).longValue();
+		}
+		return ranks;
+	}
+
+	/**
+	 * 批量查询元素的分数，所有ZSCORE使用一次pipeline提交
+	 * @param key 排行榜zset的key
+	 * @param members 需要查询分数的元素
+	 * @return 与members顺序一致的分数，元素不存在时为Double.NaN
+	 */
+	public double[] scores(String key, final List<T> members){
+		final byte[] rawKey = rawKey(key);
+		final RedisSerializer<T> valueSerializer = valueSerializer();
+		List<Object> replies = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(T member : members){
+				connection.zScore(rawKey, valueSerializer.serialize(member));
+			}
+			return null;
+		});
+		double[] scores = new double[members.size()];
+		for(int i = 0; i < scores.length; i++){
+			Object score = replies.get(i);
+			scores[i] = score == null ? Double.NaN : ((Number) score).doubleValue();
+		}
+		return scores;
+	}
+
+	/**
+	 * 获取排行榜分页（按分数由大到小），结果在本地缓存xinghuo.redis.leaderboard.cache-ttl毫秒
+	 * @param key 排行榜zset的key
+	 * @param pageNo 页码，从0开始
+	 * @param pageSize 每页元素数量
+	 * @return 分页结果
+	 */
+	public Page<T> top(String key, int pageNo, int pageSize){
+		long ttl = properties.getLeaderboard().getCacheTtl();
+		long version = version(key).get();
+		String cacheKey = key + '\u0000' + pageNo + '\u0000' + pageSize;
+		if(ttl > 0){
+			Page<T> cached = pageCache.get(cacheKey);
+			if(cached != null && cached.version == version && cached.expireAt > System.currentTimeMillis()){
+				return cached;
+			}
+		}
+		Page<T> page = load(key, (long) pageNo * pageSize, pageSize, version, ttl);
+		if(ttl > 0){
+			if(pageCache.size() >= properties.getLeaderboard().getCacheMaxEntries()){
+				pageCache.clear();
+			}
+			pageCache.put(cacheKey, page);
+		}
+		return page;
+	}
+
+	/**
+	 * 使本节点缓存的排行榜分页失效
+	 * @param key 排行榜zset的key
+	 */
+	public void invalidate(String key){
+		version(key).incrementAndGet();
+	}
+
+	private Page<T> load(String key, final long start, int size, long version, long ttl){
+		final byte[] rawKey = rawKey(key);
+		final long end = start + size - 1;
+		Set<Tuple> tuples = this.redisTemplate.execute((RedisCallback<Set<Tuple>>) connection -> connection.zRevRangeWithScores(rawKey, start, end));
+		if(tuples == null || tuples.isEmpty()){
+			return new Page<T>(Collections.<T>emptyList(), new double[0], start, version, System.currentTimeMillis() + ttl);
+		}
+		RedisSerializer<T> valueSerializer = valueSerializer();
+		List<T> members = new ArrayList<T>(tuples.size());
+		double[] scores = new double[tuples.size()];
+		int i = 0;
+		for(Tuple tuple : tuples){
+			members.add(valueSerializer.deserialize(tuple.getValue()));
+			scores[i++] = tuple.getScore();
+		}
+		return new Page<T>(Collections.unmodifiableList(members), scores, start, version, System.currentTimeMillis() + ttl);
+	}
+
+	private AtomicLong version(String key){
+		AtomicLong version = versions.get(key);
+		return version != null ? version : versions.computeIfAbsent(key, k -> new AtomicLong());
+	}
+
+	@SuppressWarnings("unchecked")
+	private RedisSerializer<T> valueSerializer(){
+		return (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] rawKey(String key){
+		return ((RedisSerializer<String>) this.redisTemplate.getKeySerializer()).serialize(key);
+	}
+
+	/**
+	 * 排行榜分页结果，members与scores下标一一对应，第i个元素的排名为startRank + i
+	 */
+	public static final class Page<T> {
+
+		private final List<T> members;
+
+		private final double[] scores;
+
+		private final long startRank;
+
+		private final long version;
+
+		private final long expireAt;
+
+		Page(List<T> members, double[] scores, long startRank, long version, long expireAt) {
+			this.members = members;
+			this.scores = scores;
+			this.startRank = startRank;
+			this.version = version;
+			this.expireAt = expireAt;
+		}
+
+		public List<T> getMembers() {
+			return members;
+		}
+
+		/**
+		 * 分页结果在本地缓存中共享，调用方不要修改该数组
+		 */
+		public double[] getScores() {
+			return scores;
+		}
+
+		public long getStartRank() {
+			return startRank;
+		}
+
+		public int size() {
+			return members.size();
+		}
+	}
+}
@@ -0,0 +1,402 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisLoadingCache.java
+ *
+ *  Description     : 读穿/写穿缓存。
+ *                    读取未命中的key批量交给Loader加载（一次loadAll调用），加载结果以一次pipeline带过期时间写回redis；
+ *                    同一个key同时只有一个加载在执行，其他调用等待该加载的结果；开启提前刷新时读取同时获取剩余过期时间，
+ *                    即将过期的key返回当前值并在后台重新加载；写入和删除先调用Writer写入数据源，再写入redis。
+ *                    写入、删除会作废该key正在进行的加载和提前刷新，被作废的加载结果不写回redis，避免旧值覆盖新值。
+ *                    Loader返回null的key不写入redis
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisLoadingCache<T> {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisLoadingCache.class);
+
+	/**
+	 * 从数据源加载缓存值
+	 */
+	public interface Loader<T> {
+
+		/**
+		 * 加载单个key
+		 * @param key 缓存的key
+		 * @return 缓存的值，不存在时返回null
+		 */
+		T load(String key);
+
+		/**
+		 * 批量加载，默认逐个调用load，数据源支持批量查询时应覆盖该方法
+		 * @param keys 缓存的key
+		 * @return key和值，不存在的key可以不包含在结果中
+		 */
+		default Map<String, T> loadAll(Collection<String> keys){
+			Map<String, T> result = new LinkedHashMap<String, T>();
+			for(String key : keys){
+				T value = load(key);
+				if(value != null){
+					result.put(key, value);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * 写入数据源
+	 */
+	public interface Writer<T> {
+
+		/**
+		 * 写入数据源
+		 * @param key 缓存的key
+		 * @param value 缓存的值
+		 */
+		void write(String key, T value);
+
+		/**
+		 * 从数据源删除
+		 * @param key 缓存的key
+		 */
+		void delete(String key);
+	}
+
+	private final ConcurrentMap<String, Load<T>> loading = new ConcurrentHashMap<String, Load<T>>();
+
+	private final RedisTemplate<String, T> template;
+
+	private final XhRedisGuard guard;
+
+	private final XhRedisPools pools;
+
+	private final XhRedisProperties.LoadingCache config;
+
+	private final Loader<T> loader;
+
+	private final Writer<T> writer;
+
+	private final long ttl;
+
+	XhRedisLoadingCache(RedisTemplate<String, T> template, XhRedisGuard guard, XhRedisPools pools,
+			XhRedisProperties.LoadingCache config, Loader<T> loader, Writer<T> writer, long ttl) {
+		this.template = template;
+		this.guard = guard;
+		this.pools = pools;
+		this.config = config;
+		this.loader = loader;
+		this.writer = writer;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * 获取key的值，redis中不存在时通过Loader加载并写回redis
+	 * @param key 缓存的key
+	 * @return 缓存的值，数据源中也不存在时返回null
+	 */
+	public T get(String key){
+		return getAll(Collections.singletonList(key)).get(key);
+	}
+
+	/**
+	 * 批量获取，redis中不存在的key通过一次Loader.loadAll加载，并以一次pipeline写回redis
+	 * @param keys 缓存的key
+	 * @return key和值，按keys的顺序，数据源中也不存在的key不包含在结果中
+	 */
+	public Map<String, T> getAll(Collection<String> keys){
+		List<String> distinct = new ArrayList<String>(new LinkedHashSet<String>(keys));
+		Map<String, T> result = new LinkedHashMap<String, T>();
+		if(distinct.isEmpty()){
+			return result;
+		}
+		boolean refreshAhead = config.getRefreshAheadFactor() > 0;
+		List<Object> cached = lookup(distinct, refreshAhead);
+		List<String> misses = new ArrayList<String>();
+		List<String> expiring = new ArrayList<String>();
+		long refreshThreshold = (long) (ttl * config.getRefreshAheadFactor());
+		int step = refreshAhead ? 2 : 1;
+		for(int i = 0; i < distinct.size(); i++){
+			String key = distinct.get(i);
+			@SuppressWarnings("unchecked")
+			T value = cached == null ? null : (T) cached.get(i * step);
+			if(value == null){
+				misses.add(key);
+				continue;
+			}
+			result.put(key, value);
+			if(refreshAhead){
+				Long remaining = (Long) cached.get(i * step + 1);
+				if(remaining != null && remaining >= 0 && remaining < refreshThreshold){
+					expiring.add(key);
+				}
+			}
+		}
+		if(!expiring.isEmpty()){
+			refresh(expiring);
+		}
+		if(!misses.isEmpty()){
+			Map<String, T> loaded = load(misses);
+			result = reorder(distinct, result, loaded);
+		}
+		return result;
+	}
+
+	/**
+	 * 写穿：先写入数据源，再带过期时间写入redis
+	 * @param key 缓存的key
+	 * @param value 缓存的值
+	 */
+	public void put(String key, T value){
+		if(writer != null){
+			writer.write(key, value);
+		}
+		supersede(key);
+		writeBack(Collections.singletonMap(key, value));
+	}
+
+	/**
+	 * 写穿删除：先从数据源删除，再删除redis中的key
+	 * @param key 缓存的key
+	 */
+	public void remove(String key){
+		if(writer != null){
+			writer.delete(key);
+		}
+		invalidate(key);
+	}
+
+	/**
+	 * 只删除redis中的key，下次读取时重新加载；该key正在进行的加载结果不再写回redis
+	 * @param key 缓存的key
+	 */
+	public void invalidate(String key){
+		supersede(key);
+		delete(key);
+	}
+
+	private void delete(String key){
+		guard.execute(XhRedisGuard.Operation.WRITE, () -> pools.execute(XhRedisPools.Workload.WRITE, key, template, pooled -> pooled.delete(key)));
+	}
+
+	/**
+	 * 以一次pipeline读取所有key，withTtl为true时每个key依次返回值和剩余过期时间(毫秒)；redis不可用时返回null
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Object> lookup(final List<String> keys, final boolean withTtl){
+		Supplier<List<Object>> call = () -> pools.execute(XhRedisPools.Workload.BULK, null, template, pooled -> {
+			final RedisSerializer<String> keySerializer = (RedisSerializer<String>) pooled.getKeySerializer();
+			return pooled.executePipelined((RedisCallback<Object>) connection -> {
+				for(String key : keys){
+					byte[] rawKey = keySerializer.serialize(key);
+					connection.get(rawKey);
+					if(withTtl){
+						connection.pTtl(rawKey);
+					}
+				}
+				return null;
+			});
+		});
+		if(config.isLoadOnRedisFailure()){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, call, () -> null);
+		}
+		return guard.execute(XhRedisGuard.Operation.BULK, call);
+	}
+
+	/**
+	 * 加载未命中的key，正在被其他调用加载的key等待其结果，其余key使用一次loadAll加载
+	 */
+	private Map<String, T> load(List<String> keys){
+		Map<String, Load<T>> owned = new LinkedHashMap<String, Load<T>>();
+		Map<String, CompletableFuture<T>> waiting = new LinkedHashMap<String, CompletableFuture<T>>();
+		claim(keys, owned, waiting);
+		Map<String, T> result = new LinkedHashMap<String, T>();
+		if(!owned.isEmpty()){
+			result.putAll(loadOwned(owned));
+		}
+		try {
+			for(Map.Entry<String, CompletableFuture<T>> entry : waiting.entrySet()){
+				T value = entry.getValue().join();
+				if(value != null){
+					result.put(entry.getKey(), value);
+				}
+			}
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		return result;
+	}
+
+	/**
+	 * 后台重新加载即将过期的key，已在加载中的key跳过
+	 */
+	private void refresh(List<String> keys){
+		final Map<String, Load<T>> owned = new LinkedHashMap<String, Load<T>>();
+		claim(keys, owned, null);
+		if(owned.isEmpty()){
+			return;
+		}
+		CompletableFuture.runAsync(() -> {
+			try {
+				loadOwned(owned);
+			} catch (Exception e) {
+				logger.error("【redis读穿缓存】提前刷新异常, {}", e.getMessage());
+			}
+		}, XhRedisExecutors.io());
+	}
+
+	private void claim(List<String> keys, Map<String, Load<T>> owned, Map<String, CompletableFuture<T>> waiting){
+		for(String key : keys){
+			Load<T> load = new Load<T>();
+			Load<T> existing = loading.putIfAbsent(key, load);
+			if(existing == null){
+				owned.put(key, load);
+			} else if(waiting != null){
+				waiting.put(key, existing.future);
+			}
+		}
+	}
+
+	/**
+	 * 作废key正在进行的加载，之后读取该key的调用不再等待它
+	 */
+	private void supersede(String key){
+		Load<T> load = loading.remove(key);
+		if(load != null){
+			load.superseded = true;
+		}
+	}
+
+	/**
+	 * 调用loadAll加载本次负责的key并写回redis，写回失败只记录日志。
+	 * 已被作废的key不写回；写回后再次检查，写回期间被作废的key删除，由下次读取重新加载：
+	 * 作废发生在再次检查之后时，写入、删除操作对redis的修改一定在本次写回之后
+	 */
+	private Map<String, T> loadOwned(Map<String, Load<T>> owned){
+		try {
+			Map<String, T> loaded = loader.loadAll(owned.keySet());
+			if(loaded == null){
+				loaded = Collections.emptyMap();
+			}
+			Map<String, T> present = new LinkedHashMap<String, T>();
+			for(Map.Entry<String, T> entry : loaded.entrySet()){
+				if(entry.getValue() != null && owned.containsKey(entry.getKey())){
+					present.put(entry.getKey(), entry.getValue());
+				}
+			}
+			try {
+				Map<String, T> current = new LinkedHashMap<String, T>();
+				for(Map.Entry<String, T> entry : present.entrySet()){
+					if(!owned.get(entry.getKey()).superseded){
+						current.put(entry.getKey(), entry.getValue());
+					}
+				}
+				writeBack(current);
+				for(String key : current.keySet()){
+					if(owned.get(key).superseded){
+						delete(key);
+					}
+				}
+			} catch (Exception e) {
+				logger.error("【redis读穿缓存】加载结果写回redis异常, {}", e.getMessage());
+			}
+			for(Map.Entry<String, Load<T>> entry : owned.entrySet()){
+				entry.getValue().future.complete(present.get(entry.getKey()));
+			}
+			return present;
+		} catch (RuntimeException e) {
+			for(Load<T> load : owned.values()){
+				load.future.completeExceptionally(e);
+			}
+			throw e;
+		} finally {
+			for(Map.Entry<String, Load<T>> entry : owned.entrySet()){
+				loading.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * 以一次pipeline带过期时间写回redis
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeBack(final Map<String, T> values){
+		if(values.isEmpty()){
+			return;
+		}
+		guard.execute(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, null, template, pooled -> {
+			final RedisSerializer<String> keySerializer = (RedisSerializer<String>) pooled.getKeySerializer();
+			final RedisSerializer<T> valueSerializer = (RedisSerializer<T>) pooled.getValueSerializer();
+			return pooled.executePipelined((RedisCallback<Object>) connection -> {
+				for(Map.Entry<String, T> entry : values.entrySet()){
+					byte[] rawKey = keySerializer.serialize(entry.getKey());
+					byte[] rawValue = valueSerializer.serialize(entry.getValue());
+					if(ttl > 0){
+						connection.set(rawKey, rawValue, Expiration.milliseconds(ttl), RedisStringCommands.SetOption.upsert());
+					} else {
+						connection.set(rawKey, rawValue);
+					}
+				}
+				return null;
+			});
+		}));
+	}
+
+	/**
+	 * 按请求的key顺序合并redis命中的值和加载的值
+	 */
+	private static <T> Map<String, T> reorder(List<String> keys, Map<String, T> cached, Map<String, T> loaded){
+		Map<String, T> result = new LinkedHashMap<String, T>();
+		for(String key : keys){
+			T value = cached.get(key);
+			if(value == null){
+				value = loaded.get(key);
+			}
+			if(value != null){
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 正在进行的加载，superseded为true时加载结果不写回redis
+	 */
+	private static final class Load<T> {
+
+		private final CompletableFuture<T> future = new CompletableFuture<T>();
+
+		private volatile boolean superseded;
+	}
+}
@@ -0,0 +1,82 @@
+package com.xinghuo.redis.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisNamespaceSerializer.java
+ *
+ *  Description     : 带命名空间前缀的key序列化，序列化时在key的字节前拼接前缀字节，反序列化时去掉前缀。
+ *                    前缀字节只编码一次，调用方不需要拼接字符串
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public final class XhRedisNamespaceSerializer implements RedisSerializer<String> {
+
+	private final String prefix;
+
+	private final byte[] rawPrefix;
+
+	public XhRedisNamespaceSerializer(String prefix) {
+		this.prefix = prefix;
+		this.rawPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public byte[] serialize(String key) {
+		if(key == null){
+			return null;
+		}
+		byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+		byte[] result = Arrays.copyOf(rawPrefix, rawPrefix.length + rawKey.length);
+		System.arraycopy(rawKey, 0, result, rawPrefix.length, rawKey.length);
+		return result;
+	}
+
+	@Override
+	public String deserialize(byte[] bytes) {
+		if(bytes == null){
+			return null;
+		}
+		if(startsWithPrefix(bytes)){
+			return new String(bytes, rawPrefix.length, bytes.length - rawPrefix.length, StandardCharsets.UTF_8);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 命名空间前缀，如tenant1:
+	 * @return 前缀
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * 前缀的字节，调用方不要修改该数组
+	 * @return 前缀字节
+	 */
+	byte[] getRawPrefix() {
+		return rawPrefix;
+	}
+
+	private boolean startsWithPrefix(byte[] bytes){
+		if(bytes.length < rawPrefix.length){
+			return false;
+		}
+		for(int i = 0; i < rawPrefix.length; i++){
+			if(bytes[i] != rawPrefix[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+}
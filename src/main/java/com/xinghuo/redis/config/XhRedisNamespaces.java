@@ -0,0 +1,395 @@
+package com.xinghuo.redis.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.api.async.RedisKeyAsyncCommands;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisNamespaces.java
+ *
+ *  Description     : 多租户命名空间。
+ *                    每个命名空间提供一个XhRedisUtils视图，key前缀在key序列化时拼接，调用方使用不带前缀的key；
+ *                    所有命名空间共用一轮后台SCAN统计key数量：每次统计只执行有限批SCAN，按key前缀归属到命名空间，
+ *                    遍历完整个keyspace后一次性更新，开销与命名空间数量无关；内存估算使用SCAN到的key大小和读取到的value大小，
+ *                    超过软配额时只记录日志和计数，不拒绝写入；清空命名空间在独立线程中以SCAN+UNLINK分批执行
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisNamespaces implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisNamespaces.class);
+
+	private final ConcurrentMap<String, Namespace> namespaces = new ConcurrentHashMap<String, Namespace>();
+
+	private ScheduledExecutorService reconciler;
+
+	private ExecutorService flusher;
+
+	/**
+	 * 进行中的一轮统计的SCAN游标，为null时下次统计开始新的一轮，只在reconciler线程中访问
+	 */
+	private ScanCursor reconcileCursor;
+
+	/**
+	 * 进行中的一轮统计的开始时间
+	 */
+	private long reconcileStartedAt;
+
+	/**
+	 * 进行中的一轮统计中各命名空间的key数量和key字节数，只在reconciler线程中访问
+	 */
+	private final Map<Namespace, long[]> reconcileCounts = new HashMap<Namespace, long[]>();
+
+	@Autowired
+	private XhRedisUtils<Object> redisUtils;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	@Override
+	public void afterPropertiesSet() {
+		long interval = properties.getNamespace().getReconcileInterval();
+		reconciler = Executors.newSingleThreadScheduledExecutor(XhRedisExecutors.daemonThreadFactory("xh-redis-namespace"));
+		flusher = Executors.newSingleThreadExecutor(XhRedisExecutors.daemonThreadFactory("xh-redis-namespace-flush"));
+		if(interval > 0){
+			reconciler.scheduleWithFixedDelay(this::reconcileQuietly, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 获取命名空间的XhRedisUtils视图，视图中所有key自动加上命名空间前缀
+	 * @param namespace 命名空间，如租户编号
+	 * @return XhRedisUtils视图
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> XhRedisUtils<T> utils(String namespace){
+		return (XhRedisUtils<T>) namespace(namespace).utils;
+	}
+
+	/**
+	 * 获取命名空间的统计信息
+	 * @param namespace 命名空间
+	 * @return 命名空间
+	 */
+	public Namespace namespace(String namespace){
+		Namespace result = namespaces.get(namespace);
+		return result != null ? result : namespaces.computeIfAbsent(namespace, this::create);
+	}
+
+	/**
+	 * 所有已创建的命名空间
+	 * @return 命名空间列表
+	 */
+	public List<Namespace> getNamespaces(){
+		return new ArrayList<Namespace>(namespaces.values());
+	}
+
+	/**
+	 * 后台分批SCAN+UNLINK删除命名空间下的所有key，删除期间写入的key可能不会被删除；多个清空任务在独立线程中依次执行
+	 * @param namespace 命名空间
+	 * @return 删除的key数量
+	 */
+	public CompletableFuture<Long> flush(String namespace){
+		final Namespace target = namespace(namespace);
+		return CompletableFuture.supplyAsync(() -> {
+			long deleted = unlink(target);
+			target.reset();
+			logger.info("【redis命名空间】命名空间{}已清空, 删除key数量={}", target.name, deleted);
+			return deleted;
+		}, flusher);
+	}
+
+	@Override
+	public void destroy() {
+		reconciler.shutdownNow();
+		flusher.shutdownNow();
+	}
+
+	private Namespace create(String name){
+		XhRedisProperties.Namespace config = properties.getNamespace();
+		String prefix = name + config.getSeparator();
+		XhRedisNamespaceSerializer keySerializer = new XhRedisNamespaceSerializer(prefix);
+		Namespace namespace = new Namespace(name, keySerializer,
+				config.getMaxKeys().getOrDefault(name, config.getDefaultMaxKeys()),
+				config.getMaxBytes().getOrDefault(name, config.getDefaultMaxBytes()));
+		RedisTemplate<String, Object> base = redisUtils.getTemplate();
+		RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
+		template.setConnectionFactory(base.getConnectionFactory());
+		template.setKeySerializer(keySerializer);
+		template.setValueSerializer(namespace.new CountingSerializer<Object>(valueSerializer(base)));
+		template.setHashKeySerializer(base.getHashKeySerializer());
+		template.setHashValueSerializer(base.getHashValueSerializer());
+		template.afterPropertiesSet();
+		StringRedisTemplate stringTemplate = new StringRedisTemplate();
+		stringTemplate.setConnectionFactory(base.getConnectionFactory());
+		stringTemplate.setKeySerializer(keySerializer);
+		stringTemplate.afterPropertiesSet();
+		namespace.utils = redisUtils.view(prefix, template, stringTemplate);
+		return namespace;
+	}
+
+	private void reconcileQuietly(){
+		try {
+			reconcile();
+		} catch (Exception e) {
+			reconcileCursor = null;
+			reconcileCounts.clear();
+			logger.error("【redis命名空间】统计命名空间key数量异常, {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 继续进行中的一轮统计，最多执行reconcileBatches批SCAN，遍历完整个keyspace后更新各命名空间的key数量
+	 */
+	@SuppressWarnings("unchecked")
+	private void reconcile(){
+		if(namespaces.isEmpty()){
+			return;
+		}
+		if(reconcileCursor == null){
+			reconcileCursor = ScanCursor.INITIAL;
+			reconcileStartedAt = System.currentTimeMillis();
+		}
+		final XhRedisProperties.Namespace config = properties.getNamespace();
+		final ScanArgs args = ScanArgs.Builder.limit(config.getScanBatchSize());
+		final long timeout = XhRedisFutures.commandTimeout(redisUtils.getTemplate().getConnectionFactory());
+		ScanCursor cursor = redisUtils.getTemplate().execute((RedisCallback<ScanCursor>) connection -> {
+			RedisKeyAsyncCommands<byte[], byte[]> commands = (RedisKeyAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+			ScanCursor current = reconcileCursor;
+			for(int i = 0; i < Math.max(1, config.getReconcileBatches()) && !current.isFinished(); i++){
+				KeyScanCursor<byte[]> batch = XhRedisFutures.await(commands.scan(current, args), timeout);
+				count(batch.getKeys());
+				current = batch;
+			}
+			return current;
+		});
+		if(cursor != null && !cursor.isFinished()){
+			reconcileCursor = cursor;
+			return;
+		}
+		reconcileCursor = null;
+		publish();
+	}
+
+	/**
+	 * 按key前缀把一批key归属到命名空间，命名空间名称中可以包含分隔符
+	 */
+	void count(List<byte[]> rawKeys){
+		String separator = properties.getNamespace().getSeparator();
+		for(byte[] rawKey : rawKeys){
+			String key = new String(rawKey, StandardCharsets.UTF_8);
+			for(int end = key.indexOf(separator); end > 0; end = key.indexOf(separator, end + 1)){
+				Namespace namespace = namespaces.get(key.substring(0, end));
+				if(namespace != null){
+					long[] counts = reconcileCounts.computeIfAbsent(namespace, n -> new long[2]);
+					counts[0]++;
+					counts[1] += rawKey.length;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 一轮统计结束，更新各命名空间的key数量；统计期间被清空的命名空间不更新
+	 */
+	void publish(){
+		for(Namespace namespace : namespaces.values()){
+			if(namespace.flushedAt >= reconcileStartedAt){
+				continue;
+			}
+			long[] counts = reconcileCounts.get(namespace);
+			namespace.keyCount = counts == null ? 0 : counts[0];
+			if(counts != null){
+				namespace.averageKeyBytes = counts[1] / counts[0];
+			}
+			namespace.checkQuota();
+		}
+		reconcileCounts.clear();
+	}
+
+	/**
+	 * SCAN遍历命名空间下的key，每批key使用一次UNLINK删除
+	 * @return 删除的key数量
+	 */
+	@SuppressWarnings("unchecked")
+	private long unlink(final Namespace namespace){
+		final ScanArgs args = ScanArgs.Builder.matches(XhRedisKeyUtils.globEscape(namespace.keySerializer.getPrefix()) + "*")
+				.limit(properties.getNamespace().getScanBatchSize());
+		final long timeout = XhRedisFutures.commandTimeout(redisUtils.getTemplate().getConnectionFactory());
+		Long count = redisUtils.getTemplate().execute((RedisCallback<Long>) connection -> {
+			RedisKeyAsyncCommands<byte[], byte[]> commands = (RedisKeyAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+			long keys = 0;
+			ScanCursor cursor = ScanCursor.INITIAL;
+			do {
+				KeyScanCursor<byte[]> batch = XhRedisFutures.await(commands.scan(cursor, args), timeout);
+				List<byte[]> rawKeys = batch.getKeys();
+				keys += rawKeys.size();
+				if(!rawKeys.isEmpty()){
+					RedisFuture<Long> unlinked = commands.unlink(rawKeys.toArray(new byte[rawKeys.size()][]));
+					XhRedisFutures.await(unlinked, timeout);
+				}
+				cursor = batch;
+			} while(!cursor.isFinished());
+			return keys;
+		});
+		return count == null ? 0 : count;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RedisSerializer<Object> valueSerializer(RedisTemplate<String, Object> template){
+		return (RedisSerializer<Object>) template.getValueSerializer();
+	}
+
+	/**
+	 * 命名空间及其配额统计
+	 */
+	public final class Namespace {
+
+		private final String name;
+
+		private final XhRedisNamespaceSerializer keySerializer;
+
+		private final long maxKeys;
+
+		private final long maxBytes;
+
+		private final LongAdder valueSamples = new LongAdder();
+
+		private final LongAdder valueBytes = new LongAdder();
+
+		private final LongAdder quotaViolations = new LongAdder();
+
+		private final AtomicBoolean overQuota = new AtomicBoolean();
+
+		private volatile long keyCount;
+
+		private volatile long averageKeyBytes;
+
+		private volatile long flushedAt;
+
+		private volatile XhRedisUtils<?> utils;
+
+		Namespace(String name, XhRedisNamespaceSerializer keySerializer, long maxKeys, long maxBytes) {
+			this.name = name;
+			this.keySerializer = keySerializer;
+			this.maxKeys = maxKeys;
+			this.maxBytes = maxBytes;
+			this.averageKeyBytes = keySerializer.getRawPrefix().length;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * 最近一轮后台SCAN统计的key数量
+		 */
+		public long getKeyCount() {
+			return keyCount;
+		}
+
+		/**
+		 * 内存估算：key数量 ×（SCAN到的平均key大小 + 从redis读取到的平均value大小），不含redis内部结构开销
+		 */
+		public long getEstimatedBytes() {
+			long samples = valueSamples.sum();
+			long averageValueBytes = samples == 0 ? 0 : valueBytes.sum() / samples;
+			return keyCount * (averageKeyBytes + averageValueBytes);
+		}
+
+		/**
+		 * 是否超过软配额
+		 */
+		public boolean isOverQuota() {
+			return overQuota.get();
+		}
+
+		/**
+		 * 统计时发现超过软配额的次数
+		 */
+		public long getQuotaViolations() {
+			return quotaViolations.sum();
+		}
+
+		void checkQuota(){
+			boolean over = (maxKeys > 0 && keyCount > maxKeys) || (maxBytes > 0 && getEstimatedBytes() > maxBytes);
+			if(over){
+				quotaViolations.increment();
+			}
+			if(overQuota.getAndSet(over) != over && over){
+				logger.warn("【redis命名空间】命名空间{}超过软配额, key数量={}/{}, 内存估算={}/{}", name, keyCount, maxKeys, getEstimatedBytes(), maxBytes);
+			}
+		}
+
+		void reset(){
+			flushedAt = System.currentTimeMillis();
+			keyCount = 0;
+			valueSamples.reset();
+			valueBytes.reset();
+			overQuota.set(false);
+		}
+
+		/**
+		 * 统计从redis读取到的value大小；序列化的value不一定会写入（SISMEMBER、ZSCORE、LREM等命令的参数），不参与统计
+		 */
+		final class CountingSerializer<V> implements RedisSerializer<V> {
+
+			private final RedisSerializer<V> delegate;
+
+			CountingSerializer(RedisSerializer<V> delegate) {
+				this.delegate = delegate;
+			}
+
+			@Override
+			public byte[] serialize(V value) throws SerializationException {
+				return delegate.serialize(value);
+			}
+
+			@Override
+			public V deserialize(byte[] bytes) throws SerializationException {
+				if(bytes != null){
+					valueSamples.increment();
+					valueBytes.add(bytes.length);
+				}
+				return delegate.deserialize(bytes);
+			}
+		}
+	}
+}
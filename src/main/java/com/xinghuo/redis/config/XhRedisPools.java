@@ -0,0 +1,333 @@
+package com.xinghuo.redis.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import io.lettuce.core.resource.ClientResources;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisPools.java
+ *
+ *  Description     : 按操作类型或key前缀划分的独立连接池。
+ *                    每个连接池（xinghuo.redis.pools.<名称>）有独立的连接工厂、RedisTemplate、连接数和超时，可以指向独立的redis；
+ *                    阻塞弹出、大集合读取等慢操作路由到独立连接池后不再占用快速读写的连接。
+ *                    并发数按max-active限制，等待可用连接的次数和时长按连接池统计，通过JMX（xinghuo.redis:name=XhRedisPools）查看
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@ManagedResource(objectName = "xinghuo.redis:name=XhRedisPools", description = "redis独立连接池等待统计")
+public class XhRedisPools implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisPools.class);
+
+	/**
+	 * 路由到独立连接池的操作类型
+	 */
+	public enum Workload {
+		/** 单key读 */
+		READ,
+		/** 写 */
+		WRITE,
+		/** 多key及大集合读 */
+		BULK,
+		/** 阻塞弹出 */
+		BLOCKING
+	}
+
+	private final Map<String, NamedPool> pools = new LinkedHashMap<String, NamedPool>();
+
+	private final Map<Workload, NamedPool> workloadRoutes = new EnumMap<Workload, NamedPool>(Workload.class);
+
+	/**
+	 * key前缀路由，按前缀长度由长到短排列，最长前缀优先
+	 */
+	private final List<PrefixRoute> prefixRoutes = new ArrayList<PrefixRoute>();
+
+	private final RedisProperties redisProperties;
+
+	private final XhRedisProperties properties;
+
+	private final ClientResources clientResources;
+
+	public XhRedisPools(RedisProperties redisProperties, XhRedisProperties properties, ClientResources clientResources) {
+		this.redisProperties = redisProperties;
+		this.properties = properties;
+		this.clientResources = clientResources;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		for(Map.Entry<String, XhRedisProperties.Pool> entry : properties.getPools().entrySet()){
+			String name = entry.getKey();
+			XhRedisProperties.Pool config = entry.getValue();
+			LettuceConnectionFactory factory = createConnectionFactory(config);
+			RedisTemplate<String, Object> template = XhRedisConfig.createRedisTemplate(factory);
+			template.afterPropertiesSet();
+			NamedPool pool = new NamedPool(name, config, factory, template);
+			pools.put(name, pool);
+			for(String workload : config.getWorkloads()){
+				NamedPool previous = workloadRoutes.put(Workload.valueOf(workload.trim().toUpperCase()), pool);
+				if(previous != null){
+					throw new IllegalStateException("操作类型" + workload + "同时路由到连接池" + previous.name + "和" + name);
+				}
+			}
+			for(String prefix : config.getKeyPrefixes()){
+				prefixRoutes.add(new PrefixRoute(prefix, pool));
+			}
+			logger.info("【redis连接池】独立连接池{}已创建, max-active={}, workloads={}, key-prefixes={}", name,
+					config.getMaxActive(), config.getWorkloads(), config.getKeyPrefixes());
+		}
+		Collections.sort(prefixRoutes, (a, b) -> b.prefix.length() - a.prefix.length());
+	}
+
+	/**
+	 * 按key前缀或操作类型选择连接池执行操作，没有匹配的连接池时使用defaultTemplate执行
+	 * @param workload 操作类型
+	 * @param key 缓存的key，为null时只按操作类型路由
+	 * @param defaultTemplate 默认的RedisTemplate
+	 * @param call redis操作
+	 * @return 操作结果
+	 */
+	@SuppressWarnings("unchecked")
+	public <T, R> R execute(Workload workload, String key, RedisTemplate<String, T> defaultTemplate, Function<RedisTemplate<String, T>, R> call){
+		NamedPool pool = route(workload, key);
+		if(pool == null){
+			return call.apply(defaultTemplate);
+		}
+		RedisTemplate<String, Object> template = pool.templateFor(defaultTemplate);
+		pool.acquire();
+		try {
+			return call.apply((RedisTemplate<String, T>) template);
+		} finally {
+			pool.permits.release();
+		}
+	}
+
+	/**
+	 * 获取连接池的RedisTemplate，直接使用时不限制并发数，也不统计等待时长
+	 * @param name 连接池名称
+	 * @return RedisTemplate，连接池不存在时返回null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> RedisTemplate<String, T> getTemplate(String name){
+		NamedPool pool = pools.get(name);
+		return pool == null ? null : (RedisTemplate<String, T>) pool.template;
+	}
+
+	@ManagedAttribute(description = "各连接池等待可用连接的统计")
+	public Map<String, String> getPoolStats(){
+		Map<String, String> stats = new LinkedHashMap<String, String>();
+		for(NamedPool pool : pools.values()){
+			long waits = pool.waits.sum();
+			stats.put(pool.name, "active=" + (pool.config.getMaxActive() - pool.permits.availablePermits())
+					+ ", acquired=" + pool.acquired.sum()
+					+ ", waits=" + waits
+					+ ", meanWaitMillis=" + (waits == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(pool.waitNanos.sum() / waits))
+					+ ", maxWaitMillis=" + TimeUnit.NANOSECONDS.toMillis(pool.maxWaitNanos.get())
+					+ ", timeouts=" + pool.timeouts.sum());
+		}
+		return stats;
+	}
+
+	@Override
+	public void destroy() {
+		for(NamedPool pool : pools.values()){
+			pool.factory.destroy();
+		}
+	}
+
+	private NamedPool route(Workload workload, String key){
+		if(key != null){
+			for(PrefixRoute route : prefixRoutes){
+				if(key.startsWith(route.prefix)){
+					return route.pool;
+				}
+			}
+		}
+		return workloadRoutes.get(workload);
+	}
+
+	private LettuceConnectionFactory createConnectionFactory(XhRedisProperties.Pool config){
+		GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+		poolConfig.setMaxTotal(config.getMaxActive());
+		poolConfig.setMaxIdle(config.getMaxIdle());
+		poolConfig.setMinIdle(config.getMinIdle());
+		poolConfig.setMaxWaitMillis(config.getMaxWait());
+		LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder builder = LettucePoolingClientConfiguration.builder();
+		builder.poolConfig(poolConfig);
+		builder.clientResources(clientResources);
+		builder.clientOptions(XhRedisConfig.clusterClientOptions(properties.getLettuce()));
+		Duration timeout = config.getTimeout() > 0 ? Duration.ofMillis(config.getTimeout()) : redisProperties.getTimeout();
+		if(timeout != null){
+			builder.commandTimeout(timeout);
+		}
+		LettucePoolingClientConfiguration clientConfiguration = builder.build();
+		RedisPassword password = RedisPassword.of(redisProperties.getPassword());
+		LettuceConnectionFactory factory;
+		if(StringUtils.isNotEmpty(config.getHost())){
+			RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(config.getHost(), config.getPort());
+			standalone.setDatabase(redisProperties.getDatabase());
+			standalone.setPassword(password);
+			factory = new LettuceConnectionFactory(standalone, clientConfiguration);
+		} else if(redisProperties.getCluster() != null && !redisProperties.getCluster().getNodes().isEmpty()){
+			RedisClusterConfiguration cluster = new RedisClusterConfiguration(redisProperties.getCluster().getNodes());
+			cluster.setPassword(password);
+			factory = new LettuceConnectionFactory(cluster, clientConfiguration);
+		} else if(redisProperties.getSentinel() != null && StringUtils.isNotEmpty(redisProperties.getSentinel().getMaster())){
+			RedisSentinelConfiguration sentinel = new RedisSentinelConfiguration(redisProperties.getSentinel().getMaster(),
+					new HashSet<String>(redisProperties.getSentinel().getNodes()));
+			sentinel.setDatabase(redisProperties.getDatabase());
+			sentinel.setPassword(password);
+			factory = new LettuceConnectionFactory(sentinel, clientConfiguration);
+		} else {
+			RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(redisProperties.getHost(), redisProperties.getPort());
+			standalone.setDatabase(redisProperties.getDatabase());
+			standalone.setPassword(password);
+			factory = new LettuceConnectionFactory(standalone, clientConfiguration);
+		}
+		factory.setShareNativeConnection(false);
+		factory.afterPropertiesSet();
+		return factory;
+	}
+
+	/**
+	 * 独立连接池及其等待统计
+	 */
+	private static final class NamedPool {
+
+		private final String name;
+
+		private final XhRedisProperties.Pool config;
+
+		private final LettuceConnectionFactory factory;
+
+		private final RedisTemplate<String, Object> template;
+
+		/**
+		 * 并发数不超过max-active，底层连接池借用连接时不再等待，等待时长在这里统计
+		 */
+		private final Semaphore permits;
+
+		private final LongAdder acquired = new LongAdder();
+
+		private final LongAdder waits = new LongAdder();
+
+		private final LongAdder waitNanos = new LongAdder();
+
+		private final AtomicLong maxWaitNanos = new AtomicLong();
+
+		private final LongAdder timeouts = new LongAdder();
+
+		/**
+		 * 与调用方RedisTemplate序列化方式相同的该连接池的RedisTemplate，key为调用方的RedisTemplate（按引用比较）
+		 */
+		private final ConcurrentMap<RedisTemplate<String, ?>, RedisTemplate<String, Object>> viewTemplates = new ConcurrentHashMap<RedisTemplate<String, ?>, RedisTemplate<String, Object>>();
+
+		NamedPool(String name, XhRedisProperties.Pool config, LettuceConnectionFactory factory, RedisTemplate<String, Object> template) {
+			this.name = name;
+			this.config = config;
+			this.factory = factory;
+			this.template = template;
+			this.permits = new Semaphore(Math.max(1, config.getMaxActive()));
+		}
+
+		/**
+		 * 使用调用方RedisTemplate的序列化方式（命名空间前缀、按类型注册的序列化等）创建该连接池的RedisTemplate
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		RedisTemplate<String, Object> templateFor(RedisTemplate<String, ?> viewTemplate){
+			RedisTemplate<String, Object> cached = viewTemplates.get(viewTemplate);
+			if(cached != null){
+				return cached;
+			}
+			return viewTemplates.computeIfAbsent(viewTemplate, key -> {
+				RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
+				template.setConnectionFactory(factory);
+				template.setKeySerializer(viewTemplate.getKeySerializer());
+				template.setValueSerializer((RedisSerializer) viewTemplate.getValueSerializer());
+				template.setHashKeySerializer(viewTemplate.getHashKeySerializer());
+				template.setHashValueSerializer(viewTemplate.getHashValueSerializer());
+				template.afterPropertiesSet();
+				return template;
+			});
+		}
+
+		void acquire(){
+			acquired.increment();
+			if(permits.tryAcquire()){
+				return;
+			}
+			long start = System.nanoTime();
+			boolean success;
+			try {
+				if(config.getMaxWait() < 0){
+					permits.acquire();
+					success = true;
+				} else {
+					success = permits.tryAcquire(config.getMaxWait(), TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisConnectionFailureException("等待redis连接池" + name + "的可用连接时线程被中断", e);
+			}
+			long waited = System.nanoTime() - start;
+			waits.increment();
+			waitNanos.add(waited);
+			maxWaitNanos.accumulateAndGet(waited, Math::max);
+			if(!success){
+				timeouts.increment();
+				throw new XhRedisGuard.PoolRejectedException("redis连接池" + name + "等待可用连接超时(" + config.getMaxWait() + "ms)");
+			}
+		}
+	}
+
+	private static final class PrefixRoute {
+
+		private final String prefix;
+
+		private final NamedPool pool;
+
+		PrefixRoute(String prefix, NamedPool pool) {
+			this.prefix = prefix;
+			this.pool = pool;
+		}
+	}
+}
@@ -0,0 +1,1326 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisProperties.java
+ *
+ *  Description     : 星火redis组件扩展配置，前缀xinghuo.redis
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@ConfigurationProperties(prefix = "xinghuo.redis")
+public class XhRedisProperties {
+
+	/**
+	 * 延时队列配置
+	 */
+	private DelayQueue delayQueue = new DelayQueue();
+
+	/**
+	 * 大集合批量写入配置
+	 */
+	private Bulk bulk = new Bulk();
+
+	/**
+	 * 布隆过滤器配置
+	 */
+	private Bloom bloom = new Bloom();
+
+	/**
+	 * HyperLogLog客户端批量PFADD配置
+	 */
+	private HyperLogLog hyperLogLog = new HyperLogLog();
+
+	/**
+	 * 本地聚合计数器配置
+	 */
+	private Counter counter = new Counter();
+
+	/**
+	 * 排行榜配置
+	 */
+	private Leaderboard leaderboard = new Leaderboard();
+
+	/**
+	 * 地理位置查询配置
+	 */
+	private Geo geo = new Geo();
+
+	/**
+	 * 发布订阅配置
+	 */
+	private PubSub pubSub = new PubSub();
+
+	/**
+	 * 超时与熔断配置
+	 */
+	private Guard guard = new Guard();
+
+	/**
+	 * 读写分离配置
+	 */
+	private Replica replica = new Replica();
+
+	/**
+	 * Lettuce连接配置
+	 */
+	private Lettuce lettuce = new Lettuce();
+
+	/**
+	 * 按操作类型或key前缀划分的独立连接池，key为连接池名称
+	 */
+	private Map<String, Pool> pools = new LinkedHashMap<String, Pool>();
+
+	/**
+	 * 多租户命名空间配置
+	 */
+	private Namespace namespace = new Namespace();
+
+	/**
+	 * 启动预热配置
+	 */
+	private Warmup warmup = new Warmup();
+
+	/**
+	 * 异步批量写入配置
+	 */
+	private WriteBehind writeBehind = new WriteBehind();
+
+	/**
+	 * 读穿/写穿缓存配置
+	 */
+	private LoadingCache loadingCache = new LoadingCache();
+
+	/**
+	 * 乐观事务配置
+	 */
+	private Transaction transaction = new Transaction();
+
+	public DelayQueue getDelayQueue() {
+		return delayQueue;
+	}
+
+	public void setDelayQueue(DelayQueue delayQueue) {
+		this.delayQueue = delayQueue;
+	}
+
+	public Bulk getBulk() {
+		return bulk;
+	}
+
+	public void setBulk(Bulk bulk) {
+		this.bulk = bulk;
+	}
+
+	public Bloom getBloom() {
+		return bloom;
+	}
+
+	public void setBloom(Bloom bloom) {
+		this.bloom = bloom;
+	}
+
+	public HyperLogLog getHyperLogLog() {
+		return hyperLogLog;
+	}
+
+	public void setHyperLogLog(HyperLogLog hyperLogLog) {
+		this.hyperLogLog = hyperLogLog;
+	}
+
+	public Counter getCounter() {
+		return counter;
+	}
+
+	public void setCounter(Counter counter) {
+		this.counter = counter;
+	}
+
+	public Leaderboard getLeaderboard() {
+		return leaderboard;
+	}
+
+	public void setLeaderboard(Leaderboard leaderboard) {
+		this.leaderboard = leaderboard;
+	}
+
+	public Geo getGeo() {
+		return geo;
+	}
+
+	public void setGeo(Geo geo) {
+		this.geo = geo;
+	}
+
+	public PubSub getPubSub() {
+		return pubSub;
+	}
+
+	public void setPubSub(PubSub pubSub) {
+		this.pubSub = pubSub;
+	}
+
+	public Guard getGuard() {
+		return guard;
+	}
+
+	public void setGuard(Guard guard) {
+		this.guard = guard;
+	}
+
+	public Replica getReplica() {
+		return replica;
+	}
+
+	public void setReplica(Replica replica) {
+		this.replica = replica;
+	}
+
+	public Lettuce getLettuce() {
+		return lettuce;
+	}
+
+	public void setLettuce(Lettuce lettuce) {
+		this.lettuce = lettuce;
+	}
+
+	public Map<String, Pool> getPools() {
+		return pools;
+	}
+
+	public void setPools(Map<String, Pool> pools) {
+		this.pools = pools;
+	}
+
+	public Namespace getNamespace() {
+		return namespace;
+	}
+
+	public void setNamespace(Namespace namespace) {
+		this.namespace = namespace;
+	}
+
+	public Warmup getWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(Warmup warmup) {
+		this.warmup = warmup;
+	}
+
+	public WriteBehind getWriteBehind() {
+		return writeBehind;
+	}
+
+	public void setWriteBehind(WriteBehind writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	public LoadingCache getLoadingCache() {
+		return loadingCache;
+	}
+
+	public void setLoadingCache(LoadingCache loadingCache) {
+		this.loadingCache = loadingCache;
+	}
+
+	public Transaction getTransaction() {
+		return transaction;
+	}
+
+	public void setTransaction(Transaction transaction) {
+		this.transaction = transaction;
+	}
+
+	/**
+	 * 延时队列配置
+	 */
+	public static class DelayQueue {
+
+		/**
+		 * 每个延时队列拆分的zset分片数量，集群环境下分片会分布到不同的slot上
+		 */
+		private int shards = 1;
+
+		/**
+		 * 每次由lua脚本从zset转移到就绪list中的最大元素数量
+		 */
+		private int batchSize = 100;
+
+		/**
+		 * 轮询的最大休眠时长，单位毫秒。其他节点投递了更早到期的元素时，最迟在该时长后被发现
+		 */
+		private long maxPollInterval = 1000;
+
+		public int getShards() {
+			return shards;
+		}
+
+		public void setShards(int shards) {
+			this.shards = shards;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public long getMaxPollInterval() {
+			return maxPollInterval;
+		}
+
+		public void setMaxPollInterval(long maxPollInterval) {
+			this.maxPollInterval = maxPollInterval;
+		}
+	}
+
+	/**
+	 * 大集合批量写入配置
+	 */
+	public static class Bulk {
+
+		/**
+		 * 单条命令包含的最大元素数量
+		 */
+		private int chunkSize = 1000;
+
+		/**
+		 * 单条命令序列化后的最大字节数
+		 */
+		private int chunkBytes = 1024 * 1024;
+
+		/**
+		 * 一次pipeline中最多同时发送的命令数量
+		 */
+		private int maxInFlight = 16;
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public void setChunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		public int getChunkBytes() {
+			return chunkBytes;
+		}
+
+		public void setChunkBytes(int chunkBytes) {
+			this.chunkBytes = chunkBytes;
+		}
+
+		public int getMaxInFlight() {
+			return maxInFlight;
+		}
+
+		public void setMaxInFlight(int maxInFlight) {
+			this.maxInFlight = maxInFlight;
+		}
+	}
+
+	/**
+	 * 布隆过滤器配置
+	 */
+	public static class Bloom {
+
+		/**
+		 * 是否在本地保存位图快照，开启后判断元素是否存在不访问redis
+		 */
+		private boolean localSnapshot = true;
+
+		/**
+		 * 本地快照的刷新间隔，单位毫秒。其他节点新增的元素最迟在该时长后对本节点可见
+		 */
+		private long refreshInterval = 5000;
+
+		public boolean isLocalSnapshot() {
+			return localSnapshot;
+		}
+
+		public void setLocalSnapshot(boolean localSnapshot) {
+			this.localSnapshot = localSnapshot;
+		}
+
+		public long getRefreshInterval() {
+			return refreshInterval;
+		}
+
+		public void setRefreshInterval(long refreshInterval) {
+			this.refreshInterval = refreshInterval;
+		}
+	}
+
+	/**
+	 * HyperLogLog客户端批量PFADD配置
+	 */
+	public static class HyperLogLog {
+
+		/**
+		 * 本地缓冲的元素数量达到该值时立即提交
+		 */
+		private int bufferSize = 10000;
+
+		/**
+		 * 定时提交间隔，单位毫秒
+		 */
+		private long flushInterval = 1000;
+
+		public int getBufferSize() {
+			return bufferSize;
+		}
+
+		public void setBufferSize(int bufferSize) {
+			this.bufferSize = bufferSize;
+		}
+
+		public long getFlushInterval() {
+			return flushInterval;
+		}
+
+		public void setFlushInterval(long flushInterval) {
+			this.flushInterval = flushInterval;
+		}
+	}
+
+	/**
+	 * 本地聚合计数器配置
+	 */
+	public static class Counter {
+
+		/**
+		 * 定时提交间隔，单位毫秒
+		 */
+		private long flushInterval = 1000;
+
+		/**
+		 * 未提交的累加次数达到该值时提前提交
+		 */
+		private long flushThreshold = 10000;
+
+		public long getFlushInterval() {
+			return flushInterval;
+		}
+
+		public void setFlushInterval(long flushInterval) {
+			this.flushInterval = flushInterval;
+		}
+
+		public long getFlushThreshold() {
+			return flushThreshold;
+		}
+
+		public void setFlushThreshold(long flushThreshold) {
+			this.flushThreshold = flushThreshold;
+		}
+	}
+
+	/**
+	 * 排行榜配置
+	 */
+	public static class Leaderboard {
+
+		/**
+		 * 排行榜分页在本地缓存的时长，单位毫秒，0表示不缓存
+		 */
+		private long cacheTtl = 1000;
+
+		/**
+		 * 本地缓存的最大分页数量
+		 */
+		private int cacheMaxEntries = 1024;
+
+		public long getCacheTtl() {
+			return cacheTtl;
+		}
+
+		public void setCacheTtl(long cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+
+		public int getCacheMaxEntries() {
+			return cacheMaxEntries;
+		}
+
+		public void setCacheMaxEntries(int cacheMaxEntries) {
+			this.cacheMaxEntries = cacheMaxEntries;
+		}
+	}
+
+	/**
+	 * 地理位置查询配置
+	 */
+	public static class Geo {
+
+		/**
+		 * 范围查询结果在本地缓存的时长，单位毫秒，0表示不缓存
+		 */
+		private long cacheTtl = 500;
+
+		/**
+		 * 本地缓存的最大查询数量
+		 */
+		private int cacheMaxEntries = 4096;
+
+		/**
+		 * 缓存时查询中心经纬度保留的小数位数，4位约为11米，同一网格内的查询共享缓存结果
+		 */
+		private int cacheCoordinateScale = 4;
+
+		/**
+		 * 缓存时每次从redis获取的最大候选数量，count大于该值时不使用缓存
+		 */
+		private int cacheMaxCandidates = 1000;
+
+		public long getCacheTtl() {
+			return cacheTtl;
+		}
+
+		public void setCacheTtl(long cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+
+		public int getCacheMaxEntries() {
+			return cacheMaxEntries;
+		}
+
+		public void setCacheMaxEntries(int cacheMaxEntries) {
+			this.cacheMaxEntries = cacheMaxEntries;
+		}
+
+		public int getCacheCoordinateScale() {
+			return cacheCoordinateScale;
+		}
+
+		public void setCacheCoordinateScale(int cacheCoordinateScale) {
+			this.cacheCoordinateScale = cacheCoordinateScale;
+		}
+
+		public int getCacheMaxCandidates() {
+			return cacheMaxCandidates;
+		}
+
+		public void setCacheMaxCandidates(int cacheMaxCandidates) {
+			this.cacheMaxCandidates = cacheMaxCandidates;
+		}
+	}
+
+	/**
+	 * 发布订阅配置
+	 */
+	public static class PubSub {
+
+		/**
+		 * 消息分发线程数量，同一个channel的消息始终由同一个线程按顺序处理
+		 */
+		private int dispatchThreads = 4;
+
+		/**
+		 * 每个分发线程的待处理消息队列容量
+		 */
+		private int queueCapacity = 10000;
+
+		/**
+		 * 队列满时的处理策略：DROP_NEWEST丢弃新消息，DROP_OLDEST丢弃最早的消息；
+		 * 分发在redis客户端的I/O线程上执行，不能阻塞
+		 */
+		private String overloadPolicy = "DROP_OLDEST";
+
+		public int getDispatchThreads() {
+			return dispatchThreads;
+		}
+
+		public void setDispatchThreads(int dispatchThreads) {
+			this.dispatchThreads = dispatchThreads;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public String getOverloadPolicy() {
+			return overloadPolicy;
+		}
+
+		public void setOverloadPolicy(String overloadPolicy) {
+			this.overloadPolicy = overloadPolicy;
+		}
+	}
+
+	/**
+	 * 超时与熔断配置
+	 */
+	public static class Guard {
+
+		/**
+		 * 是否开启熔断
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 失败率达到该百分比时熔断器打开
+		 */
+		private int failureRateThreshold = 50;
+
+		/**
+		 * 统计窗口内调用次数达到该值后才计算失败率
+		 */
+		private int minimumCalls = 20;
+
+		/**
+		 * 失败率统计窗口，单位毫秒
+		 */
+		private long window = 10000;
+
+		/**
+		 * 熔断器打开后的持续时长，单位毫秒，之后进入半开状态试探
+		 */
+		private long openDuration = 5000;
+
+		/**
+		 * 半开状态下允许试探的调用次数，全部成功后熔断器关闭
+		 */
+		private int halfOpenCalls = 5;
+
+		/**
+		 * 熔断时get降级使用的本地缓存大小，保存最近成功读取的值，0表示不缓存
+		 */
+		private int fallbackCacheSize = 0;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getFailureRateThreshold() {
+			return failureRateThreshold;
+		}
+
+		public void setFailureRateThreshold(int failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+		}
+
+		public int getMinimumCalls() {
+			return minimumCalls;
+		}
+
+		public void setMinimumCalls(int minimumCalls) {
+			this.minimumCalls = minimumCalls;
+		}
+
+		public long getWindow() {
+			return window;
+		}
+
+		public void setWindow(long window) {
+			this.window = window;
+		}
+
+		public long getOpenDuration() {
+			return openDuration;
+		}
+
+		public void setOpenDuration(long openDuration) {
+			this.openDuration = openDuration;
+		}
+
+		public int getHalfOpenCalls() {
+			return halfOpenCalls;
+		}
+
+		public void setHalfOpenCalls(int halfOpenCalls) {
+			this.halfOpenCalls = halfOpenCalls;
+		}
+
+		public int getFallbackCacheSize() {
+			return fallbackCacheSize;
+		}
+
+		public void setFallbackCacheSize(int fallbackCacheSize) {
+			this.fallbackCacheSize = fallbackCacheSize;
+		}
+	}
+
+	/**
+	 * 读写分离配置
+	 */
+	public static class Replica {
+
+		/**
+		 * 读从节点的路由策略：MASTER（不读从节点）、MASTER_PREFERRED、REPLICA、REPLICA_PREFERRED、NEAREST，只在集群和哨兵模式下生效
+		 */
+		private String readFrom = "MASTER";
+
+		/**
+		 * XhRedisUtils读方法未指定是否允许读从节点时的默认值。从节点复制有延迟，可能读到旧值
+		 */
+		private boolean staleReadsByDefault = false;
+
+		public String getReadFrom() {
+			return readFrom;
+		}
+
+		public void setReadFrom(String readFrom) {
+			this.readFrom = readFrom;
+		}
+
+		public boolean isStaleReadsByDefault() {
+			return staleReadsByDefault;
+		}
+
+		public void setStaleReadsByDefault(boolean staleReadsByDefault) {
+			this.staleReadsByDefault = staleReadsByDefault;
+		}
+	}
+
+	/**
+	 * Lettuce连接配置
+	 */
+	public static class Lettuce {
+
+		/**
+		 * Lettuce I/O线程数量，0表示使用默认值（CPU核数，最少3个）
+		 */
+		private int ioThreadPoolSize = 0;
+
+		/**
+		 * Lettuce计算线程数量，0表示使用默认值（CPU核数，最少3个）
+		 */
+		private int computationThreadPoolSize = 0;
+
+		/**
+		 * 集群拓扑定时刷新间隔，单位毫秒，0表示不定时刷新
+		 */
+		private long topologyRefreshPeriod = 30000;
+
+		/**
+		 * 收到MOVED/ASK重定向、重连或节点不可用时是否立即刷新集群拓扑
+		 */
+		private boolean adaptiveTopologyRefresh = true;
+
+		/**
+		 * 两次自适应拓扑刷新之间的最小间隔，单位毫秒，避免故障期间频繁刷新
+		 */
+		private long adaptiveRefreshTimeout = 5000;
+
+		/**
+		 * 应用启动时是否立即建立连接并读取集群拓扑，避免第一次请求时才建立连接
+		 */
+		private boolean eagerInitialization = true;
+
+		/**
+		 * true-所有操作共用一个原生连接（多路复用），false-每次操作从连接池获取独占连接，
+		 * 必须同时配置spring.redis.lettuce.pool，没有连接池时启动报错
+		 */
+		private boolean shareNativeConnection = true;
+
+		public int getIoThreadPoolSize() {
+			return ioThreadPoolSize;
+		}
+
+		public void setIoThreadPoolSize(int ioThreadPoolSize) {
+			this.ioThreadPoolSize = ioThreadPoolSize;
+		}
+
+		public int getComputationThreadPoolSize() {
+			return computationThreadPoolSize;
+		}
+
+		public void setComputationThreadPoolSize(int computationThreadPoolSize) {
+			this.computationThreadPoolSize = computationThreadPoolSize;
+		}
+
+		public long getTopologyRefreshPeriod() {
+			return topologyRefreshPeriod;
+		}
+
+		public void setTopologyRefreshPeriod(long topologyRefreshPeriod) {
+			this.topologyRefreshPeriod = topologyRefreshPeriod;
+		}
+
+		public boolean isAdaptiveTopologyRefresh() {
+			return adaptiveTopologyRefresh;
+		}
+
+		public void setAdaptiveTopologyRefresh(boolean adaptiveTopologyRefresh) {
+			this.adaptiveTopologyRefresh = adaptiveTopologyRefresh;
+		}
+
+		public long getAdaptiveRefreshTimeout() {
+			return adaptiveRefreshTimeout;
+		}
+
+		public void setAdaptiveRefreshTimeout(long adaptiveRefreshTimeout) {
+			this.adaptiveRefreshTimeout = adaptiveRefreshTimeout;
+		}
+
+		public boolean isEagerInitialization() {
+			return eagerInitialization;
+		}
+
+		public void setEagerInitialization(boolean eagerInitialization) {
+			this.eagerInitialization = eagerInitialization;
+		}
+
+		public boolean isShareNativeConnection() {
+			return shareNativeConnection;
+		}
+
+		public void setShareNativeConnection(boolean shareNativeConnection) {
+			this.shareNativeConnection = shareNativeConnection;
+		}
+	}
+
+	/**
+	 * 独立连接池配置，xinghuo.redis.pools.<连接池名称>
+	 */
+	public static class Pool {
+
+		/**
+		 * 独立的redis地址，为空时使用spring.redis中的单机、集群或哨兵配置
+		 */
+		private String host = null;
+
+		/**
+		 * 独立的redis端口，host不为空时生效
+		 */
+		private int port = 6379;
+
+		/**
+		 * 连接池最大连接数
+		 */
+		private int maxActive = 8;
+
+		/**
+		 * 连接池中的最大空闲连接
+		 */
+		private int maxIdle = 8;
+
+		/**
+		 * 连接池中的最小空闲连接
+		 */
+		private int minIdle = 0;
+
+		/**
+		 * 等待可用连接的最大时长，单位毫秒，负数表示一直等待
+		 */
+		private long maxWait = -1;
+
+		/**
+		 * 命令超时时长，单位毫秒，0表示使用spring.redis.timeout
+		 */
+		private long timeout = 0;
+
+		/**
+		 * 路由到该连接池的操作类型：READ、WRITE、BULK、BLOCKING
+		 */
+		private List<String> workloads = new ArrayList<String>();
+
+		/**
+		 * 路由到该连接池的key前缀，优先于操作类型
+		 */
+		private List<String> keyPrefixes = new ArrayList<String>();
+
+		public String getHost() {
+			return host;
+		}
+
+		public void setHost(String host) {
+			this.host = host;
+		}
+
+		public int getPort() {
+			return port;
+		}
+
+		public void setPort(int port) {
+			this.port = port;
+		}
+
+		public int getMaxActive() {
+			return maxActive;
+		}
+
+		public void setMaxActive(int maxActive) {
+			this.maxActive = maxActive;
+		}
+
+		public int getMaxIdle() {
+			return maxIdle;
+		}
+
+		public void setMaxIdle(int maxIdle) {
+			this.maxIdle = maxIdle;
+		}
+
+		public int getMinIdle() {
+			return minIdle;
+		}
+
+		public void setMinIdle(int minIdle) {
+			this.minIdle = minIdle;
+		}
+
+		public long getMaxWait() {
+			return maxWait;
+		}
+
+		public void setMaxWait(long maxWait) {
+			this.maxWait = maxWait;
+		}
+
+		public long getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(long timeout) {
+			this.timeout = timeout;
+		}
+
+		public List<String> getWorkloads() {
+			return workloads;
+		}
+
+		public void setWorkloads(List<String> workloads) {
+			this.workloads = workloads;
+		}
+
+		public List<String> getKeyPrefixes() {
+			return keyPrefixes;
+		}
+
+		public void setKeyPrefixes(List<String> keyPrefixes) {
+			this.keyPrefixes = keyPrefixes;
+		}
+	}
+
+	/**
+	 * 多租户命名空间配置
+	 */
+	public static class Namespace {
+
+		/**
+		 * 命名空间与key之间的分隔符，key前缀为命名空间+分隔符
+		 */
+		private String separator = ":";
+
+		/**
+		 * 后台SCAN统计各命名空间key数量的间隔，单位毫秒，0表示不统计
+		 */
+		private long reconcileInterval = 60000;
+
+		/**
+		 * 后台SCAN统计和清空命名空间时每批的key数量（SCAN的COUNT参数）
+		 */
+		private int scanBatchSize = 1000;
+
+		/**
+		 * 每次后台统计最多执行的SCAN批数，一轮SCAN遍历完整个keyspace后才更新各命名空间的key数量，
+		 * keyspace较大时一轮统计跨越多个统计间隔
+		 */
+		private int reconcileBatches = 100;
+
+		/**
+		 * 命名空间默认的key数量软配额，0表示不限制
+		 */
+		private long defaultMaxKeys = 0;
+
+		/**
+		 * 命名空间默认的内存估算软配额，单位字节，0表示不限制
+		 */
+		private long defaultMaxBytes = 0;
+
+		/**
+		 * 按命名空间设置的key数量软配额，key为命名空间
+		 */
+		private Map<String, Long> maxKeys = new LinkedHashMap<String, Long>();
+
+		/**
+		 * 按命名空间设置的内存估算软配额，key为命名空间
+		 */
+		private Map<String, Long> maxBytes = new LinkedHashMap<String, Long>();
+
+		public String getSeparator() {
+			return separator;
+		}
+
+		public void setSeparator(String separator) {
+			this.separator = separator;
+		}
+
+		public long getReconcileInterval() {
+			return reconcileInterval;
+		}
+
+		public void setReconcileInterval(long reconcileInterval) {
+			this.reconcileInterval = reconcileInterval;
+		}
+
+		public int getScanBatchSize() {
+			return scanBatchSize;
+		}
+
+		public void setScanBatchSize(int scanBatchSize) {
+			this.scanBatchSize = scanBatchSize;
+		}
+
+		public int getReconcileBatches() {
+			return reconcileBatches;
+		}
+
+		public void setReconcileBatches(int reconcileBatches) {
+			this.reconcileBatches = reconcileBatches;
+		}
+
+		public long getDefaultMaxKeys() {
+			return defaultMaxKeys;
+		}
+
+		public void setDefaultMaxKeys(long defaultMaxKeys) {
+			this.defaultMaxKeys = defaultMaxKeys;
+		}
+
+		public long getDefaultMaxBytes() {
+			return defaultMaxBytes;
+		}
+
+		public void setDefaultMaxBytes(long defaultMaxBytes) {
+			this.defaultMaxBytes = defaultMaxBytes;
+		}
+
+		public Map<String, Long> getMaxKeys() {
+			return maxKeys;
+		}
+
+		public void setMaxKeys(Map<String, Long> maxKeys) {
+			this.maxKeys = maxKeys;
+		}
+
+		public Map<String, Long> getMaxBytes() {
+			return maxBytes;
+		}
+
+		public void setMaxBytes(Map<String, Long> maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+	}
+
+	/**
+	 * 启动预热配置
+	 */
+	public static class Warmup {
+
+		/**
+		 * 是否在应用启动时预热
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * 需要预热的key
+		 */
+		private List<String> keys = new ArrayList<String>();
+
+		/**
+		 * 需要预热的key前缀，按前缀SCAN后分批MGET
+		 */
+		private List<String> prefixes = new ArrayList<String>();
+
+		/**
+		 * 每批SCAN和MGET的key数量
+		 */
+		private int batchSize = 500;
+
+		/**
+		 * 同时执行的预热任务数量
+		 */
+		private int parallelism = 4;
+
+		/**
+		 * true-在应用启动过程中同步预热，预热完成后才完成启动；false-后台预热，预热完成前健康检查返回OUT_OF_SERVICE
+		 */
+		private boolean blocking = false;
+
+		/**
+		 * 同步预热的最长等待时间，单位毫秒，超过后不再等待，预热在后台继续，启动照常完成
+		 */
+		private long blockingTimeout = 300000;
+
+		/**
+		 * 是否把预热的value写入本地缓存（XhRedisGuard的本地降级缓存及XhRedisWarmup.LocalCache实现）
+		 */
+		private boolean seedLocalCache = true;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public List<String> getKeys() {
+			return keys;
+		}
+
+		public void setKeys(List<String> keys) {
+			this.keys = keys;
+		}
+
+		public List<String> getPrefixes() {
+			return prefixes;
+		}
+
+		public void setPrefixes(List<String> prefixes) {
+			this.prefixes = prefixes;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+
+		public boolean isBlocking() {
+			return blocking;
+		}
+
+		public void setBlocking(boolean blocking) {
+			this.blocking = blocking;
+		}
+
+		public long getBlockingTimeout() {
+			return blockingTimeout;
+		}
+
+		public void setBlockingTimeout(long blockingTimeout) {
+			this.blockingTimeout = blockingTimeout;
+		}
+
+		public boolean isSeedLocalCache() {
+			return seedLocalCache;
+		}
+
+		public void setSeedLocalCache(boolean seedLocalCache) {
+			this.seedLocalCache = seedLocalCache;
+		}
+	}
+
+	/**
+	 * 异步批量写入配置
+	 */
+	public static class WriteBehind {
+
+		/**
+		 * 缓冲中待写入key数量上限，同一个key的多次写入只占一个位置
+		 */
+		private int capacity = 10000;
+
+		/**
+		 * 每次pipeline写入的key数量，缓冲中key数量达到该值时立即写入
+		 */
+		private int batchSize = 500;
+
+		/**
+		 * 定时写入间隔(毫秒)
+		 */
+		private long flushInterval = 200;
+
+		/**
+		 * 缓冲已满时的处理方式：BLOCK-等待缓冲有空位；CALLER_RUNS-调用线程直接写入redis；DISCARD-丢弃本次写入；FAIL-抛出异常
+		 */
+		private String overflowPolicy = "BLOCK";
+
+		/**
+		 * BLOCK方式最长等待时间(毫秒)，超时后抛出异常
+		 */
+		private long blockTimeout = 1000;
+
+		/**
+		 * 应用关闭时写入剩余缓冲的最长时间(毫秒)
+		 */
+		private long shutdownTimeout = 10000;
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public long getFlushInterval() {
+			return flushInterval;
+		}
+
+		public void setFlushInterval(long flushInterval) {
+			this.flushInterval = flushInterval;
+		}
+
+		public String getOverflowPolicy() {
+			return overflowPolicy;
+		}
+
+		public void setOverflowPolicy(String overflowPolicy) {
+			this.overflowPolicy = overflowPolicy;
+		}
+
+		public long getBlockTimeout() {
+			return blockTimeout;
+		}
+
+		public void setBlockTimeout(long blockTimeout) {
+			this.blockTimeout = blockTimeout;
+		}
+
+		public long getShutdownTimeout() {
+			return shutdownTimeout;
+		}
+
+		public void setShutdownTimeout(long shutdownTimeout) {
+			this.shutdownTimeout = shutdownTimeout;
+		}
+	}
+
+	/**
+	 * 读穿/写穿缓存配置
+	 */
+	public static class LoadingCache {
+
+		/**
+		 * 剩余过期时间低于ttl的该比例时后台异步重新加载，0表示不提前刷新
+		 */
+		private double refreshAheadFactor = 0.2;
+
+		/**
+		 * redis不可用时是否直接调用loader加载
+		 */
+		private boolean loadOnRedisFailure = true;
+
+		public double getRefreshAheadFactor() {
+			return refreshAheadFactor;
+		}
+
+		public void setRefreshAheadFactor(double refreshAheadFactor) {
+			this.refreshAheadFactor = refreshAheadFactor;
+		}
+
+		public boolean isLoadOnRedisFailure() {
+			return loadOnRedisFailure;
+		}
+
+		public void setLoadOnRedisFailure(boolean loadOnRedisFailure) {
+			this.loadOnRedisFailure = loadOnRedisFailure;
+		}
+	}
+
+	/**
+	 * 乐观事务配置
+	 */
+	public static class Transaction {
+
+		/**
+		 * WATCH冲突后的最大重试次数
+		 */
+		private int maxRetries = 5;
+
+		/**
+		 * 首次重试前的退避时间(毫秒)，之后每次翻倍并加随机抖动
+		 */
+		private long backoff = 5;
+
+		/**
+		 * 最大退避时间(毫秒)
+		 */
+		private long maxBackoff = 100;
+
+		/**
+		 * WATCH重试次数用尽后是否改用lua脚本比较并设置，并在hot-key-ttl内对该key直接使用lua脚本
+		 */
+		private boolean luaFallback = true;
+
+		/**
+		 * 冲突频繁的key直接使用lua脚本的时长(毫秒)
+		 */
+		private long hotKeyTtl = 10000;
+
+		public int getMaxRetries() {
+			return maxRetries;
+		}
+
+		public void setMaxRetries(int maxRetries) {
+			this.maxRetries = maxRetries;
+		}
+
+		public long getBackoff() {
+			return backoff;
+		}
+
+		public void setBackoff(long backoff) {
+			this.backoff = backoff;
+		}
+
+		public long getMaxBackoff() {
+			return maxBackoff;
+		}
+
+		public void setMaxBackoff(long maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+		public boolean isLuaFallback() {
+			return luaFallback;
+		}
+
+		public void setLuaFallback(boolean luaFallback) {
+			this.luaFallback = luaFallback;
+		}
+
+		public long getHotKeyTtl() {
+			return hotKeyTtl;
+		}
+
+		public void setHotKeyTtl(long hotKeyTtl) {
+			this.hotKeyTtl = hotKeyTtl;
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package com.xinghuo.redis.config;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisPubSub.java
+ *
+ *  Description     : redis发布订阅，T是泛型，消息使用RedisTemplate的value序列化方式。
+ *                    多channel发布使用pipeline一次网络往返；所有订阅共用一个订阅连接，
+ *                    消息由有界的分发线程处理，同一个channel的消息按顺序处理，队列满时按overload-policy处理；
+ *                    监听回调运行在redis客户端的I/O线程上，分发时不能阻塞，队列满时只能丢弃消息
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+public class XhRedisPubSub<T> implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisPubSub.class);
+
+	/**
+	 * 分发队列满时的处理策略
+	 */
+	public enum OverloadPolicy {
+		/** 丢弃新消息 */
+		DROP_NEWEST,
+		/** 丢弃队列中最早的消息 */
+		DROP_OLDEST
+	}
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+	private Lane[] lanes;
+
+	private OverloadPolicy overloadPolicy;
+
+	@Autowired
+	private RedisTemplate<String,T> redisTemplate;
+
+	@Autowired
+	@Qualifier("xhRedisMessageListenerContainer")
+	private RedisMessageListenerContainer container;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void afterPropertiesSet() {
+		XhRedisProperties.PubSub pubSub = properties.getPubSub();
+		overloadPolicy = OverloadPolicy.valueOf(pubSub.getOverloadPolicy().trim().toUpperCase());
+		lanes = new XhRedisPubSub.Lane[Math.max(1, pubSub.getDispatchThreads())];
+		for(int i = 0; i < lanes.length; i++){
+			lanes[i] = new Lane(Math.max(1, pubSub.getQueueCapacity()));
+			Thread thread = new Thread(lanes[i], "xh-redis-pubsub-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * 发布消息
+	 * @param channel 频道
+	 * @param message 消息T
+	 */
+	public void publish(String channel, T message){
+		this.redisTemplate.convertAndSend(channel, message);
+	}
+
+	/**
+	 * 同一条消息发布到多个频道，消息只序列化一次，所有PUBLISH使用一次pipeline提交
+	 * @param channels 多个频道
+	 * @param message 消息T
+	 */
+	public void publish(final Collection<String> channels, T message){
+		final byte[] rawMessage = valueSerializer().serialize(message);
+		final RedisSerializer<String> keySerializer = keySerializer();
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(String channel : channels){
+				connection.publish(keySerializer.serialize(channel), rawMessage);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * 批量发布多个频道的多条消息，所有PUBLISH使用一次pipeline提交
+	 * @param messages 频道及其消息列表，同一频道的消息按列表顺序发布
+	 */
+	public void publishBatch(final Map<String, List<T>> messages){
+		final RedisSerializer<T> valueSerializer = valueSerializer();
+		final RedisSerializer<String> keySerializer = keySerializer();
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(Map.Entry<String, List<T>> entry : messages.entrySet()){
+				byte[] rawChannel = keySerializer.serialize(entry.getKey());
+				for(T message : entry.getValue()){
+					connection.publish(rawChannel, valueSerializer.serialize(message));
+				}
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * 订阅频道，消息反序列化为T后交给listener处理
+	 * @param channel 频道
+	 * @param listener 消息处理方法
+	 * @return 订阅，用于取消订阅
+	 */
+	public Subscription subscribe(String channel, Consumer<T> listener){
+		return subscribe(new ChannelTopic(channel), listener);
+	}
+
+	/**
+	 * 按模式订阅频道，如news.*
+	 * @param pattern 频道模式
+	 * @param listener 消息处理方法
+	 * @return 订阅，用于取消订阅
+	 */
+	public Subscription pSubscribe(String pattern, Consumer<T> listener){
+		return subscribe(new PatternTopic(pattern), listener);
+	}
+
+	/**
+	 * 由于分发队列已满被丢弃的消息数量
+	 * @return 丢弃的消息数量
+	 */
+	public long getDroppedCount(){
+		return dropped.get();
+	}
+
+	/**
+	 * 所有分发队列中待处理的消息数量
+	 * @return 待处理的消息数量
+	 */
+	public int getPendingCount(){
+		int pending = 0;
+		for(Lane lane : lanes){
+			pending += lane.queue.size();
+		}
+		return pending;
+	}
+
+	@Override
+	public void destroy() {
+		for(Subscription subscription : subscriptions){
+			subscription.unsubscribe();
+		}
+		for(Lane lane : lanes){
+			lane.running = false;
+		}
+	}
+
+	private Subscription subscribe(Topic topic, final Consumer<T> listener){
+		final RedisSerializer<T> valueSerializer = valueSerializer();
+		final RedisSerializer<String> keySerializer = keySerializer();
+		MessageListener messageListener = (message, pattern) -> {
+			String channel = keySerializer.deserialize(message.getChannel());
+			byte[] body = message.getBody();
+			dispatch(channel, () -> listener.accept(valueSerializer.deserialize(body)));
+		};
+		Subscription subscription = new Subscription(messageListener, topic);
+		subscriptions.add(subscription);
+		container.addMessageListener(messageListener, topic);
+		return subscription;
+	}
+
+	/**
+	 * 按channel选择分发线程，保证同一个channel的消息按顺序处理；反序列化也在分发线程中执行。
+	 * 运行在redis客户端的I/O线程上，只使用非阻塞的offer/poll
+	 */
+	private void dispatch(String channel, Runnable task){
+		Lane lane = lanes[(channel.hashCode() & Integer.MAX_VALUE) % lanes.length];
+		if(lane.queue.offer(task)){
+			return;
+		}
+		boolean accepted = false;
+		if(overloadPolicy == OverloadPolicy.DROP_OLDEST){
+			while(!accepted){
+				lane.queue.poll();
+				dropped.incrementAndGet();
+				accepted = lane.queue.offer(task);
+			}
+		}
+		if(!accepted){
+			long count = dropped.incrementAndGet();
+			if((count & 1023) == 1){
+				logger.warn("【redis发布订阅】分发队列已满，消息被丢弃, channel={}, 累计丢弃={}", channel, count);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private RedisSerializer<T> valueSerializer(){
+		return (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+	}
+
+	@SuppressWarnings("unchecked")
+	private RedisSerializer<String> keySerializer(){
+		return (RedisSerializer<String>) this.redisTemplate.getKeySerializer();
+	}
+
+	/**
+	 * 订阅，用于取消订阅
+	 */
+	public final class Subscription {
+
+		private final MessageListener listener;
+
+		private final Topic topic;
+
+		Subscription(MessageListener listener, Topic topic) {
+			this.listener = listener;
+			this.topic = topic;
+		}
+
+		/**
+		 * 取消订阅
+		 */
+		public void unsubscribe(){
+			subscriptions.remove(this);
+			container.removeMessageListener(listener, topic);
+		}
+	}
+
+	/**
+	 * 分发线程及其有界队列
+	 */
+	private class Lane implements Runnable {
+
+		private final BlockingQueue<Runnable> queue;
+
+		private volatile boolean running = true;
+
+		Lane(int capacity) {
+			this.queue = new ArrayBlockingQueue<Runnable>(capacity);
+		}
+
+		@Override
+		public void run() {
+			while(running){
+				Runnable task;
+				try {
+					task = queue.poll(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if(task == null){
+					continue;
+				}
+				try {
+					task.run();
+				} catch (Exception e) {
+					logger.error("【redis发布订阅】处理消息异常", e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.lettuce.LettuceExceptionConverter;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.masterslave.MasterSlave;
+import io.lettuce.core.masterslave.StatefulRedisMasterSlaveConnection;
+import io.lettuce.core.resource.ClientResources;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisReadRouter.java
+ *
+ *  Description     : 读写分离路由。
+ *                    集群或哨兵模式下按xinghuo.redis.replica.read-from建立一个设置了Lettuce ReadFrom的只读连接，
+ *                    XhRedisUtils中允许读旧值的读操作经该连接发往从节点，其他操作仍走RedisTemplate的主节点连接；
+ *                    单机模式或read-from为MASTER时不建立连接，所有读操作走主节点
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisReadRouter implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisReadRouter.class);
+
+	private final LettuceExceptionConverter exceptionConverter = new LettuceExceptionConverter();
+
+	private final RedisProperties redisProperties;
+
+	private final XhRedisProperties properties;
+
+	private final ClientResources clientResources;
+
+	private AbstractRedisClient client;
+
+	private StatefulConnection<byte[], byte[]> connection;
+
+	private volatile RedisClusterCommands<byte[], byte[]> commands;
+
+	public XhRedisReadRouter(RedisProperties redisProperties, XhRedisProperties properties, ClientResources clientResources) {
+		this.redisProperties = redisProperties;
+		this.properties = properties;
+		this.clientResources = clientResources;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		ReadFrom readFrom = readFrom(properties.getReplica().getReadFrom());
+		if(readFrom == null){
+			return;
+		}
+		try {
+			if(redisProperties.getCluster() != null && !redisProperties.getCluster().getNodes().isEmpty()){
+				connectCluster(readFrom);
+			} else if(redisProperties.getSentinel() != null && StringUtils.isNotEmpty(redisProperties.getSentinel().getMaster())){
+				connectSentinel(readFrom);
+			} else {
+				logger.info("【redis读写分离】单机模式不支持读从节点，所有读操作走主节点");
+			}
+		} catch (Exception e) {
+			logger.error("【redis读写分离】建立从节点连接异常，所有读操作走主节点, {}", e.getMessage(), e);
+			destroy();
+		}
+	}
+
+	/**
+	 * 是否已建立从节点读连接
+	 * @return true-可以读从节点 false-所有读操作走主节点
+	 */
+	public boolean isEnabled(){
+		return commands != null;
+	}
+
+	/**
+	 * 是否路由到从节点
+	 * @param allowStale 本次读操作是否允许读旧值
+	 * @return true-路由到从节点
+	 */
+	public boolean route(boolean allowStale){
+		return allowStale && commands != null;
+	}
+
+	/**
+	 * 在从节点读连接上执行读操作，Lettuce异常转换为spring的DataAccessException
+	 * @param call 读操作
+	 * @return 读操作结果
+	 */
+	public <R> R read(Function<RedisClusterCommands<byte[], byte[]>, R> call){
+		try {
+			return call.apply(commands);
+		} catch (RuntimeException e) {
+			DataAccessException translated = exceptionConverter.convert(e);
+			throw translated != null ? translated : new RedisSystemException("redis从节点读操作异常", e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		commands = null;
+		if(connection != null){
+			connection.close();
+			connection = null;
+		}
+		if(client != null){
+			client.shutdown();
+			client = null;
+		}
+	}
+
+	private void connectCluster(ReadFrom readFrom){
+		List<RedisURI> uris = new ArrayList<RedisURI>();
+		for(String node : redisProperties.getCluster().getNodes()){
+			uris.add(uri(RedisURI.Builder.redis(host(node), port(node))));
+		}
+		RedisClusterClient clusterClient = RedisClusterClient.create(clientResources, uris);
+		clusterClient.setOptions(XhRedisConfig.clusterClientOptions(properties.getLettuce()));
+		client = clusterClient;
+		StatefulRedisClusterConnection<byte[], byte[]> clusterConnection = clusterClient.connect(ByteArrayCodec.INSTANCE);
+		clusterConnection.setReadFrom(readFrom);
+		connection = clusterConnection;
+		commands = clusterConnection.sync();
+		logger.info("【redis读写分离】集群模式读连接已建立, readFrom={}", properties.getReplica().getReadFrom());
+	}
+
+	private void connectSentinel(ReadFrom readFrom){
+		RedisProperties.Sentinel sentinel = redisProperties.getSentinel();
+		RedisURI.Builder builder = null;
+		for(String node : sentinel.getNodes()){
+			if(builder == null){
+				builder = RedisURI.Builder.sentinel(host(node), port(node), sentinel.getMaster());
+			} else {
+				builder.withSentinel(host(node), port(node));
+			}
+		}
+		RedisClient redisClient = RedisClient.create(clientResources);
+		client = redisClient;
+		StatefulRedisMasterSlaveConnection<byte[], byte[]> masterSlaveConnection = MasterSlave.connect(redisClient,
+				ByteArrayCodec.INSTANCE, uri(builder.withDatabase(redisProperties.getDatabase())));
+		masterSlaveConnection.setReadFrom(readFrom);
+		connection = masterSlaveConnection;
+		commands = masterSlaveConnection.sync();
+		logger.info("【redis读写分离】哨兵模式读连接已建立, master={}, readFrom={}", sentinel.getMaster(), properties.getReplica().getReadFrom());
+	}
+
+	private RedisURI uri(RedisURI.Builder builder){
+		if(StringUtils.isNotEmpty(redisProperties.getPassword())){
+			builder.withPassword(redisProperties.getPassword());
+		}
+		if(redisProperties.getTimeout() != null){
+			builder.withTimeout(redisProperties.getTimeout());
+		}
+		return builder.build();
+	}
+
+	private static String host(String node){
+		return node.substring(0, node.lastIndexOf(':')).trim();
+	}
+
+	private static int port(String node){
+		return Integer.parseInt(node.substring(node.lastIndexOf(':') + 1).trim());
+	}
+
+	/**
+	 * 配置的路由策略转换为Lettuce ReadFrom，MASTER返回null表示不建立从节点读连接
+	 */
+	private static ReadFrom readFrom(String name){
+		switch(name.trim().toUpperCase()){
+			case "MASTER":
+				return null;
+			case "MASTER_PREFERRED":
+				return ReadFrom.MASTER_PREFERRED;
+			case "REPLICA":
+			case "SLAVE":
+				return ReadFrom.SLAVE;
+			case "REPLICA_PREFERRED":
+			case "SLAVE_PREFERRED":
+				return ReadFrom.SLAVE_PREFERRED;
+			case "NEAREST":
+				return ReadFrom.NEAREST;
+			default:
+				throw new IllegalArgumentException("不支持的xinghuo.redis.replica.read-from: " + name);
+		}
+	}
+}
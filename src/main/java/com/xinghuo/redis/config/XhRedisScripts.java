@@ -0,0 +1,91 @@
+package com.xinghuo.redis.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.StreamUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisScripts.java
+ *
+ *  Description     : lua脚本注册表。
+ *                    组件自带的脚本放在classpath的xhredis/scripts/目录下，按名称第一次使用时读取一次并计算SHA1，之后复用；
+ *                    通过RedisTemplate.execute执行时先使用EVALSHA，redis返回NOSCRIPT（如重启、SCRIPT FLUSH、集群新节点）时
+ *                    自动改用EVAL执行并重新缓存脚本，调用方无感知
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public final class XhRedisScripts {
+
+	/**
+	 * 自带脚本在classpath中的目录
+	 */
+	static final String LOCATION = "xhredis/scripts/";
+
+	private static final ConcurrentMap<String, RedisScript<?>> SCRIPTS = new ConcurrentHashMap<String, RedisScript<?>>();
+
+	private XhRedisScripts() {
+	}
+
+	/**
+	 * 获取脚本，没有注册时从classpath的xhredis/scripts/{name}.lua读取
+	 * @param name 脚本名称
+	 * @param resultType 返回值类型，Long、Boolean、List或String
+	 * @return 脚本
+	 */
+	@SuppressWarnings("unchecked")
+	public static <R> RedisScript<R> get(String name, Class<R> resultType){
+		RedisScript<?> script = SCRIPTS.get(name);
+		if(script == null){
+			script = SCRIPTS.computeIfAbsent(name, n -> create(read(n), resultType));
+		}
+		if(script.getResultType() != resultType){
+			throw new IllegalArgumentException("lua脚本" + name + "的返回值类型为" + script.getResultType().getName() + "，不是" + resultType.getName());
+		}
+		return (RedisScript<R>) script;
+	}
+
+	/**
+	 * 注册业务自己的脚本，同名脚本只能注册一次
+	 * @param name 脚本名称
+	 * @param scriptText 脚本内容
+	 * @param resultType 返回值类型，Long、Boolean、List或String
+	 * @return 脚本
+	 */
+	public static <R> RedisScript<R> register(String name, String scriptText, Class<R> resultType){
+		RedisScript<R> script = create(scriptText, resultType);
+		RedisScript<?> existing = SCRIPTS.putIfAbsent(name, script);
+		if(existing != null && !existing.getSha1().equals(script.getSha1())){
+			throw new IllegalStateException("lua脚本" + name + "已注册为其他内容");
+		}
+		return get(name, resultType);
+	}
+
+	private static String read(String name){
+		ClassPathResource resource = new ClassPathResource(LOCATION + name + ".lua", XhRedisScripts.class.getClassLoader());
+		try (InputStream in = resource.getInputStream()) {
+			return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("读取lua脚本" + resource.getPath() + "异常", e);
+		}
+	}
+
+	private static <R> RedisScript<R> create(String scriptText, Class<R> resultType){
+		DefaultRedisScript<R> script = new DefaultRedisScript<R>();
+		script.setScriptText(scriptText);
+		script.setResultType(resultType);
+		return script;
+	}
+}
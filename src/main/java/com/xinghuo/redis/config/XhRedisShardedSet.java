@@ -0,0 +1,298 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisShardedSet.java
+ *
+ *  Description     : 分片set，用于千万级元素的大集合。
+ *                    元素按hash分散到shards个子key（{key:0}、{key:1}...），集群环境下分布在不同的slot和节点上；
+ *                    判断元素是否存在、添加、移除只访问元素所在的分片，集合大小、遍历、交并差集在所有分片上并行执行后聚合。
+ *                    读写都经过熔断和独立连接池，集合大小、遍历、交并差集任一分片失败时抛出异常，不返回部分结果；
+ *                    并行操作使用独立的分片线程池；
+ *                    分片数量确定后不能修改，修改分片数量需要重建数据
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisShardedSet<T> {
+
+	private final XhRedisUtils<T> redisUtils;
+
+	private final String key;
+
+	private final List<String> shardKeys;
+
+	XhRedisShardedSet(XhRedisUtils<T> redisUtils, String key, int shards) {
+		this.redisUtils = redisUtils;
+		this.key = key;
+		this.shardKeys = Collections.unmodifiableList(XhRedisShards.shardKeys(key, shards));
+	}
+
+	/**
+	 * 添加元素
+	 * @param value 元素
+	 * @return 新添加的返回true
+	 */
+	public boolean add(T value){
+		final String shardKey = shardKey(value);
+		Long added = write(shardKey, template -> template.opsForSet().add(shardKey, value));
+		return added != null && added > 0;
+	}
+
+	/**
+	 * 批量添加元素，按分片分组后并行写入
+	 * @param values 元素
+	 * @return 新添加的元素数量
+	 */
+	@SuppressWarnings("unchecked")
+	public long addAll(Collection<? extends T> values){
+		if(values.isEmpty()){
+			return 0;
+		}
+		final Map<Integer, List<T>> groups = XhRedisShards.groupByShard(redisUtils.getTemplate(), values, shardKeys.size());
+		return XhRedisShards.parallelSum(new ArrayList<Integer>(groups.keySet()), shard -> write(shardKeys.get(shard),
+				template -> template.opsForSet().add(shardKeys.get(shard), (T[]) groups.get(shard).toArray())));
+	}
+
+	/**
+	 * 移除元素
+	 * @param value 元素
+	 * @return 元素存在并被移除时返回true
+	 */
+	public boolean remove(T value){
+		final String shardKey = shardKey(value);
+		Long removed = write(shardKey, template -> template.opsForSet().remove(shardKey, value));
+		return removed != null && removed > 0;
+	}
+
+	/**
+	 * 批量移除元素，按分片分组后并行移除
+	 * @param values 元素
+	 * @return 移除的元素数量
+	 */
+	public long removeAll(Collection<? extends T> values){
+		if(values.isEmpty()){
+			return 0;
+		}
+		final Map<Integer, List<T>> groups = XhRedisShards.groupByShard(redisUtils.getTemplate(), values, shardKeys.size());
+		return XhRedisShards.parallelSum(new ArrayList<Integer>(groups.keySet()), shard -> write(shardKeys.get(shard),
+				template -> template.opsForSet().remove(shardKeys.get(shard), groups.get(shard).toArray())));
+	}
+
+	/**
+	 * 判断是否包含元素，只访问元素所在的分片
+	 * @param value 元素
+	 * @return 包含时返回true，redis不可用时返回null
+	 */
+	public Boolean contains(T value){
+		return redisUtils.sExistMember(shardKey(value), value);
+	}
+
+	/**
+	 * 集合大小，并行获取所有分片的大小后求和
+	 * @return 元素数量
+	 */
+	public long size(){
+		return XhRedisShards.parallelSum(XhRedisShards.indexes(shardKeys.size()),
+				shard -> read(XhRedisGuard.Operation.READ, shardKeys.get(shard), (template, shardKey) -> template.opsForSet().size(shardKey)));
+	}
+
+	/**
+	 * <p>
+	 * 注意：一次性加载整个集合，大集合请使用forEach或stream分批遍历
+	 * </p>
+	 * 并行获取所有分片的元素，任一分片失败时抛出异常
+	 * @return 所有元素
+	 */
+	public Set<T> getAll(){
+		Set<T> result = new HashSet<T>();
+		for(Set<T> members : XhRedisShards.parallel(shardKeys.size(), this::members)){
+			result.addAll(members);
+		}
+		return result;
+	}
+
+	/**
+	 * 每个分片使用一个线程并行SSCAN遍历，action会被多个线程同时调用，需要线程安全
+	 * @param batchSize 每批获取的元素数量（SSCAN的COUNT参数）
+	 * @param action 对每个元素执行的操作
+	 */
+	public void forEach(final int batchSize, final Consumer<? super T> action){
+		XhRedisShards.parallel(shardKeys.size(), shard -> {
+			try (Stream<T> members = redisUtils.sStream(shardKeys.get(shard), batchSize)) {
+				members.forEach(action);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * <p>
+	 * 注意：返回的Stream依次占用各分片的redis连接，使用完毕必须close，建议使用try-with-resources
+	 * </p>
+	 * 以Stream方式依次遍历所有分片
+	 * @param batchSize 每批获取的元素数量
+	 * @return 元素T的Stream
+	 */
+	public Stream<T> stream(final int batchSize){
+		return shardKeys.stream().flatMap(shardKey -> redisUtils.sStream(shardKey, batchSize));
+	}
+
+	/**
+	 * 与另一个分片set的交集，分片数量相同时相同元素在相同序号的分片上，各分片并行计算后合并
+	 * @param other 另一个分片set
+	 * @return 交集
+	 */
+	public Set<T> intersect(XhRedisShardedSet<T> other){
+		return algebra(other, XhRedisUtils.SetAlgebra.INTERSECT);
+	}
+
+	/**
+	 * 与另一个分片set的并集
+	 * @param other 另一个分片set
+	 * @return 并集
+	 */
+	public Set<T> union(XhRedisShardedSet<T> other){
+		return algebra(other, XhRedisUtils.SetAlgebra.UNION);
+	}
+
+	/**
+	 * 与另一个分片set的差集（本集合有、other没有的元素）
+	 * @param other 另一个分片set
+	 * @return 差集
+	 */
+	public Set<T> difference(XhRedisShardedSet<T> other){
+		return algebra(other, XhRedisUtils.SetAlgebra.DIFFERENCE);
+	}
+
+	/**
+	 * 设置所有分片的过期时间
+	 * @param timeout 过期时间
+	 * @param unit 时间单位
+	 */
+	public void expire(final long timeout, final TimeUnit unit){
+		XhRedisShards.parallel(shardKeys.size(), shard -> redisUtils.expire(shardKeys.get(shard), timeout, unit));
+	}
+
+	/**
+	 * 删除所有分片
+	 */
+	public void delete(){
+		XhRedisShards.parallel(shardKeys.size(), shard -> {
+			redisUtils.deleteByKey(shardKeys.get(shard));
+			return null;
+		});
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public int getShards() {
+		return shardKeys.size();
+	}
+
+	/**
+	 * 所有分片的key
+	 * @return 分片key
+	 */
+	public List<String> getShardKeys() {
+		return shardKeys;
+	}
+
+	/**
+	 * 元素所在分片的key
+	 * @param value 元素
+	 * @return 分片key
+	 */
+	@SuppressWarnings("unchecked")
+	public String shardKey(T value){
+		byte[] rawValue = ((RedisSerializer<T>) redisUtils.getTemplate().getValueSerializer()).serialize(value);
+		return shardKeys.get(XhRedisShards.shardIndex(rawValue, shardKeys.size()));
+	}
+
+	/**
+	 * 分片数量相同时逐个分片计算：单机环境由redis执行SINTER/SUNION/SDIFF，集群环境两个分片不在同一个slot上，读取后在客户端计算；
+	 * 分片数量不同时读取两个集合的全部元素后在客户端计算
+	 */
+	private Set<T> algebra(final XhRedisShardedSet<T> other, final XhRedisUtils.SetAlgebra algebra){
+		if(other.shardKeys.size() != shardKeys.size()){
+			return compute(algebra, getAll(), other.getAll());
+		}
+		final boolean cluster = redisUtils.isCluster();
+		Set<T> result = new HashSet<T>();
+		List<Set<T>> shards = XhRedisShards.parallel(shardKeys.size(), shard -> {
+			String shardKey = shardKeys.get(shard);
+			String otherKey = other.shardKeys.get(shard);
+			if(!cluster){
+				return redisUtils.execute(XhRedisGuard.Operation.BULK, XhRedisPools.Workload.BULK, shardKey, template -> {
+					SetOperations<String, T> operations = template.opsForSet();
+					if(algebra == XhRedisUtils.SetAlgebra.INTERSECT){
+						return operations.intersect(shardKey, otherKey);
+					}
+					return algebra == XhRedisUtils.SetAlgebra.UNION ? operations.union(shardKey, otherKey) : operations.difference(shardKey, otherKey);
+				});
+			}
+			return compute(algebra, members(shard), other.members(shard));
+		});
+		for(int shard = 0; shard < shards.size(); shard++){
+			result.addAll(XhRedisShards.required(shards.get(shard), shard));
+		}
+		return result;
+	}
+
+	private static <T> Set<T> compute(XhRedisUtils.SetAlgebra algebra, Set<T> members, Set<T> other){
+		Set<T> result = new HashSet<T>(members);
+		if(algebra == XhRedisUtils.SetAlgebra.INTERSECT){
+			result.retainAll(other);
+		} else if(algebra == XhRedisUtils.SetAlgebra.UNION){
+			result.addAll(other);
+		} else {
+			result.removeAll(other);
+		}
+		return result;
+	}
+
+	/**
+	 * 分片的全部元素，经过熔断但不降级，失败时抛出异常
+	 */
+	private Set<T> members(int shard){
+		return XhRedisShards.required(read(XhRedisGuard.Operation.BULK, shardKeys.get(shard), (template, shardKey) -> template.opsForSet().members(shardKey)), shard);
+	}
+
+	/**
+	 * 经过熔断和独立连接池读取分片，聚合操作不能使用降级结果
+	 */
+	private <R> R read(XhRedisGuard.Operation operation, String shardKey, BiFunction<RedisTemplate<String, T>, String, R> call){
+		XhRedisPools.Workload workload = operation == XhRedisGuard.Operation.READ ? XhRedisPools.Workload.READ : XhRedisPools.Workload.BULK;
+		return redisUtils.execute(operation, workload, shardKey, template -> call.apply(template, shardKey));
+	}
+
+	/**
+	 * 经过熔断和独立连接池写入分片
+	 */
+	private <R> R write(String shardKey, Function<RedisTemplate<String, T>, R> call){
+		return redisUtils.execute(XhRedisGuard.Operation.WRITE, XhRedisPools.Workload.WRITE, shardKey, call);
+	}
+}
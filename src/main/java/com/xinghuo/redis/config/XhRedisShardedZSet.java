@@ -0,0 +1,280 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisShardedZSet.java
+ *
+ *  Description     : 分片zset，用于千万级元素的大集合。
+ *                    元素按hash分散到shards个子key（{key:0}、{key:1}...），集群环境下分布在不同的slot和节点上；
+ *                    查询score、添加、移除只访问元素所在的分片；集合大小、按score计数在所有分片上并行执行后求和；
+ *                    前N名在每个分片上并行取前N名后在客户端归并，按score范围查询同样并行后归并排序。
+ *                    读写都经过熔断和独立连接池，集合大小、计数、前N名、范围查询任一分片失败时抛出异常，不返回部分结果；
+ *                    并行操作使用独立的分片线程池；
+ *                    不支持全局排名（ZRANK），分片数量确定后不能修改
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisShardedZSet<T> {
+
+	private static final Comparator<TypedTuple<?>> SCORE_ASC = Comparator.comparing(TypedTuple::getScore);
+
+	private final XhRedisUtils<T> redisUtils;
+
+	private final String key;
+
+	private final List<String> shardKeys;
+
+	XhRedisShardedZSet(XhRedisUtils<T> redisUtils, String key, int shards) {
+		this.redisUtils = redisUtils;
+		this.key = key;
+		this.shardKeys = Collections.unmodifiableList(XhRedisShards.shardKeys(key, shards));
+	}
+
+	/**
+	 * 添加元素，已存在时更新score
+	 * @param value 元素
+	 * @param score 分数
+	 * @return 新添加的返回true
+	 */
+	public boolean add(T value, double score){
+		final String shardKey = shardKey(value);
+		Boolean added = write(shardKey, template -> template.opsForZSet().add(shardKey, value, score));
+		return added != null && added;
+	}
+
+	/**
+	 * 批量添加元素，按分片分组后并行写入
+	 * @param values 元素和分数
+	 * @return 新添加的元素数量（不含已存在只更新score的元素）
+	 */
+	public long addAll(final Map<? extends T, Double> values){
+		if(values.isEmpty()){
+			return 0;
+		}
+		final Map<Integer, List<T>> groups = XhRedisShards.groupByShard(redisUtils.getTemplate(), values.keySet(), shardKeys.size());
+		return XhRedisShards.parallelSum(new ArrayList<Integer>(groups.keySet()), shard -> {
+			List<T> members = groups.get(shard);
+			final Set<TypedTuple<T>> tuples = new HashSet<TypedTuple<T>>(members.size() * 4 / 3 + 1);
+			for(T member : members){
+				tuples.add(new DefaultTypedTuple<T>(member, values.get(member)));
+			}
+			return write(shardKeys.get(shard), template -> template.opsForZSet().add(shardKeys.get(shard), tuples));
+		});
+	}
+
+	/**
+	 * 增加元素的score值，元素不存在时以delta为score添加
+	 * @param value 元素
+	 * @param delta score的增加值
+	 * @return 增加后的score
+	 */
+	public Double incrementScore(T value, double delta){
+		final String shardKey = shardKey(value);
+		return write(shardKey, template -> template.opsForZSet().incrementScore(shardKey, value, delta));
+	}
+
+	/**
+	 * 移除元素
+	 * @param value 元素
+	 * @return 元素存在并被移除时返回true
+	 */
+	public boolean remove(T value){
+		final String shardKey = shardKey(value);
+		Long removed = write(shardKey, template -> template.opsForZSet().remove(shardKey, value));
+		return removed != null && removed > 0;
+	}
+
+	/**
+	 * 批量移除元素，按分片分组后并行移除
+	 * @param values 元素
+	 * @return 移除的元素数量
+	 */
+	public long removeAll(Collection<? extends T> values){
+		if(values.isEmpty()){
+			return 0;
+		}
+		final Map<Integer, List<T>> groups = XhRedisShards.groupByShard(redisUtils.getTemplate(), values, shardKeys.size());
+		return XhRedisShards.parallelSum(new ArrayList<Integer>(groups.keySet()), shard -> write(shardKeys.get(shard),
+				template -> template.opsForZSet().remove(shardKeys.get(shard), groups.get(shard).toArray())));
+	}
+
+	/**
+	 * 获取元素的score，只访问元素所在的分片
+	 * @param value 元素
+	 * @return score，元素不存在或redis不可用时返回null
+	 */
+	public Double score(T value){
+		return redisUtils.zScore(shardKey(value), value);
+	}
+
+	/**
+	 * 集合大小，并行获取所有分片的大小后求和
+	 * @return 元素数量
+	 */
+	public long size(){
+		return XhRedisShards.parallelSum(XhRedisShards.indexes(shardKeys.size()),
+				shard -> read(XhRedisGuard.Operation.READ, shardKeys.get(shard), (template, shardKey) -> template.opsForZSet().zCard(shardKey)));
+	}
+
+	/**
+	 * score>=min并且score<=max的元素数量，并行计数后求和
+	 * @param min score的最小值
+	 * @param max score的最大值
+	 * @return 元素数量
+	 */
+	public long count(final double min, final double max){
+		return XhRedisShards.parallelSum(XhRedisShards.indexes(shardKeys.size()),
+				shard -> read(XhRedisGuard.Operation.READ, shardKeys.get(shard), (template, shardKey) -> template.opsForZSet().count(shardKey, min, max)));
+	}
+
+	/**
+	 * score最高的count个元素及分数，按score由大到小排序；每个分片并行取前count个后归并
+	 * @param count 元素数量
+	 * @return 元素和分数
+	 */
+	public Set<TypedTuple<T>> topWithScores(final long count){
+		if(count <= 0){
+			return Collections.emptySet();
+		}
+		return merge((template, shardKey) -> template.opsForZSet().reverseRangeWithScores(shardKey, 0, count - 1), SCORE_ASC.reversed(), count);
+	}
+
+	/**
+	 * score最低的count个元素及分数，按score由小到大排序；每个分片并行取前count个后归并
+	 * @param count 元素数量
+	 * @return 元素和分数
+	 */
+	public Set<TypedTuple<T>> bottomWithScores(final long count){
+		if(count <= 0){
+			return Collections.emptySet();
+		}
+		return merge((template, shardKey) -> template.opsForZSet().rangeWithScores(shardKey, 0, count - 1), SCORE_ASC, count);
+	}
+
+	/**
+	 * <p>
+	 * 注意：一次性加载范围内的所有元素，范围较大时请使用forEach分批遍历
+	 * </p>
+	 * score>=min并且score<=max的元素及分数，按score由小到大排序；每个分片并行查询后归并
+	 * @param min score的最小值
+	 * @param max score的最大值
+	 * @return 元素和分数
+	 */
+	public Set<TypedTuple<T>> rangeByScoreWithScores(final double min, final double max){
+		return merge((template, shardKey) -> template.opsForZSet().rangeByScoreWithScores(shardKey, min, max), SCORE_ASC, Long.MAX_VALUE);
+	}
+
+	/**
+	 * 每个分片使用一个线程并行ZSCAN遍历（无序），action会被多个线程同时调用，需要线程安全
+	 * @param batchSize 每批获取的元素数量（ZSCAN的COUNT参数）
+	 * @param action 对每个元素及分数执行的操作
+	 */
+	public void forEach(final int batchSize, final Consumer<? super TypedTuple<T>> action){
+		XhRedisShards.parallel(shardKeys.size(), shard -> {
+			try (Stream<TypedTuple<T>> members = redisUtils.zStream(shardKeys.get(shard), batchSize)) {
+				members.forEach(action);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * 设置所有分片的过期时间
+	 * @param timeout 过期时间
+	 * @param unit 时间单位
+	 */
+	public void expire(final long timeout, final TimeUnit unit){
+		XhRedisShards.parallel(shardKeys.size(), shard -> redisUtils.expire(shardKeys.get(shard), timeout, unit));
+	}
+
+	/**
+	 * 删除所有分片
+	 */
+	public void delete(){
+		XhRedisShards.parallel(shardKeys.size(), shard -> {
+			redisUtils.deleteByKey(shardKeys.get(shard));
+			return null;
+		});
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public int getShards() {
+		return shardKeys.size();
+	}
+
+	/**
+	 * 所有分片的key
+	 * @return 分片key
+	 */
+	public List<String> getShardKeys() {
+		return shardKeys;
+	}
+
+	/**
+	 * 元素所在分片的key
+	 * @param value 元素
+	 * @return 分片key
+	 */
+	@SuppressWarnings("unchecked")
+	public String shardKey(T value){
+		byte[] rawValue = ((RedisSerializer<T>) redisUtils.getTemplate().getValueSerializer()).serialize(value);
+		return shardKeys.get(XhRedisShards.shardIndex(rawValue, shardKeys.size()));
+	}
+
+	/**
+	 * 并行查询所有分片，合并后排序并截取前limit个；任一分片失败时抛出异常，不归并部分分片的结果
+	 */
+	private Set<TypedTuple<T>> merge(BiFunction<RedisTemplate<String, T>, String, Set<TypedTuple<T>>> query, Comparator<TypedTuple<?>> order, long limit){
+		List<TypedTuple<T>> merged = new ArrayList<TypedTuple<T>>();
+		List<Set<TypedTuple<T>>> shards = XhRedisShards.parallel(shardKeys.size(), shard -> read(XhRedisGuard.Operation.BULK, shardKeys.get(shard), query));
+		for(int shard = 0; shard < shards.size(); shard++){
+			merged.addAll(XhRedisShards.required(shards.get(shard), shard));
+		}
+		merged.sort(order);
+		int size = (int) Math.min(limit, merged.size());
+		return new LinkedHashSet<TypedTuple<T>>(merged.subList(0, size));
+	}
+
+	/**
+	 * 经过熔断和独立连接池读取分片，聚合操作不能使用降级结果
+	 */
+	private <R> R read(XhRedisGuard.Operation operation, String shardKey, BiFunction<RedisTemplate<String, T>, String, R> call){
+		XhRedisPools.Workload workload = operation == XhRedisGuard.Operation.READ ? XhRedisPools.Workload.READ : XhRedisPools.Workload.BULK;
+		return redisUtils.execute(operation, workload, shardKey, template -> call.apply(template, shardKey));
+	}
+
+	/**
+	 * 经过熔断和独立连接池写入分片
+	 */
+	private <R> R write(String shardKey, Function<RedisTemplate<String, T>, R> call){
+		return redisUtils.execute(XhRedisGuard.Operation.WRITE, XhRedisPools.Workload.WRITE, shardKey, call);
+	}
+}
@@ -0,0 +1,158 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisShards.java
+ *
+ *  Description     : 分片集合的公共逻辑。
+ *                    分片key为{key:序号}，每个分片使用各自的hash tag，集群环境下分散到不同的slot；
+ *                    元素按序列化后字节的CRC32对分片数取模路由，与JVM、进程无关，相同分片数下路由结果固定；
+ *                    聚合操作的每个分片都经过熔断但不降级，任一分片失败时整个聚合失败
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+final class XhRedisShards {
+
+	/**
+	 * 分片数量上限，分片过多时聚合操作的命令数量过多
+	 */
+	static final int MAX_SHARDS = 1024;
+
+	/**
+	 * 当前线程是否是执行分片任务的线程
+	 */
+	private static final ThreadLocal<Boolean> IN_SHARD_TASK = new ThreadLocal<Boolean>();
+
+	private XhRedisShards() {
+	}
+
+	/**
+	 * 生成所有分片的key
+	 */
+	static List<String> shardKeys(String key, int shards){
+		if(shards <= 0 || shards > MAX_SHARDS){
+			throw new IllegalArgumentException("分片数量必须在1~" + MAX_SHARDS + "之间: " + shards);
+		}
+		if(key == null || key.isEmpty() || key.indexOf('{') >= 0 || key.indexOf('}') >= 0){
+			throw new IllegalArgumentException("分片集合的key不能为空且不能包含hash tag，否则所有分片落在同一个slot上: " + key);
+		}
+		List<String> keys = new ArrayList<String>(shards);
+		for(int i = 0; i < shards; i++){
+			keys.add(XhRedisKeyUtils.hashTag(key + ":" + i));
+		}
+		return keys;
+	}
+
+	/**
+	 * 计算序列化后的元素所在的分片序号
+	 */
+	static int shardIndex(byte[] rawValue, int shards){
+		CRC32 crc = new CRC32();
+		crc.update(rawValue, 0, rawValue.length);
+		return (int) (crc.getValue() % shards);
+	}
+
+	/**
+	 * 按分片序号对元素分组，只包含有元素的分片
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Map<Integer, List<T>> groupByShard(RedisTemplate<String, T> template, Iterable<? extends T> values, int shards){
+		RedisSerializer<T> valueSerializer = (RedisSerializer<T>) template.getValueSerializer();
+		Map<Integer, List<T>> groups = new LinkedHashMap<Integer, List<T>>();
+		for(T value : values){
+			groups.computeIfAbsent(shardIndex(valueSerializer.serialize(value), shards), i -> new ArrayList<T>()).add(value);
+		}
+		return groups;
+	}
+
+	/**
+	 * 所有分片的序号
+	 */
+	static List<Integer> indexes(int shards){
+		List<Integer> indexes = new ArrayList<Integer>(shards);
+		for(int i = 0; i < shards; i++){
+			indexes.add(i);
+		}
+		return indexes;
+	}
+
+	/**
+	 * 在分片线程池中对每个分片并行执行task，按分片序号返回结果。
+	 * 每次最多提交SHARD_THREADS个任务，由这些任务依次领取分片序号执行；在分片任务中再次调用时（如forEach的action中）
+	 * 在当前线程依次执行，避免分片线程池的线程都在等待自己提交的任务
+	 */
+	static <R> List<R> parallel(final int shards, final IntFunction<R> task){
+		if(shards == 1 || Boolean.TRUE.equals(IN_SHARD_TASK.get())){
+			List<R> result = new ArrayList<R>(shards);
+			for(int i = 0; i < shards; i++){
+				result.add(task.apply(i));
+			}
+			return result;
+		}
+		final AtomicReferenceArray<R> results = new AtomicReferenceArray<R>(shards);
+		final AtomicInteger next = new AtomicInteger();
+		int workers = Math.min(shards, XhRedisExecutors.SHARD_THREADS);
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(workers);
+		for(int i = 0; i < workers; i++){
+			futures.add(CompletableFuture.runAsync(() -> {
+				IN_SHARD_TASK.set(Boolean.TRUE);
+				try {
+					for(int shard = next.getAndIncrement(); shard < shards; shard = next.getAndIncrement()){
+						results.set(shard, task.apply(shard));
+					}
+				} catch (RuntimeException e) {
+					next.set(shards);
+					throw e;
+				} finally {
+					IN_SHARD_TASK.remove();
+				}
+			}, XhRedisExecutors.shards()));
+		}
+		XhRedisExecutors.joinAll(futures);
+		List<R> result = new ArrayList<R>(shards);
+		for(int i = 0; i < shards; i++){
+			result.add(results.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * 对指定的分片并行执行task，返回结果之和；任一分片失败或没有返回结果时抛出异常，不返回部分分片的和
+	 */
+	static long parallelSum(List<Integer> shardIndexes, IntFunction<Long> task){
+		List<Long> results = parallel(shardIndexes.size(), i -> task.apply(shardIndexes.get(i)));
+		long sum = 0;
+		for(int i = 0; i < results.size(); i++){
+			sum += required(results.get(i), shardIndexes.get(i));
+		}
+		return sum;
+	}
+
+	/**
+	 * 聚合操作要求每个分片都有结果，缺少任一分片的结果时聚合结果是错误的
+	 */
+	static <R> R required(R result, int shard){
+		if(result == null){
+			throw new IllegalStateException("分片" + shard + "没有返回结果，不能聚合部分分片的结果");
+		}
+		return result;
+	}
+}
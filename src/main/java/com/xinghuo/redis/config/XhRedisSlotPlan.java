@@ -0,0 +1,92 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisSlotPlan.java
+ *
+ *  Description     : 多key的slot分布。
+ *                    按序列化后的key计算slot，按节点、slot对key分组；非集群环境下所有key属于同一个节点。
+ *                    节点根据客户端缓存的集群拓扑计算，拓扑变化后需要重新生成。
+ *                    用于排查跨slot和热点节点问题；multiGet等多key命令执行时只按slot拆分，由Lettuce路由到节点，不使用该分布
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public final class XhRedisSlotPlan {
+
+	/**
+	 * 非集群环境下的节点名称
+	 */
+	public static final String STANDALONE = "standalone";
+
+	private final List<String> keys;
+
+	private final Map<String, Map<Integer, List<String>>> nodes;
+
+	private final int slotCount;
+
+	XhRedisSlotPlan(List<String> keys, Map<Integer, List<Integer>> slots, Map<Integer, String> slotNodes) {
+		this.keys = Collections.unmodifiableList(keys);
+		Map<String, Map<Integer, List<String>>> grouped = new LinkedHashMap<String, Map<Integer, List<String>>>();
+		for(Map.Entry<Integer, List<Integer>> slot : slots.entrySet()){
+			String node = slotNodes.getOrDefault(slot.getKey(), STANDALONE);
+			List<String> slotKeys = new ArrayList<String>(slot.getValue().size());
+			for(Integer index : slot.getValue()){
+				slotKeys.add(keys.get(index));
+			}
+			grouped.computeIfAbsent(node, n -> new LinkedHashMap<Integer, List<String>>()).put(slot.getKey(), Collections.unmodifiableList(slotKeys));
+		}
+		this.nodes = Collections.unmodifiableMap(grouped);
+		this.slotCount = slots.size();
+	}
+
+	/**
+	 * 生成计划时的所有key，按输入顺序
+	 */
+	public List<String> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * 涉及的节点，集群环境下为节点的host:port
+	 */
+	public Set<String> getNodes() {
+		return nodes.keySet();
+	}
+
+	/**
+	 * 节点上的slot与该slot上的key
+	 * @param node 节点
+	 * @return slot与key，节点不在计划中时返回空map
+	 */
+	public Map<Integer, List<String>> getSlots(String node) {
+		Map<Integer, List<String>> slots = nodes.get(node);
+		return slots == null ? Collections.<Integer, List<String>>emptyMap() : Collections.unmodifiableMap(slots);
+	}
+
+	public int getNodeCount() {
+		return nodes.size();
+	}
+
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * 所有key是否在同一个slot上，可以直接使用一条多key命令
+	 */
+	public boolean isSingleSlot() {
+		return slotCount <= 1;
+	}
+}
@@ -0,0 +1,376 @@
+package com.xinghuo.redis.config;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisTransactions.java
+ *
+ *  Description     : 乐观事务（WATCH/MULTI/EXEC）。
+ *                    WATCH之后读取当前值，MULTI之后写入，EXEC因被WATCH的key已被修改而放弃时退避重试，重试次数用尽时抛出
+ *                    OptimisticLockingFailureException；单key更新在重试次数用尽后可改用lua脚本比较并设置，
+ *                    不占用独立连接、不需要MULTI/EXEC，冲突频繁的key在一段时间内直接使用lua脚本，但仍是乐观重试，仍可能冲突；
+ *                    冲突频繁且更新逻辑能用lua表达的key使用atomicUpdate在服务端原子更新，不会冲突；
+ *                    尝试、冲突、lua降级次数通过JMX暴露（xinghuo.redis:name=XhRedisTransactions）。
+ *                    集群环境下被WATCH的key需要在同一个slot上
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+@ManagedResource(objectName = "xinghuo.redis:name=XhRedisTransactions", description = "redis乐观事务统计")
+public class XhRedisTransactions {
+
+	private static final RedisSerializer<String> STRING_SERIALIZER = new StringRedisSerializer();
+
+	/**
+	 * 冲突频繁的key数量上限，超过时清空，避免key无限增长
+	 */
+	private static final int MAX_HOT_KEYS = 10000;
+
+	/**
+	 * 冲突频繁的key及其到期时间，到期前直接使用lua脚本更新
+	 */
+	private final ConcurrentMap<String, Long> hotKeys = new ConcurrentHashMap<String, Long>();
+
+	private final LongAdder attempts = new LongAdder();
+
+	private final LongAdder commits = new LongAdder();
+
+	private final LongAdder conflicts = new LongAdder();
+
+	private final LongAdder luaUpdates = new LongAdder();
+
+	private final LongAdder exhausted = new LongAdder();
+
+	@Autowired
+	private XhRedisUtils<Object> redisUtils;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	/**
+	 * 在乐观事务中执行：WATCH keys之后调用reader读取，MULTI之后调用writer写入（写命令只入队，返回值无意义），
+	 * EXEC被放弃时退避重试
+	 * @param template 执行事务的RedisTemplate
+	 * @param keys 需要WATCH的key，不能为空
+	 * @param reader 读取当前状态，WATCH之后、MULTI之前执行，重试时会再次执行
+	 * @param writer 根据reader的结果写入，MULTI之后执行
+	 * @return 提交成功时reader的结果
+	 */
+	public <V, R> R execute(RedisTemplate<String, V> template, Collection<String> keys,
+			Function<RedisOperations<String, V>, R> reader, BiConsumer<RedisOperations<String, V>, R> writer){
+		return execute(template, keys, reader, writer, value -> false);
+	}
+
+	/**
+	 * 使用默认RedisTemplate在乐观事务中执行
+	 * @param keys 需要WATCH的key
+	 * @param reader 读取当前状态，WATCH之后、MULTI之前执行，重试时会再次执行
+	 * @param writer 根据reader的结果写入，MULTI之后执行
+	 * @return 提交成功时reader的结果
+	 */
+	public <R> R execute(Collection<String> keys, Function<RedisOperations<String, Object>, R> reader,
+			BiConsumer<RedisOperations<String, Object>, R> writer){
+		return execute(redisUtils.getTemplate(), keys, reader, writer);
+	}
+
+	/**
+	 * @param unchanged reader的结果满足时不需要写入，UNWATCH后直接返回，不执行MULTI/EXEC
+	 */
+	private <V, R> R execute(RedisTemplate<String, V> template, Collection<String> keys,
+			Function<RedisOperations<String, V>, R> reader, BiConsumer<RedisOperations<String, V>, R> writer, Predicate<R> unchanged){
+		if(keys.isEmpty()){
+			throw new IllegalArgumentException("乐观事务需要WATCH至少一个key");
+		}
+		XhRedisProperties.Transaction config = properties.getTransaction();
+		for(int attempt = 0; ; attempt++){
+			Attempt<R> result = attempt(template, keys, reader, writer, unchanged);
+			if(result.committed){
+				return result.value;
+			}
+			if(attempt >= config.getMaxRetries()){
+				exhausted.increment();
+				throw new OptimisticLockingFailureException("redis乐观事务冲突，重试" + attempt + "次后仍未提交: " + keys);
+			}
+			backoff(config, attempt);
+		}
+	}
+
+	/**
+	 * 比较并更新单个key：读取当前值，由updater计算新值后写入，期间key被其他客户端修改时重试，保留原有的过期时间；
+	 * updater返回null时UNWATCH后直接返回。
+	 * 开启lua降级时，WATCH重试次数用尽后改用lua脚本比较并设置继续重试：省去独立连接和MULTI/EXEC，
+	 * 但仍是读取、计算、比较并设置，值频繁变化时同样会冲突，冲突频繁的key应使用atomicUpdate
+	 * @param template 执行更新的RedisTemplate
+	 * @param key 缓存的key
+	 * @param updater 根据当前值（不存在时为null）计算新值，返回null时不修改
+	 * @return 写入的新值，updater返回null时返回null
+	 */
+	public <V> V update(RedisTemplate<String, V> template, final String key, final UnaryOperator<V> updater){
+		XhRedisProperties.Transaction config = properties.getTransaction();
+		if(config.isLuaFallback() && isHot(key)){
+			return luaUpdate(template, key, updater, config);
+		}
+		try {
+			Snapshot<V> snapshot = execute(template, Collections.singletonList(key), operations -> {
+				Snapshot<V> current = new Snapshot<V>();
+				current.value = updater.apply(operations.opsForValue().get(key));
+				if(current.value != null){
+					current.ttl = operations.getExpire(key, TimeUnit.MILLISECONDS);
+				}
+				return current;
+			}, (operations, current) -> {
+				if(current.ttl != null && current.ttl > 0){
+					operations.opsForValue().set(key, current.value, current.ttl, TimeUnit.MILLISECONDS);
+				} else {
+					operations.opsForValue().set(key, current.value);
+				}
+			}, current -> current.value == null);
+			return snapshot.value;
+		} catch (OptimisticLockingFailureException e) {
+			if(!config.isLuaFallback()){
+				throw e;
+			}
+			markHot(key, config);
+			return luaUpdate(template, key, updater, config);
+		}
+	}
+
+	/**
+	 * 使用默认RedisTemplate比较并更新单个key
+	 * @param key 缓存的key
+	 * @param updater 根据当前值（不存在时为null）计算新值，返回null时不修改
+	 * @return 写入的新值，updater返回null时返回null
+	 */
+	public <V> V update(String key, UnaryOperator<V> updater){
+		@SuppressWarnings("unchecked")
+		RedisTemplate<String, V> template = (RedisTemplate<String, V>) (RedisTemplate<String, ?>) redisUtils.getTemplate();
+		return update(template, key, updater);
+	}
+
+	/**
+	 * 服务端原子更新单个key：script在redis中一次完成读取、计算和写入，执行期间其他命令不会插入，
+	 * 不需要WATCH，不会冲突也不会重试，适合冲突频繁的限额扣减、状态流转等可以用lua表达的更新；
+	 * 单纯的计数直接使用XhRedisUtils.incrementAndExpire等INCR类方法
+	 * @param template 执行脚本的RedisTemplate，args使用其value序列化
+	 * @param script 更新脚本，KEYS[1]为key，建议使用XhRedisScripts.register注册后复用
+	 * @param key 缓存的key
+	 * @param args 脚本参数ARGV
+	 * @return 脚本的返回值
+	 */
+	public <R> R atomicUpdate(RedisTemplate<String, ?> template, RedisScript<R> script, String key, Object... args){
+		attempts.increment();
+		R result = template.execute(script, Collections.singletonList(key), args);
+		commits.increment();
+		return result;
+	}
+
+	/**
+	 * 使用默认RedisTemplate在服务端原子更新单个key
+	 * @param script 更新脚本，KEYS[1]为key
+	 * @param key 缓存的key
+	 * @param args 脚本参数ARGV
+	 * @return 脚本的返回值
+	 */
+	public <R> R atomicUpdate(RedisScript<R> script, String key, Object... args){
+		return atomicUpdate(redisUtils.getTemplate(), script, key, args);
+	}
+
+	@ManagedAttribute(description = "事务尝试次数")
+	public long getAttempts(){
+		return attempts.sum();
+	}
+
+	@ManagedAttribute(description = "事务提交次数")
+	public long getCommits(){
+		return commits.sum();
+	}
+
+	@ManagedAttribute(description = "事务冲突次数")
+	public long getConflicts(){
+		return conflicts.sum();
+	}
+
+	@ManagedAttribute(description = "冲突率，冲突次数/尝试次数")
+	public double getConflictRate(){
+		long total = attempts.sum();
+		return total == 0 ? 0 : (double) conflicts.sum() / total;
+	}
+
+	@ManagedAttribute(description = "重试次数用尽的次数")
+	public long getExhausted(){
+		return exhausted.sum();
+	}
+
+	@ManagedAttribute(description = "使用lua脚本更新的次数")
+	public long getLuaUpdates(){
+		return luaUpdates.sum();
+	}
+
+	@ManagedAttribute(description = "当前使用lua脚本更新的key数量")
+	public int getHotKeys(){
+		return hotKeys.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <V, R> Attempt<R> attempt(RedisTemplate<String, V> template, final Collection<String> keys,
+			final Function<RedisOperations<String, V>, R> reader, final BiConsumer<RedisOperations<String, V>, R> writer,
+			final Predicate<R> unchanged){
+		attempts.increment();
+		Attempt<R> result = template.execute(new SessionCallback<Attempt<R>>() {
+			@Override
+			public <K, HV> Attempt<R> execute(RedisOperations<K, HV> operations) {
+				RedisOperations<String, V> ops = (RedisOperations<String, V>) operations;
+				ops.watch(keys);
+				R value;
+				try {
+					value = reader.apply(ops);
+				} catch (RuntimeException e) {
+					ops.unwatch();
+					throw e;
+				}
+				if(unchanged.test(value)){
+					ops.unwatch();
+					return new Attempt<R>(true, value);
+				}
+				ops.multi();
+				writer.accept(ops, value);
+				// 额外排队一条EXISTS，保证事务中至少有一条命令：EXEC被放弃时不同驱动版本返回null或空列表，
+				// 有命令排队时空列表只可能是被放弃，不会与writer没有写入的情况混淆
+				ops.hasKey(keys.iterator().next());
+				List<Object> exec = ops.exec();
+				return new Attempt<R>(exec != null && !exec.isEmpty(), value);
+			}
+		});
+		if(result.committed){
+			commits.increment();
+		} else {
+			conflicts.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * GET读取原始字节，计算新值后通过compare_and_set脚本写入，当前值已变化时退避重试；
+	 * 与WATCH相比只是更轻量的比较并设置，不是服务端原子更新
+	 */
+	@SuppressWarnings("unchecked")
+	private <V> V luaUpdate(RedisTemplate<String, V> template, String key, UnaryOperator<V> updater, XhRedisProperties.Transaction config){
+		final byte[] rawKey = ((RedisSerializer<String>) template.getKeySerializer()).serialize(key);
+		RedisSerializer<V> valueSerializer = (RedisSerializer<V>) template.getValueSerializer();
+		for(int attempt = 0; ; attempt++){
+			luaUpdates.increment();
+			attempts.increment();
+			byte[] current = template.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey));
+			V value = updater.apply(current == null ? null : valueSerializer.deserialize(current));
+			if(value == null){
+				commits.increment();
+				return null;
+			}
+			Object[] args = {
+					STRING_SERIALIZER.serialize(current == null ? "ABSENT" : "EQUAL"),
+					current == null ? new byte[0] : current,
+					valueSerializer.serialize(value)};
+			Long result = template.execute(XhRedisScripts.get("compare_and_set", Long.class), null, null, Collections.singletonList(key), args);
+			if(result != null && result == 1){
+				commits.increment();
+				return value;
+			}
+			conflicts.increment();
+			if(attempt >= config.getMaxRetries()){
+				exhausted.increment();
+				throw new OptimisticLockingFailureException("redis比较并设置冲突，重试" + attempt + "次后仍未成功: " + key);
+			}
+			backoff(config, attempt);
+		}
+	}
+
+	private boolean isHot(String key){
+		Long until = hotKeys.get(key);
+		if(until == null){
+			return false;
+		}
+		if(until < System.currentTimeMillis()){
+			hotKeys.remove(key, until);
+			return false;
+		}
+		return true;
+	}
+
+	private void markHot(String key, XhRedisProperties.Transaction config){
+		if(hotKeys.size() >= MAX_HOT_KEYS){
+			hotKeys.clear();
+		}
+		hotKeys.put(key, System.currentTimeMillis() + config.getHotKeyTtl());
+	}
+
+	/**
+	 * 指数退避加随机抖动，避免冲突的客户端同时重试
+	 */
+	private static void backoff(XhRedisProperties.Transaction config, int attempt){
+		long ceiling = Math.min(config.getMaxBackoff(), config.getBackoff() << Math.min(attempt, 20));
+		if(ceiling <= 0){
+			return;
+		}
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OptimisticLockingFailureException("redis乐观事务重试等待时被中断", e);
+		}
+	}
+
+	/**
+	 * 一次事务尝试的结果
+	 */
+	private static final class Attempt<R> {
+
+		private final boolean committed;
+
+		private final R value;
+
+		Attempt(boolean committed, R value) {
+			this.committed = committed;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * 单key更新时WATCH之后读取的剩余过期时间和计算出的新值
+	 */
+	private static final class Snapshot<V> {
+
+		private Long ttl;
+
+		private V value;
+	}
+}
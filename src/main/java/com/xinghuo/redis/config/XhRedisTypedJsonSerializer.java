@@ -0,0 +1,83 @@
+package com.xinghuo.redis.config;
+
+import java.io.IOException;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisTypedJsonSerializer.java
+ *
+ *  Description     : 按类型的json序列化。
+ *                    ObjectReader/ObjectWriter在创建时按类型解析好，json中不写入类名，反序列化时不查找多态类型信息；
+ *                    与默认的RedisTemplate<String,Object>序列化结果不兼容，同一个key只能使用一种序列化方式读写
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public final class XhRedisTypedJsonSerializer<T> implements RedisSerializer<T> {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final Class<T> type;
+
+	private final ObjectReader reader;
+
+	private final ObjectWriter writer;
+
+	public XhRedisTypedJsonSerializer(Class<T> type) {
+		this(type, defaultObjectMapper());
+	}
+
+	public XhRedisTypedJsonSerializer(Class<T> type, ObjectMapper objectMapper) {
+		this.type = type;
+		this.reader = objectMapper.readerFor(type);
+		this.writer = objectMapper.writerFor(type);
+	}
+
+	@Override
+	public byte[] serialize(T value) throws SerializationException {
+		if(value == null){
+			return EMPTY;
+		}
+		try {
+			return writer.writeValueAsBytes(value);
+		} catch (IOException e) {
+			throw new SerializationException("序列化" + type.getName() + "异常", e);
+		}
+	}
+
+	@Override
+	public T deserialize(byte[] bytes) throws SerializationException {
+		if(bytes == null || bytes.length == 0){
+			return null;
+		}
+		try {
+			return reader.readValue(bytes);
+		} catch (IOException e) {
+			throw new SerializationException("反序列化" + type.getName() + "异常", e);
+		}
+	}
+
+	/**
+	 * 与XhRedisConfig中RedisTemplate相同的字段可见性，不开启default typing，忽略未知字段
+	 */
+	static ObjectMapper defaultObjectMapper(){
+		ObjectMapper om = new ObjectMapper();
+		om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+		om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		return om;
+	}
+}
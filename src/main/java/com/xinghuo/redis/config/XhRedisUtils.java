@@ -1,27 +1,77 @@
 package com.xinghuo.redis.config;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metric;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisGeoCommands.DistanceUnit;
+import org.springframework.data.redis.connection.RedisGeoCommands.GeoLocation;
+import org.springframework.data.redis.connection.RedisGeoCommands.GeoRadiusCommandArgs;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.connection.RedisZSetCommands.Tuple;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.SetOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.DefaultTypedTuple;
 import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
 /***************************************************************************
  * <PRE>
  *	
@@ -46,6 +96,61 @@ public class XhRedisUtils<T> {
 	@Autowired
 	private StringRedisTemplate stringRedisTemplate;
 	
+	@Autowired
+	private XhRedisBulkLoader<T> bulkLoader;
+	
+	@Autowired
+	private XhRedisProperties properties;
+	
+	@Autowired
+	private XhRedisGuard guard;
+	
+	@Autowired
+	private XhRedisReadRouter readRouter;
+	
+	@Autowired
+	private XhRedisPools pools;
+	
+	/**
+	 * 命名空间视图的key前缀，只用于区分本地降级缓存中不同命名空间的key，默认视图为空字符串
+	 */
+	private String namespace = "";
+	
+	/**
+	 * 纬度每度对应的距离，单位米
+	 */
+	private static final double METERS_PER_DEGREE = 111320D;
+	
+	/**
+	 * redis计算geo距离使用的地球半径，单位米
+	 */
+	private static final double REDIS_EARTH_RADIUS_METERS = 6372797.560856D;
+	
+	/**
+	 * geo半径查询本地缓存
+	 */
+	private final ConcurrentMap<String, GeoCacheEntry> geoCache = new ConcurrentHashMap<String, GeoCacheEntry>();
+	
+	/**
+	 * SSCAN/ZSCAN默认每批获取的元素数量
+	 */
+	private static final int DEFAULT_SCAN_BATCH_SIZE = 1000;
+	
+	/**
+	 * pipeline批量写入时每条SADD/ZADD/PFADD/GEOADD命令的元素数量
+	 */
+	private static final int PIPELINE_CHUNK_SIZE = 1000;
+	
+	private static final RedisSerializer<String> STRING_SERIALIZER = new StringRedisSerializer();
+	
+	private static final byte[] JSON_NULL = {'n', 'u', 'l', 'l'};
+	
+	/**
+	 * SDR未封装BITFIELD命令，通过lua脚本执行
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> BITFIELD_SCRIPT = XhRedisScripts.get("bitfield", List.class);
+	
 	/**
 	 * 如果封装的方法无法满足自己的特需业务，可以获取RedisTemplate自己操作redis实现
 	 * @return RedisTemplate
@@ -53,6 +158,62 @@ public class XhRedisUtils<T> {
 	public RedisTemplate<String, T> getTemplate() {
 		return redisTemplate;
 	}
+	
+	/**
+	 * 创建使用指定RedisTemplate的视图（命名空间视图、按类型注册序列化的视图），与当前对象共用熔断、读写分离和独立连接池
+	 * @param prefix 命名空间的key前缀，不是命名空间视图时为空字符串
+	 * @param template 视图使用的RedisTemplate
+	 * @param stringTemplate 视图使用的StringRedisTemplate，为null时使用当前对象的StringRedisTemplate
+	 * @return 视图
+	 */
+	<E> XhRedisUtils<E> view(String prefix, RedisTemplate<String,E> template, StringRedisTemplate stringTemplate){
+		XhRedisUtils<E> view = new XhRedisUtils<E>();
+		view.redisTemplate = template;
+		view.stringRedisTemplate = stringTemplate != null ? stringTemplate : this.stringRedisTemplate;
+		view.bulkLoader = bulkLoader.withTemplate(template);
+		view.properties = properties;
+		view.guard = guard;
+		view.readRouter = readRouter;
+		view.pools = pools;
+		view.namespace = prefix;
+		return view;
+	}
+	
+	/**
+	 * 经过熔断和独立连接池执行操作，供封装多条命令的组件（固定长度集合、分片集合等）使用
+	 * @param operation 熔断的操作类型
+	 * @param workload 连接池的操作类型
+	 * @param key 缓存的key，用于按key前缀选择连接池
+	 * @param call redis操作
+	 * @return 操作结果
+	 */
+	<R> R execute(XhRedisGuard.Operation operation, XhRedisPools.Workload workload, String key, Function<RedisTemplate<String,T>, R> call){
+		return guard.execute(operation, () -> pools.execute(workload, key, this.redisTemplate, call));
+	}
+	
+	/**
+	 * 创建读穿缓存，未命中的key通过loader加载并带过期时间写回redis
+	 * @param loader 从数据源加载
+	 * @param timeout 写回redis的过期时间，小于等于0时不过期
+	 * @param unit 时间单位
+	 * @return 读穿缓存
+	 */
+	public XhRedisLoadingCache<T> loadingCache(XhRedisLoadingCache.Loader<T> loader, long timeout, TimeUnit unit){
+		return loadingCache(loader, null, timeout, unit);
+	}
+	
+	/**
+	 * 创建读穿/写穿缓存，未命中的key通过loader加载并带过期时间写回redis，写入和删除先通过writer写入数据源
+	 * @param loader 从数据源加载
+	 * @param writer 写入数据源，为null时只写入redis
+	 * @param timeout 写回redis的过期时间，小于等于0时不过期
+	 * @param unit 时间单位
+	 * @return 读穿/写穿缓存
+	 */
+	public XhRedisLoadingCache<T> loadingCache(XhRedisLoadingCache.Loader<T> loader, XhRedisLoadingCache.Writer<T> writer, long timeout, TimeUnit unit){
+		return new XhRedisLoadingCache<T>(redisTemplate, guard, pools, properties.getLoadingCache(), loader, writer, unit.toMillis(timeout));
+	}
+	
 	/*-----------------------------key相关操作 key-begin------------------------------------*/
 	
 	/**
@@ -62,9 +223,7 @@ public class XhRedisUtils<T> {
 	 * @param key  缓存的key
 	 */
 	public void deleteByKey(String key){
-		if(exist(key)){
-			this.redisTemplate.delete(key);
-		}
+		invalidating(key, () -> this.redisTemplate.delete(key));
 	}
 	/**
 	 * <p>
@@ -75,7 +234,7 @@ public class XhRedisUtils<T> {
 	 */
 	public void deleteBatchKeys(Collection<String> keys){
 		for(String key : keys){
-			this.redisTemplate.delete(key);
+			invalidating(key, () -> this.redisTemplate.delete(key));
 		}
 	}
 	/**
@@ -90,7 +249,7 @@ public class XhRedisUtils<T> {
 	public void deleteBatchByKeyPatter(String pattern){
 		Set<String> keys = this.redisTemplate.keys(pattern);
 		if(!CollectionUtils.isEmpty(keys)){
-			this.redisTemplate.delete(keys);
+			invalidating(keys, () -> this.redisTemplate.delete(keys));
 		}
 	}
 	/**
@@ -100,7 +259,7 @@ public class XhRedisUtils<T> {
 	 * @return 存在返回true，不存在返回false
 	 */
 	public boolean exist(final String key){
-		return this.redisTemplate.hasKey(key);
+		return Boolean.TRUE.equals(guard.executeOrFallback(XhRedisGuard.Operation.READ, () -> this.redisTemplate.hasKey(key), () -> Boolean.FALSE));
 	}
 	
 	/**
@@ -111,7 +270,7 @@ public class XhRedisUtils<T> {
 	 * @return
 	 */
 	public boolean expire(String key,long timeout,TimeUnit unit){
-		return this.redisTemplate.expire(key, timeout, unit);
+		return invalidating(key, () -> this.redisTemplate.expire(key, timeout, unit));
 	}
 	
 	/**
@@ -122,7 +281,7 @@ public class XhRedisUtils<T> {
 	 * @return
 	 */
 	public boolean expire(String key,long timeout){
-		return this.redisTemplate.expire(key, timeout,TimeUnit.SECONDS);
+		return invalidating(key, () -> this.redisTemplate.expire(key, timeout,TimeUnit.SECONDS));
 	}
 	
 	/**
@@ -132,7 +291,7 @@ public class XhRedisUtils<T> {
 	 * @return
 	 */
 	public boolean expireAt(String key,Date date){
-		return this.redisTemplate.expireAt(key, date);
+		return invalidating(key, () -> this.redisTemplate.expireAt(key, date));
 	}
 	
 	/**
@@ -184,7 +343,10 @@ public class XhRedisUtils<T> {
 	 * @param newKey  缓存的新key
 	 */
 	public void updateKey(String oldKey,String newKey){
-		this.redisTemplate.rename(oldKey, newKey);
+		invalidating(Arrays.asList(oldKey, newKey), () -> {
+			this.redisTemplate.rename(oldKey, newKey);
+			return null;
+		});
 	}
 	
 	/**
@@ -194,7 +356,7 @@ public class XhRedisUtils<T> {
 	 * @return
 	 */
 	public Boolean updateKeyIfAbsent(String oldKey,String newKey){
-		return this.redisTemplate.renameIfAbsent(oldKey, newKey);
+		return invalidating(Arrays.asList(oldKey, newKey), () -> this.redisTemplate.renameIfAbsent(oldKey, newKey));
 	}
 	
 	/**
@@ -215,13 +377,14 @@ public class XhRedisUtils<T> {
 	 * @param obj 需要放入缓存中的数据T
 	 * @return 成功返回true，失败返回false
 	 */
-	@SuppressWarnings("unchecked")
 	public boolean set(String key, T obj){
 		try{
-			ValueOperations<String, T>  operations = (ValueOperations<String, T>) this.redisTemplate.opsForValue();
-			operations.set(key, obj);
+			invalidating(key, () -> guard.execute(XhRedisGuard.Operation.WRITE, () -> pools.execute(XhRedisPools.Workload.WRITE, key, this.redisTemplate, template -> {
+				template.opsForValue().set(key, obj);
+				return null;
+			})));
 		} catch(Exception e){
-			e.printStackTrace();
+			logger.error("【redis写入】写入缓存异常, key={}", key, e);
 			return false;
 		}
 		return true;
@@ -244,12 +407,12 @@ public class XhRedisUtils<T> {
 	 * @param unit  时间单位，如：TimeUnit.SECONDS
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public boolean set(String key, T obj,Long expireTime,TimeUnit unit){
 		try{
-			ValueOperations<String, T>  operations = (ValueOperations<String, T>) this.redisTemplate.opsForValue();
-			operations.set(key, obj);
-			this.redisTemplate.expire(key, expireTime, unit);
+			invalidating(key, () -> guard.execute(XhRedisGuard.Operation.WRITE, () -> pools.execute(XhRedisPools.Workload.WRITE, key, this.redisTemplate, template -> {
+				template.opsForValue().set(key, obj, expireTime, unit);
+				return null;
+			})));
 		} catch(Exception e){
 			return false;
 		}
@@ -269,7 +432,10 @@ public class XhRedisUtils<T> {
 	 */
 	public boolean setObj(String key, T obj){
 		try{
-			this.redisTemplate.opsForValue().set(key, obj);
+			invalidating(key, () -> guard.execute(XhRedisGuard.Operation.WRITE, () -> pools.execute(XhRedisPools.Workload.WRITE, key, this.redisTemplate, template -> {
+				template.opsForValue().set(key, obj);
+				return null;
+			})));
 		} catch(Exception e){
 			return false;
 		}
@@ -292,8 +458,10 @@ public class XhRedisUtils<T> {
 	 */
 	public boolean setObj(String key, T obj,Long expireTime,TimeUnit unit){
 		try{
-			this.redisTemplate.opsForValue().set(key, obj);
-			this.redisTemplate.expire(key, expireTime, unit);
+			invalidating(key, () -> guard.execute(XhRedisGuard.Operation.WRITE, () -> pools.execute(XhRedisPools.Workload.WRITE, key, this.redisTemplate, template -> {
+				template.opsForValue().set(key, obj, expireTime, unit);
+				return null;
+			})));
 		} catch(Exception e){
 			return false;
 		}
@@ -305,13 +473,21 @@ public class XhRedisUtils<T> {
 	 * @param key  缓存的key
 	 * @return 缓存中的元素T
 	 */
-	@SuppressWarnings("unchecked")
 	public T get(final String key){
-		T result = null;
-		ValueOperations<String, T>  operations = (ValueOperations<String, T>) this.redisTemplate.opsForValue();
-		result = operations.get(key);
-		
-		return result;
+		return get(key, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * 根据key读取缓存
+	 * @param key  缓存的key
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return 缓存中的元素T
+	 */
+	public T get(final String key, boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.readKey(guardKey(key), () -> deserializeValue(readRouter.read(commands -> commands.get(rawKey(key)))));
+		}
+		return guard.readKey(guardKey(key), () -> pools.execute(XhRedisPools.Workload.READ, key, this.redisTemplate, template -> template.opsForValue().get(key)));
 	}
 	
 	/**
@@ -326,9 +502,7 @@ public class XhRedisUtils<T> {
 	 * @throws
 	 */
 	public T getObj(final String key){
-		T result = null;
-		result = this.redisTemplate.opsForValue().get(key);
-		return result;
+		return guard.readKey(guardKey(key), () -> pools.execute(XhRedisPools.Workload.READ, key, this.redisTemplate, template -> template.opsForValue().get(key)));
 	}
 	
 	/**
@@ -340,7 +514,7 @@ public class XhRedisUtils<T> {
 	@SuppressWarnings("unchecked")
 	public Boolean setIfAbsent(String key,T obj){
 		ValueOperations<String, T>  operations = (ValueOperations<String, T>) this.redisTemplate.opsForValue();
-		return operations.setIfAbsent(key, obj);
+		return invalidating(key, () -> operations.setIfAbsent(key, obj));
 	}
 	/**
 	 * 将给定key的值设为value，并返回key的旧值
@@ -350,7 +524,7 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public T getAndSet(String key,T value){
-		return (T) this.redisTemplate.opsForValue().getAndSet(key, value);
+		return invalidating(key, () -> (T) this.redisTemplate.opsForValue().getAndSet(key, value));
 	}
 	/**
 	 * <p>
@@ -360,17 +534,34 @@ public class XhRedisUtils<T> {
 	 * @param keys redis缓存中的多个
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public List<T> multiGet(Collection<String> keys){
-		ValueOperations<String, T>  operations = (ValueOperations<String, T>) this.redisTemplate.opsForValue();
-		return (List<T>) operations.multiGet(keys);
+		return multiGet(keys, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * <p>
+	 * 注意：使用时确保keys中所有key对应的value都是T的json序列化类型，所有key对应的value都是redis中的同一种数据类型
+	 * </p>
+	 * 通过redis key的集合，获取多个key对应的value值，以list形式返回
+	 * @param keys redis缓存中的多个
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return
+	 */
+	public List<T> multiGet(Collection<String> keys, boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> replicaMultiGet(keys), () -> null);
+		}
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, null, this.redisTemplate, template -> slotMultiGet(template, keys)), () -> null);
 	}
 	/**
-	 * 批量添加
+	 * 批量添加，集群环境下key不在同一个slot上时按slot拆分为多条MSET并行执行
 	 * @param map 多个key-value的键值对，key为String，value为元素T类型
 	 */
 	public void multiSet(Map<String,T> map){
-		this.redisTemplate.opsForValue().multiSet(map);
+		invalidating(map.keySet(), () -> {
+			slotMultiSet(map);
+			return null;
+		});
 	}
 	/**
 	 * 方法功能说明：  批量添加
@@ -383,18 +574,25 @@ public class XhRedisUtils<T> {
 	 * @throws
 	 */
 	public void multiSetObj(Map<String,T> map){
-		this.redisTemplate.opsForValue().multiSet(map);
+		invalidating(map.keySet(), () -> {
+			slotMultiSet(map);
+			return null;
+		});
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，按slot拆分为多条MSETNX，每个slot内是原子的，slot之间不是原子的
+	 * </p>
 	 * 同时设置一个或多个key-value对，当且仅当给定的key都存在返回true
 	 * @param map  多个key-value的键值对，key为String，value为元素T类型
+	 * @return 所有slot都设置成功时返回true
 	 */
 	public Boolean multiSetIfAbsent(Map<String,T> map){
-		return this.redisTemplate.opsForValue().multiSetIfAbsent(map);
+		return invalidating(map.keySet(), () -> slotMultiSetIfAbsent(map));
 	}
 	/**
-	 * 方法功能说明：  同时设置一个或多个key-value对，当且仅当给定的key都存在返回true
+	 * 方法功能说明：  同时设置一个或多个key-value对，当且仅当给定的key都存在返回true，集群环境下跨slot时同multiSetIfAbsent
 	 * 创建时间：2018年10月10日 上午11:59:53
 	 * 开发者：胡佛传  
 	 * @参数： @param map 多个key-value的键值对，key为String，value为元素obj类型
@@ -405,7 +603,7 @@ public class XhRedisUtils<T> {
 	 * @throws
 	 */
 	public Boolean multiSetIfAbsentObj(Map<String,T> map){
-		return this.redisTemplate.opsForValue().multiSetIfAbsent(map);
+		return invalidating(map.keySet(), () -> slotMultiSetIfAbsent(map));
 	}
 	/**
 	 * 返回key中字符串的子串
@@ -424,7 +622,10 @@ public class XhRedisUtils<T> {
 	 * @param offset 移量offset开始位置
 	 */
 	public void setRange(String key,T value,long offset){
-		this.redisTemplate.opsForValue().set(key, value, offset);
+		invalidating(key, () -> {
+			this.redisTemplate.opsForValue().set(key, value, offset);
+			return null;
+		});
 	}
 	
 	
@@ -450,7 +651,7 @@ public class XhRedisUtils<T> {
 	@SuppressWarnings("unchecked")
 	public T lIndex(String key,long index){
 		ListOperations<String, T>  operations = (ListOperations<String, T>) this.redisTemplate.opsForList();
-		return operations.index(key, index);
+		return guard.executeOrFallback(XhRedisGuard.Operation.READ, () -> operations.index(key, index), () -> null);
 	}
 	/**
 	 * 获取list列表指定范围内的元素
@@ -459,10 +660,23 @@ public class XhRedisUtils<T> {
 	 * @param end 结束位置，-1返回所有
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public List<T> lRange(String key,long start,long end){
-		ListOperations<String, T>  operations = (ListOperations<String, T>) this.redisTemplate.opsForList();
-		return operations.range(key, start, end);
+		return lRange(key, start, end, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * 获取list列表指定范围内的元素
+	 * @param key  list缓存的key
+	 * @param start 开始位置，0是开始位置
+	 * @param end 结束位置，-1返回所有
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return
+	 */
+	public List<T> lRange(String key,long start,long end,boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> deserializeValues(readRouter.read(commands -> commands.lrange(rawKey(key), start, end)), new ArrayList<T>()), () -> null);
+		}
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, key, this.redisTemplate, template -> template.opsForList().range(key, start, end)), () -> null);
 	}
 	/**
 	 * 存储在list头部
@@ -477,6 +691,9 @@ public class XhRedisUtils<T> {
 	}
 	
 	/**
+	 * <p>
+	 * 注意：元素数量超过xinghuo.redis.bulk.chunk-size时由XhRedisBulkLoader分批pipeline写入，写入过程不是原子的
+	 * </p>
 	 * 批量存储在list头部
 	 * @param key    list缓存的key
 	 * @param values   需要加入的多个元素T集合
@@ -484,6 +701,9 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long lLeftPushBatch(String key,Collection<T> values){
+		if(values.size() > bulkLoader.chunkSize()){
+			return bulkLoader.lLeftPushAll(key, values.iterator());
+		}
 		ListOperations<String, T>  operations = (ListOperations<String, T>) this.redisTemplate.opsForList();
 		return operations.leftPushAll(key, values);
 	}
@@ -530,6 +750,9 @@ public class XhRedisUtils<T> {
 	}
 	
 	/**
+	 * <p>
+	 * 注意：元素数量超过xinghuo.redis.bulk.chunk-size时由XhRedisBulkLoader分批pipeline写入，写入过程不是原子的
+	 * </p>
 	 * 批量存储在list尾部
 	 * @param key    list缓存的key
 	 * @param values   需要加入的多个元素T集合
@@ -537,6 +760,9 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long lRightPushBatch(String key,Collection<T> values){
+		if(values.size() > bulkLoader.chunkSize()){
+			return bulkLoader.lRightPushAll(key, values.iterator());
+		}
 		ListOperations<String, T>  operations = (ListOperations<String, T>) this.redisTemplate.opsForList();
 		return operations.rightPushAll(key, values);
 	}
@@ -596,10 +822,8 @@ public class XhRedisUtils<T> {
 	 * @param unit  时间单位，如：TimeUnit.SECONDS
 	 * @return  移除的元素T
 	 */
-	@SuppressWarnings("unchecked")
 	public T lBlockLefPop(String key,long timeout,TimeUnit unit){
-		ListOperations<String, T>  operations = (ListOperations<String, T>) this.redisTemplate.opsForList();
-		return operations.leftPop(key,timeout,unit);
+		return pools.execute(XhRedisPools.Workload.BLOCKING, key, this.redisTemplate, template -> template.opsForList().leftPop(key, timeout, unit));
 	}
 	
 	/**
@@ -621,10 +845,8 @@ public class XhRedisUtils<T> {
 	 * @param unit  时间单位，如：TimeUnit.SECONDS
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public T lBlockRightPop(String key,long timeout,TimeUnit unit){
-		ListOperations<String, T>  operations = (ListOperations<String, T>) this.redisTemplate.opsForList();
-		return operations.rightPop(key,timeout,unit);
+		return pools.execute(XhRedisPools.Workload.BLOCKING, key, this.redisTemplate, template -> template.opsForList().rightPop(key, timeout, unit));
 	}
 	/**
 	 * 移除sourceKey列表的最后一个元素,将该元素添加到另外一个列表destinationKey，并返回
@@ -647,10 +869,8 @@ public class XhRedisUtils<T> {
 	 * @param unit  时间单位，如：TimeUnit.SECONDS
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public T lRightPopAndLeftPush(String sourceKey,String destinationKey,long timeout,TimeUnit unit){
-		ListOperations<String, T>  operations = (ListOperations<String, T>) this.redisTemplate.opsForList();
-		return operations.rightPopAndLeftPush(sourceKey, destinationKey,timeout,unit);
+		return pools.execute(XhRedisPools.Workload.BLOCKING, sourceKey, this.redisTemplate, template -> template.opsForList().rightPopAndLeftPush(sourceKey, destinationKey, timeout, unit));
 	}
 	
 	/**
@@ -734,12 +954,19 @@ public class XhRedisUtils<T> {
 	}
 	
 	/**
+	 * <p>
+	 * 注意：元素数量超过xinghuo.redis.bulk.chunk-size时由XhRedisBulkLoader分批pipeline写入，写入过程不是原子的
+	 * </p>
 	 * set添加元素
 	 * @param key  set缓存的key
 	 * @param values  需要添加的元素T集合
 	 */
 	@SuppressWarnings("unchecked")
 	public void sAdd(String key,Collection<T> values){
+		if(values.size() > bulkLoader.chunkSize()){
+			bulkLoader.sAddAll(key, values.iterator());
+			return;
+		}
 		T[] array = (T[]) values.toArray();
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		operations.add(key, array);
@@ -785,7 +1012,7 @@ public class XhRedisUtils<T> {
 	 * @return 集合中元素的数量
 	 */
 	public Long sSize(String key){
-		return this.redisTemplate.opsForSet().size(key);
+		return guard.executeOrFallback(XhRedisGuard.Operation.READ, () -> this.redisTemplate.opsForSet().size(key), () -> null);
 	}
 	/**
 	 * 判断set集合中是否包含value
@@ -796,9 +1023,12 @@ public class XhRedisUtils<T> {
 	@SuppressWarnings("unchecked")
 	public Boolean sExistMember(String key,T value){
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
-		return operations.isMember(key, value);
+		return guard.executeOrFallback(XhRedisGuard.Operation.READ, () -> operations.isMember(key, value), () -> null);
 	}
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合后合并
+	 * </p>
 	 * 获取两个集合的交集
 	 * @param key   set缓存的key
 	 * @param otherKey  set缓存的key
@@ -806,12 +1036,18 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Set<T> sIntersect(String key,String otherKey){
+		if(isCrossSlot(key, Collections.singletonList(otherKey), key)){
+			return deserializeMembers(crossSlotSetAlgebra(SetAlgebra.INTERSECT, key, Collections.singletonList(otherKey)));
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.intersect(key, otherKey);
 	}
 	
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合后合并
+	 * </p>
 	 * 获取key集合与多个集合的交集
 	 * @param key   set缓存的key
 	 * @param otherKeys  set缓存的多个key
@@ -819,11 +1055,17 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Set<T> sIntersect(String key,Collection<String> otherKeys){
+		if(isCrossSlot(key, otherKeys, key)){
+			return deserializeMembers(crossSlotSetAlgebra(SetAlgebra.INTERSECT, key, otherKeys));
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.intersect(key, otherKeys);
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合合并后分批写入，写入过程不是原子的
+	 * </p>
 	 * key集合与otherKey集合的交集存储到destinationKey集合中
 	 * @param key   set缓存的key
 	 * @param otherKey  set缓存的key
@@ -832,11 +1074,17 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long sIntersectAndStore(String key,String otherKey,String destinationKey){
+		if(isCrossSlot(key, Collections.singletonList(otherKey), destinationKey)){
+			return crossSlotSetStore(SetAlgebra.INTERSECT, key, Collections.singletonList(otherKey), destinationKey);
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.intersectAndStore(key, otherKey, destinationKey);
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合合并后分批写入，写入过程不是原子的
+	 * </p>
 	 *  key集合与多个集合的交集存储到destinationKey集合中
 	 * @param key   set缓存的key
 	 * @param otherKeys  set缓存的多个key
@@ -845,10 +1093,16 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long sIntersectAndStore(String key,Collection<String> otherKeys,String destinationKey){
+		if(isCrossSlot(key, otherKeys, destinationKey)){
+			return crossSlotSetStore(SetAlgebra.INTERSECT, key, otherKeys, destinationKey);
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.intersectAndStore(key, otherKeys, destinationKey);
 	}
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合后合并
+	 * </p>
 	 * 获取两个集合的并集
 	 * @param key   set缓存的key
 	 * @param otherKey  set缓存的key
@@ -856,11 +1110,17 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Set<T> sUnion(String key,String otherKey){
+		if(isCrossSlot(key, Collections.singletonList(otherKey), key)){
+			return deserializeMembers(crossSlotSetAlgebra(SetAlgebra.UNION, key, Collections.singletonList(otherKey)));
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.union(key, otherKey);
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合后合并
+	 * </p>
 	 * 获取key集合与多个集合的并集
 	 * @param key   set缓存的key
 	 * @param otherKeys  set缓存的多个key
@@ -868,11 +1128,17 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Set<T> sUnion(String key,Collection<String> otherKeys){
+		if(isCrossSlot(key, otherKeys, key)){
+			return deserializeMembers(crossSlotSetAlgebra(SetAlgebra.UNION, key, otherKeys));
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.union(key, otherKeys);
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合合并后分批写入，写入过程不是原子的
+	 * </p>
 	 * key集合与otherKey集合的并集存储到destinationKey集合中
 	 * @param key   set缓存的key
 	 * @param otherKey  set缓存的key
@@ -881,11 +1147,17 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long sUnionAndStore(String key,String otherKey,String destinationKey){
+		if(isCrossSlot(key, Collections.singletonList(otherKey), destinationKey)){
+			return crossSlotSetStore(SetAlgebra.UNION, key, Collections.singletonList(otherKey), destinationKey);
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.unionAndStore(key, otherKey, destinationKey);
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合合并后分批写入，写入过程不是原子的
+	 * </p>
 	 * key集合与多个集合的并集存储到destinationKey集合中
 	 * @param key   set缓存的key
 	 * @param otherKeys  set缓存的多个key
@@ -894,6 +1166,9 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long sUnionAndStore(String key,Collection<String> otherKeys,String destinationKey){
+		if(isCrossSlot(key, otherKeys, destinationKey)){
+			return crossSlotSetStore(SetAlgebra.UNION, key, otherKeys, destinationKey);
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.unionAndStore(key, otherKeys, destinationKey);
 	}
@@ -924,6 +1199,9 @@ public class XhRedisUtils<T> {
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合合并后分批写入，写入过程不是原子的
+	 * </p>
 	 * key集合与otherKey集合的差集存储到destinationKey集合中
 	 * @param key   set缓存的key
 	 * @param otherKey  set缓存的key
@@ -932,11 +1210,17 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long sDifferenceAndStore(String key,String otherKey,String destinationKey){
+		if(isCrossSlot(key, Collections.singletonList(otherKey), destinationKey)){
+			return crossSlotSetStore(SetAlgebra.DIFFERENCE, key, Collections.singletonList(otherKey), destinationKey);
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.differenceAndStore(key, otherKey, destinationKey);
 	}
 	
 	/**
+	 * <p>
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行SSCAN各个集合合并后分批写入，写入过程不是原子的
+	 * </p>
 	 * key集合与多个集合的差集存储到destinationKey集合中
 	 * @param key   set缓存的key
 	 * @param otherKeys  set缓存的多个key
@@ -945,18 +1229,38 @@ public class XhRedisUtils<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Long sDifferenceAndStore(String key,Collection<String> otherKeys,String destinationKey){
+		if(isCrossSlot(key, otherKeys, destinationKey)){
+			return crossSlotSetStore(SetAlgebra.DIFFERENCE, key, otherKeys, destinationKey);
+		}
 		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
 		return operations.differenceAndStore(key, otherKeys, destinationKey);
 	}
 	/**
+	 * <p>
+	 * 注意：一次性加载整个集合，大集合请使用sScan/sStream分批遍历
+	 * </p>
 	 * 获取集合中的所有元素
 	 * @param key set缓存的key
 	 * @return 所有的元素T集合
 	 */
-	@SuppressWarnings("unchecked")
 	public Set<T> sObtainAllMember(String key){
-		SetOperations<String, T>  operations = (SetOperations<String, T>) this.redisTemplate.opsForSet();
-		return operations.members(key);
+		return sObtainAllMember(key, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * <p>
+	 * 注意：一次性加载整个集合，大集合请使用sScan/sStream分批遍历
+	 * </p>
+	 * 获取集合中的所有元素
+	 * @param key set缓存的key
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return 所有的元素T集合
+	 */
+	public Set<T> sObtainAllMember(String key,boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> deserializeValues(readRouter.read(commands -> commands.smembers(rawKey(key))), new HashSet<T>()), () -> null);
+		}
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, key, this.redisTemplate, template -> template.opsForSet().members(key)), () -> null);
 	}
 	/**
 	 * 随机获取集合中的一个元素
@@ -1101,10 +1405,23 @@ public class XhRedisUtils<T> {
 	 * @param end  结束位置，-1查询所有
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public Set<TypedTuple<T>> zRangeWithScores(String key,long start,long end){
-		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate.opsForZSet();
-		return operations.rangeWithScores(key, start, end);
+		return zRangeWithScores(key, start, end, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * 获取集合中的元素，并且把score值也获取（按照元素score值由小到大排序）
+	 * @param key  zset缓存的key
+	 * @param start 开始位置
+	 * @param end  结束位置，-1查询所有
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return
+	 */
+	public Set<TypedTuple<T>> zRangeWithScores(String key,long start,long end,boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> deserializeScoredValues(readRouter.read(commands -> commands.zrangeWithScores(rawKey(key), start, end))), () -> null);
+		}
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, key, this.redisTemplate, template -> template.opsForZSet().rangeWithScores(key, start, end)), () -> null);
 	}
 	
 	/**
@@ -1114,10 +1431,23 @@ public class XhRedisUtils<T> {
 	 * @param end  结束位置，-1查询所有
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public Set<T> zRange(String key,long start,long end){
-		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate.opsForZSet();
-		return operations.range(key, start, end);
+		return zRange(key, start, end, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * 获取集合中的元素。（按照元素score值由小到大排序）
+	 * @param key  zset缓存的key
+	 * @param start 开始位置
+	 * @param end  结束位置，-1查询所有
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return
+	 */
+	public Set<T> zRange(String key,long start,long end,boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> deserializeValues(readRouter.read(commands -> commands.zrange(rawKey(key), start, end)), new LinkedHashSet<T>()), () -> null);
+		}
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, key, this.redisTemplate, template -> template.opsForZSet().range(key, start, end)), () -> null);
 	}
 	
 	/**
@@ -1154,10 +1484,23 @@ public class XhRedisUtils<T> {
 	 * @param max score的最大值
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public Set<T> zRangeByScore(String key,double min,double max){
-		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate.opsForZSet();
-		return operations.rangeByScore(key, min, max);
+		return zRangeByScore(key, min, max, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * 根据score值查询集合。（按照元素score值由小到大排序）
+	 * @param key zset缓存的key
+	 * @param min score的最小值
+	 * @param max score的最大值
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return
+	 */
+	public Set<T> zRangeByScore(String key,double min,double max,boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> deserializeValues(readRouter.read(commands -> commands.zrangebyscore(rawKey(key), Range.create(min, max))), new LinkedHashSet<T>()), () -> null);
+		}
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, key, this.redisTemplate, template -> template.opsForZSet().rangeByScore(key, min, max)), () -> null);
 	}
 	/**
 	 * 获取集合中的元素，并且把score值也获取（按照元素score值由大到小排序）
@@ -1179,10 +1522,23 @@ public class XhRedisUtils<T> {
 	 * @param end  结束位置，-1查询所有
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public Set<T> zReverseRange(String key,long start,long end){
-		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate.opsForZSet();
-		return operations.reverseRange(key, start, end);
+		return zReverseRange(key, start, end, properties.getReplica().isStaleReadsByDefault());
+	}
+	
+	/**
+	 * 获取集合中的元素。（按照元素score值由大到小排序）
+	 * @param key zset缓存的key
+	 * @param start 开始位置
+	 * @param end  结束位置，-1查询所有
+	 * @param allowStale true-允许读从节点（复制有延迟，可能读到旧值） false-读主节点
+	 * @return
+	 */
+	public Set<T> zReverseRange(String key,long start,long end,boolean allowStale){
+		if(readRouter.route(allowStale)){
+			return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> deserializeValues(readRouter.read(commands -> commands.zrevrange(rawKey(key), start, end)), new LinkedHashSet<T>()), () -> null);
+		}
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, key, this.redisTemplate, template -> template.opsForZSet().reverseRange(key, start, end)), () -> null);
 	}
 	
 	/**
@@ -1263,7 +1619,7 @@ public class XhRedisUtils<T> {
 	@SuppressWarnings("unchecked")
 	public Double zScore(String key,T value){
 		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate.opsForZSet();
-		return operations.score(key, value);
+		return guard.executeOrFallback(XhRedisGuard.Operation.READ, () -> operations.score(key, value), () -> null);
 	}
 	/**
 	 * 移除指定索引位置的成员
@@ -1293,7 +1649,7 @@ public class XhRedisUtils<T> {
 
 	/**
 	 * <p>
-	 * 注意：集群环境下要求所有的key都在同一个slot上
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行ZSCAN各个集合合并后分批写入，写入过程不是原子的
 	 * </p>
 	 * key集合与otherKey集合的交集存储到destinationKey集合中
 	 * @param key   zset缓存的key
@@ -1304,7 +1660,9 @@ public class XhRedisUtils<T> {
 	@SuppressWarnings("unchecked")
 	public Long zIntersectAndStore(String key, String otherKey,
 			String destinationKey) { 
-		//TODOTODO  ZINTERSTORE can only be executed when all keys map to the same slot
+		if(isCrossSlot(key, Collections.singletonList(otherKey), destinationKey)){
+			return crossSlotZSetStore(SetAlgebra.INTERSECT, key, Collections.singletonList(otherKey), destinationKey);
+		}
 		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate
 				.opsForZSet();
 		return operations.intersectAndStore(key, otherKey, destinationKey);
@@ -1312,7 +1670,7 @@ public class XhRedisUtils<T> {
 
 	/**
 	 * <p>
-	 * 注意：集群环境下要求所有的key都在同一个slot上
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行ZSCAN各个集合合并后分批写入，写入过程不是原子的
 	 * </p>
 	 * key集合与多个集合的交集存储到destinationKey集合中
 	 * @param key   zset缓存的key
@@ -1325,12 +1683,15 @@ public class XhRedisUtils<T> {
 			String destinationKey) {
 		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate
 				.opsForZSet();
+		if(isCrossSlot(key, otherKeys, destinationKey)){
+			return crossSlotZSetStore(SetAlgebra.INTERSECT, key, otherKeys, destinationKey);
+		}
 		return operations.intersectAndStore(key, otherKeys, destinationKey);
 	}
 
 	/**
 	 * <p>
-	 * 注意：集群环境下要求所有的key都在同一个slot上
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行ZSCAN各个集合合并后分批写入，写入过程不是原子的
 	 * </p>
 	 * key集合与otherKey集合的并集存储到destinationKey集合中
 	 * @param key   zset缓存的key
@@ -1343,13 +1704,15 @@ public class XhRedisUtils<T> {
 			String destinationKey) {
 		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate
 				.opsForZSet();
-		//ZUNIONSTORE can only be executed when all keys map to the same slot
+		if(isCrossSlot(key, Collections.singletonList(otherKey), destinationKey)){
+			return crossSlotZSetStore(SetAlgebra.UNION, key, Collections.singletonList(otherKey), destinationKey);
+		}
 		return operations.unionAndStore(key, otherKey, destinationKey);
 	}
 
 	/**
 	 * <p>
-	 * 注意：集群环境下要求所有的key都在同一个slot上
+	 * 注意：集群环境下key不在同一个slot上时，由客户端并行ZSCAN各个集合合并后分批写入，写入过程不是原子的
 	 * </p>
 	 * key集合与多个集合的并集存储到destinationKey集合中
 	 * @param key   zset缓存的key
@@ -1362,65 +1725,1409 @@ public class XhRedisUtils<T> {
 			String destinationKey) {
 		ZSetOperations<String, T> operations = (ZSetOperations<String, T>) this.redisTemplate
 				.opsForZSet();
+		if(isCrossSlot(key, otherKeys, destinationKey)){
+			return crossSlotZSetStore(SetAlgebra.UNION, key, otherKeys, destinationKey);
+		}
 		return operations.unionAndStore(key, otherKeys, destinationKey);
 	}
 	
 	
 	/*-----------------------------zset相关操作 zset-end------------------------------------*/
 	
+	/*-----------------------------bitmap相关操作 bitmap-begin------------------------------------*/
+	
 	/**
-	 * redis分布式锁加锁方法
-	 * 
-	 * @param key
-	 *            加锁键全局唯一
-	 * @param value
-	 *            加锁值为当前时间+超时时间(时间戳格式)
-	 * 
-	 * @return boolean false-获取锁失败 true-获取锁成功
+	 * 设置位图中offset位置的值
+	 * @param key  bitmap缓存的key
+	 * @param offset 位偏移量，如用户id
+	 * @param value true-1 false-0
+	 * @return offset位置原来的值
 	 */
-	public boolean lock(String key, Long value) {
-		try {
-			if (stringRedisTemplate.opsForValue().setIfAbsent(key, value + "")) {
-				return true;
+	public Boolean setBit(String key,long offset,boolean value){
+		return this.redisTemplate.opsForValue().setBit(key, offset, value);
+	}
+	
+	/**
+	 * 获取位图中offset位置的值
+	 * @param key  bitmap缓存的key
+	 * @param offset 位偏移量
+	 * @return true-1 false-0
+	 */
+	public Boolean getBit(String key,long offset){
+		return this.redisTemplate.opsForValue().getBit(key, offset);
+	}
+	
+	/**
+	 * 批量设置位图中多个offset位置的值，所有SETBIT使用一次pipeline提交
+	 * @param key  bitmap缓存的key
+	 * @param offsets 多个位偏移量
+	 * @param value true-1 false-0
+	 */
+	public void setBits(String key,final Collection<Long> offsets,final boolean value){
+		final byte[] rawKey = rawKey(key);
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(Long offset : offsets){
+				connection.setBit(rawKey, offset, value);
 			}
-			// 避免死锁，且只让一个线程拿到锁
-			String currentValue = stringRedisTemplate.opsForValue().get(key);
-			// 如果锁过期了
-			if (!StringUtils.isEmpty(currentValue)
-					&& Long.parseLong(currentValue) < System
-							.currentTimeMillis()) {
-				// 只会让一个线程拿到锁，如果旧的value和currentValue相等，只会有一个线程达成条件，因为第二个线程拿到的oldValue已经和currentValue不一样了
-				String oldValue = stringRedisTemplate.opsForValue().getAndSet(key,
-						value + "");
-				if (!StringUtils.isEmpty(oldValue)
-						&& oldValue.equals(currentValue)) {
-					return true;
-				}
+			return null;
+		});
+	}
+	
+	/**
+	 * 批量获取位图中多个offset位置的值，所有GETBIT使用一次pipeline提交
+	 * @param key  bitmap缓存的key
+	 * @param offsets 多个位偏移量
+	 * @return 与offsets顺序一致的值
+	 */
+	public boolean[] getBits(String key,final long[] offsets){
+		final byte[] rawKey = rawKey(key);
+		List<Object> bits = this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for(long offset : offsets){
+				connection.getBit(rawKey, offset);
 			}
-		} catch (Exception e) {
-			logger.error("【redis分布式锁】加锁异常, {}", e);
+			return null;
+		});
+		boolean[] result = new boolean[offsets.length];
+		for(int i = 0; i < result.length; i++){
+			result[i] = Boolean.TRUE.equals(bits.get(i));
 		}
-		return false;
+		return result;
 	}
-
+	
 	/**
-	 * redis分布式锁解锁方法
-	 * 
-	 * @param key
-	 *            解锁键全局唯一
-	 * @param value
-	 *            解锁值为超时时间(时间戳格式)
-	 * 
-	 * @return boolean false-解锁失败 true-解锁成功
+	 * 统计位图中值为1的位数
+	 * @param key  bitmap缓存的key
+	 * @return 值为1的位数
 	 */
-	public void unlock(String key, Long value) {
-		try {
-			String currentValue = stringRedisTemplate.opsForValue().get(key);
-			if (!StringUtils.isEmpty(currentValue) && value != null) {
-				if (value <= Long.parseLong(currentValue)) {
-					redisTemplate.opsForValue().getOperations().delete(key);
-				}
-			}
+	public Long bitCount(String key){
+		final byte[] rawKey = rawKey(key);
+		return this.redisTemplate.execute((RedisCallback<Long>) connection -> connection.bitCount(rawKey));
+	}
+	
+	/**
+	 * 统计位图中字节范围start到end之间值为1的位数
+	 * @param key  bitmap缓存的key
+	 * @param start 字节起始位置
+	 * @param end 字节结束位置，-1表示最后一个字节
+	 * @return 值为1的位数
+	 */
+	public Long bitCount(String key,long start,long end){
+		final byte[] rawKey = rawKey(key);
+		return this.redisTemplate.execute((RedisCallback<Long>) connection -> connection.bitCount(rawKey, start, end));
+	}
+	
+	/**
+	 * <p>
+	 * 注意：集群环境下要求所有的key都在同一个slot上
+	 * </p>
+	 * 对多个位图做位运算，结果存储到destinationKey中，如连续登录天数：AND多天的签到位图
+	 * @param op 位运算类型，AND、OR、XOR、NOT
+	 * @param destinationKey 目标bitmap的key
+	 * @param keys 参与运算的bitmap的key
+	 * @return 目标位图的字节长度
+	 */
+	public Long bitOp(BitOperation op,String destinationKey,String... keys){
+		final byte[] rawDestination = rawKey(destinationKey);
+		final byte[][] rawKeys = new byte[keys.length][];
+		for(int i = 0; i < keys.length; i++){
+			rawKeys[i] = rawKey(keys[i]);
+		}
+		return this.redisTemplate.execute((RedisCallback<Long>) connection -> connection.bitOp(op, rawDestination, rawKeys));
+	}
+	
+	/**
+	 * 执行BITFIELD命令，如bitField(key, "INCRBY", "u8", "100", "1", "GET", "u4", "0")
+	 * @param key  bitmap缓存的key
+	 * @param arguments BITFIELD子命令及参数
+	 * @return 每个GET/SET/INCRBY子命令的返回值，溢出策略为FAIL且溢出时对应位置为null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public List<Long> bitField(String key,String... arguments){
+		return (List<Long>) this.redisTemplate.execute(BITFIELD_SCRIPT, STRING_SERIALIZER, (RedisSerializer) STRING_SERIALIZER,
+				Collections.singletonList(key), (Object[]) arguments);
+	}
+	
+	/**
+	 * 读取位图中offset位置开始的整数，如bitFieldGet(key, "u8", 0)
+	 * @param key  bitmap缓存的key
+	 * @param type 整数类型，i表示有符号，u表示无符号，如i16、u8
+	 * @param offset 位偏移量，以#开头时表示按type宽度计算的序号
+	 * @return 整数值
+	 */
+	public Long bitFieldGet(String key,String type,String offset){
+		List<Long> values = bitField(key, "GET", type, offset);
+		return CollectionUtils.isEmpty(values) ? null : values.get(0);
+	}
+	
+	/**
+	 * 原子增加位图中offset位置开始的整数，用于在一个key中保存大量小计数器
+	 * @param key  bitmap缓存的key
+	 * @param type 整数类型，如u8
+	 * @param offset 位偏移量，以#开头时表示按type宽度计算的序号
+	 * @param increment 增加值
+	 * @return 增加后的值
+	 */
+	public Long bitFieldIncrBy(String key,String type,String offset,long increment){
+		List<Long> values = bitField(key, "INCRBY", type, offset, String.valueOf(increment));
+		return CollectionUtils.isEmpty(values) ? null : values.get(0);
+	}
+	
+	/*-----------------------------bitmap相关操作 bitmap-end------------------------------------*/
+	
+	/*-----------------------------lua脚本复合操作 script-begin------------------------------------*/
+	
+	/**
+	 * 在list头部添加元素并裁剪到maxLength，只保留最新的maxLength个元素，添加和裁剪在一次调用中原子完成
+	 * @param key list缓存的key
+	 * @param value 元素
+	 * @param maxLength list最大长度
+	 * @return 裁剪后的list长度
+	 */
+	public Long lLeftPushAndTrim(String key,T value,long maxLength){
+		return cappedPush(key, "LEFT", maxLength, 0, Collections.singletonList(value));
+	}
+	
+	/**
+	 * 在list尾部添加元素并裁剪到maxLength，只保留最新的maxLength个元素，添加和裁剪在一次调用中原子完成
+	 * @param key list缓存的key
+	 * @param value 元素
+	 * @param maxLength list最大长度
+	 * @return 裁剪后的list长度
+	 */
+	public Long lRightPushAndTrim(String key,T value,long maxLength){
+		return cappedPush(key, "RIGHT", maxLength, 0, Collections.singletonList(value));
+	}
+	
+	/**
+	 * 向zset添加元素并裁剪到maxSize，只保留score最高的maxSize个元素，添加和裁剪在一次调用中原子完成
+	 * @param key zset缓存的key
+	 * @param value 元素
+	 * @param score 分数
+	 * @param maxSize zset最大元素数量
+	 * @return 元素是新添加的返回true，已存在只更新score的返回false
+	 */
+	public Boolean zAddAndTrim(String key,T value,double score,long maxSize){
+		Long added = cappedZAdd(key, true, maxSize, 0, Collections.singletonMap(value, score));
+		return added != null && added > 0;
+	}
+	
+	/**
+	 * <p>
+	 * 注意：按序列化后的字节比较，expect与当前值需要使用相同的序列化方式
+	 * </p>
+	 * 当前值等于expect时设置为update，保留原有的过期时间，比较和设置在一次调用中原子完成
+	 * @param key 缓存的key
+	 * @param expect 期望的当前值，为null时表示期望key不存在
+	 * @param update 新值
+	 * @return 设置成功返回true，当前值与expect不同返回false
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean compareAndSet(String key,T expect,T update){
+		RedisSerializer<T> valueSerializer = (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+		Object[] args = {
+				STRING_SERIALIZER.serialize(expect == null ? "ABSENT" : "EQUAL"),
+				expect == null ? new byte[0] : valueSerializer.serialize(expect),
+				valueSerializer.serialize(update)};
+		Long result = invalidating(key, () -> this.redisTemplate.execute(XhRedisScripts.get("compare_and_set", Long.class), null, null, Collections.singletonList(key), args));
+		return result != null && result == 1;
+	}
+	
+	/**
+	 * 计数器增加delta，计数器首次创建（没有过期时间）时设置过期时间，增加和设置过期时间在一次调用中原子完成，用于固定窗口计数
+	 * @param key 计数器的key
+	 * @param delta 增加值
+	 * @param timeout 过期时间
+	 * @param unit 时间单位
+	 * @return 增加后的值
+	 */
+	public Long incrementAndExpire(String key,long delta,long timeout,TimeUnit unit){
+		return invalidating(key, () -> this.stringRedisTemplate.execute(XhRedisScripts.get("incr_expire", Long.class),
+				Collections.singletonList(key), String.valueOf(delta), String.valueOf(unit.toMillis(timeout))));
+	}
+	
+	/**
+	 * 创建定长list，只保留最新的maxLength个元素
+	 * @param key list缓存的key
+	 * @param maxLength list最大长度
+	 * @return 定长list
+	 */
+	public XhRedisCappedList<T> cappedList(String key,long maxLength){
+		return new XhRedisCappedList<T>(this, key, maxLength, 0);
+	}
+	
+	/**
+	 * 创建定长list，只保留最新的maxLength个元素，每次添加时刷新过期时间
+	 * @param key list缓存的key
+	 * @param maxLength list最大长度
+	 * @param timeout 过期时间
+	 * @param unit 时间单位
+	 * @return 定长list
+	 */
+	public XhRedisCappedList<T> cappedList(String key,long maxLength,long timeout,TimeUnit unit){
+		return new XhRedisCappedList<T>(this, key, maxLength, unit.toMillis(timeout));
+	}
+	
+	/**
+	 * 创建定长zset，只保留score最高的maxSize个元素
+	 * @param key zset缓存的key
+	 * @param maxSize zset最大元素数量
+	 * @return 定长zset
+	 */
+	public XhRedisCappedZSet<T> cappedZSet(String key,long maxSize){
+		return new XhRedisCappedZSet<T>(this, key, maxSize, true, 0);
+	}
+	
+	/**
+	 * 创建定长zset，每次添加时刷新过期时间
+	 * @param key zset缓存的key
+	 * @param maxSize zset最大元素数量
+	 * @param keepHighest true-保留score最高的元素 false-保留score最低的元素
+	 * @param timeout 过期时间，小于等于0时不设置
+	 * @param unit 时间单位
+	 * @return 定长zset
+	 */
+	public XhRedisCappedZSet<T> cappedZSet(String key,long maxSize,boolean keepHighest,long timeout,TimeUnit unit){
+		return new XhRedisCappedZSet<T>(this, key, maxSize, keepHighest, unit.toMillis(timeout));
+	}
+	
+	/**
+	 * 创建分片set，元素按hash分散到shards个子key上，用于单个key放不下或成为热点的大集合
+	 * @param key 分片set的key，不能包含hash tag
+	 * @param shards 分片数量，确定后不能修改
+	 * @return 分片set
+	 */
+	public XhRedisShardedSet<T> shardedSet(String key,int shards){
+		return new XhRedisShardedSet<T>(this, key, shards);
+	}
+	
+	/**
+	 * 创建分片zset，元素按hash分散到shards个子key上，用于单个key放不下或成为热点的大集合
+	 * @param key 分片zset的key，不能包含hash tag
+	 * @param shards 分片数量，确定后不能修改
+	 * @return 分片zset
+	 */
+	public XhRedisShardedZSet<T> shardedZSet(String key,int shards){
+		return new XhRedisShardedZSet<T>(this, key, shards);
+	}
+	
+	/**
+	 * 执行capped_push脚本，direction为LEFT或RIGHT，ttl为0时不设置过期时间
+	 */
+	@SuppressWarnings("unchecked")
+	Long cappedPush(String key, String direction, long maxLength, long ttl, Collection<? extends T> values){
+		if(maxLength <= 0){
+			throw new IllegalArgumentException("list最大长度必须大于0: " + maxLength);
+		}
+		RedisSerializer<T> valueSerializer = (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+		Object[] args = new Object[values.size() + 3];
+		args[0] = STRING_SERIALIZER.serialize(String.valueOf(maxLength));
+		args[1] = STRING_SERIALIZER.serialize(direction);
+		args[2] = STRING_SERIALIZER.serialize(String.valueOf(ttl));
+		int i = 3;
+		for(T value : values){
+			args[i++] = valueSerializer.serialize(value);
+		}
+		return this.redisTemplate.execute(XhRedisScripts.get("capped_push", Long.class), null, null, Collections.singletonList(key), args);
+	}
+	
+	/**
+	 * 执行zadd_trim脚本，keepHighest为true时保留score最高的元素，ttl为0时不设置过期时间
+	 */
+	@SuppressWarnings("unchecked")
+	Long cappedZAdd(String key, boolean keepHighest, long maxSize, long ttl, Map<? extends T, Double> values){
+		if(maxSize <= 0){
+			throw new IllegalArgumentException("zset最大元素数量必须大于0: " + maxSize);
+		}
+		RedisSerializer<T> valueSerializer = (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+		Object[] args = new Object[values.size() * 2 + 3];
+		args[0] = STRING_SERIALIZER.serialize(String.valueOf(maxSize));
+		args[1] = STRING_SERIALIZER.serialize(keepHighest ? "HIGH" : "LOW");
+		args[2] = STRING_SERIALIZER.serialize(String.valueOf(ttl));
+		int i = 3;
+		for(Map.Entry<? extends T, Double> entry : values.entrySet()){
+			args[i++] = STRING_SERIALIZER.serialize(scoreArgument(entry.getValue()));
+			args[i++] = valueSerializer.serialize(entry.getKey());
+		}
+		return this.redisTemplate.execute(XhRedisScripts.get("zadd_trim", Long.class), null, null, Collections.singletonList(key), args);
+	}
+	
+	/**
+	 * 把score转换为redis命令参数，与SDR对ZADD参数的处理一致：正负无穷为+inf、-inf，NaN不是合法的score
+	 */
+	static String scoreArgument(Double score){
+		if(score == null || score.isNaN()){
+			throw new IllegalArgumentException("zset的score不能为null或NaN: " + score);
+		}
+		if(score == Double.POSITIVE_INFINITY){
+			return "+inf";
+		}
+		if(score == Double.NEGATIVE_INFINITY){
+			return "-inf";
+		}
+		return Double.toString(score);
+	}
+	
+	/*-----------------------------lua脚本复合操作 script-end------------------------------------*/
+	
+	/*-----------------------------hyperloglog相关操作 hyperloglog-begin------------------------------------*/
+	
+	/**
+	 * 添加元素到HyperLogLog，用于基数统计（如UV），每个key最多占用12KB，标准误差0.81%
+	 * @param key  hyperloglog缓存的key
+	 * @param values 需要添加的元素T
+	 * @return 基数估算值发生变化返回1，否则返回0
+	 */
+	@SuppressWarnings("unchecked")
+	public Long pfAdd(String key,T... values){
+		return this.redisTemplate.opsForHyperLogLog().add(key, values);
+	}
+	
+	/**
+	 * 批量添加元素到HyperLogLog，每1000个元素一条PFADD命令，使用一次pipeline提交
+	 * @param key  hyperloglog缓存的key
+	 * @param values 需要添加的元素T集合
+	 */
+	@SuppressWarnings("unchecked")
+	public void pfAddBatch(String key,final Collection<T> values){
+		final byte[] rawKey = rawKey(key);
+		final RedisSerializer<T> valueSerializer = (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			List<byte[]> chunk = new ArrayList<byte[]>(PIPELINE_CHUNK_SIZE);
+			for(T value : values){
+				chunk.add(valueSerializer.serialize(value));
+				if(chunk.size() == PIPELINE_CHUNK_SIZE){
+					connection.pfAdd(rawKey, chunk.toArray(new byte[chunk.size()][]));
+					chunk.clear();
+				}
+			}
+			if(!chunk.isEmpty()){
+				connection.pfAdd(rawKey, chunk.toArray(new byte[chunk.size()][]));
+			}
+			return null;
+		});
+	}
+	
+	/**
+	 * <p>
+	 * 注意：集群环境下要求所有的key都在同一个slot上
+	 * </p>
+	 * 获取一个或多个HyperLogLog合并后的基数估算值
+	 * @param keys hyperloglog缓存的key
+	 * @return 基数估算值
+	 */
+	public Long pfCount(String... keys){
+		return this.redisTemplate.opsForHyperLogLog().size(keys);
+	}
+	
+	/**
+	 * <p>
+	 * 注意：集群环境下要求所有的key都在同一个slot上
+	 * </p>
+	 * 合并多个HyperLogLog到destinationKey，如合并7天的日UV得到周UV
+	 * @param destinationKey 目标hyperloglog的key
+	 * @param sourceKeys 需要合并的hyperloglog的key
+	 * @return 合并后的基数估算值
+	 */
+	public Long pfMerge(String destinationKey,String... sourceKeys){
+		return this.redisTemplate.opsForHyperLogLog().union(destinationKey, sourceKeys);
+	}
+	
+	/*-----------------------------hyperloglog相关操作 hyperloglog-end------------------------------------*/
+	
+	/*-----------------------------geo相关操作 geo-begin------------------------------------*/
+	
+	/**
+	 * 添加地理位置
+	 * @param key  geo缓存的key
+	 * @param longitude 经度
+	 * @param latitude 纬度
+	 * @param member 位置对应的元素T
+	 * @return 新添加的元素数量
+	 */
+	public Long geoAdd(String key,double longitude,double latitude,T member){
+		Long added = this.redisTemplate.opsForGeo().geoAdd(key, new Point(longitude, latitude), member);
+		invalidateGeoCache(key);
+		return added;
+	}
+	
+	/**
+	 * 批量添加地理位置，每1000个元素一条GEOADD命令，使用一次pipeline提交
+	 * @param key  geo缓存的key
+	 * @param locations 元素T及其经纬度
+	 */
+	@SuppressWarnings("unchecked")
+	public void geoAddBatch(String key,final Map<T, Point> locations){
+		final byte[] rawKey = rawKey(key);
+		final RedisSerializer<T> valueSerializer = (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			Map<byte[], Point> chunk = new HashMap<byte[], Point>();
+			for(Map.Entry<T, Point> location : locations.entrySet()){
+				chunk.put(valueSerializer.serialize(location.getKey()), location.getValue());
+				if(chunk.size() == PIPELINE_CHUNK_SIZE){
+					connection.geoAdd(rawKey, chunk);
+					chunk = new HashMap<byte[], Point>();
+				}
+			}
+			if(!chunk.isEmpty()){
+				connection.geoAdd(rawKey, chunk);
+			}
+			return null;
+		});
+		invalidateGeoCache(key);
+	}
+	
+	/**
+	 * 获取元素的经纬度
+	 * @param key  geo缓存的key
+	 * @param members 元素T
+	 * @return 与members顺序一致的经纬度，元素不存在时为null
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Point> geoPosition(String key,T... members){
+		return this.redisTemplate.opsForGeo().geoPos(key, members);
+	}
+	
+	/**
+	 * 获取两个元素之间的距离
+	 * @param key  geo缓存的key
+	 * @param member1 元素T
+	 * @param member2 元素T
+	 * @param metric 距离单位，如：DistanceUnit.KILOMETERS
+	 * @return 两个元素之间的距离，任一元素不存在时返回null
+	 */
+	public Distance geoDistance(String key,T member1,T member2,Metric metric){
+		return this.redisTemplate.opsForGeo().geoDist(key, member1, member2, metric);
+	}
+	
+	/**
+	 * 移除地理位置
+	 * @param key  geo缓存的key
+	 * @param members 需要移除的元素T
+	 * @return 移除的元素数量
+	 */
+	@SuppressWarnings("unchecked")
+	public Long geoRemove(String key,T... members){
+		Long removed = this.redisTemplate.opsForGeo().geoRemove(key, members);
+		invalidateGeoCache(key);
+		return removed;
+	}
+	
+	/**
+	 * 查询中心点指定半径内的元素，按距离由近到远排序，结果包含距离和经纬度
+	 * @param key  geo缓存的key
+	 * @param longitude 中心点经度
+	 * @param latitude 中心点纬度
+	 * @param radius 半径，如：new Distance(5, DistanceUnit.KILOMETERS)
+	 * @param count 最多返回的元素数量，小于等于0表示不限制
+	 * @return 查询结果
+	 */
+	public GeoResults<GeoLocation<T>> geoRadius(String key,double longitude,double latitude,Distance radius,long count){
+		GeoRadiusCommandArgs args = GeoRadiusCommandArgs.newGeoRadiusArgs().includeDistance().includeCoordinates().sortAscending();
+		if(count > 0){
+			args.limit(count);
+		}
+		return this.redisTemplate.opsForGeo().geoRadius(key, new Circle(new Point(longitude, latitude), radius), args);
+	}
+	
+	/**
+	 * <p>
+	 * 注意：redis中按中心点所在网格（xinghuo.redis.geo.cache-coordinate-scale位小数）的中心查询，半径加上网格半对角线，
+	 * 最多取xinghuo.redis.geo.cache-max-candidates个候选，结果在本地缓存xinghuo.redis.geo.cache-ttl毫秒，同一网格内的查询共享；
+	 * 每次调用再按真实中心点重新计算距离、过滤、排序、截取，结果与geoRadius一致，只在半径边界上有浮点误差；
+	 * 候选被截断且不能保证覆盖所需结果时（如count小于等于0或前count个结果超出候选的安全半径），以及count大于候选上限时，直接执行geoRadius；
+	 * 缓存期间其他实例的写入不可见，本实例通过geoAdd/geoAddBatch/geoRemove写入时清除该key的缓存
+	 * </p>
+	 * 带本地缓存的半径查询，用于附近的人/店等高频查询
+	 * @param key  geo缓存的key
+	 * @param longitude 中心点经度
+	 * @param latitude 中心点纬度
+	 * @param radius 半径
+	 * @param count 最多返回的元素数量，小于等于0表示不限制
+	 * @return 查询结果
+	 */
+	public GeoResults<GeoLocation<T>> geoRadiusCached(String key,double longitude,double latitude,Distance radius,long count){
+		XhRedisProperties.Geo geo = properties.getGeo();
+		int maxCandidates = Math.max(1, geo.getCacheMaxCandidates());
+		if(geo.getCacheTtl() <= 0 || count > maxCandidates){
+			return geoRadius(key, longitude, latitude, radius, count);
+		}
+		double scale = Math.pow(10, geo.getCacheCoordinateScale());
+		double gridLongitude = Math.round(longitude * scale) / scale;
+		double gridLatitude = Math.round(latitude * scale) / scale;
+		double radiusMeters = radius.getValue() * DistanceUnit.METERS.getMultiplier() / radius.getMetric().getMultiplier();
+		//真实中心点到网格中心的距离不超过网格半对角线，再加1米覆盖geohash的精度损失
+		double margin = Math.sqrt(2) / 2 / scale * METERS_PER_DEGREE + 1;
+		String cacheKey = key + '\u0000' + gridLongitude + ',' + gridLatitude + '\u0000' + radiusMeters;
+		long now = System.currentTimeMillis();
+		GeoCacheEntry cached = geoCache.get(cacheKey);
+		if(cached == null || cached.expireAt <= now){
+			//放大半径后的范围可能很大或很密集，候选数量有上限，不一次拉取整个范围
+			GeoResults<GeoLocation<T>> candidates = geoRadius(key, gridLongitude, gridLatitude,
+					new Distance(radiusMeters + margin, DistanceUnit.METERS), maxCandidates);
+			List<GeoResult<GeoLocation<T>>> content = candidates.getContent();
+			double boundaryMeters = content.size() < maxCandidates ? Double.POSITIVE_INFINITY
+					: content.get(content.size() - 1).getDistance().getValue();
+			if(geoCache.size() >= geo.getCacheMaxEntries()){
+				geoCache.clear();
+			}
+			cached = new GeoCacheEntry(key, candidates, boundaryMeters, now + geo.getCacheTtl());
+			geoCache.put(cacheKey, cached);
+		}
+		List<GeoResult<GeoLocation<T>>> results = new ArrayList<GeoResult<GeoLocation<T>>>();
+		for(GeoResult<GeoLocation<T>> candidate : cached.results()){
+			Point point = candidate.getContent().getPoint();
+			double meters = distanceMeters(longitude, latitude, point.getX(), point.getY());
+			if(meters <= radiusMeters){
+				double distance = meters * radius.getMetric().getMultiplier() / DistanceUnit.METERS.getMultiplier();
+				results.add(new GeoResult<GeoLocation<T>>(candidate.getContent(), new Distance(distance, radius.getMetric())));
+			}
+		}
+		results.sort((a, b) -> Double.compare(a.getDistance().getValue(), b.getDistance().getValue()));
+		if(cached.boundaryMeters != Double.POSITIVE_INFINITY){
+			//候选被截断时，只有到网格中心的距离小于最后一个候选的元素一定在候选中，
+			//换算到真实中心点再减去margin；前count个结果都在这个安全半径内才能使用缓存
+			double safeMeters = cached.boundaryMeters - margin;
+			if(count <= 0 || results.size() < count || results.get((int) count - 1).getDistance().getValue()
+					* DistanceUnit.METERS.getMultiplier() / radius.getMetric().getMultiplier() >= safeMeters){
+				return geoRadius(key, longitude, latitude, radius, count);
+			}
+		}
+		if(count > 0 && results.size() > count){
+			results = new ArrayList<GeoResult<GeoLocation<T>>>(results.subList(0, (int) count));
+		}
+		return new GeoResults<GeoLocation<T>>(results, radius.getMetric());
+	}
+	
+	/**
+	 * 两点间的球面距离，单位米，与redis的GEODIST使用相同的地球半径和公式
+	 */
+	static double distanceMeters(double longitude1,double latitude1,double longitude2,double latitude2){
+		double lat1 = Math.toRadians(latitude1);
+		double lat2 = Math.toRadians(latitude2);
+		double u = Math.sin((lat2 - lat1) / 2);
+		double v = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+		return 2 * REDIS_EARTH_RADIUS_METERS * Math.asin(Math.sqrt(u * u + Math.cos(lat1) * Math.cos(lat2) * v * v));
+	}
+	
+	/**
+	 * 查询以中心点为中心、指定宽高矩形内的元素，按距离由近到远排序。
+	 * 先按矩形外接圆执行GEORADIUS，再在客户端按经纬度过滤
+	 * @param key  geo缓存的key
+	 * @param longitude 中心点经度
+	 * @param latitude 中心点纬度
+	 * @param widthMeters 矩形宽度（东西方向），单位米
+	 * @param heightMeters 矩形高度（南北方向），单位米
+	 * @param count 最多返回的元素数量，小于等于0表示不限制
+	 * @return 查询结果
+	 */
+	public List<GeoResult<GeoLocation<T>>> geoBox(String key,double longitude,double latitude,double widthMeters,double heightMeters,long count){
+		double radius = Math.sqrt(widthMeters * widthMeters + heightMeters * heightMeters) / 2;
+		GeoResults<GeoLocation<T>> candidates = geoRadius(key, longitude, latitude, new Distance(radius, DistanceUnit.METERS), 0);
+		double halfLatitude = heightMeters / 2 / METERS_PER_DEGREE;
+		double halfLongitude = widthMeters / 2 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+		List<GeoResult<GeoLocation<T>>> results = new ArrayList<GeoResult<GeoLocation<T>>>();
+		for(GeoResult<GeoLocation<T>> candidate : candidates){
+			Point point = candidate.getContent().getPoint();
+			if(point != null && Math.abs(point.getY() - latitude) <= halfLatitude
+					&& Math.abs(point.getX() - longitude) <= halfLongitude){
+				results.add(candidate);
+				if(count > 0 && results.size() >= count){
+					break;
+				}
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 清除key对应的本地半径查询缓存
+	 */
+	private void invalidateGeoCache(String key){
+		if(!geoCache.isEmpty()){
+			geoCache.values().removeIf(entry -> entry.key.equals(key));
+		}
+	}
+	
+	/**
+	 * 半径查询本地缓存项
+	 */
+	private final class GeoCacheEntry {
+		
+		private final String key;
+		
+		private final GeoResults<GeoLocation<T>> results;
+		
+		/**
+		 * 候选被截断时最后一个候选到网格中心的距离（米），未截断时为正无穷
+		 */
+		private final double boundaryMeters;
+		
+		private final long expireAt;
+		
+		GeoCacheEntry(String key, GeoResults<GeoLocation<T>> results, double boundaryMeters, long expireAt) {
+			this.key = key;
+			this.results = results;
+			this.boundaryMeters = boundaryMeters;
+			this.expireAt = expireAt;
+		}
+		
+		GeoResults<GeoLocation<T>> results(){
+			return results;
+		}
+	}
+	
+	/*-----------------------------geo相关操作 geo-end------------------------------------*/
+	
+	/*-----------------------------游标遍历 scan-begin------------------------------------*/
+	
+	/**
+	 * <p>
+	 * 注意：返回的游标占用一个redis连接，使用完毕必须close，建议使用try-with-resources
+	 * </p>
+	 * SSCAN分批遍历set集合，每批获取batchSize个元素，元素在遍历时逐个反序列化，内存占用与集合大小无关
+	 * @param key  set缓存的key
+	 * @param batchSize 每批获取的元素数量（SSCAN的COUNT参数）
+	 * @return 元素T的游标
+	 */
+	public Cursor<T> sScan(String key,int batchSize){
+		return this.redisTemplate.opsForSet().scan(key, ScanOptions.scanOptions().count(batchSize).build());
+	}
+	
+	/**
+	 * <p>
+	 * 注意：返回的Stream占用一个redis连接，使用完毕必须close，建议使用try-with-resources
+	 * </p>
+	 * 以Stream方式分批遍历set集合，用于替代大集合的sObtainAllMember
+	 * @param key  set缓存的key
+	 * @param batchSize 每批获取的元素数量
+	 * @return 元素T的Stream
+	 */
+	public Stream<T> sStream(String key,int batchSize){
+		return cursorStream(sScan(key, batchSize));
+	}
+	
+	/**
+	 * 以Stream方式分批遍历set集合，每批获取1000个元素
+	 * @param key  set缓存的key
+	 * @return 元素T的Stream
+	 */
+	public Stream<T> sStream(String key){
+		return sStream(key, DEFAULT_SCAN_BATCH_SIZE);
+	}
+	
+	/**
+	 * <p>
+	 * 注意：返回的游标占用一个redis连接，使用完毕必须close；ZSCAN不保证按score排序，需要有序遍历时使用zIterator
+	 * </p>
+	 * ZSCAN分批遍历zset集合，元素及score在遍历时逐个反序列化
+	 * @param key  zset缓存的key
+	 * @param batchSize 每批获取的元素数量（ZSCAN的COUNT参数）
+	 * @return 元素及score的游标
+	 */
+	public Cursor<TypedTuple<T>> zScan(String key,int batchSize){
+		return this.redisTemplate.opsForZSet().scan(key, ScanOptions.scanOptions().count(batchSize).build());
+	}
+	
+	/**
+	 * <p>
+	 * 注意：返回的Stream占用一个redis连接，使用完毕必须close
+	 * </p>
+	 * 以Stream方式分批遍历zset集合（无序）
+	 * @param key  zset缓存的key
+	 * @param batchSize 每批获取的元素数量
+	 * @return 元素及score的Stream
+	 */
+	public Stream<TypedTuple<T>> zStream(String key,int batchSize){
+		return cursorStream(zScan(key, batchSize));
+	}
+	
+	/**
+	 * <p>
+	 * 注意：遍历过程中集合被修改时，元素可能重复或遗漏
+	 * </p>
+	 * 按score由小到大分批遍历zset集合，每批使用一次ZRANGE获取batchSize个元素，用于替代zRangeWithScores(key, 0, -1)
+	 * @param key  zset缓存的key
+	 * @param batchSize 每批获取的元素数量
+	 * @return 元素及score的迭代器
+	 */
+	public Iterator<TypedTuple<T>> zIterator(final String key,int batchSize){
+		return pagingIterator(batchSize, (start, end) -> this.redisTemplate.opsForZSet().rangeWithScores(key, start, end));
+	}
+	
+	/**
+	 * <p>
+	 * 注意：遍历过程中list被修改时，元素可能重复或遗漏
+	 * </p>
+	 * 分批遍历list，每批使用一次LRANGE获取batchSize个元素，用于替代lRange(key, 0, -1)
+	 * @param key  list缓存的key
+	 * @param batchSize 每批获取的元素数量
+	 * @return 元素T的迭代器
+	 */
+	public Iterator<T> lIterator(final String key,int batchSize){
+		return pagingIterator(batchSize, (start, end) -> this.redisTemplate.opsForList().range(key, start, end));
+	}
+	
+	/**
+	 * 以Stream方式分批遍历list
+	 * @param key  list缓存的key
+	 * @param batchSize 每批获取的元素数量
+	 * @return 元素T的Stream
+	 */
+	public Stream<T> lStream(String key,int batchSize){
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(lIterator(key, batchSize), Spliterator.ORDERED), false);
+	}
+	
+	/**
+	 * <p>
+	 * 注意：返回的游标占用一个redis连接，使用完毕必须close
+	 * </p>
+	 * HSCAN分批遍历hash，field和value在遍历时逐个反序列化
+	 * @param key  hash缓存的key
+	 * @param batchSize 每批获取的field数量（HSCAN的COUNT参数）
+	 * @return field-value的游标
+	 */
+	public Cursor<Map.Entry<Object, Object>> hScan(String key,int batchSize){
+		return this.redisTemplate.opsForHash().scan(key, ScanOptions.scanOptions().count(batchSize).build());
+	}
+	
+	/**
+	 * 游标转换为Stream，Stream关闭时关闭游标
+	 */
+	private static <E> Stream<E> cursorStream(final Cursor<E> cursor){
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.NONNULL), false)
+				.onClose(() -> {
+					try {
+						cursor.close();
+					} catch (IOException e) {
+						throw new RedisSystemException("关闭SCAN游标异常", e);
+					}
+				});
+	}
+	
+	/**
+	 * 按索引分页的迭代器，每页加载batchSize个元素，最后一页不足batchSize时结束
+	 */
+	private static <E> Iterator<E> pagingIterator(final int batchSize, final BiFunction<Long, Long, Collection<E>> pageLoader){
+		if(batchSize <= 0){
+			throw new IllegalArgumentException("batchSize必须大于0");
+		}
+		return new Iterator<E>() {
+			private long offset = 0;
+			private boolean lastPage = false;
+			private Iterator<E> page = Collections.emptyIterator();
+			
+			@Override
+			public boolean hasNext() {
+				while(!page.hasNext()){
+					if(lastPage){
+						return false;
+					}
+					Collection<E> items = pageLoader.apply(offset, offset + batchSize - 1);
+					if(items == null || items.isEmpty()){
+						lastPage = true;
+						return false;
+					}
+					lastPage = items.size() < batchSize;
+					offset += items.size();
+					page = items.iterator();
+				}
+				return true;
+			}
+			
+			@Override
+			public E next() {
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return page.next();
+			}
+		};
+	}
+	
+	/*-----------------------------游标遍历 scan-end------------------------------------*/
+	
+	/*-----------------------------原始字节与延迟反序列化 raw-begin------------------------------------*/
+	
+	/**
+	 * 获取多个key对应value的原始字节，不反序列化
+	 * @param keys redis缓存中的多个key
+	 * @return 与keys顺序一致的原始字节，key不存在时为null
+	 */
+	public List<byte[]> multiGetRaw(Collection<String> keys){
+		final byte[][] rawKeys = rawKeys(keys);
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, null, this.redisTemplate,
+				template -> template.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(rawKeys))), () -> null);
+	}
+	
+	/**
+	 * 获取list列表指定范围内元素的原始字节，不反序列化
+	 * @param key  list缓存的key
+	 * @param start 开始位置，0是开始位置
+	 * @param end 结束位置，-1返回所有
+	 * @return 元素的原始字节
+	 */
+	public List<byte[]> lRangeRaw(String key,long start,long end){
+		return guard.executeOrFallback(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, key, this.redisTemplate,
+				template -> template.execute((RedisCallback<List<byte[]>>) connection -> connection.lRange(rawKey(key), start, end))), () -> null);
+	}
+	
+	/**
+	 * 获取多个key对应的value，返回的list在访问元素时才反序列化，适用于只使用部分元素的场景
+	 * @param keys redis缓存中的多个key
+	 * @return 延迟反序列化的只读list，key不存在时对应元素为null
+	 */
+	public List<T> multiGetLazy(Collection<String> keys){
+		return lazy(multiGetRaw(keys));
+	}
+	
+	/**
+	 * 获取list列表指定范围内的元素，返回的list在访问元素时才反序列化
+	 * @param key  list缓存的key
+	 * @param start 开始位置，0是开始位置
+	 * @param end 结束位置，-1返回所有
+	 * @return 延迟反序列化的只读list
+	 */
+	public List<T> lRangeLazy(String key,long start,long end){
+		return lazy(lRangeRaw(key, start, end));
+	}
+	
+	/**
+	 * <p>
+	 * 注意：输出的是redis中存储的原始内容，默认RedisTemplate的json中包含类名，需要输出纯json时使用XhRedisCodecs的按类型视图
+	 * </p>
+	 * 将多个key对应的value以json数组的形式直接写入输出流，不反序列化，key不存在时输出null
+	 * @param keys redis缓存中的多个key
+	 * @param out 输出流，如HTTP响应的输出流，方法不关闭输出流
+	 * @return 写入的字节数
+	 * @throws IOException 写入输出流异常
+	 */
+	public long multiGetTo(Collection<String> keys, OutputStream out) throws IOException {
+		return writeJsonArray(multiGetRaw(keys), out);
+	}
+	
+	/**
+	 * 将list列表指定范围内的元素以json数组的形式直接写入输出流，不反序列化
+	 * @param key  list缓存的key
+	 * @param start 开始位置，0是开始位置
+	 * @param end 结束位置，-1返回所有
+	 * @param out 输出流，方法不关闭输出流
+	 * @return 写入的字节数
+	 * @throws IOException 写入输出流异常
+	 */
+	public long lRangeTo(String key,long start,long end, OutputStream out) throws IOException {
+		return writeJsonArray(lRangeRaw(key, start, end), out);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<T> lazy(List<byte[]> raw){
+		if(raw == null){
+			return null;
+		}
+		return new XhRedisLazyList<T>(raw, (RedisSerializer<T>) this.redisTemplate.getValueSerializer());
+	}
+	
+	private static long writeJsonArray(List<byte[]> values, OutputStream out) throws IOException {
+		if(values == null){
+			throw new RedisConnectionFailureException("redis不可用，无法输出");
+		}
+		long written = 2;
+		out.write('[');
+		for(int i = 0; i < values.size(); i++){
+			if(i > 0){
+				out.write(',');
+				written++;
+			}
+			byte[] value = values.get(i);
+			byte[] bytes = value == null || value.length == 0 ? JSON_NULL : value;
+			out.write(bytes);
+			written += bytes.length;
+		}
+		out.write(']');
+		return written;
+	}
+	
+	private byte[][] rawKeys(Collection<String> keys){
+		byte[][] rawKeys = new byte[keys.size()][];
+		int i = 0;
+		for(String key : keys){
+			rawKeys[i++] = rawKey(key);
+		}
+		return rawKeys;
+	}
+	
+	/*-----------------------------原始字节与延迟反序列化 raw-end------------------------------------*/
+	
+	/*-----------------------------跨slot集合运算 cross-slot-begin------------------------------------*/
+	
+	/**
+	 * 集合运算类型
+	 */
+	enum SetAlgebra {
+		INTERSECT, UNION, DIFFERENCE
+	}
+	
+	/**
+	 * 是否集群环境，首次使用时从连接类型判断
+	 */
+	private volatile Boolean clusterMode;
+	
+	/**
+	 * 判断当前连接是否为集群连接
+	 * @return 集群环境返回true
+	 */
+	public boolean isCluster(){
+		Boolean cluster = this.clusterMode;
+		if(cluster == null){
+			cluster = this.redisTemplate.execute((RedisCallback<Boolean>) connection -> connection instanceof RedisClusterConnection);
+			this.clusterMode = cluster;
+		}
+		return cluster;
+	}
+	
+	/**
+	 * 集群环境下判断key、otherKeys、destinationKey是否不在同一个slot上
+	 */
+	private boolean isCrossSlot(String key, Collection<String> otherKeys, String destinationKey){
+		if(!isCluster()){
+			return false;
+		}
+		int slot = XhRedisKeyUtils.slot(rawKey(key));
+		for(String otherKey : otherKeys){
+			if(XhRedisKeyUtils.slot(rawKey(otherKey)) != slot){
+				return true;
+			}
+		}
+		return XhRedisKeyUtils.slot(rawKey(destinationKey)) != slot;
+	}
+	
+	/**
+	 * 并行SSCAN所有源集合，在客户端按原始字节合并，结果分批写入destinationKey
+	 */
+	private Long crossSlotSetStore(SetAlgebra algebra, String key, Collection<String> otherKeys, String destinationKey){
+		final Set<ByteBuffer> members = crossSlotSetAlgebra(algebra, key, otherKeys);
+		final byte[] rawDestination = rawKey(destinationKey);
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			connection.del(rawDestination);
+			List<byte[]> chunk = new ArrayList<byte[]>(PIPELINE_CHUNK_SIZE);
+			for(ByteBuffer member : members){
+				chunk.add(member.array());
+				if(chunk.size() == PIPELINE_CHUNK_SIZE){
+					connection.sAdd(rawDestination, chunk.toArray(new byte[chunk.size()][]));
+					chunk.clear();
+				}
+			}
+			if(!chunk.isEmpty()){
+				connection.sAdd(rawDestination, chunk.toArray(new byte[chunk.size()][]));
+			}
+			return null;
+		});
+		return (long) members.size();
+	}
+	
+	/**
+	 * 并行SSCAN所有源集合，在客户端按原始字节计算交集、并集或差集
+	 */
+	private Set<ByteBuffer> crossSlotSetAlgebra(SetAlgebra algebra, String key, Collection<String> otherKeys){
+		List<String> sourceKeys = new ArrayList<String>(otherKeys.size() + 1);
+		sourceKeys.add(key);
+		sourceKeys.addAll(otherKeys);
+		List<CompletableFuture<Set<ByteBuffer>>> futures = new ArrayList<CompletableFuture<Set<ByteBuffer>>>(sourceKeys.size());
+		for(String sourceKey : sourceKeys){
+			futures.add(CompletableFuture.supplyAsync(() -> scanSetMembers(sourceKey), XhRedisExecutors.io()));
+		}
+		List<Set<ByteBuffer>> sources = XhRedisExecutors.joinAll(futures);
+		Set<ByteBuffer> result;
+		if(algebra == SetAlgebra.INTERSECT){
+			List<Set<ByteBuffer>> ordered = new ArrayList<Set<ByteBuffer>>(sources);
+			ordered.sort((a, b) -> Integer.compare(a.size(), b.size()));
+			result = ordered.get(0);
+			for(int i = 1; i < ordered.size() && !result.isEmpty(); i++){
+				result.retainAll(ordered.get(i));
+			}
+		} else if(algebra == SetAlgebra.UNION){
+			result = sources.get(0);
+			for(int i = 1; i < sources.size(); i++){
+				result.addAll(sources.get(i));
+			}
+		} else {
+			result = sources.get(0);
+			for(int i = 1; i < sources.size() && !result.isEmpty(); i++){
+				result.removeAll(sources.get(i));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * 并行ZSCAN所有源集合，在客户端按原始字节合并score（SUM），结果分批写入destinationKey
+	 */
+	private Long crossSlotZSetStore(SetAlgebra algebra, String key, Collection<String> otherKeys, String destinationKey){
+		List<String> sourceKeys = new ArrayList<String>(otherKeys.size() + 1);
+		sourceKeys.add(key);
+		sourceKeys.addAll(otherKeys);
+		List<CompletableFuture<Map<ByteBuffer, Double>>> futures = new ArrayList<CompletableFuture<Map<ByteBuffer, Double>>>(sourceKeys.size());
+		for(String sourceKey : sourceKeys){
+			futures.add(CompletableFuture.supplyAsync(() -> scanZSetMembers(sourceKey), XhRedisExecutors.io()));
+		}
+		List<Map<ByteBuffer, Double>> sources = XhRedisExecutors.joinAll(futures);
+		Map<ByteBuffer, Double> result;
+		if(algebra == SetAlgebra.INTERSECT){
+			List<Map<ByteBuffer, Double>> ordered = new ArrayList<Map<ByteBuffer, Double>>(sources);
+			ordered.sort((a, b) -> Integer.compare(a.size(), b.size()));
+			result = ordered.get(0);
+			for(int i = 1; i < ordered.size() && !result.isEmpty(); i++){
+				Map<ByteBuffer, Double> other = ordered.get(i);
+				Iterator<Map.Entry<ByteBuffer, Double>> iterator = result.entrySet().iterator();
+				while(iterator.hasNext()){
+					Map.Entry<ByteBuffer, Double> entry = iterator.next();
+					Double score = other.get(entry.getKey());
+					if(score == null){
+						iterator.remove();
+					} else {
+						entry.setValue(entry.getValue() + score);
+					}
+				}
+			}
+		} else {
+			result = sources.get(0);
+			for(int i = 1; i < sources.size(); i++){
+				for(Map.Entry<ByteBuffer, Double> entry : sources.get(i).entrySet()){
+					result.merge(entry.getKey(), entry.getValue(), Double::sum);
+				}
+			}
+		}
+		final byte[] rawDestination = rawKey(destinationKey);
+		final Map<ByteBuffer, Double> members = result;
+		this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			connection.del(rawDestination);
+			Set<Tuple> chunk = new HashSet<Tuple>();
+			for(Map.Entry<ByteBuffer, Double> member : members.entrySet()){
+				chunk.add(new DefaultTuple(member.getKey().array(), member.getValue()));
+				if(chunk.size() == PIPELINE_CHUNK_SIZE){
+					connection.zAdd(rawDestination, chunk);
+					chunk = new HashSet<Tuple>();
+				}
+			}
+			if(!chunk.isEmpty()){
+				connection.zAdd(rawDestination, chunk);
+			}
+			return null;
+		});
+		return (long) members.size();
+	}
+	
+	/**
+	 * SSCAN获取set中所有元素的原始字节，不做反序列化
+	 */
+	private Set<ByteBuffer> scanSetMembers(String key){
+		final byte[] rawKey = rawKey(key);
+		return this.redisTemplate.execute((RedisCallback<Set<ByteBuffer>>) connection -> {
+			Set<ByteBuffer> members = new HashSet<ByteBuffer>();
+			try (Cursor<byte[]> cursor = connection.sScan(rawKey, ScanOptions.scanOptions().count(DEFAULT_SCAN_BATCH_SIZE).build())) {
+				while(cursor.hasNext()){
+					members.add(ByteBuffer.wrap(cursor.next()));
+				}
+			} catch (IOException e) {
+				throw new RedisSystemException("关闭SSCAN游标异常", e);
+			}
+			return members;
+		});
+	}
+	
+	/**
+	 * ZSCAN获取zset中所有元素的原始字节及score，不做反序列化
+	 */
+	private Map<ByteBuffer, Double> scanZSetMembers(String key){
+		final byte[] rawKey = rawKey(key);
+		return this.redisTemplate.execute((RedisCallback<Map<ByteBuffer, Double>>) connection -> {
+			Map<ByteBuffer, Double> members = new HashMap<ByteBuffer, Double>();
+			try (Cursor<Tuple> cursor = connection.zScan(rawKey, ScanOptions.scanOptions().count(DEFAULT_SCAN_BATCH_SIZE).build())) {
+				while(cursor.hasNext()){
+					Tuple tuple = cursor.next();
+					members.put(ByteBuffer.wrap(tuple.getValue()), tuple.getScore());
+				}
+			} catch (IOException e) {
+				throw new RedisSystemException("关闭ZSCAN游标异常", e);
+			}
+			return members;
+		});
+	}
+	
+	private String guardKey(String key){
+		return namespace.isEmpty() ? key : namespace + key;
+	}
+	
+	private List<String> guardKeys(Collection<String> keys){
+		List<String> guardKeys = new ArrayList<String>(keys.size());
+		for(String key : keys){
+			guardKeys.add(guardKey(key));
+		}
+		return guardKeys;
+	}
+	
+	/**
+	 * key被写入、删除或修改过期时间时，使熔断降级用的本地缓存失效
+	 */
+	private void evictFallback(String key){
+		guard.invalidate(guardKey(key));
+	}
+	
+	/**
+	 * 执行写操作，写入前后都使本地降级缓存中的key失效：写入前失效，熔断期间不再返回旧值；
+	 * 写入后再次失效，写入过程中开始的读操作读到的旧值不会留在降级缓存中
+	 */
+	private <R> R invalidating(String key, Supplier<R> write){
+		evictFallback(key);
+		try {
+			return write.get();
+		} finally {
+			evictFallback(key);
+		}
+	}
+	
+	/**
+	 * 执行多key写操作，写入前后都使本地降级缓存中的key失效
+	 */
+	private <R> R invalidating(Collection<String> keys, Supplier<R> write){
+		Collection<String> guardKeys = guardKeys(keys);
+		guard.invalidate(guardKeys);
+		try {
+			return write.get();
+		} finally {
+			guard.invalidate(guardKeys);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private byte[] rawKey(String key){
+		return ((RedisSerializer<String>) this.redisTemplate.getKeySerializer()).serialize(key);
+	}
+	
+	/*-----------------------------跨slot集合运算 cross-slot-end------------------------------------*/
+	
+	/*-----------------------------按slot拆分多key命令 slot-begin------------------------------------*/
+	
+	/**
+	 * 计算多个key按节点、slot的分布，按序列化后的key（包含命名空间前缀）计算slot，用于排查跨slot和热点节点问题
+	 * @param keys 缓存的多个key
+	 * @return key的slot分布
+	 */
+	public XhRedisSlotPlan planSlots(Collection<String> keys){
+		final List<String> keyList = new ArrayList<String>(keys);
+		final Map<Integer, List<Integer>> slots = XhRedisKeyUtils.slotIndexes(Arrays.asList(rawKeys(keyList)));
+		Map<Integer, String> slotNodes = Collections.emptyMap();
+		if(isCluster()){
+			slotNodes = this.redisTemplate.execute((RedisCallback<Map<Integer, String>>) connection -> {
+				RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+				Map<Integer, String> nodes = new HashMap<Integer, String>();
+				for(Integer slot : slots.keySet()){
+					nodes.put(slot, clusterConnection.clusterGetNodeForSlot(slot).asString());
+				}
+				return nodes;
+			});
+		}
+		return new XhRedisSlotPlan(keyList, slots, slotNodes);
+	}
+	
+	/**
+	 * 集群环境下key不在同一个slot上时，每个slot一条MGET，由Lettuce按slot路由到节点，所有命令先全部发出再等待结果，
+	 * 每条命令最多等待连接的命令超时时长，结果按keys的顺序返回
+	 */
+	@SuppressWarnings("unchecked")
+	private List<T> slotMultiGet(RedisTemplate<String, T> template, Collection<String> keys){
+		final RedisSerializer<String> keySerializer = (RedisSerializer<String>) template.getKeySerializer();
+		final List<byte[]> rawKeys = new ArrayList<byte[]>(keys.size());
+		for(String key : keys){
+			rawKeys.add(keySerializer.serialize(key));
+		}
+		final Map<Integer, List<Integer>> slots = XhRedisKeyUtils.slotIndexes(rawKeys);
+		if(slots.size() <= 1 || !isCluster()){
+			return template.opsForValue().multiGet(keys);
+		}
+		final RedisSerializer<T> valueSerializer = (RedisSerializer<T>) template.getValueSerializer();
+		return template.execute((RedisCallback<List<T>>) connection -> {
+			RedisClusterAsyncCommands<byte[], byte[]> commands = nativeCommands(connection);
+			List<RedisFuture<List<KeyValue<byte[], byte[]>>>> futures = new ArrayList<RedisFuture<List<KeyValue<byte[], byte[]>>>>(slots.size());
+			for(List<Integer> indexes : slots.values()){
+				futures.add(commands.mget(select(rawKeys, indexes)));
+			}
+			Object[] values = new Object[rawKeys.size()];
+			int i = 0;
+			for(List<Integer> indexes : slots.values()){
+				List<KeyValue<byte[], byte[]>> slotValues = await(futures.get(i++));
+				for(int j = 0; j < indexes.size(); j++){
+					KeyValue<byte[], byte[]> value = slotValues.get(j);
+					values[indexes.get(j)] = value.hasValue() ? valueSerializer.deserialize(value.getValue()) : null;
+				}
+			}
+			return (List<T>) Arrays.asList(values);
+		});
+	}
+	
+	/**
+	 * 集群环境下key不在同一个slot上时，每个slot一条MSET，所有命令先全部发出再等待结果
+	 */
+	private void slotMultiSet(Map<String, T> map){
+		final List<Map<byte[], byte[]>> groups = slotGroups(map);
+		if(groups == null){
+			this.redisTemplate.opsForValue().multiSet(map);
+			return;
+		}
+		this.redisTemplate.execute((RedisCallback<Object>) connection -> {
+			RedisClusterAsyncCommands<byte[], byte[]> commands = nativeCommands(connection);
+			List<RedisFuture<String>> futures = new ArrayList<RedisFuture<String>>(groups.size());
+			for(Map<byte[], byte[]> group : groups){
+				futures.add(commands.mset(group));
+			}
+			for(RedisFuture<String> future : futures){
+				await(future);
+			}
+			return null;
+		});
+	}
+	
+	/**
+	 * 集群环境下key不在同一个slot上时，每个slot一条MSETNX，每个slot内是原子的，所有slot都设置成功时返回true
+	 */
+	private Boolean slotMultiSetIfAbsent(Map<String, T> map){
+		final List<Map<byte[], byte[]>> groups = slotGroups(map);
+		if(groups == null){
+			return this.redisTemplate.opsForValue().multiSetIfAbsent(map);
+		}
+		return this.redisTemplate.execute((RedisCallback<Boolean>) connection -> {
+			RedisClusterAsyncCommands<byte[], byte[]> commands = nativeCommands(connection);
+			List<RedisFuture<Boolean>> futures = new ArrayList<RedisFuture<Boolean>>(groups.size());
+			for(Map<byte[], byte[]> group : groups){
+				futures.add(commands.msetnx(group));
+			}
+			boolean all = true;
+			for(RedisFuture<Boolean> future : futures){
+				all &= Boolean.TRUE.equals(await(future));
+			}
+			return all;
+		});
+	}
+	
+	/**
+	 * 按slot对key-value分组并序列化，非集群环境或所有key在同一个slot上时返回null
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Map<byte[], byte[]>> slotGroups(Map<String, T> map){
+		if(map.size() <= 1 || !isCluster()){
+			return null;
+		}
+		RedisSerializer<T> valueSerializer = (RedisSerializer<T>) this.redisTemplate.getValueSerializer();
+		Map<Integer, Map<byte[], byte[]>> groups = new LinkedHashMap<Integer, Map<byte[], byte[]>>();
+		for(Map.Entry<String, T> entry : map.entrySet()){
+			byte[] rawKey = rawKey(entry.getKey());
+			groups.computeIfAbsent(XhRedisKeyUtils.slot(rawKey), slot -> new LinkedHashMap<byte[], byte[]>())
+					.put(rawKey, valueSerializer.serialize(entry.getValue()));
+		}
+		return groups.size() <= 1 ? null : new ArrayList<Map<byte[], byte[]>>(groups.values());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static RedisClusterAsyncCommands<byte[], byte[]> nativeCommands(RedisConnection connection){
+		return (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+	}
+	
+	private static byte[][] select(List<byte[]> rawKeys, List<Integer> indexes){
+		byte[][] selected = new byte[indexes.size()][];
+		for(int i = 0; i < selected.length; i++){
+			selected[i] = rawKeys.get(indexes.get(i));
+		}
+		return selected;
+	}
+	
+	/**
+	 * 等待Lettuce异步命令的结果，最多等待连接的命令超时时长，超时后取消命令
+	 */
+	private <R> R await(RedisFuture<R> future){
+		return XhRedisFutures.await(future, XhRedisFutures.commandTimeout(this.redisTemplate.getConnectionFactory()));
+	}
+	
+	private Set<T> deserializeMembers(Set<ByteBuffer> members){
+		Set<T> result = new LinkedHashSet<T>(members.size() * 4 / 3 + 1);
+		for(ByteBuffer member : members){
+			result.add(deserializeValue(member.array()));
+		}
+		return result;
+	}
+	
+	/*-----------------------------按slot拆分多key命令 slot-end------------------------------------*/
+	
+	/*-----------------------------读从节点 replica-begin------------------------------------*/
+	
+	private List<T> replicaMultiGet(Collection<String> keys){
+		final byte[][] rawKeys = rawKeys(keys);
+		List<KeyValue<byte[], byte[]>> values = readRouter.read(commands -> commands.mget(rawKeys));
+		List<T> result = new ArrayList<T>(values.size());
+		for(KeyValue<byte[], byte[]> value : values){
+			result.add(value.hasValue() ? deserializeValue(value.getValue()) : null);
+		}
+		return result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private T deserializeValue(byte[] value){
+		return value == null ? null : ((RedisSerializer<T>) this.redisTemplate.getValueSerializer()).deserialize(value);
+	}
+	
+	private <C extends Collection<T>> C deserializeValues(Collection<byte[]> values, C result){
+		for(byte[] value : values){
+			result.add(deserializeValue(value));
+		}
+		return result;
+	}
+	
+	private Set<TypedTuple<T>> deserializeScoredValues(List<ScoredValue<byte[]>> values){
+		Set<TypedTuple<T>> result = new LinkedHashSet<TypedTuple<T>>(values.size() * 4 / 3 + 1);
+		for(ScoredValue<byte[]> value : values){
+			result.add(new DefaultTypedTuple<T>(deserializeValue(value.getValue()), value.getScore()));
+		}
+		return result;
+	}
+	
+	/*-----------------------------读从节点 replica-end------------------------------------*/
+	
+	/**
+	 * redis分布式锁加锁方法
+	 * 
+	 * @param key
+	 *            加锁键全局唯一
+	 * @param value
+	 *            加锁值为当前时间+超时时间(时间戳格式)
+	 * 
+	 * @return boolean false-获取锁失败 true-获取锁成功
+	 */
+	public boolean lock(String key, Long value) {
+		try {
+			// 判断锁是否存在或已过期与加锁在一次lua脚本调用中原子完成，只有一个线程能拿到锁
+			Long result = stringRedisTemplate.execute(XhRedisScripts.get("lock", Long.class), Collections.singletonList(key),
+					value + "", System.currentTimeMillis() + "");
+			return result != null && result == 1;
+		} catch (Exception e) {
+			logger.error("【redis分布式锁】加锁异常, {}", e);
+		}
+		return false;
+	}
+
+	/**
+	 * redis分布式锁解锁方法
+	 * 
+	 * @param key
+	 *            解锁键全局唯一
+	 * @param value
+	 *            解锁值为超时时间(时间戳格式)
+	 * 
+	 * @return boolean false-解锁失败 true-解锁成功
+	 */
+	public void unlock(String key, Long value) {
+		if (value == null) {
+			return;
+		}
+		try {
+			stringRedisTemplate.execute(XhRedisScripts.get("unlock", Long.class), Collections.singletonList(key), value + "");
 		} catch (Exception e) {
 			logger.error("【redis分布式锁】解锁异常, {}", e);
 		}
@@ -0,0 +1,320 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisWarmup.java
+ *
+ *  Description     : 启动预热。
+ *                    所有单例初始化完成后，按配置的key和key前缀分批读取：前缀使用SCAN遍历，每批key的MGET与下一批SCAN同时发出；
+ *                    预热任务在有界线程池中执行，同时执行的任务数不超过parallelism；读取的value可写入本地缓存
+ *                    （XhRedisGuard的本地降级缓存及LocalCache实现）；预热进度通过JMX（xinghuo.redis:name=XhRedisWarmup）
+ *                    和健康检查（XhRedisWarmupHealthIndicator）暴露
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+@ManagedResource(objectName = "xinghuo.redis:name=XhRedisWarmup", description = "redis启动预热进度")
+public class XhRedisWarmup implements SmartInitializingSingleton {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisWarmup.class);
+
+	/**
+	 * 预热状态
+	 */
+	public enum State {
+		/** 未开启预热 */
+		DISABLED,
+		/** 等待预热 */
+		PENDING,
+		/** 预热中 */
+		RUNNING,
+		/** 预热完成 */
+		DONE,
+		/** 预热完成，部分任务失败 */
+		FAILED
+	}
+
+	/**
+	 * 本地缓存，预热读取的value逐个写入
+	 */
+	public interface LocalCache {
+
+		/**
+		 * 写入本地缓存
+		 * @param key redis的key
+		 * @param value 反序列化后的value
+		 */
+		void put(String key, Object value);
+	}
+
+	private final AtomicReference<State> state = new AtomicReference<State>(State.PENDING);
+
+	private final AtomicInteger totalTasks = new AtomicInteger();
+
+	private final AtomicInteger completedTasks = new AtomicInteger();
+
+	private final AtomicInteger failedTasks = new AtomicInteger();
+
+	private final AtomicLong loadedKeys = new AtomicLong();
+
+	private final AtomicLong seededKeys = new AtomicLong();
+
+	private volatile long startTime;
+
+	private volatile long endTime;
+
+	private volatile CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+
+	@Autowired
+	private XhRedisUtils<Object> redisUtils;
+
+	@Autowired
+	private XhRedisGuard guard;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	@Autowired(required = false)
+	private List<LocalCache> localCaches = Collections.emptyList();
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		XhRedisProperties.Warmup warmup = properties.getWarmup();
+		if(!warmup.isEnabled()){
+			state.set(State.DISABLED);
+			return;
+		}
+		CompletableFuture<Void> future = start(warmup);
+		if(warmup.isBlocking()){
+			try {
+				future.get(warmup.getBlockingTimeout(), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				logger.warn("【redis预热】同步预热超过{}ms未完成，转入后台继续预热", warmup.getBlockingTimeout());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				logger.error("【redis预热】预热异常, {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * 预热完成时完成的future，未开启预热时为已完成的future
+	 * @return future
+	 */
+	public CompletableFuture<Void> completion(){
+		return completion;
+	}
+
+	@ManagedAttribute(description = "预热状态")
+	public String getState(){
+		return state.get().name();
+	}
+
+	/**
+	 * 预热是否已结束（完成、部分失败或未开启）
+	 */
+	public boolean isFinished(){
+		State current = state.get();
+		return current == State.DISABLED || current == State.DONE || current == State.FAILED;
+	}
+
+	@ManagedAttribute(description = "预热任务总数")
+	public int getTotalTasks(){
+		return totalTasks.get();
+	}
+
+	@ManagedAttribute(description = "已完成的预热任务数")
+	public int getCompletedTasks(){
+		return completedTasks.get();
+	}
+
+	@ManagedAttribute(description = "失败的预热任务数")
+	public int getFailedTasks(){
+		return failedTasks.get();
+	}
+
+	@ManagedAttribute(description = "已读取的key数量")
+	public long getLoadedKeys(){
+		return loadedKeys.get();
+	}
+
+	@ManagedAttribute(description = "已写入本地缓存的key数量")
+	public long getSeededKeys(){
+		return seededKeys.get();
+	}
+
+	@ManagedAttribute(description = "预热耗时（毫秒）")
+	public long getElapsedMillis(){
+		long start = startTime;
+		if(start == 0){
+			return 0;
+		}
+		long end = endTime;
+		return (end == 0 ? System.currentTimeMillis() : end) - start;
+	}
+
+	private CompletableFuture<Void> start(XhRedisProperties.Warmup warmup){
+		int batchSize = Math.max(1, warmup.getBatchSize());
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		List<String> keys = warmup.getKeys();
+		for(int from = 0; from < keys.size(); from += batchSize){
+			final List<String> batch = keys.subList(from, Math.min(keys.size(), from + batchSize));
+			tasks.add(() -> loadKeys(batch));
+		}
+		for(final String prefix : warmup.getPrefixes()){
+			tasks.add(() -> loadPrefix(prefix, batchSize));
+		}
+		totalTasks.set(tasks.size());
+		startTime = System.currentTimeMillis();
+		state.set(State.RUNNING);
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmup.getParallelism()),
+				XhRedisExecutors.daemonThreadFactory("xh-redis-warmup"));
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(tasks.size());
+		for(final Runnable task : tasks){
+			futures.add(CompletableFuture.runAsync(() -> {
+				try {
+					task.run();
+				} catch (Exception e) {
+					failedTasks.incrementAndGet();
+					logger.error("【redis预热】预热任务异常, {}", e.getMessage());
+				} finally {
+					completedTasks.incrementAndGet();
+				}
+			}, executor));
+		}
+		completion = CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).whenComplete((result, e) -> {
+			executor.shutdown();
+			endTime = System.currentTimeMillis();
+			state.set(failedTasks.get() > 0 ? State.FAILED : State.DONE);
+			logger.info("【redis预热】预热结束, 任务数={}, 失败任务数={}, key数量={}, 耗时={}ms",
+					totalTasks.get(), failedTasks.get(), loadedKeys.get(), getElapsedMillis());
+		});
+		return completion;
+	}
+
+	/**
+	 * MGET读取一批指定的key
+	 */
+	@SuppressWarnings("unchecked")
+	private void loadKeys(final List<String> keys){
+		final RedisTemplate<String, Object> template = redisUtils.getTemplate();
+		final RedisSerializer<String> keySerializer = (RedisSerializer<String>) template.getKeySerializer();
+		final byte[][] rawKeys = new byte[keys.size()][];
+		for(int i = 0; i < rawKeys.length; i++){
+			rawKeys[i] = keySerializer.serialize(keys.get(i));
+		}
+		template.execute((RedisCallback<Void>) connection -> {
+			RedisClusterAsyncCommands<byte[], byte[]> commands = (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+			seed(template, XhRedisFutures.await(commands.mget(rawKeys), timeout(template)));
+			return null;
+		});
+	}
+
+	/**
+	 * SCAN遍历前缀下的key，每批key的MGET与下一批SCAN同时发出
+	 */
+	@SuppressWarnings("unchecked")
+	private void loadPrefix(final String prefix, final int batchSize){
+		final RedisTemplate<String, Object> template = redisUtils.getTemplate();
+		final ScanArgs args = ScanArgs.Builder.matches(XhRedisKeyUtils.globEscape(prefix) + "*").limit(batchSize);
+		final long timeout = timeout(template);
+		template.execute((RedisCallback<Void>) connection -> {
+			RedisClusterAsyncCommands<byte[], byte[]> commands = (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+			RedisFuture<List<KeyValue<byte[], byte[]>>> pending = null;
+			KeyScanCursor<byte[]> batch = XhRedisFutures.await(commands.scan(ScanCursor.INITIAL, args), timeout);
+			while(true){
+				List<byte[]> rawKeys = batch.getKeys();
+				RedisFuture<List<KeyValue<byte[], byte[]>>> values = rawKeys.isEmpty() ? null
+						: commands.mget(rawKeys.toArray(new byte[rawKeys.size()][]));
+				RedisFuture<KeyScanCursor<byte[]>> next = batch.isFinished() ? null : commands.scan(batch, args);
+				if(pending != null){
+					seed(template, XhRedisFutures.await(pending, timeout));
+				}
+				pending = values;
+				if(next == null){
+					break;
+				}
+				batch = XhRedisFutures.await(next, timeout);
+			}
+			if(pending != null){
+				seed(template, XhRedisFutures.await(pending, timeout));
+			}
+			return null;
+		});
+	}
+
+	private static long timeout(RedisTemplate<String, Object> template){
+		return XhRedisFutures.commandTimeout(template.getConnectionFactory());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void seed(RedisTemplate<String, Object> template, List<KeyValue<byte[], byte[]>> values){
+		if(values == null){
+			return;
+		}
+		loadedKeys.addAndGet(values.size());
+		if(!properties.getWarmup().isSeedLocalCache()){
+			return;
+		}
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) template.getKeySerializer();
+		RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) template.getValueSerializer();
+		for(KeyValue<byte[], byte[]> keyValue : values){
+			if(!keyValue.hasValue()){
+				continue;
+			}
+			String key = keySerializer.deserialize(keyValue.getKey());
+			Object value;
+			try {
+				value = valueSerializer.deserialize(keyValue.getValue());
+			} catch (Exception e) {
+				//非默认序列化写入的value（如计数器、按类型序列化的value）不写入本地缓存
+				continue;
+			}
+			boolean seeded = guard.seed(key, value);
+			for(LocalCache localCache : localCaches){
+				localCache.put(key, value);
+				seeded = true;
+			}
+			if(seeded){
+				seededKeys.incrementAndGet();
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.xinghuo.redis.config;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisWarmupHealthIndicator.java
+ *
+ *  Description     : 启动预热健康检查。
+ *                    预热未结束时返回OUT_OF_SERVICE，就绪探针以此判断是否接收流量；预热结束后返回UP，
+ *                    部分预热任务失败不影响健康状态，只在详情中体现；只在引入spring-boot-actuator时注册
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisWarmupHealthIndicator extends AbstractHealthIndicator {
+
+	private final XhRedisWarmup warmup;
+
+	public XhRedisWarmupHealthIndicator(XhRedisWarmup warmup) {
+		this.warmup = warmup;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		if(warmup.isFinished()){
+			builder.up();
+		} else {
+			builder.outOfService();
+		}
+		builder.withDetail("state", warmup.getState())
+				.withDetail("totalTasks", warmup.getTotalTasks())
+				.withDetail("completedTasks", warmup.getCompletedTasks())
+				.withDetail("failedTasks", warmup.getFailedTasks())
+				.withDetail("loadedKeys", warmup.getLoadedKeys())
+				.withDetail("seededKeys", warmup.getSeededKeys())
+				.withDetail("elapsedMillis", warmup.getElapsedMillis());
+	}
+}
@@ -0,0 +1,542 @@
+package com.xinghuo.redis.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisWriteBehind.java
+ *
+ *  Description     : 异步批量写入（write-behind）。
+ *                    写入先进入有界缓冲，同一个key在写入redis之前的多次写入只保留最后一次；
+ *                    缓冲中key数量达到batch-size或定时间隔到达时，按batch-size分批以pipeline写入；
+ *                    缓冲已满时按overflow-policy处理，应用关闭时写入剩余缓冲；
+ *                    缓冲深度、写入耗时等统计通过JMX暴露（xinghuo.redis:name=XhRedisWriteBehind）
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+@Component
+@ManagedResource(objectName = "xinghuo.redis:name=XhRedisWriteBehind", description = "redis异步批量写入状态")
+public class XhRedisWriteBehind implements InitializingBean, DisposableBean {
+
+	private Logger logger = LoggerFactory.getLogger(XhRedisWriteBehind.class);
+
+	/**
+	 * 缓冲已满时的处理方式
+	 */
+	public enum OverflowPolicy {
+		/** 等待缓冲有空位，超过block-timeout后抛出异常 */
+		BLOCK,
+		/** 调用线程直接写入redis */
+		CALLER_RUNS,
+		/** 丢弃本次写入 */
+		DISCARD,
+		/** 抛出异常 */
+		FAIL
+	}
+
+	/**
+	 * 待写入的key，保持首次写入顺序，同一个key的后续写入直接覆盖
+	 */
+	private final LinkedHashMap<String, Write> buffer = new LinkedHashMap<String, Write>();
+
+	/**
+	 * 已从缓冲取出、正在写入redis的key，写入完成或放回缓冲后移除；
+	 * 同一个key在写入完成前不会再次被取出或由调用线程直接写入，保证写入redis的顺序
+	 */
+	private final Map<String, Write> inFlight = new HashMap<String, Write>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notFull = lock.newCondition();
+
+	private final Condition written = lock.newCondition();
+
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private final LongAdder enqueuedCount = new LongAdder();
+
+	private final LongAdder coalescedCount = new LongAdder();
+
+	private final LongAdder discardedCount = new LongAdder();
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	private final LongAdder callerRunsCount = new LongAdder();
+
+	private final LongAdder flushedKeys = new LongAdder();
+
+	private final LongAdder flushCount = new LongAdder();
+
+	private final LongAdder flushNanos = new LongAdder();
+
+	private final LongAdder failedFlushCount = new LongAdder();
+
+	private final AtomicLong lastFlushNanos = new AtomicLong();
+
+	private final AtomicLong maxFlushNanos = new AtomicLong();
+
+	/**
+	 * 应用关闭时写入失败后的重试间隔，从最小值开始每次翻倍（毫秒）
+	 */
+	private static final long MIN_SHUTDOWN_BACKOFF = 50;
+
+	private static final long MAX_SHUTDOWN_BACKOFF = 1000;
+
+	private ScheduledExecutorService flusher;
+
+	private OverflowPolicy overflowPolicy;
+
+	@Autowired
+	private XhRedisUtils<Object> redisUtils;
+
+	@Autowired
+	private XhRedisGuard guard;
+
+	@Autowired
+	private XhRedisPools pools;
+
+	@Autowired
+	private XhRedisProperties properties;
+
+	@Override
+	public void afterPropertiesSet() {
+		overflowPolicy = OverflowPolicy.valueOf(properties.getWriteBehind().getOverflowPolicy().trim().toUpperCase());
+		long interval = Math.max(10, properties.getWriteBehind().getFlushInterval());
+		flusher = Executors.newSingleThreadScheduledExecutor(XhRedisExecutors.daemonThreadFactory("xh-redis-write-behind"));
+		flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 异步写入key的值，不过期
+	 * @param key 缓存的key
+	 * @param value 缓存的值
+	 */
+	public void set(String key, Object value){
+		enqueue(new Write(key, value, 0, false));
+	}
+
+	/**
+	 * 异步写入key的值并设置过期时间，过期时间从写入redis时开始计算
+	 * @param key 缓存的key
+	 * @param value 缓存的值
+	 * @param timeout 过期时间
+	 * @param unit 时间单位
+	 */
+	public void set(String key, Object value, long timeout, TimeUnit unit){
+		enqueue(new Write(key, value, unit.toMillis(timeout), false));
+	}
+
+	/**
+	 * 异步写入多个key的值，不过期
+	 * @param values key和值
+	 */
+	public void multiSet(Map<String, ?> values){
+		for(Map.Entry<String, ?> entry : values.entrySet()){
+			set(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * 异步写入多个key的值并设置相同的过期时间
+	 * @param values key和值
+	 * @param timeout 过期时间
+	 * @param unit 时间单位
+	 */
+	public void multiSet(Map<String, ?> values, long timeout, TimeUnit unit){
+		for(Map.Entry<String, ?> entry : values.entrySet()){
+			set(entry.getKey(), entry.getValue(), timeout, unit);
+		}
+	}
+
+	/**
+	 * 异步删除key，覆盖缓冲中该key尚未写入的值
+	 * @param key 缓存的key
+	 */
+	public void delete(String key){
+		enqueue(new Write(key, null, 0, true));
+	}
+
+	/**
+	 * 获取key的值，缓冲中或正在写入的批次中有尚未写入完成的值时返回该值（读己之写），否则从redis读取
+	 * @param key 缓存的key
+	 * @return 缓存的值
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String key){
+		Write write;
+		lock.lock();
+		try {
+			write = buffer.get(key);
+			if(write == null){
+				write = inFlight.get(key);
+			}
+		} finally {
+			lock.unlock();
+		}
+		if(write != null){
+			return write.delete ? null : (T) write.value;
+		}
+		return (T) redisUtils.get(key);
+	}
+
+	/**
+	 * 立即把缓冲中所有key按batch-size分批以pipeline写入redis。
+	 * 写入失败的批次重新放回缓冲（期间已被覆盖的key除外），下次写入时重试
+	 */
+	public synchronized void flush(){
+		int batchSize = Math.max(1, properties.getWriteBehind().getBatchSize());
+		List<Write> batch;
+		while(!(batch = drain(batchSize)).isEmpty()){
+			long start = System.nanoTime();
+			try {
+				write(batch);
+			} catch (RuntimeException e) {
+				failedFlushCount.increment();
+				requeue(batch);
+				throw e;
+			}
+			complete(batch);
+			long elapsed = System.nanoTime() - start;
+			flushCount.increment();
+			flushNanos.add(elapsed);
+			flushedKeys.add(batch.size());
+			lastFlushNanos.set(elapsed);
+			maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		flusher.shutdown();
+		long deadline = System.currentTimeMillis() + properties.getWriteBehind().getShutdownTimeout();
+		long backoff = MIN_SHUTDOWN_BACKOFF;
+		while(getQueueDepth() > 0 && System.currentTimeMillis() < deadline){
+			if(flushQuietly()){
+				backoff = MIN_SHUTDOWN_BACKOFF;
+				continue;
+			}
+			//redis不可用时不要空转重试，等待一段时间后再写入
+			try {
+				Thread.sleep(Math.max(1, Math.min(backoff, deadline - System.currentTimeMillis())));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			backoff = Math.min(backoff * 2, MAX_SHUTDOWN_BACKOFF);
+		}
+		int remaining = getQueueDepth();
+		if(remaining > 0){
+			logger.error("【redis异步写入】应用关闭时未能写入全部缓冲, 丢弃key数量={}", remaining);
+		}
+	}
+
+	@ManagedAttribute(description = "缓冲中待写入的key数量")
+	public int getQueueDepth(){
+		lock.lock();
+		try {
+			return buffer.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@ManagedAttribute(description = "进入缓冲的写入次数")
+	public long getEnqueuedCount(){
+		return enqueuedCount.sum();
+	}
+
+	@ManagedAttribute(description = "被同一个key后续写入覆盖的写入次数")
+	public long getCoalescedCount(){
+		return coalescedCount.sum();
+	}
+
+	@ManagedAttribute(description = "缓冲已满时丢弃的写入次数")
+	public long getDiscardedCount(){
+		return discardedCount.sum();
+	}
+
+	@ManagedAttribute(description = "缓冲已满时抛出异常的写入次数")
+	public long getRejectedCount(){
+		return rejectedCount.sum();
+	}
+
+	@ManagedAttribute(description = "缓冲已满时由调用线程直接写入的次数")
+	public long getCallerRunsCount(){
+		return callerRunsCount.sum();
+	}
+
+	@ManagedAttribute(description = "已写入redis的key数量")
+	public long getFlushedKeys(){
+		return flushedKeys.sum();
+	}
+
+	@ManagedAttribute(description = "写入失败的批次数")
+	public long getFailedFlushCount(){
+		return failedFlushCount.sum();
+	}
+
+	@ManagedAttribute(description = "最近一次批量写入耗时（毫秒）")
+	public double getLastFlushMillis(){
+		return lastFlushNanos.get() / 1000000.0;
+	}
+
+	@ManagedAttribute(description = "最大批量写入耗时（毫秒）")
+	public double getMaxFlushMillis(){
+		return maxFlushNanos.get() / 1000000.0;
+	}
+
+	@ManagedAttribute(description = "平均批量写入耗时（毫秒）")
+	public double getAverageFlushMillis(){
+		long count = flushCount.sum();
+		return count == 0 ? 0 : flushNanos.sum() / 1000000.0 / count;
+	}
+
+	private void enqueue(Write write){
+		XhRedisProperties.WriteBehind config = properties.getWriteBehind();
+		int size;
+		lock.lock();
+		try {
+			while(true){
+				if(buffer.containsKey(write.key)){
+					//覆盖已有的值，保持该key在缓冲中的位置
+					buffer.put(write.key, write);
+					coalescedCount.increment();
+					enqueuedCount.increment();
+					return;
+				}
+				if(buffer.size() < config.getCapacity() || awaitCapacity(config)){
+					buffer.put(write.key, write);
+					enqueuedCount.increment();
+					size = buffer.size();
+					break;
+				}
+				if(overflowPolicy != OverflowPolicy.CALLER_RUNS){
+					return;
+				}
+				if(!inFlight.containsKey(write.key)){
+					inFlight.put(write.key, write);
+					size = -1;
+					break;
+				}
+				//同一个key的上一次写入尚未完成，直接写入可能先于它到达redis，等待完成后重新判断
+				awaitWritten();
+			}
+		} finally {
+			lock.unlock();
+		}
+		if(size < 0){
+			callerRuns(write);
+			return;
+		}
+		if(size >= config.getBatchSize() && flushScheduled.compareAndSet(false, true)){
+			flusher.execute(() -> {
+				flushScheduled.set(false);
+				flushQuietly();
+			});
+		}
+	}
+
+	/**
+	 * 缓冲已满时按overflow-policy处理，持有锁时调用
+	 * @return true-缓冲已有空位，可以放入缓冲 false-已处理完毕，不放入缓冲
+	 */
+	private boolean awaitCapacity(XhRedisProperties.WriteBehind config){
+		switch (overflowPolicy) {
+		case BLOCK:
+			long nanos = TimeUnit.MILLISECONDS.toNanos(config.getBlockTimeout());
+			try {
+				while(buffer.size() >= config.getCapacity()){
+					if(nanos <= 0){
+						rejectedCount.increment();
+						throw new IllegalStateException("redis异步写入缓冲已满，等待超时");
+					}
+					nanos = notFull.awaitNanos(nanos);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				rejectedCount.increment();
+				throw new IllegalStateException("redis异步写入等待缓冲时被中断", e);
+			}
+			return true;
+		case CALLER_RUNS:
+			return false;
+		case DISCARD:
+			discardedCount.increment();
+			return false;
+		default:
+			rejectedCount.increment();
+			throw new IllegalStateException("redis异步写入缓冲已满");
+		}
+	}
+
+	/**
+	 * 持有锁时等待正在写入的批次完成
+	 */
+	private void awaitWritten(){
+		try {
+			written.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			rejectedCount.increment();
+			throw new IllegalStateException("redis异步写入等待同一个key的写入完成时被中断", e);
+		}
+	}
+
+	/**
+	 * 缓冲已满且为CALLER_RUNS时，由调用线程在锁外写入，写入前已登记为正在写入，
+	 * 期间同一个key的新写入留在缓冲中，不会被批量写入抢先
+	 */
+	private void callerRuns(Write write){
+		callerRunsCount.increment();
+		List<Write> single = new ArrayList<Write>(1);
+		single.add(write);
+		try {
+			write(single);
+		} finally {
+			complete(single);
+		}
+	}
+
+	/**
+	 * 按写入顺序取出最多batchSize个key并登记为正在写入，跳过仍在写入中的key（留到下一批）
+	 */
+	private List<Write> drain(int batchSize){
+		List<Write> batch = new ArrayList<Write>(Math.min(batchSize, 1024));
+		lock.lock();
+		try {
+			Iterator<Write> iterator = buffer.values().iterator();
+			while(iterator.hasNext() && batch.size() < batchSize){
+				Write write = iterator.next();
+				if(inFlight.containsKey(write.key)){
+					continue;
+				}
+				batch.add(write);
+				inFlight.put(write.key, write);
+				iterator.remove();
+			}
+			if(!batch.isEmpty()){
+				notFull.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return batch;
+	}
+
+	private void complete(List<Write> batch){
+		lock.lock();
+		try {
+			for(Write write : batch){
+				inFlight.remove(write.key, write);
+			}
+			written.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 写入失败的批次放回缓冲；写入期间同一个key已有新的写入时保留新的写入，不会用旧值覆盖
+	 */
+	private void requeue(List<Write> batch){
+		lock.lock();
+		try {
+			for(Write write : batch){
+				inFlight.remove(write.key, write);
+				buffer.putIfAbsent(write.key, write);
+			}
+			written.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void write(final List<Write> batch){
+		final RedisTemplate<String, Object> template = redisUtils.getTemplate();
+		guard.execute(XhRedisGuard.Operation.BULK, () -> pools.execute(XhRedisPools.Workload.BULK, null, template, pooled -> {
+			final RedisSerializer<String> keySerializer = (RedisSerializer<String>) pooled.getKeySerializer();
+			final RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) pooled.getValueSerializer();
+			return pooled.executePipelined((RedisCallback<Object>) connection -> {
+				for(Write write : batch){
+					byte[] rawKey = keySerializer.serialize(write.key);
+					if(write.delete){
+						connection.del(rawKey);
+					} else if(write.ttl > 0){
+						connection.set(rawKey, valueSerializer.serialize(write.value), Expiration.milliseconds(write.ttl),
+								RedisStringCommands.SetOption.upsert());
+					} else {
+						connection.set(rawKey, valueSerializer.serialize(write.value));
+					}
+				}
+				return null;
+			});
+		}));
+	}
+
+	/**
+	 * @return true-缓冲已全部写入 false-写入异常，失败的批次已放回缓冲
+	 */
+	private boolean flushQuietly(){
+		try {
+			flush();
+			return true;
+		} catch (Exception e) {
+			logger.error("【redis异步写入】批量写入异常, {}", e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * 一次待写入的操作，delete为true时表示删除
+	 */
+	private static final class Write {
+
+		private final String key;
+
+		private final Object value;
+
+		private final long ttl;
+
+		private final boolean delete;
+
+		Write(String key, Object value, long ttl, boolean delete) {
+			this.key = key;
+			this.value = value;
+			this.ttl = ttl;
+			this.delete = delete;
+		}
+	}
+}
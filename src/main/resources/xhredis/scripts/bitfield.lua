@@ -0,0 +1,3 @@
+-- SDR未封装BITFIELD命令，通过脚本执行
+-- KEYS[1] bitmap的key；ARGV BITFIELD子命令及参数
+return redis.call('BITFIELD', KEYS[1], unpack(ARGV))
@@ -0,0 +1,13 @@
+-- 布隆过滤器写入：版本号加1，以新版本号记录被修改的分段，再设置位图中的位，在一次脚本中原子完成
+-- KEYS[1] 位图key，KEYS[2] 版本号key，KEYS[3] 分段最后修改版本的zset
+-- ARGV[1] 分段数量n；ARGV[2..n+1] 被修改的分段序号；ARGV[n+2..] 需要设置为1的位偏移量
+-- 返回新版本号
+local segments = tonumber(ARGV[1])
+local version = redis.call('INCR', KEYS[2])
+for i = 2, segments + 1 do
+	redis.call('ZADD', KEYS[3], version, ARGV[i])
+end
+for i = segments + 2, #ARGV do
+	redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+end
+return version
@@ -0,0 +1,15 @@
+-- 向list推入元素并裁剪到最大长度
+-- KEYS[1] list的key
+-- ARGV[1] 最大长度；ARGV[2] LEFT-头部推入并保留头部，RIGHT-尾部推入并保留尾部；ARGV[3] 过期时间(毫秒)，0表示不设置；ARGV[4..] 元素
+-- 返回裁剪后的list长度
+local max = tonumber(ARGV[1])
+local ttl = tonumber(ARGV[3])
+if ARGV[2] == 'RIGHT' then
+	redis.call('RPUSH', KEYS[1], unpack(ARGV, 4))
+	redis.call('LTRIM', KEYS[1], -max, -1)
+else
+	redis.call('LPUSH', KEYS[1], unpack(ARGV, 4))
+	redis.call('LTRIM', KEYS[1], 0, max - 1)
+end
+if ttl > 0 then redis.call('PEXPIRE', KEYS[1], ttl) end
+return redis.call('LLEN', KEYS[1])
@@ -0,0 +1,14 @@
+-- 当前值与期望值相同时设置新值，保留原有的过期时间
+-- KEYS[1] 缓存的key
+-- ARGV[1] ABSENT-期望key不存在，EQUAL-期望当前值等于ARGV[2]；ARGV[2] 期望值；ARGV[3] 新值
+-- 返回1表示已设置，0表示当前值与期望值不同
+local current = redis.call('GET', KEYS[1])
+if ARGV[1] == 'ABSENT' then
+	if current then return 0 end
+elseif current ~= ARGV[2] then
+	return 0
+end
+local ttl = redis.call('PTTL', KEYS[1])
+redis.call('SET', KEYS[1], ARGV[3])
+if ttl > 0 then redis.call('PEXPIRE', KEYS[1], ttl) end
+return 1
@@ -0,0 +1,5 @@
+-- 从就绪list头部一次取出最多ARGV[1]个元素
+-- KEYS[1] 就绪list
+local items = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1)
+if #items > 0 then redis.call('LTRIM', KEYS[1], #items, -1) end
+return items
@@ -0,0 +1,11 @@
+-- 将score小于等于ARGV[1]的元素（最多ARGV[2]个）从zset转移到就绪list
+-- KEYS[1] 延时zset；KEYS[2] 就绪list
+-- 返回zset中下一个元素的到期时间，zset为空时返回-1
+local items = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])
+if #items > 0 then
+	redis.call('ZREM', KEYS[1], unpack(items))
+	redis.call('RPUSH', KEYS[2], unpack(items))
+end
+local head = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+if #head == 0 then return -1 end
+return tonumber(head[2])
@@ -0,0 +1,8 @@
+-- 计数器增加ARGV[1]，计数器没有过期时间时（首次创建）设置过期时间ARGV[2](毫秒)
+-- KEYS[1] 计数器的key
+-- 返回增加后的值
+local value = redis.call('INCRBY', KEYS[1], ARGV[1])
+if redis.call('PTTL', KEYS[1]) == -1 then
+	redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return value
@@ -0,0 +1,10 @@
+-- 分布式锁加锁：key不存在或已过期（值为过期时间戳且小于ARGV[2]）时设置为ARGV[1]
+-- KEYS[1] 锁的key；ARGV[1] 锁的过期时间戳；ARGV[2] 当前时间戳
+-- 返回1表示加锁成功，0表示失败
+local current = redis.call('GET', KEYS[1])
+if current then
+	local expireAt = tonumber(current)
+	if not expireAt or expireAt >= tonumber(ARGV[2]) then return 0 end
+end
+redis.call('SET', KEYS[1], ARGV[1])
+return 1
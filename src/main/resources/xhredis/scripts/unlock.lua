@@ -0,0 +1,10 @@
+-- 分布式锁解锁：锁的值（过期时间戳）大于等于ARGV[1]时删除
+-- KEYS[1] 锁的key；ARGV[1] 加锁时的过期时间戳
+-- 返回删除的key数量
+local current = redis.call('GET', KEYS[1])
+if not current then return 0 end
+local expireAt = tonumber(current)
+if expireAt and tonumber(ARGV[1]) <= expireAt then
+	return redis.call('DEL', KEYS[1])
+end
+return 0
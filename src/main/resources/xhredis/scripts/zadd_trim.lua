@@ -0,0 +1,17 @@
+-- 向zset添加元素并裁剪到最大数量
+-- KEYS[1] zset的key
+-- ARGV[1] 最大数量；ARGV[2] HIGH-保留score最高的元素，LOW-保留score最低的元素；ARGV[3] 过期时间(毫秒)，0表示不设置；ARGV[4..] score和元素交替
+-- 返回新添加的元素数量（不含已存在只更新score的元素）
+local max = tonumber(ARGV[1])
+local ttl = tonumber(ARGV[3])
+local added = redis.call('ZADD', KEYS[1], unpack(ARGV, 4))
+local size = redis.call('ZCARD', KEYS[1])
+if size > max then
+	if ARGV[2] == 'LOW' then
+		redis.call('ZREMRANGEBYRANK', KEYS[1], max, -1)
+	else
+		redis.call('ZREMRANGEBYRANK', KEYS[1], 0, size - max - 1)
+	end
+end
+if ttl > 0 then redis.call('PEXPIRE', KEYS[1], ttl) end
+return added
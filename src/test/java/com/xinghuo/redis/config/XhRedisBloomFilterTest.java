@@ -0,0 +1,112 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisBloomFilterTest.java
+ *
+ *  Description     : 布隆过滤器本地快照只获取其他节点修改过的分段；
+ *                    使用XhRedisTestServer连接真实redis，连接不上时跳过
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisBloomFilterTest {
+
+	@Rule
+	public final XhRedisTestServer redis = new XhRedisTestServer();
+
+	private StringRedisTemplate template;
+
+	private XhRedisBloomFilter<String> writer;
+
+	private XhRedisBloomFilter<String> reader;
+
+	private String name;
+
+	@Before
+	public void setUp() {
+		name = "xhredis-test-bloom-" + UUID.randomUUID();
+	}
+
+	@After
+	public void tearDown() {
+		if(template != null){
+			writer.destroy();
+			reader.destroy();
+			template.delete(Arrays.asList("{" + name + "}:bloom", "{" + name + "}:bloom:version", "{" + name + "}:bloom:dirty"));
+		}
+	}
+
+	@Test
+	public void dirtySegmentsAreDistinct() {
+		long segmentBits = XhRedisBloomFilter.SEGMENT_BYTES * 8L;
+		Set<Long> segments = XhRedisBloomFilter.dirtySegments(new long[] { 0, 7, segmentBits - 1, segmentBits, 5 * segmentBits + 3 });
+		assertEquals(Arrays.asList(0L, 1L, 5L), new ArrayList<Long>(segments));
+	}
+
+	@Test
+	public void refreshFetchesOnlyModifiedSegments() {
+		connect();
+		writer = filter();
+		reader = filter();
+		writer.create(name, 1000000, 0.01);
+		reader.create(name, 1000000, 0.01);
+		writer.put(name, "x");
+		reader.refresh(name);
+		assertTrue(reader.mightContain(name, "x"));
+
+		writer.put(name, "y");
+		Set<String> dirty = template.opsForZSet().range("{" + name + "}:bloom:dirty", 0, -1);
+		long untouched = 0;
+		while(dirty.contains(String.valueOf(untouched))){
+			untouched++;
+		}
+		long offset = untouched * XhRedisBloomFilter.SEGMENT_BYTES * 8;
+		template.opsForValue().setBit("{" + name + "}:bloom", offset, true);
+		reader.refresh(name);
+
+		assertTrue(reader.mightContain(name, "y"));
+		assertEquals("2", template.opsForValue().get("{" + name + "}:bloom:version"));
+		byte[] snapshot = snapshot(reader);
+		assertFalse((snapshot[(int) (offset >>> 3)] & 0x80) != 0);
+	}
+
+	private void connect() {
+		template = redis.template();
+	}
+
+	private XhRedisBloomFilter<String> filter() {
+		XhRedisProperties properties = new XhRedisProperties();
+		properties.getBloom().setRefreshInterval(600000);
+		XhRedisBloomFilter<String> filter = new XhRedisBloomFilter<String>();
+		ReflectionTestUtils.setField(filter, "redisTemplate", template);
+		ReflectionTestUtils.setField(filter, "properties", properties);
+		return filter;
+	}
+
+	private byte[] snapshot(XhRedisBloomFilter<String> filter) {
+		Map<?, ?> filters = (Map<?, ?>) ReflectionTestUtils.getField(filter, "filters");
+		return (byte[]) ReflectionTestUtils.getField(filters.get(name), "snapshot");
+	}
+}
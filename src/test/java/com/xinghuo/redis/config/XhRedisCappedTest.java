@@ -0,0 +1,115 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisCappedTest.java
+ *
+ *  Description     : 固定长度list/zset超过单次脚本元素数量时的pipeline写入经过熔断和BULK连接池
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisCappedTest {
+
+	private XhRedisGuard guard;
+
+	private XhRedisPools pools;
+
+	private RedisTemplate<String, String> template;
+
+	private XhRedisUtils<String> redisUtils;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		XhRedisProperties properties = new XhRedisProperties();
+		properties.getGuard().setMinimumCalls(1);
+		properties.getGuard().setFailureRateThreshold(1);
+		properties.getGuard().setOpenDuration(60000);
+		guard = new XhRedisGuard();
+		ReflectionTestUtils.setField(guard, "properties", properties);
+		guard.afterPropertiesSet();
+		pools = mock(XhRedisPools.class);
+		template = mock(RedisTemplate.class);
+		redisUtils = new XhRedisUtils<String>();
+		ReflectionTestUtils.setField(redisUtils, "redisTemplate", template);
+		ReflectionTestUtils.setField(redisUtils, "guard", guard);
+		ReflectionTestUtils.setField(redisUtils, "pools", pools);
+		ReflectionTestUtils.setField(redisUtils, "properties", properties);
+	}
+
+	@After
+	public void tearDown() {
+		guard.destroy();
+	}
+
+	@Test
+	public void largeListAddUsesBulkPool() {
+		when(pools.execute(any(), any(), any(), any())).thenReturn(Arrays.<Object>asList(1L, 2L, 3L));
+		assertEquals(Long.valueOf(3), redisUtils.cappedList("recent", 5000).addAll(elements(XhRedisCappedList.SCRIPT_BATCH_SIZE + 1)));
+		verify(pools).execute(eq(XhRedisPools.Workload.BULK), eq("recent"), same(template), any());
+	}
+
+	@Test
+	public void largeZSetAddUsesBulkPool() {
+		when(pools.execute(any(), any(), any(), any())).thenReturn(Arrays.<Object>asList(1000L, 1L, 0L));
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		for(String element : elements(XhRedisCappedList.SCRIPT_BATCH_SIZE + 1)){
+			values.put(element, 1D);
+		}
+		assertEquals(1001, redisUtils.cappedZSet("top", 5000).addAll(values));
+		verify(pools).execute(eq(XhRedisPools.Workload.BULK), eq("top"), same(template), any());
+	}
+
+	@Test
+	public void largeAddFailsFastWhileBreakerIsOpen() {
+		try {
+			guard.execute(XhRedisGuard.Operation.BULK, () -> {
+				throw new RedisConnectionFailureException("连接失败");
+			});
+			fail();
+		} catch (RedisConnectionFailureException expected) {
+		}
+		try {
+			redisUtils.cappedList("recent", 5000).addAll(elements(XhRedisCappedList.SCRIPT_BATCH_SIZE + 1));
+			fail();
+		} catch (RedisConnectionFailureException expected) {
+		}
+		verifyZeroInteractions(pools, template);
+	}
+
+	private static List<String> elements(int count) {
+		List<String> elements = new ArrayList<String>(count);
+		for(int i = 0; i < count; i++){
+			elements.add("e" + i);
+		}
+		return elements;
+	}
+}
@@ -0,0 +1,57 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisConnectionInitializerTest.java
+ *
+ *  Description     : 不共用原生连接时必须配置连接池
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisConnectionInitializerTest {
+
+	private XhRedisProperties properties;
+
+	private XhRedisConnectionInitializer initializer;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		properties = new XhRedisProperties();
+		properties.getLettuce().setShareNativeConnection(false);
+		ObjectProvider<XhRedisProperties> provider = mock(ObjectProvider.class);
+		when(provider.getObject()).thenReturn(properties);
+		initializer = new XhRedisConnectionInitializer(provider);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void dedicatedConnectionsRequireAPool() {
+		initializer.postProcessBeforeInitialization(new LettuceConnectionFactory(new RedisStandaloneConfiguration(),
+				LettuceClientConfiguration.defaultConfiguration()), "redisConnectionFactory");
+	}
+
+	@Test
+	public void dedicatedConnectionsUseThePool() {
+		LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(),
+				LettucePoolingClientConfiguration.defaultConfiguration());
+		initializer.postProcessBeforeInitialization(factory, "redisConnectionFactory");
+		assertFalse(factory.getShareNativeConnection());
+	}
+}
@@ -0,0 +1,101 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisCounterTest.java
+ *
+ *  Description     : 计数器按命令结果确认提交、回收空闲计数单元、使用模板的key序列化；
+ *                    使用XhRedisTestServer连接真实redis，连接不上时跳过
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisCounterTest {
+
+	@Rule
+	public final XhRedisTestServer redis = new XhRedisTestServer();
+
+	private StringRedisTemplate template;
+
+	private XhRedisCounter counter;
+
+	private String prefix;
+
+	@Before
+	public void setUp() {
+		template = redis.template();
+		prefix = "xhredis:test:counter:" + UUID.randomUUID() + ":";
+		XhRedisProperties properties = new XhRedisProperties();
+		properties.getCounter().setFlushInterval(600000);
+		counter = new XhRedisCounter();
+		ReflectionTestUtils.setField(counter, "stringRedisTemplate", template);
+		ReflectionTestUtils.setField(counter, "properties", properties);
+		counter.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		if(template != null){
+			counter.destroy();
+			template.delete(template.keys(prefix + "*"));
+		}
+	}
+
+	@Test
+	public void failedCommandDoesNotResendSucceededOnes() {
+		template.opsForValue().set(prefix + "string", "x");
+		counter.increment(prefix + "ok", 5);
+		counter.hIncrement(prefix + "string", "field", 1);
+		counter.flush();
+		counter.flush();
+		assertEquals(5, counter.get(prefix + "ok", false));
+		template.delete(prefix + "string");
+		counter.flush();
+		assertEquals(5, counter.get(prefix + "ok", false));
+		assertEquals(1, counter.hGet(prefix + "string", "field", false));
+	}
+
+	@Test
+	public void idleCellsAreEvictedAndKeepCounting() {
+		counter.increment(prefix + "idle", 2);
+		for(int i = 0; i <= XhRedisCounter.EVICT_IDLE_FLUSHES; i++){
+			counter.flush();
+		}
+		assertTrue(cells().isEmpty());
+		counter.increment(prefix + "idle", 3);
+		assertEquals(5, counter.get(prefix + "idle", true));
+		counter.flush();
+		assertEquals(5, counter.get(prefix + "idle", false));
+	}
+
+	@Test
+	public void keysUseTemplateSerializer() {
+		template.setKeySerializer(new XhRedisNamespaceSerializer(prefix + "tenant:"));
+		counter.increment("visits", 7);
+		counter.flush();
+		template.setKeySerializer(new StringRedisSerializer());
+		assertEquals("7", template.opsForValue().get(prefix + "tenant:visits"));
+	}
+
+	private Map<?, ?> cells() {
+		return (Map<?, ?>) ReflectionTestUtils.getField(counter, "cells");
+	}
+}
@@ -0,0 +1,117 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.redis.connection.RedisGeoCommands.DistanceUnit;
+import org.springframework.data.redis.connection.RedisGeoCommands.GeoLocation;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisGeoTest.java
+ *
+ *  Description     : 带本地缓存的半径查询按真实中心点返回结果，候选被截断时结果不变，geo写入清除缓存；
+ *                    使用XhRedisTestServer连接真实redis，连接不上时跳过
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisGeoTest {
+
+	@Rule
+	public final XhRedisTestServer redis = new XhRedisTestServer();
+
+	private StringRedisTemplate template;
+
+	private XhRedisProperties properties;
+
+	private XhRedisUtils<String> redisUtils;
+
+	private String key;
+
+	@Before
+	public void setUp() {
+		template = redis.template();
+		properties = new XhRedisProperties();
+		properties.getGeo().setCacheTtl(60000);
+		properties.getGeo().setCacheCoordinateScale(2);
+		redisUtils = new XhRedisUtils<String>();
+		ReflectionTestUtils.setField(redisUtils, "redisTemplate", template);
+		ReflectionTestUtils.setField(redisUtils, "properties", properties);
+		key = "xhredis:test:geo:" + UUID.randomUUID();
+	}
+
+	@After
+	public void tearDown() {
+		if(template != null){
+			template.delete(key);
+		}
+	}
+
+	@Test
+	public void cachedRadiusMatchesUncachedAtTheRealPoint() {
+		for(int i = 0; i < 40; i++){
+			redisUtils.geoAdd(key, 116.40 + i * 0.0005, 39.90 + (i % 7) * 0.0004, "m" + i);
+		}
+		Distance radius = new Distance(0.8, DistanceUnit.KILOMETERS);
+		double[][] centres = {{116.4041, 39.9013}, {116.4049, 39.9001}, {116.4120, 39.9020}};
+		for(double[] centre : centres){
+			assertEquals(names(redisUtils.geoRadius(key, centre[0], centre[1], radius, 5)),
+					names(redisUtils.geoRadiusCached(key, centre[0], centre[1], radius, 5)));
+			assertEquals(names(redisUtils.geoRadius(key, centre[0], centre[1], radius, 0)),
+					names(redisUtils.geoRadiusCached(key, centre[0], centre[1], radius, 0)));
+		}
+		GeoResult<GeoLocation<String>> nearest = redisUtils.geoRadiusCached(key, 116.4041, 39.9013, radius, 1).getContent().get(0);
+		assertEquals(redisUtils.geoRadius(key, 116.4041, 39.9013, radius, 1).getContent().get(0).getDistance().getValue(),
+				nearest.getDistance().getValue(), 0.001);
+	}
+
+	@Test
+	public void truncatedCandidatesStillMatchUncached() {
+		properties.getGeo().setCacheMaxCandidates(10);
+		for(int i = 0; i < 40; i++){
+			redisUtils.geoAdd(key, 116.40 + i * 0.0005, 39.90 + (i % 7) * 0.0004, "m" + i);
+		}
+		Distance radius = new Distance(0.8, DistanceUnit.KILOMETERS);
+		double[][] centres = {{116.4041, 39.9013}, {116.4049, 39.9001}, {116.4120, 39.9020}};
+		for(double[] centre : centres){
+			for(long count : new long[] { 3, 10, 20, 0 }){
+				assertEquals(names(redisUtils.geoRadius(key, centre[0], centre[1], radius, count)),
+						names(redisUtils.geoRadiusCached(key, centre[0], centre[1], radius, count)));
+			}
+		}
+	}
+
+	@Test
+	public void geoAddInvalidatesCachedRadius() {
+		Distance radius = new Distance(500, DistanceUnit.METERS);
+		redisUtils.geoAdd(key, 116.40, 39.90, "a");
+		assertEquals(1, redisUtils.geoRadiusCached(key, 116.40, 39.90, radius, 0).getContent().size());
+		redisUtils.geoAdd(key, 116.4001, 39.9001, "b");
+		assertEquals(2, redisUtils.geoRadiusCached(key, 116.40, 39.90, radius, 0).getContent().size());
+	}
+
+	private static List<String> names(GeoResults<GeoLocation<String>> results) {
+		List<String> names = new ArrayList<String>();
+		for(GeoResult<GeoLocation<String>> result : results){
+			names.add(result.getContent().getName());
+		}
+		return names;
+	}
+}
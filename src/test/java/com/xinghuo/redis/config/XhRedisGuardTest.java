@@ -0,0 +1,160 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisGuardTest.java
+ *
+ *  Description     : 熔断器状态机、连接池拒绝、本地降级缓存失效与版本
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisGuardTest {
+
+	private XhRedisProperties properties;
+
+	private XhRedisGuard guard;
+
+	@Before
+	public void setUp() {
+		properties = new XhRedisProperties();
+		properties.getGuard().setMinimumCalls(1);
+		properties.getGuard().setFailureRateThreshold(1);
+		properties.getGuard().setHalfOpenCalls(1);
+		guard = new XhRedisGuard();
+		ReflectionTestUtils.setField(guard, "properties", properties);
+	}
+
+	@After
+	public void tearDown() {
+		guard.destroy();
+	}
+
+	@Test
+	public void halfOpenPermitIsReturnedWhenTrialFailsWithNonRedisException() {
+		properties.getGuard().setOpenDuration(0);
+		guard.afterPropertiesSet();
+		openBreaker();
+		try {
+			guard.execute(XhRedisGuard.Operation.READ, () -> {
+				throw new IllegalStateException("序列化异常");
+			});
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals("HALF_OPEN", guard.getState());
+		assertEquals("ok", guard.execute(XhRedisGuard.Operation.READ, () -> "ok"));
+		assertEquals("CLOSED", guard.getState());
+	}
+
+	@Test
+	public void poolRejectionDoesNotOpenBreaker() {
+		guard.afterPropertiesSet();
+		try {
+			guard.execute(XhRedisGuard.Operation.READ, () -> {
+				throw new XhRedisGuard.PoolRejectedException("连接池已满");
+			});
+			fail();
+		} catch (XhRedisGuard.PoolRejectedException expected) {
+		}
+		assertEquals("CLOSED", guard.getState());
+		assertEquals(1, guard.getRejectedCount());
+	}
+
+	@Test
+	public void callRunsOnCallerThread() {
+		guard.afterPropertiesSet();
+		assertEquals(Thread.currentThread(), guard.execute(XhRedisGuard.Operation.READ, Thread::currentThread));
+	}
+
+	@Test
+	public void readOverlappingWriteDoesNotCacheOldValue() throws Exception {
+		properties.getGuard().setOpenDuration(60000);
+		properties.getGuard().setFallbackCacheSize(10);
+		guard.afterPropertiesSet();
+		final CountDownLatch reading = new CountDownLatch(1);
+		final CountDownLatch written = new CountDownLatch(1);
+		Thread reader = new Thread(() -> guard.readKey("k1", () -> {
+			reading.countDown();
+			try {
+				written.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "old";
+		}));
+		reader.start();
+		reading.await();
+		guard.invalidate("k1");
+		guard.invalidate("k1");
+		written.countDown();
+		reader.join(5000);
+		openBreaker();
+		assertNull(guard.readKey("k1", () -> "unreachable"));
+	}
+
+	@Test
+	public void unchangedValueIsNotRewritten() {
+		properties.getGuard().setFallbackCacheSize(10);
+		guard.afterPropertiesSet();
+		guard.readKey("k1", () -> new String("v1"));
+		Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(guard, "fallbackCache");
+		Object entry = cache.get("k1");
+		guard.readKey("k1", () -> new String("v1"));
+		assertTrue(entry == cache.get("k1"));
+	}
+
+	@Test
+	public void invalidatedKeyIsNotServedWhileOpen() {
+		properties.getGuard().setOpenDuration(60000);
+		properties.getGuard().setFallbackCacheSize(10);
+		guard.afterPropertiesSet();
+		assertEquals("v1", guard.readKey("k1", () -> "v1"));
+		assertEquals("v2", guard.readKey("k2", () -> "v2"));
+		guard.invalidate("k1");
+		openBreaker();
+		assertNull(guard.readKey("k1", () -> "unreachable"));
+		assertEquals("v2", guard.readKey("k2", () -> "unreachable"));
+	}
+
+	@Test
+	public void fallbackCacheIsBounded() {
+		properties.getGuard().setFallbackCacheSize(16);
+		guard.afterPropertiesSet();
+		for(int i = 0; i < 100; i++){
+			final String value = "v" + i;
+			guard.readKey("k" + i, () -> value);
+		}
+		Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(guard, "fallbackCache");
+		assertTrue(cache.size() <= 16);
+	}
+
+	private void openBreaker() {
+		try {
+			guard.execute(XhRedisGuard.Operation.READ, () -> {
+				throw new RedisConnectionFailureException("连接失败");
+			});
+			fail();
+		} catch (RedisConnectionFailureException expected) {
+		}
+		assertTrue(!"CLOSED".equals(guard.getState()));
+	}
+}
@@ -0,0 +1,171 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisHyperLogLogBufferTest.java
+ *
+ *  Description     : HyperLogLog批量PFADD因连接异常或超时失败时元素合并回本地缓冲，部分命令失败时只重试超时的key，
+ *                    其他错误丢弃元素不再重试
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisHyperLogLogBufferTest {
+
+	private RedisTemplate<String, String> template;
+
+	private XhRedisHyperLogLogBuffer<String> buffer;
+
+	/**
+	 * 每次pipeline提交的PFADD，key -> 元素
+	 */
+	private final List<Map<String, Set<String>>> pipelines = new ArrayList<Map<String, Set<String>>>();
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		XhRedisProperties properties = new XhRedisProperties();
+		properties.getHyperLogLog().setFlushInterval(60000);
+		template = mock(RedisTemplate.class);
+		doReturn(new StringRedisSerializer()).when(template).getKeySerializer();
+		doReturn(new StringRedisSerializer()).when(template).getValueSerializer();
+		buffer = new XhRedisHyperLogLogBuffer<String>();
+		ReflectionTestUtils.setField(buffer, "redisTemplate", template);
+		ReflectionTestUtils.setField(buffer, "properties", properties);
+		buffer.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		buffer.destroy();
+	}
+
+	@Test
+	public void connectionFailureKeepsDrainedValues() {
+		when(template.executePipelined(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("连接失败"));
+		buffer.add("uv:a", "u1");
+		buffer.add("uv:b", "u2");
+		try {
+			buffer.flush();
+			fail();
+		} catch (RedisConnectionFailureException expected) {
+		}
+		buffer.add("uv:a", "u3");
+		succeed();
+		buffer.flush();
+		assertEquals(new HashSet<String>(Arrays.asList("u1", "u3")), pipelines.get(0).get("uv:a"));
+		assertEquals(new HashSet<String>(Arrays.asList("u2")), pipelines.get(0).get("uv:b"));
+	}
+
+	@Test
+	public void otherFailuresDropDrainedValues() {
+		when(template.executePipelined(any(RedisCallback.class))).thenThrow(new RedisSystemException("ERR", new IllegalStateException("ERR")));
+		buffer.add("uv:a", "u1");
+		try {
+			buffer.flush();
+			fail();
+		} catch (RedisSystemException expected) {
+		}
+		buffer.add("uv:a", "u3");
+		succeed();
+		buffer.flush();
+		assertEquals(new HashSet<String>(Arrays.asList("u3")), pipelines.get(0).get("uv:a"));
+	}
+
+	@Test
+	public void onlyTimedOutCommandsAreRetried() {
+		doAnswer(invocation -> {
+			List<String> keys = pfAdd(invocation.getArgument(0));
+			List<Object> results = new ArrayList<Object>();
+			for(String key : keys){
+				if("uv:slow".equals(key)){
+					results.add(new QueryTimeoutException("超时"));
+				} else if("uv:wrongtype".equals(key)){
+					results.add(new RedisSystemException("WRONGTYPE", new IllegalStateException("WRONGTYPE")));
+				} else {
+					results.add(1L);
+				}
+			}
+			throw new RedisPipelineException("部分命令失败", results);
+		}).when(template).executePipelined(any(RedisCallback.class));
+		buffer.add("uv:good", "u1");
+		buffer.add("uv:slow", "u2");
+		buffer.add("uv:wrongtype", "u3");
+		buffer.flush();
+		succeed();
+		buffer.flush();
+		assertEquals(2, pipelines.size());
+		assertEquals(1, pipelines.get(1).size());
+		assertEquals(new HashSet<String>(Arrays.asList("u2")), pipelines.get(1).get("uv:slow"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void succeed() {
+		doAnswer(invocation -> {
+			List<Object> results = new ArrayList<Object>();
+			for(int i = pfAdd(invocation.getArgument(0)).size(); i > 0; i--){
+				results.add(1L);
+			}
+			return results;
+		}).when(template).executePipelined(any(RedisCallback.class));
+	}
+
+	/**
+	 * 执行pipeline回调，记录PFADD的key和元素，返回每条命令的key
+	 */
+	private List<String> pfAdd(RedisCallback<?> callback) {
+		final List<String> keys = new ArrayList<String>();
+		final Map<String, Set<String>> pipeline = new HashMap<String, Set<String>>();
+		RedisConnection connection = mock(RedisConnection.class, invocation -> {
+			if(!"pfAdd".equals(invocation.getMethod().getName())){
+				return null;
+			}
+			String key = new String((byte[]) invocation.getArgument(0), StandardCharsets.UTF_8);
+			keys.add(key);
+			Set<String> values = pipeline.computeIfAbsent(key, k -> new HashSet<String>());
+			for(Object raw : Arrays.copyOfRange(invocation.getArguments(), 1, invocation.getArguments().length)){
+				for(byte[] value : raw instanceof byte[][] ? (byte[][]) raw : new byte[][] {(byte[]) raw}){
+					values.add(new String(value, StandardCharsets.UTF_8));
+				}
+			}
+			return null;
+		});
+		callback.doInRedis(connection);
+		pipelines.add(pipeline);
+		return keys;
+	}
+}
@@ -0,0 +1,125 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisLoadingCacheTest.java
+ *
+ *  Description     : 读穿缓存同一个key只加载一次，写入、删除作废正在进行的加载；
+ *                    使用XhRedisTestServer连接真实redis，连接不上时跳过
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisLoadingCacheTest {
+
+	@Rule
+	public final XhRedisTestServer redis = new XhRedisTestServer();
+
+	private StringRedisTemplate template;
+
+	private XhRedisProperties properties;
+
+	private XhRedisGuard guard;
+
+	private XhRedisPools pools;
+
+	private String key;
+
+	private final CountDownLatch loading = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Before
+	public void setUp() {
+		template = redis.template();
+		properties = new XhRedisProperties();
+		guard = new XhRedisGuard();
+		ReflectionTestUtils.setField(guard, "properties", properties);
+		guard.afterPropertiesSet();
+		pools = new XhRedisPools(null, properties, null);
+		pools.afterPropertiesSet();
+		key = "xhredis:test:loading:" + UUID.randomUUID();
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		if(template != null){
+			template.delete(key);
+			guard.destroy();
+		}
+	}
+
+	@Test
+	public void concurrentMissesLoadOnce() throws Exception {
+		XhRedisLoadingCache<String> cache = cache();
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get(key));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get(key));
+		Thread.sleep(100);
+		release.countDown();
+		assertEquals("db", first.get(5, TimeUnit.SECONDS));
+		assertEquals("db", second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, loads.get());
+		assertEquals("db", template.opsForValue().get(key));
+	}
+
+	@Test
+	public void putSupersedesInFlightLoad() throws Exception {
+		XhRedisLoadingCache<String> cache = cache();
+		CompletableFuture<String> reader = CompletableFuture.supplyAsync(() -> cache.get(key));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		cache.put(key, "new");
+		release.countDown();
+		reader.get(5, TimeUnit.SECONDS);
+		assertEquals("new", template.opsForValue().get(key));
+		assertEquals("new", cache.get(key));
+	}
+
+	@Test
+	public void removeSupersedesInFlightLoad() throws Exception {
+		XhRedisLoadingCache<String> cache = cache();
+		CompletableFuture<String> reader = CompletableFuture.supplyAsync(() -> cache.get(key));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		cache.remove(key);
+		release.countDown();
+		reader.get(5, TimeUnit.SECONDS);
+		assertNull(template.opsForValue().get(key));
+	}
+
+	private XhRedisLoadingCache<String> cache() {
+		return new XhRedisLoadingCache<String>(template, guard, pools, properties.getLoadingCache(), k -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "db";
+		}, null, 60000);
+	}
+}
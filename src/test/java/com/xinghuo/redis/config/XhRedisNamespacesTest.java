@@ -0,0 +1,96 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisNamespacesTest.java
+ *
+ *  Description     : 命名空间key数量统计按前缀归属、value大小只统计读取到的value
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisNamespacesTest {
+
+	private XhRedisProperties properties;
+
+	private XhRedisNamespaces namespaces;
+
+	@Before
+	public void setUp() {
+		properties = new XhRedisProperties();
+		namespaces = new XhRedisNamespaces();
+		ReflectionTestUtils.setField(namespaces, "properties", properties);
+		ReflectionTestUtils.setField(namespaces, "reconcileStartedAt", System.currentTimeMillis());
+	}
+
+	@Test
+	public void onePassCountsEveryNamespace() {
+		XhRedisNamespaces.Namespace tenant1 = register("tenant1", 2);
+		XhRedisNamespaces.Namespace nested = register("org:tenant2", 0);
+		XhRedisNamespaces.Namespace idle = register("tenant3", 0);
+		namespaces.count(raw("tenant1:a", "tenant1:b", "org:tenant2:a", "other:a", "nokey"));
+		namespaces.count(raw("tenant1:c"));
+		namespaces.publish();
+		assertEquals(3, tenant1.getKeyCount());
+		assertEquals(1, nested.getKeyCount());
+		assertEquals(0, idle.getKeyCount());
+		assertTrue(tenant1.isOverQuota());
+		assertEquals(1, tenant1.getQuotaViolations());
+		assertFalse(nested.isOverQuota());
+	}
+
+	@Test
+	public void flushedNamespaceIsNotOverwrittenByRunningPass() {
+		XhRedisNamespaces.Namespace tenant1 = register("tenant1", 0);
+		namespaces.count(raw("tenant1:a"));
+		tenant1.reset();
+		namespaces.publish();
+		assertEquals(0, tenant1.getKeyCount());
+	}
+
+	@Test
+	public void onlyValuesReadBackAreSampled() {
+		XhRedisNamespaces.Namespace tenant1 = register("tenant1", 0);
+		XhRedisNamespaces.Namespace.CountingSerializer<String> serializer = tenant1.new CountingSerializer<String>(new StringRedisSerializer());
+		serializer.serialize("member-used-as-argument");
+		namespaces.count(raw("tenant1:a"));
+		namespaces.publish();
+		assertEquals(0, tenant1.getEstimatedBytes() - "tenant1:a".length());
+		serializer.deserialize("0123456789".getBytes(StandardCharsets.UTF_8));
+		assertEquals("tenant1:a".length() + 10, tenant1.getEstimatedBytes());
+	}
+
+	@SuppressWarnings("unchecked")
+	private XhRedisNamespaces.Namespace register(String name, long maxKeys) {
+		XhRedisNamespaces.Namespace namespace = namespaces.new Namespace(name, new XhRedisNamespaceSerializer(name + ":"), maxKeys, 0);
+		((Map<String, XhRedisNamespaces.Namespace>) ReflectionTestUtils.getField(namespaces, "namespaces")).put(name, namespace);
+		return namespace;
+	}
+
+	private static List<byte[]> raw(String... keys) {
+		List<byte[]> rawKeys = new ArrayList<byte[]>();
+		for(String key : Arrays.asList(keys)){
+			rawKeys.add(key.getBytes(StandardCharsets.UTF_8));
+		}
+		return rawKeys;
+	}
+}
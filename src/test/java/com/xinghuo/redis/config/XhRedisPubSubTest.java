@@ -0,0 +1,104 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisPubSubTest.java
+ *
+ *  Description     : 分发队列满时不阻塞I/O线程，销毁时移除所有监听
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisPubSubTest {
+
+	private XhRedisProperties properties;
+
+	private RedisMessageListenerContainer container;
+
+	private XhRedisPubSub<Object> pubSub;
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Before
+	public void setUp() {
+		properties = new XhRedisProperties();
+		properties.getPubSub().setDispatchThreads(1);
+		properties.getPubSub().setQueueCapacity(1);
+		properties.getPubSub().setOverloadPolicy("drop_newest");
+		container = mock(RedisMessageListenerContainer.class);
+		pubSub = new XhRedisPubSub<Object>();
+		ReflectionTestUtils.setField(pubSub, "properties", properties);
+		ReflectionTestUtils.setField(pubSub, "container", container);
+		ReflectionTestUtils.setField(pubSub, "redisTemplate", mock(RedisTemplate.class));
+		pubSub.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		pubSub.destroy();
+	}
+
+	@Test
+	public void fullQueueNeverParksTheDispatchingThread() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		dispatch(() -> {
+			started.countDown();
+			awaitRelease();
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		dispatch(this::awaitRelease);
+		long begin = System.nanoTime();
+		dispatch(this::awaitRelease);
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < 50);
+		assertEquals(1, pubSub.getDroppedCount());
+	}
+
+	@Test
+	public void destroyRemovesAllListeners() {
+		pubSub.subscribe("a", message -> {
+		});
+		pubSub.pSubscribe("b.*", message -> {
+		});
+		XhRedisPubSub<Object>.Subscription cancelled = pubSub.subscribe("c", message -> {
+		});
+		cancelled.unsubscribe();
+		pubSub.destroy();
+		verify(container, times(3)).removeMessageListener(any(MessageListener.class), any(Topic.class));
+	}
+
+	private void dispatch(Runnable task) {
+		ReflectionTestUtils.invokeMethod(pubSub, "dispatch", "channel", task);
+	}
+
+	private void awaitRelease() {
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
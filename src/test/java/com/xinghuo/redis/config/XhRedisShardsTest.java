@@ -0,0 +1,139 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisShardsTest.java
+ *
+ *  Description     : 分片key生成、元素路由、分片并行执行的并发上限和嵌套调用，聚合不返回部分分片的结果
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisShardsTest {
+
+	@Test
+	public void shardKeysUseOwnHashTags() {
+		List<String> keys = XhRedisShards.shardKeys("users", 3);
+		assertEquals(Arrays.asList("{users:0}", "{users:1}", "{users:2}"), keys);
+		try {
+			XhRedisShards.shardKeys("{users}", 3);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			XhRedisShards.shardKeys("users", XhRedisShards.MAX_SHARDS + 1);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	@Test
+	public void shardIndexIsStable() {
+		byte[] raw = "member".getBytes(StandardCharsets.UTF_8);
+		int index = XhRedisShards.shardIndex(raw, 16);
+		assertTrue(index >= 0 && index < 16);
+		assertEquals(index, XhRedisShards.shardIndex("member".getBytes(StandardCharsets.UTF_8), 16));
+	}
+
+	@Test
+	public void parallelKeepsOrderAndCapsConcurrency() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger peak = new AtomicInteger();
+		List<Integer> results = XhRedisShards.parallel(XhRedisShards.MAX_SHARDS, shard -> {
+			peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			running.decrementAndGet();
+			return shard;
+		});
+		assertEquals(XhRedisShards.MAX_SHARDS, results.size());
+		for(int i = 0; i < results.size(); i++){
+			assertEquals(Integer.valueOf(i), results.get(i));
+		}
+		assertTrue(peak.get() <= XhRedisExecutors.SHARD_THREADS);
+	}
+
+	@Test(timeout = 10000)
+	public void nestedParallelRunsInCallerThread() {
+		List<Long> sums = XhRedisShards.parallel(XhRedisExecutors.SHARD_THREADS * 2,
+				shard -> XhRedisShards.parallelSum(XhRedisShards.indexes(4), i -> (long) i));
+		for(Long sum : sums){
+			assertEquals(Long.valueOf(6), sum);
+		}
+	}
+
+	@Test
+	public void failureStopsRemainingShards() {
+		final AtomicInteger executed = new AtomicInteger();
+		try {
+			XhRedisShards.parallel(XhRedisShards.MAX_SHARDS, shard -> {
+				executed.incrementAndGet();
+				throw new IllegalStateException("分片" + shard + "失败");
+			});
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		assertTrue(executed.get() <= XhRedisExecutors.SHARD_THREADS);
+	}
+
+	@Test
+	public void sumRejectsMissingShardResult() {
+		try {
+			XhRedisShards.parallelSum(XhRedisShards.indexes(4), shard -> shard == 2 ? null : 1L);
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void failedShardFailsTheAggregation() {
+		XhRedisProperties properties = new XhRedisProperties();
+		XhRedisGuard guard = new XhRedisGuard();
+		ReflectionTestUtils.setField(guard, "properties", properties);
+		guard.afterPropertiesSet();
+		XhRedisPools pools = mock(XhRedisPools.class);
+		when(pools.execute(any(), any(), any(), any())).thenAnswer(invocation -> {
+			if("{users:1}".equals(invocation.getArgument(1))){
+				throw new RedisConnectionFailureException("连接失败");
+			}
+			return 5L;
+		});
+		XhRedisUtils<String> redisUtils = new XhRedisUtils<String>();
+		ReflectionTestUtils.setField(redisUtils, "redisTemplate", mock(RedisTemplate.class));
+		ReflectionTestUtils.setField(redisUtils, "guard", guard);
+		ReflectionTestUtils.setField(redisUtils, "pools", pools);
+		ReflectionTestUtils.setField(redisUtils, "properties", properties);
+		try {
+			new XhRedisShardedSet<String>(redisUtils, "users", 4).size();
+			fail();
+		} catch (RedisConnectionFailureException expected) {
+		} finally {
+			guard.destroy();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandType;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisSlotSplitTest.java
+ *
+ *  Description     : 多key按slot拆分、slot分布、异步命令等待超时
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisSlotSplitTest {
+
+	@Test
+	public void slotMatchesRedisKeySlot() {
+		assertEquals(12182, XhRedisKeyUtils.slot("foo"));
+		assertEquals(XhRedisKeyUtils.slot("{user1000}.following"), XhRedisKeyUtils.slot("{user1000}.followers"));
+		assertEquals(XhRedisKeyUtils.slot("foo"), XhRedisKeyUtils.slot("foo".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void slotIndexesKeepInputOrderWithinSlot() {
+		List<String> keys = Arrays.asList("{a}:1", "{b}:1", "{a}:2", "{b}:2", "{a}:3");
+		Map<Integer, List<Integer>> slots = XhRedisKeyUtils.slotIndexes(raw(keys));
+		assertEquals(2, slots.size());
+		assertEquals(Arrays.asList(0, 2, 4), slots.get(XhRedisKeyUtils.slot("{a}")));
+		assertEquals(Arrays.asList(1, 3), slots.get(XhRedisKeyUtils.slot("{b}")));
+		assertEquals(Arrays.asList(XhRedisKeyUtils.slot("{a}"), XhRedisKeyUtils.slot("{b}")), new ArrayList<Integer>(slots.keySet()));
+	}
+
+	@Test
+	public void slotPlanGroupsByNodeThenSlot() {
+		List<String> keys = Arrays.asList("{a}:1", "{b}:1", "{c}:1", "{a}:2");
+		Map<Integer, List<Integer>> slots = XhRedisKeyUtils.slotIndexes(raw(keys));
+		Map<Integer, String> nodes = new HashMap<Integer, String>();
+		nodes.put(XhRedisKeyUtils.slot("{a}"), "10.0.0.1:6379");
+		nodes.put(XhRedisKeyUtils.slot("{b}"), "10.0.0.1:6379");
+		nodes.put(XhRedisKeyUtils.slot("{c}"), "10.0.0.2:6379");
+		XhRedisSlotPlan plan = new XhRedisSlotPlan(keys, slots, nodes);
+		assertEquals(2, plan.getNodeCount());
+		assertEquals(3, plan.getSlotCount());
+		assertEquals(Arrays.asList("{a}:1", "{a}:2"), plan.getSlots("10.0.0.1:6379").get(XhRedisKeyUtils.slot("{a}")));
+		assertEquals(1, plan.getSlots("10.0.0.2:6379").size());
+		assertTrue(plan.getSlots("10.0.0.3:6379").isEmpty());
+	}
+
+	@Test
+	public void standalonePlanIsOneNode() {
+		List<String> keys = Arrays.asList("x", "y", "z");
+		XhRedisSlotPlan plan = new XhRedisSlotPlan(keys, XhRedisKeyUtils.slotIndexes(raw(keys)), new HashMap<Integer, String>());
+		assertEquals(1, plan.getNodeCount());
+		assertTrue(plan.getNodes().contains(XhRedisSlotPlan.STANDALONE));
+	}
+
+	@Test
+	public void lostReplyTimesOutAndCancels() {
+		AsyncCommand<byte[], byte[], String> command = new AsyncCommand<byte[], byte[], String>(new Command<byte[], byte[], String>(CommandType.MSET, null));
+		long begin = System.currentTimeMillis();
+		try {
+			XhRedisFutures.await(command, 50);
+			fail();
+		} catch (QueryTimeoutException expected) {
+		}
+		assertTrue(System.currentTimeMillis() - begin < 5000);
+		assertTrue(command.isCancelled());
+	}
+
+	private static List<byte[]> raw(List<String> keys) {
+		List<byte[]> rawKeys = new ArrayList<byte[]>(keys.size());
+		for(String key : keys){
+			rawKeys.add(key.getBytes(StandardCharsets.UTF_8));
+		}
+		return rawKeys;
+	}
+}
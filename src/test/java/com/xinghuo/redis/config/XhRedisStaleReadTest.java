@@ -0,0 +1,90 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisStaleReadTest.java
+ *
+ *  Description     : 可读从节点的zset范围查询，读主节点和读从节点都经过熔断降级
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisStaleReadTest {
+
+	private XhRedisGuard guard;
+
+	private XhRedisPools pools;
+
+	private XhRedisReadRouter readRouter;
+
+	private XhRedisUtils<String> redisUtils;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		XhRedisProperties properties = new XhRedisProperties();
+		properties.getGuard().setMinimumCalls(1);
+		properties.getGuard().setFailureRateThreshold(1);
+		properties.getGuard().setOpenDuration(60000);
+		guard = new XhRedisGuard();
+		ReflectionTestUtils.setField(guard, "properties", properties);
+		guard.afterPropertiesSet();
+		pools = mock(XhRedisPools.class);
+		readRouter = mock(XhRedisReadRouter.class);
+		redisUtils = new XhRedisUtils<String>();
+		ReflectionTestUtils.setField(redisUtils, "redisTemplate", mock(RedisTemplate.class));
+		ReflectionTestUtils.setField(redisUtils, "guard", guard);
+		ReflectionTestUtils.setField(redisUtils, "pools", pools);
+		ReflectionTestUtils.setField(redisUtils, "readRouter", readRouter);
+		ReflectionTestUtils.setField(redisUtils, "properties", properties);
+	}
+
+	@After
+	public void tearDown() {
+		guard.destroy();
+	}
+
+	@Test
+	public void masterRangeFallsBackAndStopsCallingWhileOpen() {
+		when(readRouter.route(anyBoolean())).thenReturn(false);
+		when(pools.execute(any(), any(), any(), any())).thenThrow(new RedisConnectionFailureException("连接失败"));
+		assertNull(redisUtils.zRangeByScore("rank", 0, 10, false));
+		assertEquals("OPEN", guard.getState());
+		assertNull(redisUtils.zReverseRange("rank", 0, -1, false));
+		assertNull(redisUtils.zRangeByScore("rank", 0, 10, false));
+		verify(pools).execute(any(), any(), any(), any());
+		assertEquals(3, guard.getFallbackCount());
+	}
+
+	@Test
+	public void replicaRangeFallsBackAndStopsCallingWhileOpen() {
+		when(readRouter.route(anyBoolean())).thenReturn(true);
+		when(readRouter.read(any())).thenThrow(new RedisConnectionFailureException("连接失败"));
+		assertNull(redisUtils.zRangeByScore("rank", 0, 10, true));
+		assertEquals("OPEN", guard.getState());
+		assertNull(redisUtils.zReverseRange("rank", 0, -1, true));
+		verify(readRouter).read(any());
+		verify(pools, never()).execute(any(), any(), any(), any());
+		assertEquals(2, guard.getFallbackCount());
+	}
+}
@@ -0,0 +1,59 @@
+package com.xinghuo.redis.config;
+
+import org.junit.Assume;
+import org.junit.rules.ExternalResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisTestServer.java
+ *
+ *  Description     : 连接真实redis的测试规则，以@Rule声明，第一次调用template()时才连接，测试结束后关闭连接；
+ *                    redis地址通过系统属性xhredis.test.host、xhredis.test.port指定，连接不上时跳过
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisTestServer extends ExternalResource {
+
+	private LettuceConnectionFactory connectionFactory;
+
+	private StringRedisTemplate template;
+
+	/**
+	 * 获取连接到测试redis的模板，redis不可用时跳过当前测试
+	 */
+	public StringRedisTemplate template() {
+		if(template == null){
+			String host = System.getProperty("xhredis.test.host", "localhost");
+			int port = Integer.getInteger("xhredis.test.port", 6379);
+			LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+			factory.afterPropertiesSet();
+			try (RedisConnection connection = factory.getConnection()) {
+				connection.ping();
+			} catch (Exception e) {
+				factory.destroy();
+				Assume.assumeNoException("redis不可用，跳过", e);
+			}
+			connectionFactory = factory;
+			template = new StringRedisTemplate(factory);
+		}
+		return template;
+	}
+
+	@Override
+	protected void after() {
+		if(connectionFactory != null){
+			connectionFactory.destroy();
+			connectionFactory = null;
+			template = null;
+		}
+	}
+}
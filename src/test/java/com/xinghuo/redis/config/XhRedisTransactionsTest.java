@@ -0,0 +1,166 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisTransactionsTest.java
+ *
+ *  Description     : 乐观事务在真实redis上的冲突检测，在WATCH与EXEC之间由其他连接修改key，不需要写入时不执行事务，服务端原子更新；
+ *                    使用XhRedisTestServer连接真实redis，连接不上时跳过
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisTransactionsTest {
+
+	@Rule
+	public final XhRedisTestServer redis = new XhRedisTestServer();
+
+	private StringRedisTemplate template;
+
+	private XhRedisProperties properties;
+
+	private XhRedisTransactions transactions;
+
+	private String key;
+
+	@Before
+	public void setUp() {
+		template = redis.template();
+		properties = new XhRedisProperties();
+		properties.getTransaction().setMaxRetries(3);
+		properties.getTransaction().setBackoff(1);
+		transactions = new XhRedisTransactions();
+		ReflectionTestUtils.setField(transactions, "properties", properties);
+		key = "xhredis:test:tx:" + UUID.randomUUID();
+	}
+
+	@After
+	public void tearDown() {
+		if(template != null){
+			template.delete(key);
+		}
+	}
+
+	@Test
+	public void conflictBetweenWatchAndExecIsRetried() {
+		template.opsForValue().set(key, "0");
+		final AtomicInteger reads = new AtomicInteger();
+		String committed = transactions.execute(template, Collections.singletonList(key), operations -> {
+			String current = operations.opsForValue().get(key);
+			if(reads.incrementAndGet() == 1){
+				modifyFromOtherConnection("100");
+			}
+			return current;
+		}, (operations, current) -> operations.opsForValue().set(key, String.valueOf(Integer.parseInt(current) + 1)));
+		assertEquals("100", committed);
+		assertEquals("101", template.opsForValue().get(key));
+		assertEquals(2, reads.get());
+		assertEquals(1, transactions.getConflicts());
+		assertEquals(1, transactions.getCommits());
+	}
+
+	@Test
+	public void conflictIsDetectedWhenWriterQueuesNothing() {
+		template.opsForValue().set(key, "0");
+		final AtomicInteger reads = new AtomicInteger();
+		transactions.execute(template, Collections.singletonList(key), operations -> {
+			if(reads.incrementAndGet() == 1){
+				modifyFromOtherConnection("1");
+			}
+			return null;
+		}, (operations, current) -> {
+		});
+		assertEquals(2, reads.get());
+		assertEquals(1, transactions.getConflicts());
+	}
+
+	@Test
+	public void exhaustedRetriesThrow() {
+		template.opsForValue().set(key, "0");
+		final AtomicInteger reads = new AtomicInteger();
+		try {
+			transactions.execute(template, Collections.singletonList(key), operations -> {
+				modifyFromOtherConnection(String.valueOf(reads.incrementAndGet()));
+				return operations.opsForValue().get(key);
+			}, (operations, current) -> operations.opsForValue().set(key, "lost"));
+			fail();
+		} catch (OptimisticLockingFailureException expected) {
+		}
+		assertEquals(4, reads.get());
+		assertTrue(!"lost".equals(template.opsForValue().get(key)));
+		assertEquals(1, transactions.getExhausted());
+	}
+
+	@Test
+	public void updateKeepsTtlAndDoesNotLoseConcurrentWrites() {
+		template.opsForValue().set(key, "0", 60, TimeUnit.SECONDS);
+		final AtomicInteger calls = new AtomicInteger();
+		String updated = transactions.update(template, key, current -> {
+			if(calls.incrementAndGet() == 1){
+				modifyFromOtherConnection("10");
+			}
+			return String.valueOf(Integer.parseInt(current) + 1);
+		});
+		assertEquals("11", updated);
+		assertEquals("11", template.opsForValue().get(key));
+		assertTrue(template.getExpire(key, TimeUnit.SECONDS) > 0);
+	}
+
+	@Test
+	public void unchangedUpdateSkipsTheTransaction() {
+		template.opsForValue().set(key, "0");
+		final AtomicInteger calls = new AtomicInteger();
+		String updated = transactions.update(template, key, current -> {
+			calls.incrementAndGet();
+			modifyFromOtherConnection("1");
+			return null;
+		});
+		assertNull(updated);
+		assertEquals(1, calls.get());
+		assertEquals(0, transactions.getConflicts());
+		assertEquals("1", template.opsForValue().get(key));
+	}
+
+	@Test
+	public void atomicUpdateRunsOnTheServer() {
+		template.opsForValue().set(key, "10", 60, TimeUnit.SECONDS);
+		RedisScript<Long> deduct = XhRedisScripts.register("xhredis_test_deduct",
+				"local left = tonumber(redis.call('GET', KEYS[1]) or '0') - tonumber(ARGV[1]) "
+				+ "if left < 0 then return -1 end redis.call('DECRBY', KEYS[1], ARGV[1]) return left", Long.class);
+		assertEquals(Long.valueOf(7), transactions.atomicUpdate(template, deduct, key, "3"));
+		assertEquals(Long.valueOf(-1), transactions.atomicUpdate(template, deduct, key, "8"));
+		assertEquals("7", template.opsForValue().get(key));
+		assertTrue(template.getExpire(key, TimeUnit.SECONDS) > 0);
+	}
+
+	/**
+	 * 在其他线程上修改key，其他线程不会复用事务绑定在当前线程上的连接
+	 */
+	private void modifyFromOtherConnection(final String value) {
+		CompletableFuture.runAsync(() -> template.opsForValue().set(key, value, 60, TimeUnit.SECONDS)).join();
+	}
+}
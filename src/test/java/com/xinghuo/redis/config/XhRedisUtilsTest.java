@@ -0,0 +1,40 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisUtilsTest.java
+ *
+ *  Description     : XhRedisUtils中不访问redis的参数转换
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisUtilsTest {
+
+	@Test
+	public void scoreArgumentUsesRedisInfinity() {
+		assertEquals("+inf", XhRedisUtils.scoreArgument(Double.POSITIVE_INFINITY));
+		assertEquals("-inf", XhRedisUtils.scoreArgument(Double.NEGATIVE_INFINITY));
+		assertEquals("1.5", XhRedisUtils.scoreArgument(1.5D));
+		assertEquals("-0.25", XhRedisUtils.scoreArgument(-0.25D));
+		assertEquals(1.0E300, Double.parseDouble(XhRedisUtils.scoreArgument(1.0E300)), 0);
+	}
+
+	@Test
+	public void scoreArgumentRejectsNaN() {
+		try {
+			XhRedisUtils.scoreArgument(Double.NaN);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
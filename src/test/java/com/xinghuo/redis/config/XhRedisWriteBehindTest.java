@@ -0,0 +1,170 @@
+package com.xinghuo.redis.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/***************************************************************************
+ * <PRE>
+ *
+ *  className       : XhRedisWriteBehindTest.java
+ *
+ *  Description     : 异步批量写入合并同一个key的写入，overflow-policy不区分大小写，redis不可用时关闭不空转，
+ *                    正在写入的值可读、写入失败不覆盖新值、调用线程直接写入不抢先于同一个key正在进行的写入
+ *
+ *  AUTHOR          : liquanfa
+ *
+ *  Date   		    : 2026-10-19
+ *
+ * </PRE>
+ ***************************************************************************/
+public class XhRedisWriteBehindTest {
+
+	private XhRedisProperties properties;
+
+	private XhRedisGuard guard;
+
+	private XhRedisWriteBehind writeBehind;
+
+	@Before
+	public void setUp() {
+		properties = new XhRedisProperties();
+		properties.getWriteBehind().setFlushInterval(60000);
+		guard = mock(XhRedisGuard.class);
+		writeBehind = new XhRedisWriteBehind();
+		ReflectionTestUtils.setField(writeBehind, "properties", properties);
+		ReflectionTestUtils.setField(writeBehind, "guard", guard);
+		ReflectionTestUtils.setField(writeBehind, "redisUtils", mock(XhRedisUtils.class));
+		ReflectionTestUtils.setField(writeBehind, "pools", mock(XhRedisPools.class));
+	}
+
+	@After
+	public void tearDown() {
+		properties.getWriteBehind().setShutdownTimeout(0);
+		writeBehind.destroy();
+	}
+
+	@Test
+	public void writesToTheSameKeyAreCoalesced() {
+		writeBehind.afterPropertiesSet();
+		writeBehind.set("k1", "v1");
+		writeBehind.set("k2", "v1");
+		writeBehind.set("k1", "v2");
+		writeBehind.delete("k2");
+		assertEquals(2, writeBehind.getQueueDepth());
+		assertEquals(4, writeBehind.getEnqueuedCount());
+		assertEquals(2, writeBehind.getCoalescedCount());
+		assertEquals("v2", writeBehind.get("k1"));
+		assertNull(writeBehind.get("k2"));
+		writeBehind.flush();
+		verify(guard, times(1)).execute(any(), any());
+		assertEquals(0, writeBehind.getQueueDepth());
+		assertEquals(2, writeBehind.getFlushedKeys());
+	}
+
+	@Test
+	public void overflowPolicyIsCaseInsensitive() {
+		properties.getWriteBehind().setCapacity(1);
+		properties.getWriteBehind().setOverflowPolicy(" discard ");
+		writeBehind.afterPropertiesSet();
+		writeBehind.set("k1", "v1");
+		writeBehind.set("k2", "v2");
+		assertEquals(1, writeBehind.getQueueDepth());
+		assertEquals(1, writeBehind.getDiscardedCount());
+	}
+
+	@Test
+	public void destroyBacksOffWhileRedisIsDown() {
+		properties.getWriteBehind().setShutdownTimeout(500);
+		when(guard.execute(any(), any())).thenThrow(new RedisConnectionFailureException("连接失败"));
+		writeBehind.afterPropertiesSet();
+		writeBehind.set("k1", "v1");
+		long begin = System.currentTimeMillis();
+		writeBehind.destroy();
+		assertTrue(System.currentTimeMillis() - begin >= 400);
+		int attempts = mockingDetails(guard).getInvocations().size();
+		assertTrue("重试次数=" + attempts, attempts <= 10);
+		assertEquals(1, writeBehind.getQueueDepth());
+	}
+
+	@Test
+	public void inFlightWriteIsVisibleToGet() {
+		final AtomicReference<Object> seen = new AtomicReference<Object>();
+		when(guard.execute(any(), any())).thenAnswer(invocation -> {
+			seen.set(writeBehind.get("k1"));
+			return null;
+		});
+		writeBehind.afterPropertiesSet();
+		writeBehind.set("k1", "v1");
+		writeBehind.flush();
+		assertEquals("v1", seen.get());
+	}
+
+	@Test
+	public void failedBatchDoesNotOverwriteNewerWrite() {
+		when(guard.execute(any(), any())).thenAnswer(invocation -> {
+			writeBehind.set("k1", "v2");
+			throw new RedisConnectionFailureException("连接失败");
+		});
+		writeBehind.afterPropertiesSet();
+		writeBehind.set("k1", "v1");
+		try {
+			writeBehind.flush();
+		} catch (RedisConnectionFailureException e) {
+			//写入失败后放回缓冲
+		}
+		assertEquals(1, writeBehind.getQueueDepth());
+		assertEquals("v2", writeBehind.get("k1"));
+	}
+
+	@Test
+	public void callerRunsWaitsForInFlightWriteOfTheSameKey() throws Exception {
+		properties.getWriteBehind().setCapacity(1);
+		properties.getWriteBehind().setOverflowPolicy("caller_runs");
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		when(guard.execute(any(), any())).thenAnswer(invocation -> {
+			if(calls.incrementAndGet() == 1){
+				started.countDown();
+				release.await(5, TimeUnit.SECONDS);
+			}
+			return null;
+		});
+		writeBehind.afterPropertiesSet();
+		writeBehind.set("k1", "v1");
+		Thread flushing = new Thread(writeBehind::flush);
+		flushing.start();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		writeBehind.set("k2", "v1");
+		Thread caller = new Thread(() -> writeBehind.set("k1", "v2"));
+		caller.start();
+		caller.join(200);
+		assertTrue(caller.isAlive());
+		assertEquals(1, calls.get());
+		assertEquals("v1", writeBehind.get("k1"));
+		release.countDown();
+		caller.join(5000);
+		flushing.join(5000);
+		assertFalse(caller.isAlive());
+		assertFalse(flushing.isAlive());
+	}
+}